@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.microrisc.jlibiqrf.capture.CaptureDirection;
+import com.microrisc.jlibiqrf.capture.CaptureWriter;
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of capturing of frames by memory-mapped {@link CaptureWriter}
+ * compared with writing of each record by system call.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureWriterBenchmark {
+
+    /** Size of captured frame. */
+    @Param({"6", "32", "128", "497"})
+    private int size;
+
+    private short[] data;
+    private ByteBuffer dataBuffer;
+    private ByteBuffer record;
+    private File file;
+    private File rawFile;
+    private CaptureWriter writer;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        data = Payloads.create(size);
+        dataBuffer = ByteBuffer.allocate(size);
+        for (short item : data) {
+            dataBuffer.put((byte) item);
+        }
+        dataBuffer.flip();
+        record = ByteBuffer.allocateDirect(12 + size);
+    }
+
+    // every iteration writes into new file, so files don't grow too much
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        file = File.createTempFile("capture", ".iqcp");
+        writer = new CaptureWriter(file);
+        rawFile = File.createTempFile("capture", ".raw");
+        randomAccessFile = new RandomAccessFile(rawFile, "rw");
+        channel = randomAccessFile.getChannel();
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        writer.close();
+        file.delete();
+        randomAccessFile.close();
+        rawFile.delete();
+    }
+
+    @Benchmark
+    public void captureBytes() throws IOException {
+        writer.write(CaptureDirection.RECEIVED, IQRFCommunicationType.UDP, dataBuffer);
+    }
+
+    @Benchmark
+    public void captureShorts() throws IOException {
+        writer.write(CaptureDirection.SENT, IQRFCommunicationType.UDP, data);
+    }
+
+    @Benchmark
+    public int writePerFrame() throws IOException {
+        record.clear();
+        record.putLong(System.nanoTime());
+        record.put((byte) 2);
+        record.put((byte) IQRFCommunicationType.UDP.ordinal());
+        record.putShort((short) size);
+        record.put(dataBuffer.duplicate());
+        record.flip();
+        return channel.write(record);
+    }
+}
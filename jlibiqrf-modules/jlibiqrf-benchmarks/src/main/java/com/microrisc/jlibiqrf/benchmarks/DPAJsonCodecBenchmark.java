@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microrisc.jlibiqrf.bridge.json.dpa.DPAJsonConvertor;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of streaming DPA codec used by {@link DPAJsonConvertor} against
+ * the tree model and data binding formerly used.
+ * <p>
+ * Run with {@code -prof gc} to compare allocation per message. Setup checks
+ * that both ways produce the same frames and messages.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DPAJsonCodecBenchmark {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Param({"6", "32", "128", "497"})
+    private int size;
+
+    private short[] data;
+    private byte[] json;
+
+    private final DPAJsonConvertor convertor = DPAJsonConvertor.getInstance();
+
+    /** Request as it was bound by data binding. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static final class BoundRequest {
+
+        @JsonProperty("nadr")
+        public int address;
+        @JsonProperty("per")
+        public short peripheral;
+        @JsonProperty("cmd")
+        public short command;
+        @JsonProperty("hwpid")
+        public int hardwareProfiles;
+        @JsonProperty("data")
+        public short[] data;
+
+        short[] getData() {
+            short[] result = new short[6 + data.length];
+            result[0] = (short) (address & 0xFF);
+            result[1] = (short) ((address >> 8) & 0xFF);
+            result[2] = peripheral;
+            result[3] = command;
+            result[4] = (short) (hardwareProfiles & 0xFF);
+            result[5] = (short) ((hardwareProfiles >> 8) & 0xFF);
+            System.arraycopy(data, 0, result, 6, data.length);
+            return result;
+        }
+    }
+
+    // former encoding of DPA response
+    private static byte[] treeModelResponse(short[] iqrfData, long timeMillis) {
+        ObjectNode parsedData = mapper.createObjectNode();
+        parsedData.put("timestamp", new Timestamp(timeMillis).toString());
+        parsedData.put("nadr", (iqrfData[1] << 8) + iqrfData[0]);
+        parsedData.put("per", iqrfData[2]);
+        parsedData.put("cmd", iqrfData[3]);
+        parsedData.put("hwpid", (iqrfData[5] << 8) + iqrfData[4]);
+        ArrayNode array = parsedData.putArray("data");
+        for (int i = 6; i < iqrfData.length; i++) {
+            array.add(iqrfData[i]);
+        }
+        return parsedData.toString().getBytes();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        data = Payloads.create(size);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"nadr\":1,\"per\":2,\"cmd\":0,\"hwpid\":65535,\"data\":[");
+        for (int i = 6; i < data.length; i++) {
+            if (i > 6) {
+                builder.append(',');
+            }
+            builder.append(data[i]);
+        }
+        builder.append("]}");
+        json = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        short[] expectedFrame = dataBinding();
+        short[] actualFrame = streamingDecode();
+        if (!Arrays.equals(expectedFrame, actualFrame)) {
+            throw new IllegalStateException("Different frames, expected "
+                    + Arrays.toString(expectedFrame) + " but was " + Arrays.toString(actualFrame));
+        }
+
+        // time is taken inside of convertor, so timestamp field is compared apart
+        ObjectNode expected = (ObjectNode) mapper.readTree(treeModelResponse(data, 0));
+        ObjectNode actual = (ObjectNode) mapper.readTree(streamingEncode());
+        String timestamp = actual.remove("timestamp").asText();
+        expected.remove("timestamp");
+        if (!expected.toString().equals(actual.toString()) || Timestamp.valueOf(timestamp) == null) {
+            throw new IllegalStateException("Different messages, expected "
+                    + expected + " but was " + actual);
+        }
+    }
+
+    @Benchmark
+    public short[] dataBinding() throws IOException {
+        return mapper.readValue(new String(json), BoundRequest.class).getData();
+    }
+
+    @Benchmark
+    public short[] streamingDecode() {
+        return convertor.toIQRF(json).getData();
+    }
+
+    @Benchmark
+    public byte[] treeModel() {
+        return treeModelResponse(data, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public byte[] streamingEncode() {
+        return convertor.toJson(data).getPayload();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.microrisc.jlibiqrf.JLibIQRF;
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+import com.microrisc.jlibiqrf.dpa.DPAResponseCache;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
+import com.microrisc.jlibiqrf.iqrfLayer.loopback.LoopbackConfiguration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of DPA read request answered by {@link DPAResponseCache}
+ * compared with its round trip through loopback network answering without
+ * delays.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DPAResponseCacheBenchmark {
+
+    private JLibIQRF iqrf;
+    private DPAResponseCache cache;
+    private short[] request;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException, ExecutionException {
+        iqrf = JLibIQRF.init(new LoopbackConfiguration(10, 1, 4, 0, 0));
+        if (iqrf == null) {
+            throw new IllegalStateException("Loopback network cannot be started");
+        }
+        cache = new DPAResponseCache(iqrf, TimeUnit.HOURS.toMillis(1), 100,
+                JLibIQRF.DEFAULT_RESPONSE_TIMEOUT);
+        // thermometer read of node 1
+        request = Payloads.create(DPAMessages.REQUEST_HEADER_LENGTH);
+        request[DPAMessages.PNUM_POS] = 0x0A;
+        request[DPAMessages.PCMD_POS] = 0x00;
+        cache.send(request).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        iqrf.destroy();
+    }
+
+    @Benchmark
+    public DPAResult cached() throws InterruptedException, ExecutionException {
+        return cache.send(request).get();
+    }
+
+    @Benchmark
+    public DPAResult network() throws InterruptedException, ExecutionException {
+        return iqrf.sendAsync(request).get();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_DataTransformer;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_Frame;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of GW-ETH-01 protocol transformations.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GWETHTransformerBenchmark {
+
+    /** Size of DATA part, up to {@link GWETH_DataTransformer#MAX_DATA_LENGTH}. */
+    @Param({"6", "32", "128", "497"})
+    private int size;
+
+    private short[] data;
+    private short[] message;
+    private ByteBuffer messageBuffer;
+    private ByteBuffer dataBuffer;
+    private byte[] dataBytes;
+    private final GWETH_Frame frame = new GWETH_Frame();
+
+    @Setup
+    public void setup() {
+        data = Payloads.create(size);
+        message = GWETH_DataTransformer.transformRequestData(data);
+        // asynchronous message as received from GW
+        message[1] = 0x04;
+        int crc = GWETH_DataTransformer.updateCRC(GWETH_DataTransformer.CRC_INITIAL_VALUE,
+                message, 0, message.length - 2);
+        message[message.length - 2] = (short) ((crc >> 8) & 0xFF);
+        message[message.length - 1] = (short) (crc & 0xFF);
+
+        messageBuffer = ByteBuffer.allocate(message.length);
+        for (short item : message) {
+            messageBuffer.put((byte) item);
+        }
+        messageBuffer.flip();
+
+        dataBuffer = ByteBuffer.allocate(size);
+        for (short item : data) {
+            dataBuffer.put((byte) item);
+        }
+        dataBuffer.flip();
+        dataBytes = new byte[GWETH_DataTransformer.MAX_DATA_LENGTH];
+    }
+
+    @Benchmark
+    public short[] transformRequestData() {
+        return GWETH_DataTransformer.transformRequestData(data);
+    }
+
+    @Benchmark
+    public byte[] createRequestMessageFromBytes() {
+        return GWETH_DataTransformer.createRequestMessage(dataBuffer);
+    }
+
+    @Benchmark
+    public short[] getDataFromMessage() {
+        return GWETH_DataTransformer.getDataFromMessage(message);
+    }
+
+    @Benchmark
+    public short[] isAsynchronousAndGetData() {
+        if (GWETH_DataTransformer.isAsynchronousMessage(message)) {
+            return GWETH_DataTransformer.getDataFromMessage(message);
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int frameWrap() {
+        frame.wrap(messageBuffer);
+        return frame.isAsynchronous() ? frame.getDataLength() : -1;
+    }
+
+    @Benchmark
+    public short[] frameWrapAndGetData() {
+        frame.wrap(messageBuffer);
+        return frame.getData();
+    }
+
+    @Benchmark
+    public byte[] frameWrapAndGetDataBytes() {
+        frame.wrap(messageBuffer);
+        frame.getData(dataBytes, 0);
+        return dataBytes;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.microrisc.hdlcframing.v2.HDLC_DataTransformer;
+import com.microrisc.hdlcframing.v2.HDLC_FormatException;
+import com.microrisc.jlibiqrf.iqrfLayer.serial.HDLC_Deframer;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of HDLC framing used by serial layer.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HDLCTransformerBenchmark {
+
+    @Param({"6", "32", "128", "497"})
+    private int size;
+
+    private short[] data;
+    private short[] frame;
+
+    // escaped frame with CRC as it comes from serial port
+    private byte[] serialBytes;
+    private HDLC_Deframer deframer;
+    private int deframedLength;
+
+    // escapes specified byte into stream
+    private static void writeEscaped(ByteArrayOutputStream stream, int value) {
+        if (value == HDLC_Deframer.FLAG || value == HDLC_Deframer.ESCAPE) {
+            stream.write(HDLC_Deframer.ESCAPE);
+            stream.write(value ^ HDLC_Deframer.ESCAPE_BIT);
+        } else {
+            stream.write(value);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        data = Payloads.create(size);
+        frame = HDLC_DataTransformer.transformToHLDCFormat(data);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(HDLC_Deframer.FLAG);
+        int crc = HDLC_Deframer.CRC_INITIAL_VALUE;
+        for (short item : data) {
+            crc = HDLC_Deframer.updateCRC(crc, item);
+            writeEscaped(stream, item & 0xFF);
+        }
+        writeEscaped(stream, crc);
+        stream.write(HDLC_Deframer.FLAG);
+        serialBytes = stream.toByteArray();
+
+        deframer = new HDLC_Deframer(new HDLC_Deframer.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int length) {
+                deframedLength = length;
+            }
+
+            @Override
+            public void onInvalidFrame(String reason) {
+                throw new IllegalStateException(reason);
+            }
+        });
+    }
+
+    @Benchmark
+    public short[] transformToHDLCFormat() {
+        return HDLC_DataTransformer.transformToHLDCFormat(data);
+    }
+
+    @Benchmark
+    public short[] getDataFromFrame() throws HDLC_FormatException {
+        return HDLC_DataTransformer.getDataFromFrame(frame);
+    }
+
+    @Benchmark
+    public short[] roundTrip() throws HDLC_FormatException {
+        return HDLC_DataTransformer.getDataFromFrame(HDLC_DataTransformer.transformToHLDCFormat(data));
+    }
+
+    @Benchmark
+    public int deframe() {
+        deframer.feed(serialBytes, 0, serialBytes.length);
+        return deframedLength;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.microrisc.jlibiqrf.bridge.json.dpa.DPAJsonConvertor;
+import com.microrisc.jlibiqrf.bridge.json.simple.SimpleJsonConvertor;
+import com.microrisc.jlibiqrf.bridge.mqtt.PublishableMqttMessage;
+import com.microrisc.jlibiqrf.types.IQRFData;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of JSON convertors used by bridge in both directions.
+ * <p>
+ * {@link SimpleJsonConvertor#toIQRF(Object)} stores DPA addon, which is
+ * consumed by the following {@link SimpleJsonConvertor#toJson(short[])}, so it
+ * is measured only in round trip, otherwise the stored addons would grow
+ * without limit.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConvertorBenchmark {
+
+    @Param({"6", "32", "128", "497"})
+    private int size;
+
+    private short[] data;
+    private String simpleJson;
+    private String dpaJson;
+
+    private final SimpleJsonConvertor simpleConvertor = SimpleJsonConvertor.getInstance();
+    private final DPAJsonConvertor dpaConvertor = DPAJsonConvertor.getInstance();
+
+    @Setup
+    public void setup() {
+        data = Payloads.create(size);
+        simpleJson = new String(simpleConvertor.toJson(data).getPayload());
+
+        StringBuilder dpaBuilder = new StringBuilder();
+        dpaBuilder.append("{\"nadr\":1,\"per\":2,\"cmd\":0,\"hwpid\":65535,\"data\":[");
+        for (int i = 6; i < data.length; i++) {
+            if (i > 6) {
+                dpaBuilder.append(',');
+            }
+            dpaBuilder.append(data[i]);
+        }
+        dpaBuilder.append("]}");
+        dpaJson = dpaBuilder.toString();
+    }
+
+    @Benchmark
+    public PublishableMqttMessage simpleToJson() {
+        return simpleConvertor.toJson(data);
+    }
+
+    @Benchmark
+    public PublishableMqttMessage simpleRoundTrip() {
+        IQRFData iqrfData = simpleConvertor.toIQRF(simpleJson);
+        return simpleConvertor.toJson(iqrfData.getData());
+    }
+
+    @Benchmark
+    public PublishableMqttMessage dpaToJson() {
+        return dpaConvertor.toJson(data);
+    }
+
+    @Benchmark
+    public short[] dpaToIQRF() {
+        return dpaConvertor.toIQRF(dpaJson).getData();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.microrisc.jlibiqrf.JLibIQRF;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
+import com.microrisc.jlibiqrf.iqrfLayer.loopback.LoopbackConfiguration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of DPA request round trip through {@link JLibIQRF} and loopback
+ * network answering without delays, so only overhead of the library is
+ * measured.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackDPABenchmark {
+
+    /** Count of requests sent before waiting for their results. */
+    private static final int BATCH = 64;
+
+    /** Count of simulated nodes. */
+    private static final int NODE_COUNT = 10;
+
+    /** Size of data of DPA request. */
+    @Param({"0", "32", "56"})
+    private int size;
+
+    /** Requests are sent by {@link com.microrisc.jlibiqrf.dpa.DPARequestScheduler}. */
+    @Param({"true", "false"})
+    private boolean scheduling;
+
+    private JLibIQRF iqrf;
+    private short[][] requests;
+    private final IQRFFuture<?>[] futures = new IQRFFuture<?>[BATCH];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        iqrf = JLibIQRF.init(new LoopbackConfiguration(NODE_COUNT, 1, 4, 0, 0));
+        if (iqrf == null) {
+            throw new IllegalStateException("Loopback network cannot be started");
+        }
+        iqrf.setRequestScheduling(scheduling);
+        requests = new short[NODE_COUNT][];
+        for (int i = 0; i < NODE_COUNT; i++) {
+            // request for each node, command without response flag
+            short[] request = Payloads.create(DPAMessages.REQUEST_HEADER_LENGTH + size);
+            request[DPAMessages.NADR_POS] = (short) (i + 1);
+            request[DPAMessages.PCMD_POS] = 0x03;
+            requests[i] = request;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        iqrf.destroy();
+    }
+
+    @Benchmark
+    public DPAResult roundTrip() throws InterruptedException, ExecutionException {
+        return iqrf.sendAsync(requests[0]).get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object pipelined() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = iqrf.sendAsync(requests[i % NODE_COUNT]);
+        }
+        Object result = null;
+        for (int i = 0; i < BATCH; i++) {
+            result = futures[i].get();
+        }
+        return result;
+    }
+}
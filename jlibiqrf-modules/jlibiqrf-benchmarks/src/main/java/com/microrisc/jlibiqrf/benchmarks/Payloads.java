@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Creates deterministic payloads used by benchmarks.
+ *
+ * @author Martin Strouhal
+ */
+final class Payloads {
+
+    /** Seed of generator, the same data are used in every run. */
+    private static final long SEED = 0x10F0L;
+
+    private Payloads() {
+    }
+
+    /**
+     * Returns DPA-like payload of specified size. First 6 bytes form DPA
+     * header (NADR 1, PNUM 2, PCMD 0x80, HWPID 0xFFFF), the rest is random.
+     *
+     * @param size of payload, at least 6
+     * @return payload
+     */
+    static short[] create(int size) {
+        short[] payload = new short[size];
+        Random random = new Random(SEED);
+        for (int i = 0; i < size; i++) {
+            payload[i] = (short) random.nextInt(256);
+        }
+        payload[0] = 0x01;
+        payload[1] = 0x00;
+        payload[2] = 0x02;
+        payload[3] = 0x80;
+        payload[4] = 0xFF;
+        payload[5] = 0xFF;
+        return payload;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microrisc.jlibiqrf.bridge.json.simple.SimpleJsonEncoder;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of streaming {@link SimpleJsonEncoder} against the tree model
+ * based encoding formerly used by
+ * {@link com.microrisc.jlibiqrf.bridge.json.simple.SimpleJsonConvertor}.
+ * <p>
+ * Run with {@code -prof gc} to compare allocation per message. Setup checks
+ * that both encodings produce the same bytes.
+ *
+ * @author Martin Strouhal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleJsonEncoderBenchmark {
+
+    private static final String MAC = "00:1A:2B:3C:4D:5E";
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Param({"6", "32", "128", "497"})
+    private int size;
+
+    private short[] data;
+    private final SimpleJsonEncoder encoder = new SimpleJsonEncoder(MAC);
+
+    // former encoding of SimpleJsonConvertor.toJson with time as parameter
+    private static byte[] treeModelEncode(short[] iqrf, boolean dpa,
+            int dpaPacketNumber, long timeMillis) {
+        ObjectNode parsedData = mapper.createObjectNode();
+
+        StringBuilder payloadBuilder = new StringBuilder();
+        for (int i = 0; i < iqrf.length; i++) {
+            payloadBuilder.append(String.format("%02x", iqrf[i]));
+            if (i < iqrf.length - 1) {
+                payloadBuilder.append(".");
+            }
+        }
+        parsedData.put("payload", payloadBuilder.toString().toUpperCase());
+        parsedData.put("dpa", dpa);
+        parsedData.put("dpa-pn", dpaPacketNumber);
+        parsedData.put("size", iqrf.length);
+        parsedData.put("mac", MAC);
+        parsedData.put("time", new Timestamp(timeMillis).toString());
+        parsedData.put("timestamp", timeMillis);
+        return parsedData.toString().getBytes();
+    }
+
+    @Setup
+    public void setup() {
+        data = Payloads.create(size);
+
+        long now = System.currentTimeMillis();
+        short[] outOfRange = Arrays.copyOf(data, data.length);
+        outOfRange[outOfRange.length - 1] = -1;
+        for (long time = now; time < now + 2500; time += 7) {
+            check(data, true, (int) time, time);
+            check(outOfRange, false, 0, time);
+        }
+        check(new short[0], false, 0, now - now % 1000);
+    }
+
+    private void check(short[] iqrf, boolean dpa, int dpaPacketNumber, long time) {
+        byte[] expected = treeModelEncode(iqrf, dpa, dpaPacketNumber, time);
+        byte[] actual = encoder.encode(iqrf, dpa, dpaPacketNumber, time);
+        if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException("Different encoding, expected "
+                    + new String(expected) + " but was " + new String(actual));
+        }
+    }
+
+    @Benchmark
+    public byte[] treeModel() {
+        return treeModelEncode(data, true, 1, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public byte[] streaming() {
+        return encoder.encode(data, true, 1, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks.udp;
+
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_DataTransformer;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_Frame;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulator of GW-ETH-01 gateway with DPA coordinator for load testing of UDP
+ * layers on local host.
+ * <p>
+ * Every valid write request (CMD 0x03) is acknowledged (CMD 0x83) and after
+ * configured latency answered by asynchronous messages (CMD 0x04) with DPA
+ * confirmation (for requests to nodes) and DPA response, which echoes data of
+ * request. Requests can be lost with configured probability, in such case
+ * nothing is answered. Besides that, the simulator can send unsolicited
+ * asynchronous messages with configured rate.
+ *
+ * @author Martin Strouhal
+ */
+public final class GWETHSimulator {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(GWETHSimulator.class);
+
+    private static final int GW_ADR = 0x22;
+    private static final int CMD_WRITE = 0x03;
+    private static final int CMD_ASYNC = 0x04;
+    private static final int CMD_WRITE_ANSWER = 0x83;
+    private static final int HEADER_SIZE = 9;
+    private static final int CRC_SIZE = 2;
+
+    /** HWPID of unsolicited messages, differs from HWPID of echoed requests. */
+    static final int UNSOLICITED_HWPID = 0x0002;
+
+    /** Unsolicited message sent with async rate - response of node. */
+    private static final short[] UNSOLICITED_DATA = {
+        0x10, 0x00, 0x05, 0x80, UNSOLICITED_HWPID, 0x00, 0x00, 0x40, 0x01, 0x02, 0x03, 0x04
+    };
+
+    private final int port;
+    private final long latencyMicros;
+    private final double lossRate;
+    private final double asyncRate;
+
+    private final Random random = new Random(42);
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong lostCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+
+    private DatagramChannel channel;
+    private ScheduledExecutorService scheduler;
+    private Thread receiver;
+    private volatile SocketAddress client;
+
+    /**
+     * Creates simulator.
+     *
+     * @param port local UDP port of simulated gateway
+     * @param latencyMicros delay of confirmation and response [in us]
+     * @param lossRate probability of losing request, from 0 to 1
+     * @param asyncRate count of unsolicited asynchronous messages per second,
+     * {@code 0} means none
+     */
+    public GWETHSimulator(int port, long latencyMicros, double lossRate, double asyncRate) {
+        if (latencyMicros < 0) {
+            throw new IllegalArgumentException("Latency cannot be negative");
+        }
+        if (lossRate < 0 || lossRate > 1) {
+            throw new IllegalArgumentException("Loss rate must be in interval <0, 1>");
+        }
+        if (asyncRate < 0) {
+            throw new IllegalArgumentException("Async rate cannot be negative");
+        }
+        this.port = port;
+        this.latencyMicros = latencyMicros;
+        this.lossRate = lossRate;
+        this.asyncRate = asyncRate;
+    }
+
+    /**
+     * Creates GW message with specified command and data.
+     *
+     * @param cmd command of message
+     * @param data DATA part of message
+     * @return buffer ready for sending
+     */
+    static ByteBuffer createMessage(int cmd, short[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.length + CRC_SIZE);
+        buffer.put((byte) GW_ADR);
+        buffer.put((byte) cmd);
+        for (int i = 2; i < 7; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put((byte) (data.length >> 8));
+        buffer.put((byte) data.length);
+        for (short item : data) {
+            buffer.put((byte) item);
+        }
+        int crc = GWETH_DataTransformer.updateCRC(GWETH_DataTransformer.CRC_INITIAL_VALUE,
+                buffer, 0, buffer.position());
+        buffer.put((byte) (crc >> 8));
+        buffer.put((byte) crc);
+        buffer.flip();
+        return buffer;
+    }
+
+    /** Returns DPA confirmation of specified request. */
+    private static short[] createConfirmation(short[] request) {
+        short[] confirmation = new short[DPAMessages.CONFIRMATION_LENGTH];
+        System.arraycopy(request, 0, confirmation, 0, DPAMessages.REQUEST_HEADER_LENGTH);
+        confirmation[DPAMessages.ERRN_POS] = DPAMessages.STATUS_CONFIRMATION;
+        confirmation[DPAMessages.DPA_VALUE_POS] = 0x40;
+        confirmation[DPAMessages.HOPS_POS] = 1;
+        confirmation[DPAMessages.TIMESLOT_POS] = 8;
+        confirmation[DPAMessages.HOPS_RESPONSE_POS] = 1;
+        return confirmation;
+    }
+
+    /** Returns DPA response of specified request, data of request are echoed. */
+    private static short[] createResponse(short[] request) {
+        int dataLength = request.length - DPAMessages.REQUEST_HEADER_LENGTH;
+        short[] response = new short[DPAMessages.DPA_VALUE_POS + 1 + dataLength];
+        System.arraycopy(request, 0, response, 0, DPAMessages.REQUEST_HEADER_LENGTH);
+        response[DPAMessages.PCMD_POS] |= DPAMessages.RESPONSE_FLAG;
+        response[DPAMessages.ERRN_POS] = 0;
+        response[DPAMessages.DPA_VALUE_POS] = 0x40;
+        System.arraycopy(request, DPAMessages.REQUEST_HEADER_LENGTH, response,
+                DPAMessages.DPA_VALUE_POS + 1, dataLength);
+        return response;
+    }
+
+    private void send(ByteBuffer message, SocketAddress target) {
+        try {
+            channel.send(message, target);
+            sentCount.incrementAndGet();
+        } catch (ClosedChannelException ex) {
+            logger.debug("Simulator closed, message not sent");
+        } catch (IOException ex) {
+            logger.error("Sending of message failed: " + ex.getMessage());
+        }
+    }
+
+    private void answer(final short[] request, final SocketAddress target) {
+        Runnable answering = new Runnable() {
+            @Override
+            public void run() {
+                int nadr = DPAMessages.getNadr(request);
+                if (DPAMessages.expectsConfirmation(nadr)) {
+                    send(createMessage(CMD_ASYNC, createConfirmation(request)), target);
+                }
+                if (DPAMessages.expectsResponse(nadr)) {
+                    send(createMessage(CMD_ASYNC, createResponse(request)), target);
+                }
+            }
+        };
+        if (latencyMicros == 0) {
+            answering.run();
+        } else {
+            scheduler.schedule(answering, latencyMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /** Receives requests and answers them. */
+    private class Receiver extends Thread {
+
+        Receiver() {
+            super("GWETHSimulator-receiver");
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+                    + GWETH_DataTransformer.MAX_DATA_LENGTH + CRC_SIZE);
+            GWETH_Frame frame = new GWETH_Frame();
+            ByteBuffer writeAnswer = createMessage(CMD_WRITE_ANSWER, new short[0]);
+
+            while (!isInterrupted()) {
+                SocketAddress sender;
+                buffer.clear();
+                try {
+                    sender = channel.receive(buffer);
+                } catch (ClosedChannelException ex) {
+                    return;
+                } catch (IOException ex) {
+                    logger.error("Receiving of request failed: " + ex.getMessage());
+                    continue;
+                }
+                buffer.flip();
+                client = sender;
+
+                try {
+                    frame.wrap(buffer);
+                } catch (IllegalArgumentException ex) {
+                    logger.warn("Invalid request: " + ex.getMessage());
+                    continue;
+                }
+                if (frame.getCommand() != CMD_WRITE
+                        || frame.getDataLength() < DPAMessages.REQUEST_HEADER_LENGTH) {
+                    continue;
+                }
+                receivedCount.incrementAndGet();
+
+                synchronized (random) {
+                    if (lossRate > 0 && random.nextDouble() < lossRate) {
+                        lostCount.incrementAndGet();
+                        continue;
+                    }
+                }
+
+                send(writeAnswer.duplicate(), sender);
+                answer(frame.getData(), sender);
+            }
+        }
+    }
+
+    /**
+     * Starts the simulator.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        channel = DatagramChannel.open();
+        channel.socket().setReceiveBufferSize(4 * 1024 * 1024);
+        channel.socket().setSendBufferSize(4 * 1024 * 1024);
+        channel.socket().bind(new InetSocketAddress("localhost", port));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "GWETHSimulator-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if (asyncRate > 0) {
+            final ByteBuffer unsolicited = createMessage(CMD_ASYNC, UNSOLICITED_DATA);
+            long period = (long) (TimeUnit.SECONDS.toNanos(1) / asyncRate);
+            scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    SocketAddress target = client;
+                    if (target != null) {
+                        send(unsolicited.duplicate(), target);
+                    }
+                }
+            }, period, period, TimeUnit.NANOSECONDS);
+        }
+
+        receiver = new Receiver();
+        receiver.setDaemon(true);
+        receiver.start();
+        logger.info("GW-ETH simulator started on port {}", port);
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        receiver.interrupt();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            logger.warn("Closing of channel failed: " + ex.getMessage());
+        }
+        logger.info("GW-ETH simulator stopped: {}", this);
+    }
+
+    /**
+     * Returns count of received valid requests.
+     *
+     * @return count of requests
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Returns count of intentionally lost requests.
+     *
+     * @return count of lost requests
+     */
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    /**
+     * Returns count of sent messages.
+     *
+     * @return count of messages
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GWETHSimulator{" + "port=" + port + ", latencyMicros=" + latencyMicros
+                + ", lossRate=" + lossRate + ", asyncRate=" + asyncRate
+                + ", receivedCount=" + receivedCount + ", lostCount=" + lostCount
+                + ", sentCount=" + sentCount + '}';
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.benchmarks.udp;
+
+import com.microrisc.jlibiqrf.IQRFListener;
+import com.microrisc.jlibiqrf.JLibIQRF;
+import com.microrisc.jlibiqrf.async.IQRFCallback;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPConfiguration;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPIQRFLayer;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load harness of UDP layer. Drives {@link JLibIQRF} over UDP against
+ * {@link GWETHSimulator} running on local host and reports throughput and
+ * round-trip latency percentiles of DPA requests.
+ * <p>
+ * Requests are sent with constant rate (open loop), count of pending requests
+ * is limited by window. Every request has unique NADR, PNUM and PCMD, so lost
+ * requests don't break pairing of the others.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar
+ * com.microrisc.jlibiqrf.benchmarks.udp.UDPLoadHarness [options]}, options are
+ * <ul>
+ * <li>{@code --rate} requests per second, default 20000</li>
+ * <li>{@code --duration} of measurement in seconds, default 10</li>
+ * <li>{@code --warmup} in seconds, default 3</li>
+ * <li>{@code --window} maximal count of pending requests, default 1000</li>
+ * <li>{@code --payload} size of request data after DPA header, default 8</li>
+ * <li>{@code --latency} of simulator in microseconds, default 0</li>
+ * <li>{@code --loss} probability of lost request, default 0</li>
+ * <li>{@code --async} unsolicited messages per second, default 0</li>
+ * <li>{@code --timeout} of request in milliseconds, default 1000</li>
+ * <li>{@code --engine} {@code nio} or {@code blocking}, default nio</li>
+ * <li>{@code --port} of simulator, layer uses port + 1, default 55300</li>
+ * <li>{@code --scheduling} {@code true} to send requests through DPA request
+ * scheduler, default false, so only the UDP layer is measured</li>
+ * </ul>
+ *
+ * @author Martin Strouhal
+ */
+public final class UDPLoadHarness {
+
+    /** Count of usable node addresses, excludes local and broadcast address. */
+    private static final int NADR_COUNT = 0xEF;
+
+    private final int rate;
+    private final int window;
+    private final int payload;
+    private final long timeout;
+
+    private final Semaphore inflight;
+    private long[] latencies;
+    private final AtomicInteger latencyCount = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong unsolicited = new AtomicLong();
+    private volatile boolean recording = false;
+    private int sequence = 0;
+
+    private UDPLoadHarness(int rate, int window, int payload, long timeout) {
+        this.rate = rate;
+        this.window = window;
+        this.payload = payload;
+        this.timeout = timeout;
+        this.inflight = new Semaphore(window);
+    }
+
+    /** Creates request with unique NADR, PNUM and PCMD. */
+    private short[] createRequest() {
+        int seq = sequence++;
+        short[] request = new short[DPAMessages.REQUEST_HEADER_LENGTH + payload];
+        request[DPAMessages.NADR_POS] = (short) (1 + seq % NADR_COUNT);
+        request[DPAMessages.PNUM_POS] = (short) ((seq / NADR_COUNT) & 0xFF);
+        request[DPAMessages.PCMD_POS] = (short) ((seq / (NADR_COUNT * 256)) & 0x7F);
+        request[DPAMessages.HWPID_POS] = 0xFF;
+        request[DPAMessages.HWPID_POS + 1] = 0xFF;
+        for (int i = DPAMessages.REQUEST_HEADER_LENGTH; i < request.length; i++) {
+            request[i] = (short) (i & 0xFF);
+        }
+        return request;
+    }
+
+    private void recordLatency(long nanos) {
+        int index = latencyCount.getAndIncrement();
+        if (index < latencies.length) {
+            latencies[index] = nanos;
+        }
+    }
+
+    private void send(JLibIQRF iqrf) {
+        final long sendTime = System.nanoTime();
+        final boolean record = recording;
+        IQRFFuture<DPAResult> future = iqrf.sendAsync(createRequest(), timeout);
+        future.addCallback(new IQRFCallback<DPAResult>() {
+            @Override
+            public void onSuccess(DPAResult result) {
+                long latency = System.nanoTime() - sendTime;
+                inflight.release();
+                if (record) {
+                    completed.incrementAndGet();
+                    recordLatency(latency);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                inflight.release();
+                if (!record) {
+                    return;
+                }
+                if (cause instanceof IQRFLayerException
+                        && ((IQRFLayerException) cause).getErrorId()
+                        == IQRFError.TIMEOUT_ERROR.getErrorId()) {
+                    timedOut.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends requests with constant rate for specified time.
+     *
+     * @return count of sent requests
+     */
+    private long drive(JLibIQRF iqrf, long seconds) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long next = start;
+        long sent = 0;
+        while (next < end) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+            inflight.acquire();
+            send(iqrf);
+            sent++;
+            next += interval;
+        }
+        return sent;
+    }
+
+    private static long percentile(long[] sorted, int count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    private static String toMicros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    private void run(String engine, boolean scheduling, int port, long warmup, long duration,
+            GWETHSimulator simulator) throws InterruptedException {
+        UDPConfiguration config = new UDPConfiguration("localhost", port + 1, "localhost", port,
+                UDPIQRFLayer.MAX_RECEIVED_PACKET_SIZE, UDPIQRFLayer.RECEPTION_TIMEOUT_DEFAULT,
+                "nio".equals(engine));
+        JLibIQRF iqrf = JLibIQRF.init(config);
+        if (iqrf == null) {
+            throw new IllegalStateException("JLibIQRF cannot be initialized.");
+        }
+        iqrf.setRequestScheduling(scheduling);
+        iqrf.addIQRFListener(new IQRFListener() {
+            @Override
+            public void onGetIQRFData(short[] data) {
+                if (DPAMessages.hasHeader(data)
+                        && DPAMessages.getHwpid(data) == GWETHSimulator.UNSOLICITED_HWPID) {
+                    unsolicited.incrementAndGet();
+                }
+            }
+        });
+
+        try {
+            System.out.println("Warming up for " + warmup + " s ...");
+            drive(iqrf, warmup);
+            inflight.acquire(window);
+            inflight.release(window);
+
+            latencies = new long[(int) Math.min(Integer.MAX_VALUE - 8, (long) rate * duration)];
+            unsolicited.set(0);
+            recording = true;
+            System.out.println("Measuring for " + duration + " s ...");
+            long start = System.nanoTime();
+            long sent = drive(iqrf, duration);
+            long sendingTime = System.nanoTime() - start;
+            // waits for all pending requests, completion rate includes this time
+            inflight.acquire(window);
+            long totalTime = System.nanoTime() - start;
+            recording = false;
+
+            int count = Math.min(latencyCount.get(), latencies.length);
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+
+            System.out.println("Engine:          " + engine);
+            System.out.println("Scheduling:      " + scheduling);
+            System.out.println("Sent:            " + sent + " (" + (sent * 1e9 / sendingTime)
+                    + " req/s offered)");
+            System.out.println("Completed:       " + completed + " (" + (completed.get() * 1e9 / totalTime)
+                    + " req/s)");
+            System.out.println("Timed out:       " + timedOut);
+            System.out.println("Failed:          " + failed);
+            System.out.println("Unsolicited:     " + unsolicited);
+            System.out.println("Latency [us]:    p50=" + toMicros(percentile(sorted, count, 0.5))
+                    + " p99=" + toMicros(percentile(sorted, count, 0.99))
+                    + " p999=" + toMicros(percentile(sorted, count, 0.999))
+                    + " max=" + toMicros(count == 0 ? 0 : sorted[count - 1]));
+            System.out.println("Simulator:       " + simulator);
+        } finally {
+            iqrf.destroy();
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Invalid option: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static String get(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int rate = Integer.parseInt(get(options, "rate", "20000"));
+        long duration = Long.parseLong(get(options, "duration", "10"));
+        long warmup = Long.parseLong(get(options, "warmup", "3"));
+        int window = Integer.parseInt(get(options, "window", "1000"));
+        int payload = Integer.parseInt(get(options, "payload", "8"));
+        long latency = Long.parseLong(get(options, "latency", "0"));
+        double loss = Double.parseDouble(get(options, "loss", "0"));
+        double async = Double.parseDouble(get(options, "async", "0"));
+        long timeout = Long.parseLong(get(options, "timeout", "1000"));
+        String engine = get(options, "engine", "nio");
+        int port = Integer.parseInt(get(options, "port", "55300"));
+        boolean scheduling = Boolean.parseBoolean(get(options, "scheduling", "false"));
+
+        if (rate <= 0 || window <= 0 || payload < 0 || duration <= 0 || warmup < 0) {
+            throw new IllegalArgumentException("Invalid options: " + options);
+        }
+        if (!"nio".equals(engine) && !"blocking".equals(engine)) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+
+        GWETHSimulator simulator = new GWETHSimulator(port, latency, loss, async);
+        simulator.start();
+        try {
+            new UDPLoadHarness(rate, window, payload, timeout)
+                    .run(engine, scheduling, port, warmup, duration, simulator);
+        } finally {
+            simulator.stop();
+        }
+    }
+}
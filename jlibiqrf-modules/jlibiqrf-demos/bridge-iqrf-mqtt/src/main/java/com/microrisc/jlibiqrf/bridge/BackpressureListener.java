@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge;
+
+/**
+ * Listener notified when queue of messages waiting for sending into IQRF 
+ * network becomes full and when there is free space in it again.
+ * 
+ * @author Martin Strouhal
+ */
+public interface BackpressureListener {
+    
+    /**
+     * Called when the queue is full and next messages will be dropped.
+     * @param queueSize actual size of queue
+     */
+    public void onSaturated(int queueSize);
+    
+    /**
+     * Called when the queue was drained below half of its capacity after 
+     * saturation.
+     * @param queueSize actual size of queue
+     */
+    public void onRelieved(int queueSize);
+}
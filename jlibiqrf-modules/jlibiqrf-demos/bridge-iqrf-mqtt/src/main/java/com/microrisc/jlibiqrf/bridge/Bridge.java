@@ -18,12 +18,17 @@ package com.microrisc.jlibiqrf.bridge;
 
 import com.microrisc.jlibiqrf.bridge.config.BridgeConfiguration;
 import com.microrisc.jlibiqrf.bridge.iqrf.IQRFCommunicator;
+import com.microrisc.jlibiqrf.bridge.journal.MessageJournal;
 import com.microrisc.jlibiqrf.bridge.json.JsonConvertor;
 import com.microrisc.jlibiqrf.bridge.mqtt.MQTTCommunicator;
 import com.microrisc.jlibiqrf.bridge.mqtt.PublishableMqttMessage;
+import com.microrisc.jlibiqrf.bridge.queue.BoundedQueue;
+import com.microrisc.jlibiqrf.bridge.queue.QueueOverflowPolicy;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.slf4j.Logger;
@@ -40,9 +45,23 @@ public class Bridge {
     private static final Logger log = LoggerFactory.getLogger(Bridge.class);
     
     // queue for messages from MQTT
-    private final Queue<short[]> mqttMessages;
+    private final BoundedQueue<short[]> mqttMessages;
+    // indicates, that queue for messages from MQTT is full
+    private final AtomicBoolean mqttMessagesSaturated = new AtomicBoolean(false);
+    private volatile BackpressureListener backpressureListener;
     // queue for data from IQRF network
-    private final Queue<PublishableMqttMessage> iqrfData;
+    private final BoundedQueue<PublishableMqttMessage> iqrfData;
+    // stores data from IQRF network while MQTT broker isn't available, can be null
+    private final MessageJournal journal;
+    // indicates, whether data can be published to MQTT broker
+    private volatile boolean publishingAvailable = true;
+    // wakes up publisher waiting for availability of MQTT broker
+    private final Object publishingMonitor = new Object();
+    // data taken for publishing, whose publishing failed, they are older than
+    // all queued and journaled data, used by publisher thread only
+    private PublishableMqttMessage retryData = null;
+    // how often is journal checked while waiting for data (in milliseconds)
+    private static final long JOURNAL_CHECKING_INTERVAL = 100;
     private final Statistics statistics;
     private final MQTTCommunicator mqttCommunicator;
     private final IQRFCommunicator iqrfCommunicator;
@@ -58,8 +77,23 @@ public class Bridge {
         log.debug("Bridge - init - start: config={}", config);
         ArgumentChecker.checkNull(config);
         
-        mqttMessages = new LinkedList<>();
-        iqrfData = new LinkedList<>();
+        if(config.getIQRFSendQueueOverflowPolicy() == QueueOverflowPolicy.SPILL_TO_JOURNAL){
+            throw new IllegalArgumentException("Messages for IQRF network cannot be spilled to journal.");
+        }
+        // messages are added from MQTT callback thread, which mustn't be blocked
+        if(config.getIQRFSendQueueOverflowPolicy() == QueueOverflowPolicy.BLOCK){
+            throw new IllegalArgumentException("Adding of messages for IQRF network cannot block.");
+        }
+        if(config.getMQTTPublishQueueOverflowPolicy() == QueueOverflowPolicy.SPILL_TO_JOURNAL 
+                && config.getMQTTJournalDirectory() == null){
+            throw new IllegalArgumentException("Spilling to journal requires journal directory.");
+        }
+        mqttMessages = new BoundedQueue<>(config.getIQRFSendQueueCapacity(), 
+                config.getIQRFSendQueueOverflowPolicy());
+        iqrfData = new BoundedQueue<>(config.getMQTTPublishQueueCapacity(), 
+                config.getMQTTPublishQueueOverflowPolicy());
+        journal = createJournal(config);
+        statistics = new Statistics();
         
         iqrfCommunicator = new IQRFCommunicator(this);
         iqrfCommunicator.init(config);
@@ -81,30 +115,132 @@ public class Bridge {
         try {
             mqttCommunicator = new MQTTCommunicator(config.getMqttConfig(), this, mid);
             mqttCommunicator.subscribeBridgeDefault(0);
-            mqttCommunicator.checkAndPublishDeviceData(config.getMQTTCheckingInterval());
+            mqttCommunicator.startPublishing(config.getMQTTMaxInflight());
         } catch (MqttException ex) {
             log.error(ex.getMessage());
             throw new RuntimeException(ex);
         }
         
-        statistics = new Statistics();
-        
         log.debug("Bridge - init - end");
     }
+    
+    // opens journal if it's configured
+    private static MessageJournal createJournal(BridgeConfiguration config){
+        if(config.getMQTTJournalDirectory() == null){
+            return null;
+        }
+        long maxSize = config.getMQTTJournalMaxSize() * 1024L * 1024L;
+        int segmentSize = (int)Math.min(MessageJournal.DEFAULT_SEGMENT_SIZE, maxSize / 2);
+        try {
+            return new MessageJournal(new File(config.getMQTTJournalDirectory()), 
+                    segmentSize, maxSize, config.getMQTTJournalEvictionPolicy());
+        } catch (IOException ex) {
+            log.error("Journal cannot be opened: " + ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+    }
 
     /**
      * Adds iqrf data to bridging and converts it to correct format before can 
-     * be added to queue to mqtt publish.
+     * be added to queue to mqtt publish. If MQTT broker isn't available or 
+     * previously stored data haven't been published yet, data are stored in 
+     * journal. If the queue is full, its overflow policy is applied.
      * @param data to add
      */
     public void addIQRFData(short[] data) {
         log.debug("addIQRFData - start: data={}", Arrays.toString(data));
-        synchronized(iqrfData){
-            PublishableMqttMessage msgToPublish = convertor.toJson(data);
-            iqrfData.add(msgToPublish);
+        PublishableMqttMessage msgToPublish = convertor.toJson(data);
+        if(journal != null && (!publishingAvailable || !journal.isEmpty())){
+            journalIQRFData(msgToPublish);
+        }else{
+            try {
+                if(!iqrfData.add(msgToPublish)){
+                    if(iqrfData.getPolicy() == QueueOverflowPolicy.SPILL_TO_JOURNAL){
+                        statistics.increaseSpilledMessages();
+                        journalIQRFData(msgToPublish);
+                    }else{
+                        log.warn("Queue of data for MQTT is full. Data will be dropped.");
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for space in queue. Data will be dropped.");
+            }
         }
         log.debug("addIQRFData - end");
     }
+    
+    /**
+     * Stores iqrf data, which cannot be published now, into journal. They will
+     * be published after MQTT broker is available again. If journal isn't 
+     * configured, data are dropped.
+     * @param msg to store
+     */
+    public void journalIQRFData(PublishableMqttMessage msg) {
+        if(journal == null){
+            log.warn("Data cannot be published and journal isn't configured. Data will be dropped.");
+            return;
+        }
+        try {
+            if(!journal.append(msg)){
+                log.warn("Journal is full. Data will be dropped.");
+            }
+        } catch (IOException ex) {
+            log.error("Data cannot be stored into journal: " + ex.getMessage());
+            statistics.increaseErrors(Statistics.ErrorType.JOURNAL);
+        }
+    }
+    
+    /**
+     * Records delivery of iqrf data to MQTT broker.
+     * @param msg delivered message
+     */
+    public void iqrfDataPublished(PublishableMqttMessage msg) {
+        statistics.recordPublishedMessage(msg);
+    }
+    
+    /**
+     * Records error, which occurred while bridging.
+     * @param type of error
+     */
+    public void recordError(Statistics.ErrorType type) {
+        statistics.increaseErrors(type);
+    }
+    
+    /**
+     * Sets availability of MQTT broker. While broker isn't available, iqrf 
+     * data are stored in journal, if it's configured.
+     * @param available {@code true} if data can be published
+     */
+    public void setPublishingAvailable(boolean available) {
+        log.info("Publishing available: {}", available);
+        synchronized(publishingMonitor){
+            this.publishingAvailable = available;
+            publishingMonitor.notifyAll();
+        }
+    }
+    
+    /**
+     * Returns iqrf data, which couldn't be published because of lost 
+     * connection to MQTT broker. They will be returned by 
+     * {@link #takeIQRFData()} as soon as broker is available again, before 
+     * any newer data, so the order of data is kept. It must be called by the 
+     * thread taking data.
+     * @param msg data, which couldn't be published
+     */
+    public void retryIQRFData(PublishableMqttMessage msg) {
+        ArgumentChecker.checkNull(msg);
+        retryData = msg;
+    }
+    
+    // waits until MQTT broker is available
+    private void awaitPublishingAvailable() throws InterruptedException {
+        synchronized(publishingMonitor){
+            while(!publishingAvailable){
+                publishingMonitor.wait();
+            }
+        }
+    }
 
     /**
      * Adds received message to bridging and converts it to correct format 
@@ -113,28 +249,78 @@ public class Bridge {
      */    
     public void addMqqtMessage(MqttMessage msg) {
         log.debug("addMqqtMessage - start: msg={}", msg);
-        synchronized(mqttMessages){            
-            String msgContent = new String(msg.getPayload());
-            try{
-                short[] result = convertor.toIQRF(msgContent).getData();
-                mqttMessages.add(result);
-            }catch(IllegalArgumentException ex){
-                log.error("Error while parsing: " + ex.getMessage());                
-                // TODO send resonse to server?
+        try{
+            // convertors parse payload directly, without intermediate String
+            short[] result = convertor.toIQRF(msg.getPayload()).getData();
+            if(mqttMessages.remainingCapacity() == 0){
+                signalSaturation();
             }
+            if(!mqttMessages.add(result)){
+                log.warn("Queue of messages for IQRF is full. Message will be dropped.");
+            }
+        }catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for space in queue. Message will be dropped.");
+        }catch(IllegalArgumentException ex){
+            log.error("Error while parsing: " + ex.getMessage());                
+            statistics.increaseErrors(Statistics.ErrorType.PARSE);
+            // TODO send resonse to server?
         }
-        statistics.increaseReceivedMessages();
+        statistics.recordReceivedMessage(msg.getPayload().length);
         log.debug("addMqqtMessage - end");
     }
+    
+    // notifies listener that queue for IQRF is full
+    private void signalSaturation(){
+        if(mqttMessagesSaturated.compareAndSet(false, true)){
+            BackpressureListener listener = backpressureListener;
+            if(listener != null){
+                listener.onSaturated(mqttMessages.size());
+            }
+        }
+    }
+    
+    // notifies listener that queue for IQRF has free space again
+    private void checkRelief(){
+        if(!mqttMessagesSaturated.get()){
+            return;
+        }
+        int size = mqttMessages.size();
+        if(size > mqttMessages.remainingCapacity()){
+            return;
+        }
+        if(mqttMessagesSaturated.compareAndSet(true, false)){
+            BackpressureListener listener = backpressureListener;
+            if(listener != null){
+                listener.onRelieved(size);
+            }
+        }
+    }
+    
+    /**
+     * Sets listener which is notified when queue of messages for IQRF network
+     * is saturated.
+     * @param listener to set or {@code null}
+     */
+    public void setBackpressureListener(BackpressureListener listener){
+        this.backpressureListener = listener;
+    }
+    
+    /**
+     * Returns {@code true} if queue of messages for IQRF network is full and 
+     * hasn't been drained yet.
+     * @return {@code true} if IQRF side is saturated
+     */
+    public boolean isIQRFSaturated(){
+        return mqttMessagesSaturated.get();
+    }
 
     /**
      * Returns availability of mqtt data.
      * @return true, if are data available
      */
     public boolean isAvailableMqttMessage(){
-        synchronized(mqttMessages){
-            return !mqttMessages.isEmpty();
-        }
+        return !mqttMessages.isEmpty();
     }
     
     /**
@@ -145,11 +331,30 @@ public class Bridge {
      */
     public short[] getAndRemoveMqttMessage() {
         log.debug("getAndRemoveMqttMessage - start");
-        synchronized(mqttMessages){
-            short[] result = mqttMessages.poll();
-            log.debug("getAndRemoveMqttMessage - end: {}", Arrays.toString(result));
-            return result;
-        }
+        short[] result = mqttMessages.poll();
+        checkRelief();
+        log.debug("getAndRemoveMqttMessage - end: {}", Arrays.toString(result));
+        return result;
+    }
+    
+    /**
+     * Gets and removes mqtt data from bridge. If no data are available, waits
+     * until some data are added.
+     * @return mqtt data converted as short array
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public short[] takeMqttMessage() throws InterruptedException {
+        short[] result = mqttMessages.take();
+        checkRelief();
+        return result;
+    }
+    
+    /**
+     * Returns count of mqtt messages waiting for sending into IQRF network.
+     * @return size of queue
+     */
+    public int getMqttMessagesQueueSize() {
+        return mqttMessages.size();
     }
 
     /**
@@ -157,9 +362,7 @@ public class Bridge {
      * @return true, if are data available
      */
     public boolean isAvailableIQRFData(){
-        synchronized(iqrfData){
-            return !iqrfData.isEmpty();
-        }
+        return !iqrfData.isEmpty();
     }
     
     /**
@@ -169,14 +372,79 @@ public class Bridge {
      */
     public PublishableMqttMessage getAndRemoveIQRFData() {
         log.debug("getAndRemoveIQRFData - start");
-        synchronized(iqrfData){
-            PublishableMqttMessage msgToPublish = iqrfData.poll();            
+        PublishableMqttMessage msgToPublish = iqrfData.poll();            
+        statistics.increaseSentMessages();
+        return msgToPublish;            
+    }
+    
+    /**
+     * Gets and removes iqrf data from bridge. If no data are available, waits
+     * until some data are added. While MQTT broker isn't available, waits 
+     * until it's available again, so that data aren't taken out of order.
+     * Data returned by {@link #retryIQRFData(PublishableMqttMessage)} are 
+     * returned first.
+     * @return iqrf data converted as {@link PublishableMqttMessage}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public PublishableMqttMessage takeIQRFData() throws InterruptedException {
+        awaitPublishingAvailable();
+        if(retryData != null){
+            PublishableMqttMessage msgToPublish = retryData;
+            retryData = null;
+            return msgToPublish;
+        }
+        if(journal == null){
+            PublishableMqttMessage msgToPublish = iqrfData.take();
             statistics.increaseSentMessages();
-            return msgToPublish;            
+            return msgToPublish;
+        }
+        
+        while(true){
+            awaitPublishingAvailable();
+            // while journal isn't empty, new data are stored into it, so queue
+            // contains older data than journal and they are published first
+            PublishableMqttMessage msgToPublish = iqrfData.poll();
+            if(msgToPublish == null && publishingAvailable){
+                msgToPublish = pollJournal();
+            }
+            if(msgToPublish == null){
+                msgToPublish = iqrfData.poll(JOURNAL_CHECKING_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            if(msgToPublish != null){
+                statistics.increaseSentMessages();
+                return msgToPublish;
+            }
+        }
+    }
+    
+    // returns the oldest data from journal or null
+    private PublishableMqttMessage pollJournal(){
+        try {
+            return journal.poll();
+        } catch (IOException ex) {
+            log.error("Data cannot be read from journal: " + ex.getMessage());
+            statistics.increaseErrors(Statistics.ErrorType.JOURNAL);
+            return null;
         }
     }
+    
+    /**
+     * Returns count of iqrf data waiting for publishing.
+     * @return size of queue
+     */
+    public int getIQRFDataQueueSize() {
+        return iqrfData.size();
+    }
 
     public Statistics getStatistics() {
+        statistics.updateQueueDepths(iqrfData.size(), mqttCommunicator.getInflightCount(), 
+                mqttMessages.size());
+        statistics.updateDroppedMessages(mqttMessages.getDroppedCount(), 
+                iqrfData.getDroppedCount());
+        if(journal != null){
+            statistics.updateJournal(journal.getMessageCount(), 
+                    journal.getEvictedCount() + journal.getRejectedCount());
+        }
         return statistics;
     }
     
@@ -186,5 +454,8 @@ public class Bridge {
     public void destroy(){
         iqrfCommunicator.destroy();
         mqttCommunicator.destroy();
+        if(journal != null){
+            journal.close();
+        }
     }
 }
\ No newline at end of file
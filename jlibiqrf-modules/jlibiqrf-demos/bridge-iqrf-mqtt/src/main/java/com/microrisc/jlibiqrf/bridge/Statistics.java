@@ -15,50 +15,236 @@
  */
 package com.microrisc.jlibiqrf.bridge;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.annotation.JsonUnwrapped;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microrisc.jlibiqrf.bridge.mqtt.PublishableMqttMessage;
+import com.microrisc.jlibiqrf.bridge.statistics.WindowedCounter;
+import com.microrisc.jlibiqrf.bridge.statistics.WindowedLatency;
+import com.microrisc.jlibiqrf.metrics.LatencySnapshot;
+import com.microrisc.jlibiqrf.metrics.StripedCounter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Provides services for statistics recording and their converting to printable 
  * format.
+ * <p>
+ * Statistics are recorded from MQTT callback, publisher and IQRF threads, 
+ * all counters are thread safe. Besides totals there are message and byte 
+ * rates in both directions over last 10 and 60 seconds, latency of data from 
+ * IQRF network to their delivery to MQTT broker over last 60 seconds and 
+ * counts of errors.
  * 
  * @author Martin Strouhal
  */
- @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE) 
 public class Statistics { 
     
-    @JsonProperty("receivedMessages")
-    private int receivedMessages = 0;
-    @JsonProperty("sentMessages")
-    private int sentMessages = 0;
-    @JsonProperty("mac")
-    private final String mac = MACRecognizer.getMAC();    
+    /** Kinds of recorded errors. */
+    public static enum ErrorType {
+        /** Message from MQTT cannot be converted. */
+        PARSE("parse"),
+        /** Data cannot be published to MQTT broker. */
+        PUBLISH("publish"),
+        /** Data cannot be sent into IQRF network. */
+        IQRF_SEND("iqrfSend"),
+        /** Data cannot be stored or read from journal. */
+        JOURNAL("journal");
+        
+        private final String name;
+
+        private ErrorType(String name) {
+            this.name = name;
+        }
+    }
+    
+    private static final JsonFactory factory = new JsonFactory();
+    
+    /** Longest window of rates and latencies in seconds. */
+    private static final int WINDOW = 60;
+    /** Shorter window of rates in seconds. */
+    private static final int SHORT_WINDOW = 10;
+    /** Count of parts, which latency window is divided to. */
+    private static final int LATENCY_SLOTS = 6;
+    
+    private final StripedCounter receivedMessages = new StripedCounter();
+    private final StripedCounter sentMessages = new StripedCounter();
+    private final StripedCounter spilledMessages = new StripedCounter();
+    private volatile long droppedMessages = 0;
+    private volatile long publishDroppedMessages = 0;
+    private volatile int iqrfQueueDepth = 0;
+    private volatile int mqttInflight = 0;
+    private volatile int iqrfSendQueueDepth = 0;
+    private volatile long journalDepth = 0;
+    private volatile long journalDroppedMessages = 0;
+    private final String mac = MACRecognizer.getMAC();
+    
+    // messages and bytes from MQTT to IQRF
+    private final WindowedCounter mqttToIqrfMessages = new WindowedCounter(WINDOW);
+    private final WindowedCounter mqttToIqrfBytes = new WindowedCounter(WINDOW);
+    // messages and bytes from IQRF delivered to MQTT
+    private final WindowedCounter iqrfToMqttMessages = new WindowedCounter(WINDOW);
+    private final WindowedCounter iqrfToMqttBytes = new WindowedCounter(WINDOW);
+    private final WindowedLatency iqrfToMqttLatency = new WindowedLatency(WINDOW, LATENCY_SLOTS);
+    private final StripedCounter[] errors = new StripedCounter[ErrorType.values().length];
+    
+    /** Creates empty statistics. */
+    public Statistics(){
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = new StripedCounter();
+        }
+    }
    
     /** Record a new received message and increase counter. */
     public void increaseReceivedMessages(){
-        receivedMessages++;
+        receivedMessages.increment();
+    }
+    
+    /** 
+     * Record a new message received from MQTT, increase counter and rates.
+     * @param payloadSize size of message payload in bytes
+     */
+    public void recordReceivedMessage(int payloadSize){
+        receivedMessages.increment();
+        mqttToIqrfMessages.add(1);
+        mqttToIqrfBytes.add(payloadSize);
     }
     
     /** Record a new sent message and increase counter. */
     public void increaseSentMessages(){
-        sentMessages++;
+        sentMessages.increment();
     }    
     
+    /** 
+     * Record delivery of message to MQTT broker. Latency is measured from
+     * creation of message.
+     * @param msg delivered message
+     */
+    public void recordPublishedMessage(PublishableMqttMessage msg){
+        iqrfToMqttMessages.add(1);
+        iqrfToMqttBytes.add(msg.getPayload().length);
+        iqrfToMqttLatency.record(System.nanoTime() - msg.getCreationTime());
+    }
+    
+    /** 
+     * Record actual count of messages for IQRF network and count of data for 
+     * MQTT dropped because of full queue.
+     */
+    public void updateDroppedMessages(long droppedMessages, long publishDroppedMessages){
+        this.droppedMessages = droppedMessages;
+        this.publishDroppedMessages = publishDroppedMessages;
+    }
+    
+    /** Record a new data stored into journal because of full queue. */
+    public void increaseSpilledMessages(){
+        spilledMessages.increment();
+    }
+    
+    /** 
+     * Record a new error and increase its counter.
+     * @param type of error
+     */
+    public void increaseErrors(ErrorType type){
+        errors[type.ordinal()].increment();
+    }
+    
+    /** 
+     * Record actual count of iqrf data waiting for publishing, count of 
+     * published, but not yet delivered messages and count of messages waiting
+     * for sending into IQRF network. 
+     */
+    public void updateQueueDepths(int iqrfQueueDepth, int mqttInflight, int iqrfSendQueueDepth){
+        this.iqrfQueueDepth = iqrfQueueDepth;
+        this.mqttInflight = mqttInflight;
+        this.iqrfSendQueueDepth = iqrfSendQueueDepth;
+    }
+    
+    /** 
+     * Record actual count of messages stored in journal and count of messages
+     * dropped by journal.
+     */
+    public void updateJournal(long journalDepth, long journalDroppedMessages){
+        this.journalDepth = journalDepth;
+        this.journalDroppedMessages = journalDroppedMessages;
+    }
+    
     /**
      * Returns statistics as json in String.
      * @return json as string
      */
-    @JsonUnwrapped    
     public String getAsJson(){
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            return mapper.writeValueAsString(this);
-        } catch (JsonProcessingException ex) {
-            return "{\"error\":\"Statics cannot be converted to json\"}";
+        return new String(getAsJsonBytes(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Returns statistics as UTF-8 encoded json, which can be published 
+     * directly.
+     * @return json as bytes
+     */
+    public byte[] getAsJsonBytes(){
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberField("receivedMessages", receivedMessages.sum());
+            generator.writeNumberField("sentMessages", sentMessages.sum());
+            generator.writeNumberField("droppedMessages", droppedMessages);
+            generator.writeNumberField("iqrfQueueDepth", iqrfQueueDepth);
+            generator.writeNumberField("mqttInflight", mqttInflight);
+            generator.writeNumberField("iqrfSendQueueDepth", iqrfSendQueueDepth);
+            generator.writeNumberField("journalDepth", journalDepth);
+            generator.writeNumberField("journalDroppedMessages", journalDroppedMessages);
+            generator.writeNumberField("publishDroppedMessages", publishDroppedMessages);
+            generator.writeNumberField("spilledMessages", spilledMessages.sum());
+            generator.writeStringField("mac", mac);
+            
+            generator.writeObjectFieldStart("rates");
+            writeRates(generator, "mqttToIqrf", mqttToIqrfMessages, mqttToIqrfBytes);
+            writeRates(generator, "iqrfToMqtt", iqrfToMqttMessages, iqrfToMqttBytes);
+            generator.writeEndObject();
+            
+            LatencySnapshot latency = iqrfToMqttLatency.getSnapshot();
+            generator.writeObjectFieldStart("iqrfToMqttLatency");
+            generator.writeNumberField("count", latency.getCount());
+            writeMillis(generator, "p50", latency.getValueAtPercentile(50));
+            writeMillis(generator, "p90", latency.getValueAtPercentile(90));
+            writeMillis(generator, "p99", latency.getValueAtPercentile(99));
+            writeMillis(generator, "p999", latency.getValueAtPercentile(99.9));
+            writeMillis(generator, "max", latency.getMax());
+            generator.writeEndObject();
+            
+            generator.writeObjectFieldStart("errors");
+            for (ErrorType type : ErrorType.values()) {
+                generator.writeNumberField(type.name, errors[type.ordinal()].sum());
+            }
+            generator.writeEndObject();
+            
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            return "{\"error\":\"Statics cannot be converted to json\"}".getBytes(StandardCharsets.UTF_8);
         }
-    }        
-}
\ No newline at end of file
+        return out.toByteArray();
+    }
+    
+    // writes messages and bytes per second over both windows
+    private static void writeRates(JsonGenerator generator, String name, 
+            WindowedCounter messages, WindowedCounter bytes) throws IOException {
+        generator.writeObjectFieldStart(name);
+        writeRate(generator, "messages10s", messages.getRate(SHORT_WINDOW));
+        writeRate(generator, "messages60s", messages.getRate(WINDOW));
+        writeRate(generator, "bytes10s", bytes.getRate(SHORT_WINDOW));
+        writeRate(generator, "bytes60s", bytes.getRate(WINDOW));
+        generator.writeEndObject();
+    }
+    
+    // writes rate rounded to two decimal places
+    private static void writeRate(JsonGenerator generator, String name, double rate) 
+            throws IOException {
+        generator.writeNumberField(name, Math.round(rate * 100) / 100.0);
+    }
+    
+    // writes latency in milliseconds
+    private static void writeMillis(JsonGenerator generator, String name, long nanos) 
+            throws IOException {
+        generator.writeNumberField(name, nanos / 1000000.0);
+    }
+}
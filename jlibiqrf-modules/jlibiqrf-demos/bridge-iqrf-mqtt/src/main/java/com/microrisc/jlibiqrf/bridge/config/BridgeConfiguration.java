@@ -17,9 +17,12 @@ package com.microrisc.jlibiqrf.bridge.config;
 
 import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
 import com.microrisc.jlibiqrf.bridge.Bridge;
+import com.microrisc.jlibiqrf.bridge.journal.JournalEvictionPolicy;
+import com.microrisc.jlibiqrf.bridge.journal.MessageJournal;
 import com.microrisc.jlibiqrf.bridge.json.JsonConvertor;
 import com.microrisc.jlibiqrf.bridge.json.simple.SimpleJsonConvertor;
 import com.microrisc.jlibiqrf.bridge.mqtt.MQTTCommunicator;
+import com.microrisc.jlibiqrf.bridge.queue.QueueOverflowPolicy;
 import com.microrisc.jlibiqrf.configuration.IQRFConfiguration;
 import com.microrisc.jlibiqrf.configuration.SimpleIQRFConfigurationLoader;
 import javax.xml.bind.annotation.XmlElement;
@@ -55,15 +58,75 @@ public final class BridgeConfiguration {
     private final MQTTConfiguration mqttConfig;
     
     /** Specify how often is thread in {@link MQTTCommunicator} checking for new
-     * messages. (in milliseconds) */
+     * messages. (in milliseconds) 
+     * @deprecated data are published as soon as they are received, see 
+     * {@link #mqttMaxInflight} */
+    @Deprecated
     @XmlElement(name = "MQTT_checking_interval", defaultValue = "1000")
     private final Integer mqttCheckingInterval;
     
+    /** Specify maximal count of messages published by {@link MQTTCommunicator},
+     * which haven't been delivered yet. */
+    @XmlElement(name = "MQTT_max_inflight", defaultValue = "10")
+    private final Integer mqttMaxInflight;
+    
+    /** Specify directory of {@link MessageJournal}, where data for MQTT broker
+     * are stored while broker isn't available. If it isn't specified, data 
+     * aren't stored. */
+    @XmlElement(name = "MQTT_journal_directory")
+    private final String mqttJournalDirectory;
+    
+    /** Specify maximal size of {@link MessageJournal}. (in megabytes) */
+    @XmlElement(name = "MQTT_journal_max_size", defaultValue = "64")
+    private final Integer mqttJournalMaxSize;
+    
+    /** Specify which data are dropped, when {@link MessageJournal} is full. */
+    @XmlElement(name = "MQTT_journal_eviction_policy", defaultValue = "DROP_OLDEST")
+    private final JournalEvictionPolicy mqttJournalEvictionPolicy;
+    
+    /** Specify maximal count of data from IQRF network waiting for publishing 
+     * to MQTT broker. */
+    @XmlElement(name = "MQTT_publish_queue_capacity", defaultValue = "1000")
+    private final Integer mqttPublishQueueCapacity;
+    
+    /** Specify what happens with data from IQRF network, when publish queue 
+     * is full. {@link QueueOverflowPolicy#SPILL_TO_JOURNAL} requires 
+     * {@link #mqttJournalDirectory}. */
+    @XmlElement(name = "MQTT_publish_queue_overflow_policy", defaultValue = "DROP_OLDEST")
+    private final QueueOverflowPolicy mqttPublishQueueOverflowPolicy;
+    
     /** Specify how often is thread in {@link IQRFCommunicator} checking for new
-     * messages. (in seconds) */
+     * messages. (in seconds) 
+     * @deprecated messages are sent as soon as they are received, see 
+     * {@link #iqrfSendQueueCapacity} */
+    @Deprecated
     @XmlElement(name = "IQRF_checking_interval", defaultValue = "1")
     private final Integer iqrfCheckingInterval;
     
+    /** Specify maximal count of messages from MQTT waiting for sending into 
+     * IQRF network. */
+    @XmlElement(name = "IQRF_send_queue_capacity", defaultValue = "100")
+    private final Integer iqrfSendQueueCapacity;
+    
+    /** Specify what happens with messages from MQTT, when send queue is full.
+     * {@link QueueOverflowPolicy#SPILL_TO_JOURNAL} isn't supported, requests
+     * for IQRF network aren't stored. {@link QueueOverflowPolicy#BLOCK} isn't
+     * supported too, messages are added by MQTT client callback thread, which 
+     * mustn't be blocked. */
+    @XmlElement(name = "IQRF_send_queue_overflow_policy", defaultValue = "DROP_NEWEST")
+    private final QueueOverflowPolicy iqrfSendQueueOverflowPolicy;
+    
+    /** Specify maximal count of results of DPA read requests cached by 
+     * {@link IQRFCommunicator}. Identical concurrent reads are sent only once
+     * and repeated reads are answered from cache. Zero disables the cache. */
+    @XmlElement(name = "IQRF_response_cache_size", defaultValue = "0")
+    private final Integer iqrfResponseCacheSize;
+    
+    /** Specify how long are results of DPA read requests cached. 
+     * (in milliseconds) */
+    @XmlElement(name = "IQRF_response_cache_ttl", defaultValue = "2000")
+    private final Long iqrfResponseCacheTtl;
+    
     /** Specify which implementation of {@link JsonConvertor} will be used for 
      * messages converting. See possible implementations of {@link JsonConvertor}. */
     @XmlElement(name = "JSON_convertor", defaultValue = "com.microrisc.jlibiqrf.bridge.json.SimpleJsonConvertor")
@@ -73,7 +136,13 @@ public final class BridgeConfiguration {
     private BridgeConfiguration(){
         iqrfConfig = null;
         mqttCheckingInterval = iqrfCheckingInterval = null;
-        jsonConvertor = null;
+        mqttMaxInflight = iqrfSendQueueCapacity = mqttJournalMaxSize = null;
+        mqttPublishQueueCapacity = null;
+        jsonConvertor = mqttJournalDirectory = null;
+        mqttJournalEvictionPolicy = null;
+        mqttPublishQueueOverflowPolicy = iqrfSendQueueOverflowPolicy = null;
+        iqrfResponseCacheSize = null;
+        iqrfResponseCacheTtl = null;
         mqttConfig = null;
     }
     
@@ -81,7 +150,17 @@ public final class BridgeConfiguration {
     private BridgeConfiguration(ConfigurationBuilder builder) {
         this.iqrfConfig = builder.iqrfConfig;
         this.mqttCheckingInterval = builder.mqttCheckingInterval;
+        this.mqttMaxInflight = builder.mqttMaxInflight;
+        this.mqttJournalDirectory = builder.mqttJournalDirectory;
+        this.mqttJournalMaxSize = builder.mqttJournalMaxSize;
+        this.mqttJournalEvictionPolicy = builder.mqttJournalEvictionPolicy;
+        this.mqttPublishQueueCapacity = builder.mqttPublishQueueCapacity;
+        this.mqttPublishQueueOverflowPolicy = builder.mqttPublishQueueOverflowPolicy;
         this.iqrfCheckingInterval = builder.iqrfCheckingInterval;
+        this.iqrfSendQueueCapacity = builder.iqrfSendQueueCapacity;
+        this.iqrfSendQueueOverflowPolicy = builder.iqrfSendQueueOverflowPolicy;
+        this.iqrfResponseCacheSize = builder.iqrfResponseCacheSize;
+        this.iqrfResponseCacheTtl = builder.iqrfResponseCacheTtl;
         this.jsonConvertor = builder.jsonConvertor.getName();
         this.mqttConfig = builder.mqttConfig;
     }
@@ -95,18 +174,120 @@ public final class BridgeConfiguration {
 
     /**
      * Getter for {@link BridgeConfiguration#mqttCheckingInterval}
+     * @deprecated data are published as soon as they are received
      */
+    @Deprecated
     public Integer getMQTTCheckingInterval() {
         return mqttCheckingInterval;
     }
 
+    /**
+     * Getter for {@link BridgeConfiguration#mqttMaxInflight}
+     */
+    public Integer getMQTTMaxInflight() {
+        if (mqttMaxInflight == null) {
+            return ConfigurationBuilder.DEFAULT_MQTT_MAX_INFLIGHT;
+        }
+        return mqttMaxInflight;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#mqttJournalDirectory}
+     * @return directory or {@code null} if journal isn't used
+     */
+    public String getMQTTJournalDirectory() {
+        return mqttJournalDirectory;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#mqttJournalMaxSize}
+     */
+    public Integer getMQTTJournalMaxSize() {
+        if (mqttJournalMaxSize == null) {
+            return ConfigurationBuilder.DEFAULT_MQTT_JOURNAL_MAX_SIZE;
+        }
+        return mqttJournalMaxSize;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#mqttJournalEvictionPolicy}
+     */
+    public JournalEvictionPolicy getMQTTJournalEvictionPolicy() {
+        if (mqttJournalEvictionPolicy == null) {
+            return ConfigurationBuilder.DEFAULT_MQTT_JOURNAL_EVICTION_POLICY;
+        }
+        return mqttJournalEvictionPolicy;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#mqttPublishQueueCapacity}
+     */
+    public Integer getMQTTPublishQueueCapacity() {
+        if (mqttPublishQueueCapacity == null) {
+            return ConfigurationBuilder.DEFAULT_MQTT_PUBLISH_QUEUE_CAPACITY;
+        }
+        return mqttPublishQueueCapacity;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#mqttPublishQueueOverflowPolicy}
+     */
+    public QueueOverflowPolicy getMQTTPublishQueueOverflowPolicy() {
+        if (mqttPublishQueueOverflowPolicy == null) {
+            return ConfigurationBuilder.DEFAULT_MQTT_PUBLISH_QUEUE_OVERFLOW_POLICY;
+        }
+        return mqttPublishQueueOverflowPolicy;
+    }
+
     /**
      * Getter for {@link BridgeConfiguration#iqrfCheckingInterval}
+     * @deprecated messages are sent as soon as they are received
      */
+    @Deprecated
     public Integer getIQRFCheckingInterval() {
         return iqrfCheckingInterval;
     }
 
+    /**
+     * Getter for {@link BridgeConfiguration#iqrfSendQueueCapacity}
+     */
+    public Integer getIQRFSendQueueCapacity() {
+        if (iqrfSendQueueCapacity == null) {
+            return ConfigurationBuilder.DEFAULT_IQRF_SEND_QUEUE_CAPACITY;
+        }
+        return iqrfSendQueueCapacity;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#iqrfSendQueueOverflowPolicy}
+     */
+    public QueueOverflowPolicy getIQRFSendQueueOverflowPolicy() {
+        if (iqrfSendQueueOverflowPolicy == null) {
+            return ConfigurationBuilder.DEFAULT_IQRF_SEND_QUEUE_OVERFLOW_POLICY;
+        }
+        return iqrfSendQueueOverflowPolicy;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#iqrfResponseCacheSize}
+     */
+    public Integer getIQRFResponseCacheSize() {
+        if (iqrfResponseCacheSize == null) {
+            return ConfigurationBuilder.DEFAULT_IQRF_RESPONSE_CACHE_SIZE;
+        }
+        return iqrfResponseCacheSize;
+    }
+
+    /**
+     * Getter for {@link BridgeConfiguration#iqrfResponseCacheTtl}
+     */
+    public Long getIQRFResponseCacheTtl() {
+        if (iqrfResponseCacheTtl == null) {
+            return ConfigurationBuilder.DEFAULT_IQRF_RESPONSE_CACHE_TTL;
+        }
+        return iqrfResponseCacheTtl;
+    }
+
     /**
      * Getter for {@link BridgeConfiguration#jsonConvertor}
      */
@@ -127,7 +308,7 @@ public final class BridgeConfiguration {
 
     @Override
     public String toString() {
-        return "BridgeConfiguration{" + "iqrfConfig=" + iqrfConfig + ", mqttConfig=" + mqttConfig + ", mqttCheckingInterval=" + mqttCheckingInterval + ", iqrfCheckingInterval=" + iqrfCheckingInterval + ", jsonConvertor=" + jsonConvertor + '}';
+        return "BridgeConfiguration{" + "iqrfConfig=" + iqrfConfig + ", mqttConfig=" + mqttConfig + ", mqttCheckingInterval=" + mqttCheckingInterval + ", mqttMaxInflight=" + mqttMaxInflight + ", mqttJournalDirectory=" + mqttJournalDirectory + ", mqttJournalMaxSize=" + mqttJournalMaxSize + ", mqttJournalEvictionPolicy=" + mqttJournalEvictionPolicy + ", mqttPublishQueueCapacity=" + mqttPublishQueueCapacity + ", mqttPublishQueueOverflowPolicy=" + mqttPublishQueueOverflowPolicy + ", iqrfCheckingInterval=" + iqrfCheckingInterval + ", iqrfSendQueueCapacity=" + iqrfSendQueueCapacity + ", iqrfSendQueueOverflowPolicy=" + iqrfSendQueueOverflowPolicy + ", iqrfResponseCacheSize=" + iqrfResponseCacheSize + ", iqrfResponseCacheTtl=" + iqrfResponseCacheTtl + ", jsonConvertor=" + jsonConvertor + '}';
     }
     
     /**
@@ -138,13 +319,32 @@ public final class BridgeConfiguration {
         // default values for properties in BridgeConfiguration
         private final int DEFAULT_MQTT_CHECKING_INTERVAL = 1000;
         private final int DEFAULT_IQRF_CHECKING_INTERVAL = 1;
+        private static final int DEFAULT_MQTT_MAX_INFLIGHT = 10;
+        private static final int DEFAULT_IQRF_SEND_QUEUE_CAPACITY = 100;
+        private static final int DEFAULT_MQTT_JOURNAL_MAX_SIZE = 64;
+        private static final JournalEvictionPolicy DEFAULT_MQTT_JOURNAL_EVICTION_POLICY = JournalEvictionPolicy.DROP_OLDEST;
+        private static final int DEFAULT_MQTT_PUBLISH_QUEUE_CAPACITY = 1000;
+        private static final QueueOverflowPolicy DEFAULT_MQTT_PUBLISH_QUEUE_OVERFLOW_POLICY = QueueOverflowPolicy.DROP_OLDEST;
+        private static final QueueOverflowPolicy DEFAULT_IQRF_SEND_QUEUE_OVERFLOW_POLICY = QueueOverflowPolicy.DROP_NEWEST;
+        private static final int DEFAULT_IQRF_RESPONSE_CACHE_SIZE = 0;
+        private static final long DEFAULT_IQRF_RESPONSE_CACHE_TTL = 2000;
         private final Class DEFAULT_JSON_CONVERTOR = SimpleJsonConvertor.class;
         
         // declaration of fields (in some cases with initialization by default values
         private final IQRFConfiguration iqrfConfig;
         private final MQTTConfiguration mqttConfig;
         private int mqttCheckingInterval = DEFAULT_MQTT_CHECKING_INTERVAL;
+        private int mqttMaxInflight = DEFAULT_MQTT_MAX_INFLIGHT;
+        private String mqttJournalDirectory = null;
+        private int mqttJournalMaxSize = DEFAULT_MQTT_JOURNAL_MAX_SIZE;
+        private JournalEvictionPolicy mqttJournalEvictionPolicy = DEFAULT_MQTT_JOURNAL_EVICTION_POLICY;
+        private int mqttPublishQueueCapacity = DEFAULT_MQTT_PUBLISH_QUEUE_CAPACITY;
+        private QueueOverflowPolicy mqttPublishQueueOverflowPolicy = DEFAULT_MQTT_PUBLISH_QUEUE_OVERFLOW_POLICY;
         private int iqrfCheckingInterval = DEFAULT_IQRF_CHECKING_INTERVAL;
+        private int iqrfSendQueueCapacity = DEFAULT_IQRF_SEND_QUEUE_CAPACITY;
+        private QueueOverflowPolicy iqrfSendQueueOverflowPolicy = DEFAULT_IQRF_SEND_QUEUE_OVERFLOW_POLICY;
+        private int iqrfResponseCacheSize = DEFAULT_IQRF_RESPONSE_CACHE_SIZE;
+        private long iqrfResponseCacheTtl = DEFAULT_IQRF_RESPONSE_CACHE_TTL;
         private Class jsonConvertor = DEFAULT_JSON_CONVERTOR;
         
         /**
@@ -187,6 +387,60 @@ public final class BridgeConfiguration {
             return this;
         }
 
+        /**
+         * Setter for {@link BridgeConfiguration#mqttMaxInflight}
+         */
+        public ConfigurationBuilder mqttMaxInflight(int maxInflight){
+            ArgumentChecker.checkInterval(maxInflight, 1, MQTTCommunicator.MAX_INFLIGHT_LIMIT);
+            this.mqttMaxInflight = maxInflight;
+            return this;
+        }
+
+        /**
+         * Setter for {@link BridgeConfiguration#mqttJournalDirectory}
+         */
+        public ConfigurationBuilder mqttJournalDirectory(String directory){
+            ArgumentChecker.checkNull(directory);
+            this.mqttJournalDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Setter for {@link BridgeConfiguration#mqttJournalMaxSize}
+         */
+        public ConfigurationBuilder mqttJournalMaxSize(int maxSize){
+            ArgumentChecker.checkInterval(maxSize, 1, Integer.MAX_VALUE);
+            this.mqttJournalMaxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Setter for {@link BridgeConfiguration#mqttJournalEvictionPolicy}
+         */
+        public ConfigurationBuilder mqttJournalEvictionPolicy(JournalEvictionPolicy policy){
+            ArgumentChecker.checkNull(policy);
+            this.mqttJournalEvictionPolicy = policy;
+            return this;
+        }
+
+        /**
+         * Setter for {@link BridgeConfiguration#mqttPublishQueueCapacity}
+         */
+        public ConfigurationBuilder mqttPublishQueueCapacity(int capacity){
+            ArgumentChecker.checkInterval(capacity, 1, Integer.MAX_VALUE);
+            this.mqttPublishQueueCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Setter for {@link BridgeConfiguration#mqttPublishQueueOverflowPolicy}
+         */
+        public ConfigurationBuilder mqttPublishQueueOverflowPolicy(QueueOverflowPolicy policy){
+            ArgumentChecker.checkNull(policy);
+            this.mqttPublishQueueOverflowPolicy = policy;
+            return this;
+        }
+
         /**
          * Setter for {@link BridgeConfiguration#iqrfCheckingInterval}
          */        
@@ -196,6 +450,48 @@ public final class BridgeConfiguration {
             return this;
         }
                 
+        /**
+         * Setter for {@link BridgeConfiguration#iqrfSendQueueCapacity}
+         */        
+        public ConfigurationBuilder iqrfSendQueueCapacity(int capacity){
+            ArgumentChecker.checkInterval(capacity, 1, Integer.MAX_VALUE);
+            this.iqrfSendQueueCapacity = capacity;
+            return this;
+        }
+                
+        /**
+         * Setter for {@link BridgeConfiguration#iqrfSendQueueOverflowPolicy}
+         */        
+        public ConfigurationBuilder iqrfSendQueueOverflowPolicy(QueueOverflowPolicy policy){
+            ArgumentChecker.checkNull(policy);
+            if (policy == QueueOverflowPolicy.SPILL_TO_JOURNAL) {
+                throw new IllegalArgumentException("Messages for IQRF network cannot be spilled to journal.");
+            }
+            if (policy == QueueOverflowPolicy.BLOCK) {
+                throw new IllegalArgumentException("Adding of messages for IQRF network cannot block.");
+            }
+            this.iqrfSendQueueOverflowPolicy = policy;
+            return this;
+        }
+                
+        /**
+         * Setter for {@link BridgeConfiguration#iqrfResponseCacheSize}
+         */        
+        public ConfigurationBuilder iqrfResponseCacheSize(int size){
+            ArgumentChecker.checkNegative(size);
+            this.iqrfResponseCacheSize = size;
+            return this;
+        }
+                
+        /**
+         * Setter for {@link BridgeConfiguration#iqrfResponseCacheTtl}
+         */        
+        public ConfigurationBuilder iqrfResponseCacheTtl(long ttl){
+            ArgumentChecker.checkNegative(ttl);
+            this.iqrfResponseCacheTtl = ttl;
+            return this;
+        }
+                
         /**
          * Setter for {@link BridgeConfiguration#jsonConvertor}
          */
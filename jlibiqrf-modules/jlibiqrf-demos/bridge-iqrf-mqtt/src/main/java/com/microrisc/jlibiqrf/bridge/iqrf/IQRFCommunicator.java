@@ -17,13 +17,18 @@ package com.microrisc.jlibiqrf.bridge.iqrf;
 
 import com.microrisc.jlibiqrf.IQRFListener;
 import com.microrisc.jlibiqrf.JLibIQRF;
+import com.microrisc.jlibiqrf.async.IQRFCallback;
 import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
 import com.microrisc.jlibiqrf.bridge.Bridge;
+import com.microrisc.jlibiqrf.bridge.Statistics;
 import com.microrisc.jlibiqrf.bridge.config.BridgeConfiguration;
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+import com.microrisc.jlibiqrf.dpa.DPAResponseCache;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
 import java.util.Arrays;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,7 +44,24 @@ public class IQRFCommunicator implements IQRFListener {
     private final Bridge bridge;
     private JLibIQRF iqrfLib;
     private CommunicatingThread comThread;
-    private int iqrfTimeout;
+    /** Cache of DPA read requests, {@code null} if it's disabled. */
+    private DPAResponseCache responseCache;
+    
+    /** Records failed sending of requests passed through cache. */
+    private final IQRFCallback<DPAResult> sendFailureRecorder = new IQRFCallback<DPAResult>() {
+        @Override
+        public void onSuccess(DPAResult result) {
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            // missing response isn't error of sending, the same as without cache
+            if (!(cause instanceof IQRFLayerException)
+                    || ((IQRFLayerException) cause).getError() != IQRFError.TIMEOUT_ERROR) {
+                bridge.recordError(Statistics.ErrorType.IQRF_SEND);
+            }
+        }
+    };
     
     /** Creates instance of {@link IQRFCommunicator}.
      * 
@@ -58,11 +80,17 @@ public class IQRFCommunicator implements IQRFListener {
     public void init(BridgeConfiguration config) {
         ArgumentChecker.checkNull(config);
         
-        iqrfTimeout = config.getIQRFCheckingInterval();
         JLibIQRF iqrf = JLibIQRF.init(config.getIqrfConfig());
         iqrf.addIQRFListener(this);
         iqrfLib = iqrf;
         
+        if (config.getIQRFResponseCacheSize() > 0) {
+            responseCache = new DPAResponseCache(iqrf, config.getIQRFResponseCacheTtl(),
+                    config.getIQRFResponseCacheSize(), JLibIQRF.DEFAULT_RESPONSE_TIMEOUT);
+            log.info("DPA response cache enabled: size={}, ttl={}",
+                    config.getIQRFResponseCacheSize(), config.getIQRFResponseCacheTtl());
+        }
+        
         comThread = new CommunicatingThread();
         comThread.start();
         
@@ -72,24 +100,20 @@ public class IQRFCommunicator implements IQRFListener {
     @Deprecated
     public String readCoordinatorMID(){
         final short[] readOSInfoCmd = new short[]{0x00, 0x00, 0x02, 0x00, 0xFF, 0xFF};        
-        BlockingQueue<String> queue = new LinkedBlockingQueue();
-        MIDRecognizer recognizer = new MIDRecognizer(queue);
-        iqrfLib.addIQRFListener(recognizer);
-        iqrfLib.sendData(readOSInfoCmd);
-        
         String mid = null;
         try {
-            mid = queue.poll(10, TimeUnit.SECONDS);
+            DPAResult result = iqrfLib.sendAsync(readOSInfoCmd, 10000).get();
+            mid = MIDRecognizer.recognize(result.getResponse());
         } catch (InterruptedException ex) {
             log.warn(ex.getMessage());
+        } catch (ExecutionException ex) {
+            log.warn(ex.getCause().getMessage());
         }
         if(mid == null){
             log.warn("Response from coordinator cannot be processed!");
             mid = "unknown";
         }
         
-        iqrfLib.addIQRFListener(this);
-        
         return mid;
     }
 
@@ -101,32 +125,44 @@ public class IQRFCommunicator implements IQRFListener {
         log.debug("onGetIQRFData - end");
     }
 
+    // sends DPA request through cache, cached result is passed to MQTT the
+    // same way as data received from network; result of request collapsed
+    // with pending one is passed to MQTT once, when it's received
+    private void sendCached(short[] request) {
+        DPAResponseCache.Submission submission = responseCache.submit(request);
+        if (!submission.isCached()) {
+            submission.getFuture().addCallback(sendFailureRecorder);
+            return;
+        }
+        DPAResult cached = submission.getCachedResult();
+        log.debug("Request answered from cache: {}", cached);
+        if (cached.getConfirmation() != null) {
+            bridge.addIQRFData(cached.getConfirmation());
+        }
+        bridge.addIQRFData(cached.getResponse());
+    }
+
     private class CommunicatingThread extends Thread {
 
         @Override
         public void run() {
             // getting iqrf data from applogic and their sending
             while (true) {
-                if(this.isInterrupted()){
+                short[] iqrfData;
+                try {
+                    iqrfData = bridge.takeMqttMessage();
+                } catch (InterruptedException ex) {
                     log.warn("IQRF communicating thread was interrupted!");
                     return;
                 }
                 
-                if (bridge.isAvailableMqttMessage()) {
-                    log.debug("IQRF com thread found available mqtt message. It will be send into IQRF.");
-                    short[] iqrfData = bridge.getAndRemoveMqttMessage();
-                    if (iqrfData == null) {
-                        log.warn("Data are null. Data won't be send into IQRF network");
-                    } else {
-                        iqrfLib.sendData(iqrfData);
-                    }
-                } else {
-                    try {
-                        this.sleep(iqrfTimeout);
-                    } catch (InterruptedException ex) {
-                        System.out.println(ex);
-                        return;
-                    }
+                log.debug("IQRF com thread took mqtt message. It will be send into IQRF.");
+                if (responseCache != null && DPAMessages.hasHeader(iqrfData)) {
+                    sendCached(iqrfData);
+                    continue;
+                }
+                if (iqrfLib.sendData(iqrfData) != JLibIQRF.SUCCESS_OPERATION) {
+                    bridge.recordError(Statistics.ErrorType.IQRF_SEND);
                 }
             }
         }
@@ -135,6 +171,9 @@ public class IQRFCommunicator implements IQRFListener {
     /** Free-up resources. */
     public void destroy(){
         comThread.interrupt();
+        if (responseCache != null) {
+            log.info("DPA response cache: {}", responseCache);
+        }
         iqrfLib.destroy();
     }
 }
@@ -16,51 +16,43 @@
 
 package com.microrisc.jlibiqrf.bridge.iqrf;
 
-import com.microrisc.jlibiqrf.IQRFListener;
 import java.util.Arrays;
-import java.util.concurrent.BlockingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This implementation of {@link IQRFListener} implements service which is 
- * listening incoming data and from it identify MID of coordinator. If it's MID
- * recognized, it pulled to queue specified in constructor.
+ * Provides recognizing of coordinator MID from response to OS read request.
  * 
  * @author Martin Strouhal
  */
-class MIDRecognizer implements IQRFListener {
+final class MIDRecognizer {
 
     private final static Logger log = LoggerFactory.getLogger(MIDRecognizer.class);
-    private final BlockingQueue queue;
     
-    /**
-     * Creates instance of {@link MIDRecognizer}. Recognized MID is pulled into
-     * queue.
-     * @param queue into which will be pulled recognized MID
-     */
-    public MIDRecognizer(BlockingQueue queue) {
-        this.queue = queue;
+    private MIDRecognizer() {
     }
     
-    // listen and recognize if data contains MID
-    @Override
-    public void onGetIQRFData(short[] shorts) {
-        log.debug("onGetIQRFData - start: " + Arrays.toString(shorts));
+    /**
+     * Recognizes MID from specified response.
+     * @param shorts response to OS read request
+     * @return recognized MID or {@code null} if MID cannot be recognized
+     */
+    public static String recognize(short[] shorts) {
+        log.debug("recognize - start: " + Arrays.toString(shorts));
         final short[] startSequence = new short[]{0x00, 0x00, 0x2, 0x80};
         final int moduleIdStartPos = 8;
         final int moduleIdLength = 4;
-        if(shorts.length >= startSequence.length + moduleIdLength &&
+        if(shorts != null && shorts.length >= startSequence.length + moduleIdLength &&
                 shorts.length > moduleIdStartPos -1 + moduleIdLength){
             String mid = "";
             for (int i = moduleIdLength; i > 0; i--) {
                 mid = mid + getDoublePlaceHex(shorts[moduleIdStartPos + i - 1]);
             }
-            queue.add(mid);
-        }else{
-            log.warn("Unrecognized MID: " + Arrays.toString(shorts));
+            log.debug("recognize - end: " + mid);
+            return mid;
         }
-        log.debug("onGetIQRFData - end");
+        log.warn("Unrecognized MID: " + Arrays.toString(shorts));
+        return null;
     }
     
     /**
@@ -69,7 +61,7 @@ class MIDRecognizer implements IQRFListener {
      * @param number to convert
      * @return double place hex string
      */
-    private String getDoublePlaceHex(short number){
+    private static String getDoublePlaceHex(short number){
         String finalVal = Integer.toHexString(number);
         if(finalVal.length() == 1){
             finalVal = "0" + finalVal;
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.journal;
+
+/**
+ * Specifies, which messages are dropped, when {@link MessageJournal} reaches
+ * its maximal size.
+ *
+ * @author Martin Strouhal
+ */
+public enum JournalEvictionPolicy {
+
+    /** The oldest segment of journal is deleted to free space for new messages. */
+    DROP_OLDEST,
+    /** New messages are rejected until some space is freed by reading. */
+    DROP_NEWEST;
+}
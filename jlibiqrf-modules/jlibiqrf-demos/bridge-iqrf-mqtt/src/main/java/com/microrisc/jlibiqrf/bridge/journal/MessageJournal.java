@@ -0,0 +1,451 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.journal;
+
+import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
+import com.microrisc.jlibiqrf.bridge.mqtt.DPAReplyType;
+import com.microrisc.jlibiqrf.bridge.mqtt.PublishableMqttMessage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of {@link PublishableMqttMessage}s stored in directory
+ * as memory-mapped segment files of fixed size.
+ * <p>
+ * Messages are read in order of appending. Only segment being written and
+ * segment being read are mapped, so memory used by journal doesn't depend on
+ * count of stored messages. Fully read segments are deleted. Position of
+ * reading is stored in checkpoint file, so messages survive restart of
+ * application and are read again after it. If the journal reaches its maximal
+ * size, messages are dropped according to {@link JournalEvictionPolicy}.
+ * <p>
+ * Data are written into mapped memory without explicit synchronization with
+ * disk for each message, so they survive crash of application, but not
+ * necessarily crash of operating system.
+ *
+ * @author Martin Strouhal
+ */
+public class MessageJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageJournal.class);
+
+    /** Default size of one segment file [in bytes]. */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    /** Minimal count of segments, one is written and one is read. */
+    private static final int MIN_SEGMENT_COUNT = 2;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    // record: length of payload (int) | crc of type and payload (int) | 
+    // type (byte) | payload, zero length marks end of data in segment
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final int CRC_OFFSET = 4;
+    private static final int TYPE_OFFSET = 8;
+
+    // checkpoint: position in segment (int) | sequence number of segment (long)
+    private static final int CHECKPOINT_SIZE = 12;
+    private static final int CHECKPOINT_SEQUENCE_OFFSET = 4;
+
+    private static final DPAReplyType[] TYPES = DPAReplyType.values();
+
+    /** One segment file. */
+    private static final class Segment {
+
+        private final long sequence;
+        private final File file;
+        // count of messages, which haven't been read yet
+        private int messageCount;
+
+        Segment(long sequence, File file) {
+            this.sequence = sequence;
+            this.file = file;
+        }
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegmentCount;
+    private final JournalEvictionPolicy evictionPolicy;
+
+    // segments from the oldest one, the last one is written
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private MappedByteBuffer writeBuffer;
+    private ByteBuffer readBuffer;
+    private int readPosition;
+    private final MappedByteBuffer checkpoint;
+    private final CRC32 crc = new CRC32();
+
+    private long messageCount = 0;
+    private long evictedCount = 0;
+    private long rejectedCount = 0;
+
+    /**
+     * Opens journal in specified directory. If the directory contains
+     * messages, which haven't been read, they are read first.
+     *
+     * @param directory where segment files are stored, it's created if it
+     * doesn't exist
+     * @param segmentSize size of one segment file [in bytes], it's also
+     * maximal size of one message
+     * @param maxSize maximal size of all segment files [in bytes], at least
+     * two segments
+     * @param evictionPolicy specifies dropped messages if journal is full
+     * @throws IOException if journal cannot be opened
+     */
+    public MessageJournal(File directory, int segmentSize, long maxSize,
+            JournalEvictionPolicy evictionPolicy) throws IOException {
+        ArgumentChecker.checkNull(directory, "Directory");
+        ArgumentChecker.checkInterval(segmentSize, RECORD_HEADER_SIZE + 1, Integer.MAX_VALUE, "Segment size");
+        ArgumentChecker.checkInterval(maxSize, (long) MIN_SEGMENT_COUNT * segmentSize, Long.MAX_VALUE, "Max size");
+        ArgumentChecker.checkNull(evictionPolicy, "Eviction policy");
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Journal directory cannot be created: " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegmentCount = (int) Math.min(Integer.MAX_VALUE, maxSize / segmentSize);
+        this.evictionPolicy = evictionPolicy;
+
+        checkpoint = map(new File(directory, CHECKPOINT_FILE), CHECKPOINT_SIZE);
+        recover();
+        log.info("Journal opened: {}", this);
+    }
+
+    // maps whole file with specified size for reading and writing
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    // returns sequence numbers of existing segment files in ascending order
+    private long[] listSegments() {
+        String[] names = directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        long[] sequences = new long[names == null ? 0 : names.length];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = Long.parseLong(names[i].substring(SEGMENT_PREFIX.length(),
+                    names[i].length() - SEGMENT_SUFFIX.length()));
+        }
+        Arrays.sort(sequences);
+        return sequences;
+    }
+
+    // returns length of valid record at specified position or -1
+    private int validRecordLength(ByteBuffer buffer, int position) {
+        if (position > buffer.limit() - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > buffer.limit() - position - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int type = buffer.get(position + TYPE_OFFSET);
+        if (type < 0 || type >= TYPES.length) {
+            return -1;
+        }
+        crc.reset();
+        for (int i = position + TYPE_OFFSET; i < position + RECORD_HEADER_SIZE + length; i++) {
+            crc.update(buffer.get(i));
+        }
+        if ((int) crc.getValue() != buffer.getInt(position + CRC_OFFSET)) {
+            return -1;
+        }
+        return length;
+    }
+
+    // finds existing segments, counts unread messages and prepares writing
+    private void recover() throws IOException {
+        long checkpointSequence = checkpoint.getLong(CHECKPOINT_SEQUENCE_OFFSET);
+        int checkpointPosition = checkpoint.getInt(0);
+
+        int endPosition = 0;
+        ByteBuffer scanBuffer = ByteBuffer.allocate(segmentSize);
+        for (long sequence : listSegments()) {
+            File file = segmentFile(sequence);
+            if (sequence < checkpointSequence) {
+                deleteSegmentFile(file);
+                continue;
+            }
+
+            // scanning of records
+            scanBuffer.clear();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                FileChannel channel = raf.getChannel();
+                while (scanBuffer.hasRemaining() && channel.read(scanBuffer) >= 0) {
+                }
+            }
+            scanBuffer.flip();
+
+            Segment segment = new Segment(sequence, file);
+            int position = 0;
+            int length;
+            while ((length = validRecordLength(scanBuffer, position)) > 0) {
+                if (sequence > checkpointSequence || position >= checkpointPosition) {
+                    segment.messageCount++;
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            segments.addLast(segment);
+            messageCount += segment.messageCount;
+            endPosition = position;
+        }
+
+        if (segments.isEmpty()) {
+            segments.addLast(new Segment(checkpointSequence, segmentFile(checkpointSequence)));
+            endPosition = 0;
+        }
+        writeBuffer = map(segments.getLast().file, segmentSize);
+        writeBuffer.position(endPosition);
+
+        Segment first = segments.getFirst();
+        readPosition = first.sequence == checkpointSequence ? checkpointPosition : 0;
+        if (first.messageCount > 0) {
+            skipReadRecords(first);
+        } else if (first == segments.getLast()) {
+            // everything has been read, reading continues with new records
+            readPosition = endPosition;
+        }
+    }
+
+    // moves read position of the first segment to the first unread record
+    private void skipReadRecords(Segment first) throws IOException {
+        readBuffer = first == segments.getLast() ? writeBuffer.duplicate() : map(first.file, segmentSize);
+        int position = 0;
+        while (position < readPosition) {
+            position += RECORD_HEADER_SIZE + readBuffer.getInt(position);
+        }
+        readPosition = position;
+    }
+
+    private void deleteSegmentFile(File file) {
+        if (!file.delete()) {
+            // mapped file cannot be deleted on some platforms, it's deleted
+            // later according to checkpoint
+            log.warn("Segment file cannot be deleted: {}", file);
+            file.deleteOnExit();
+        }
+    }
+
+    // stores actual read position, position is written first, so the crash
+    // can cause only repeated reading of messages
+    private void storeCheckpoint(long sequence, int position) {
+        checkpoint.putInt(0, position);
+        checkpoint.putLong(CHECKPOINT_SEQUENCE_OFFSET, sequence);
+    }
+
+    // deletes the oldest segment, which must not be written
+    private void removeFirstSegment() {
+        Segment first = segments.removeFirst();
+        messageCount -= first.messageCount;
+        readBuffer = null;
+        readPosition = 0;
+        storeCheckpoint(segments.getFirst().sequence, 0);
+        deleteSegmentFile(first.file);
+    }
+
+    // starts new segment for writing, returns false if journal is full
+    private boolean startNewSegment() throws IOException {
+        if (segments.size() >= maxSegmentCount) {
+            if (evictionPolicy == JournalEvictionPolicy.DROP_NEWEST) {
+                return false;
+            }
+            int evicted = segments.getFirst().messageCount;
+            removeFirstSegment();
+            evictedCount += evicted;
+            log.warn("Journal is full, {} oldest messages dropped.", evicted);
+        }
+        writeBuffer.force();
+        long sequence = segments.getLast().sequence + 1;
+        File file = segmentFile(sequence);
+        writeBuffer = map(file, segmentSize);
+        segments.addLast(new Segment(sequence, file));
+        return true;
+    }
+
+    /**
+     * Appends message to the end of journal.
+     *
+     * @param msg to append
+     * @return {@code false} if message has been rejected, because journal is
+     * full and {@link JournalEvictionPolicy#DROP_NEWEST} is used or message is
+     * greater than segment
+     * @throws IOException if new segment cannot be created
+     */
+    public synchronized boolean append(PublishableMqttMessage msg) throws IOException {
+        ArgumentChecker.checkNull(msg);
+        checkOpened();
+        byte[] payload = msg.getPayload();
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (payload.length == 0 || recordSize > segmentSize) {
+            log.warn("Message of size {} cannot be stored into journal.", payload.length);
+            rejectedCount++;
+            return false;
+        }
+        if (writeBuffer.remaining() < recordSize && !startNewSegment()) {
+            rejectedCount++;
+            return false;
+        }
+
+        byte type = (byte) msg.getType().ordinal();
+        crc.reset();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+
+        // length is written as the last one, it marks record as complete
+        int position = writeBuffer.position();
+        writeBuffer.putInt(position + CRC_OFFSET, (int) crc.getValue());
+        writeBuffer.put(position + TYPE_OFFSET, type);
+        writeBuffer.position(position + RECORD_HEADER_SIZE);
+        writeBuffer.put(payload);
+        writeBuffer.putInt(position, payload.length);
+
+        segments.getLast().messageCount++;
+        messageCount++;
+        return true;
+    }
+
+    /**
+     * Reads and removes the oldest message of journal.
+     *
+     * @return the oldest message or {@code null} if journal is empty
+     * @throws IOException if segment cannot be read
+     */
+    public synchronized PublishableMqttMessage poll() throws IOException {
+        checkOpened();
+        if (messageCount == 0) {
+            return null;
+        }
+        Segment first = segments.getFirst();
+        while (first.messageCount == 0) {
+            // only written segment can be empty, but it isn't the first one
+            removeFirstSegment();
+            first = segments.getFirst();
+        }
+        if (readBuffer == null) {
+            readBuffer = first == segments.getLast() ? writeBuffer.duplicate() : map(first.file, segmentSize);
+        }
+
+        int length = readBuffer.getInt(readPosition);
+        byte type = readBuffer.get(readPosition + TYPE_OFFSET);
+        byte[] payload = new byte[length];
+        readBuffer.position(readPosition + RECORD_HEADER_SIZE);
+        readBuffer.get(payload);
+        readPosition += RECORD_HEADER_SIZE + length;
+
+        first.messageCount--;
+        messageCount--;
+        if (first.messageCount == 0 && first != segments.getLast()) {
+            removeFirstSegment();
+        } else {
+            storeCheckpoint(first.sequence, readPosition);
+        }
+        return new PublishableMqttMessage(TYPES[type], payload);
+    }
+
+    private void checkOpened() {
+        if (writeBuffer == null) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+
+    /**
+     * Returns {@code true}, if there is no message in journal.
+     * @return {@code true} if journal is empty
+     */
+    public synchronized boolean isEmpty() {
+        return messageCount == 0;
+    }
+
+    /**
+     * Returns count of messages in journal.
+     * @return count of messages
+     */
+    public synchronized long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Returns size of segment files used by journal.
+     * @return size [in bytes]
+     */
+    public synchronized long getSize() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    /**
+     * Returns count of messages dropped by
+     * {@link JournalEvictionPolicy#DROP_OLDEST}.
+     * @return count of evicted messages
+     */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Returns count of messages, which haven't been appended.
+     * @return count of rejected messages
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Writes data to disk and closes journal. Unread messages stay in
+     * directory and they are read after next opening.
+     */
+    public synchronized void close() {
+        if (writeBuffer == null) {
+            return;
+        }
+        writeBuffer.force();
+        checkpoint.force();
+        writeBuffer = null;
+        readBuffer = null;
+        log.info("Journal closed: {}", this);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MessageJournal{" + "directory=" + directory + ", segmentSize=" + segmentSize + ", maxSegmentCount=" + maxSegmentCount + ", evictionPolicy=" + evictionPolicy + ", segments=" + segments.size() + ", messageCount=" + messageCount + ", evictedCount=" + evictedCount + ", rejectedCount=" + rejectedCount + '}';
+    }
+}
@@ -28,7 +28,8 @@ public interface JsonConvertor {
     /** Converts string with json data to IQRF data which can be send into IQRF.
      * network.
      *
-     * @param json object are data formatted as json
+     * @param json object are data formatted as json, either {@code String} or
+     * UTF-8 encoded {@code byte[]}
      * @return {@link IQRFData} with individual bytes of IQRF data
      */
     IQRFData toIQRF(Object json);
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.json;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Formats time into characters in the same format as
+ * {@link java.sql.Timestamp#toString()} does, without allocation. Date part of
+ * the time is cached within one second.
+ * <p>
+ * Formatter isn't thread safe, each encoder uses own instance.
+ *
+ * @author Martin Strouhal
+ */
+public final class TimestampFormatter {
+
+    /** Maximal length of formatted time, "yyyy-mm-dd hh:mm:ss.fff". */
+    public static final int MAX_LENGTH = 23;
+
+    /** Length of "yyyy-mm-dd hh:mm:ss." part of time string. */
+    private static final int PREFIX_LENGTH = 20;
+
+    private final char[] prefix = new char[PREFIX_LENGTH];
+    private final Calendar calendar = Calendar.getInstance();
+    private long cachedSecond = Long.MIN_VALUE;
+
+    /**
+     * Writes specified time into buffer from its beginning.
+     *
+     * @param timeMillis time in milliseconds since epoch
+     * @param buffer for formatted time, at least {@link #MAX_LENGTH} long
+     * @return count of written characters
+     */
+    public int format(long timeMillis, char[] buffer) {
+        long second = timeMillis / 1000;
+        int millis = (int) (timeMillis % 1000);
+        if (millis < 0) {
+            second--;
+            millis += 1000;
+        }
+        if (second != cachedSecond) {
+            calendar.setTimeZone(TimeZone.getDefault());
+            calendar.setTimeInMillis(second * 1000);
+            writeDigits(prefix, calendar.get(Calendar.YEAR), 0, 4);
+            prefix[4] = '-';
+            writeDigits(prefix, calendar.get(Calendar.MONTH) + 1, 5, 2);
+            prefix[7] = '-';
+            writeDigits(prefix, calendar.get(Calendar.DAY_OF_MONTH), 8, 2);
+            prefix[10] = ' ';
+            writeDigits(prefix, calendar.get(Calendar.HOUR_OF_DAY), 11, 2);
+            prefix[13] = ':';
+            writeDigits(prefix, calendar.get(Calendar.MINUTE), 14, 2);
+            prefix[16] = ':';
+            writeDigits(prefix, calendar.get(Calendar.SECOND), 17, 2);
+            prefix[19] = '.';
+            cachedSecond = second;
+        }
+        System.arraycopy(prefix, 0, buffer, 0, PREFIX_LENGTH);
+
+        // fraction of second without trailing zeros, but at least one digit
+        if (millis == 0) {
+            buffer[PREFIX_LENGTH] = '0';
+            return PREFIX_LENGTH + 1;
+        }
+        writeDigits(buffer, millis, PREFIX_LENGTH, 3);
+        int length = PREFIX_LENGTH + 3;
+        while (buffer[length - 1] == '0') {
+            length--;
+        }
+        return length;
+    }
+
+    // writes value padded by zeros to specified count of digits
+    private static void writeDigits(char[] buffer, int value, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -15,48 +15,32 @@
  */
 package com.microrisc.jlibiqrf.bridge.json.dpa;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
 import com.microrisc.jlibiqrf.types.IQRFData;
+import java.util.Arrays;
 
 /**
  *  Encapsulates iqrf data as DPA object.
  * 
  * @author Martin Strouhal
  */
-@JsonIgnoreProperties(ignoreUnknown = true)
 final class DPAIQRFData implements IQRFData {
 
-    @JsonProperty("nadr")
-    private int address;
-    @JsonProperty("per")
-    private short peripheral;
-    @JsonProperty("cmd")
-    private short command;
-    @JsonProperty("hwpid")
-    private int hardwareProfiles;
-    @JsonProperty("data")
-    private short[] data;
+    // DPA frame decoded by DPAJsonCodec
+    private final short[] frame;
+
+    DPAIQRFData(short[] frame) {
+        ArgumentChecker.checkNull(frame);
+        this.frame = frame;
+    }
 
     @Override
     public short[] getData() {
-        short[] result = new short[6 + data.length];
-        result = saveIntToShort(result, 0, address);
-        result[2] = peripheral;
-        result[3] = command;
-        result = saveIntToShort(result, 4, hardwareProfiles);
-        System.arraycopy(data, 0, result, 6, data.length);
-        return result;
+        return frame;
     }
 
-    private short[] saveIntToShort(short[] array, int index, int value) {
-        ArgumentChecker.checkNull(array);
-        ArgumentChecker.checkNegative(index);
-        
-        array[index] = (short) (value & 0xFF);
-        value >>= 8;
-        array[index + 1] = (short) (value & 0xFF);
-        return array;
+    @Override
+    public String toString() {
+        return "DPAIQRFData{" + "frame=" + Arrays.toString(frame) + '}';
     }
 }
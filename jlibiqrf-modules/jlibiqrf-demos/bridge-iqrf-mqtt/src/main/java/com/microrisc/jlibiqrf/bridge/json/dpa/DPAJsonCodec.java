@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.json.dpa;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.microrisc.jlibiqrf.bridge.json.TimestampFormatter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming codec of DPA json messages used by {@link DPAJsonConvertor}.
+ * <p>
+ * Decoding reads tokens directly from received bytes and writes header and
+ * data into DPA frame in one pass. Encoding writes message by single reused
+ * {@link JsonGenerator} into reused buffer. Output is same as tree model
+ * based conversion used before, unknown fields are ignored while decoding.
+ *
+ * @author Martin Strouhal
+ */
+final class DPAJsonCodec {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    static {
+        // messages are written one after another by same generator
+        factory.setRootValueSeparator(null);
+    }
+
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString NADR = new SerializedString("nadr");
+    private static final SerializedString PER = new SerializedString("per");
+    private static final SerializedString CMD = new SerializedString("cmd");
+    private static final SerializedString HWPID = new SerializedString("hwpid");
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString DPA_VALUE = new SerializedString("dpaValue");
+    private static final SerializedString HOPS = new SerializedString("hops");
+    private static final SerializedString TIMESLOT_LENGTH = new SerializedString("timeslotLength");
+    private static final SerializedString HOPS_RESPONSE = new SerializedString("hopsResponse");
+    private static final SerializedString UNPARSEABLE_DATA = new SerializedString("unparseableData");
+    private static final SerializedString ERROR = new SerializedString("error");
+
+    /** Length of DPA header - NADR (2), PNUM, PCMD, HWPID (2). */
+    static final int HEADER_LENGTH = 6;
+
+    /** Initial capacity for data part of decoded frame. */
+    private static final int INITIAL_DATA_CAPACITY = 58;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private JsonGenerator generator;
+    private final char[] timeChars = new char[TimestampFormatter.MAX_LENGTH];
+    private final TimestampFormatter timeFormatter = new TimestampFormatter();
+
+    /**
+     * Decodes DPA frame from json request. Frame consists of header followed
+     * by items of "data" array.
+     *
+     * @param json UTF-8 encoded json
+     * @return DPA frame
+     * @throws IOException if json isn't valid DPA request
+     */
+    short[] decode(byte[] json) throws IOException {
+        return decode(factory.createParser(json));
+    }
+
+    /**
+     * Decodes DPA frame from json request, see {@link #decode(byte[])}.
+     *
+     * @param json json
+     * @return DPA frame
+     * @throws IOException if json isn't valid DPA request
+     */
+    short[] decode(String json) throws IOException {
+        return decode(factory.createParser(json));
+    }
+
+    private static short[] decode(JsonParser parser) throws IOException {
+        try (JsonParser p = parser) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Json object expected", p.getCurrentLocation());
+            }
+            short[] frame = new short[HEADER_LENGTH + INITIAL_DATA_CAPACITY];
+            int length = HEADER_LENGTH;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                switch (name) {
+                    case "nadr":
+                        writeTwoBytes(frame, 0, readInt(p));
+                        break;
+                    case "per":
+                        frame[2] = readShort(p);
+                        break;
+                    case "cmd":
+                        frame[3] = readShort(p);
+                        break;
+                    case "hwpid":
+                        writeTwoBytes(frame, 4, readInt(p));
+                        break;
+                    case "data":
+                        // the last occurrence is used
+                        length = HEADER_LENGTH;
+                        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+                            break;
+                        }
+                        if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+                            throw new JsonParseException("Array of data expected", p.getCurrentLocation());
+                        }
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            if (length == frame.length) {
+                                frame = Arrays.copyOf(frame, frame.length * 2);
+                            }
+                            frame[length++] = readShort(p);
+                        }
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            return length == frame.length ? frame : Arrays.copyOf(frame, length);
+        }
+    }
+
+    // reads number, coercion is same as in jackson databind
+    private static int readInt(JsonParser p) throws IOException {
+        switch (p.getCurrentToken()) {
+            case VALUE_NUMBER_INT:
+                return p.getIntValue();
+            case VALUE_NUMBER_FLOAT:
+                return p.getValueAsInt();
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING:
+                String text = p.getText().trim();
+                if (text.isEmpty()) {
+                    return 0;
+                }
+                try {
+                    return Integer.parseInt(text);
+                } catch (NumberFormatException ex) {
+                    throw new JsonParseException("Invalid number: " + text, p.getCurrentLocation(), ex);
+                }
+            default:
+                throw new JsonParseException("Number expected", p.getCurrentLocation());
+        }
+    }
+
+    private static short readShort(JsonParser p) throws IOException {
+        int value = readInt(p);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new JsonParseException("Value out of range: " + value, p.getCurrentLocation());
+        }
+        return (short) value;
+    }
+
+    // saves lower two bytes of value in little endian
+    private static void writeTwoBytes(short[] frame, int index, int value) {
+        frame[index] = (short) (value & 0xFF);
+        frame[index + 1] = (short) ((value >> 8) & 0xFF);
+    }
+
+    /**
+     * Returns int value of two element from array on specified index. Eg. for
+     * elements 255 and 0 is returned 0xFF.
+     */
+    private static int getTwoShortAsInt(short[] array, int index) {
+        int value = array[index + 1];
+        value <<= 8;
+        value += array[index];
+        return value;
+    }
+
+    /**
+     * Encodes DPA response, header and its data.
+     *
+     * @param frame DPA frame, at least {@link #HEADER_LENGTH} long
+     * @param timeMillis time of message
+     * @return UTF-8 encoded json
+     */
+    synchronized byte[] encodeResponse(short[] frame, long timeMillis) {
+        try {
+            writeStart(timeMillis);
+            writeHeader(frame);
+            generator.writeFieldName(DATA);
+            generator.writeStartArray();
+            for (int i = HEADER_LENGTH; i < frame.length; i++) {
+                generator.writeNumber(frame[i]);
+            }
+            generator.writeEndArray();
+            return finish();
+        } catch (IOException | RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Encodes DPA confirmation, frame must be 11 bytes long.
+     *
+     * @param frame DPA confirmation
+     * @param timeMillis time of message
+     * @return UTF-8 encoded json
+     */
+    synchronized byte[] encodeConfirmation(short[] frame, long timeMillis) {
+        try {
+            writeStart(timeMillis);
+            writeHeader(frame);
+            generator.writeFieldName(DPA_VALUE);
+            generator.writeNumber(frame[7]);
+            generator.writeFieldName(HOPS);
+            generator.writeNumber(frame[8]);
+            generator.writeFieldName(TIMESLOT_LENGTH);
+            generator.writeNumber(frame[9]);
+            generator.writeFieldName(HOPS_RESPONSE);
+            generator.writeNumber(frame[10]);
+            return finish();
+        } catch (IOException | RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Encodes message about data, which cannot be parsed.
+     *
+     * @param frame received data
+     * @param withHeader if header is written before error
+     * @param error description of error
+     * @param timeMillis time of message
+     * @return UTF-8 encoded json
+     */
+    synchronized byte[] encodeError(short[] frame, boolean withHeader,
+            String error, long timeMillis) {
+        try {
+            writeStart(timeMillis);
+            if (withHeader) {
+                writeHeader(frame);
+            }
+            generator.writeFieldName(UNPARSEABLE_DATA);
+            generator.writeString(Arrays.toString(frame));
+            generator.writeFieldName(ERROR);
+            generator.writeString(error);
+            return finish();
+        } catch (IOException | RuntimeException ex) {
+            throw failed(ex);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    private void writeStart(long timeMillis) throws IOException {
+        if (generator == null) {
+            generator = factory.createGenerator(buffer);
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(TIMESTAMP);
+        generator.writeString(timeChars, 0, timeFormatter.format(timeMillis, timeChars));
+    }
+
+    private void writeHeader(short[] frame) throws IOException {
+        generator.writeFieldName(NADR);
+        generator.writeNumber(getTwoShortAsInt(frame, 0));
+        generator.writeFieldName(PER);
+        generator.writeNumber(frame[2]);
+        generator.writeFieldName(CMD);
+        generator.writeNumber(frame[3]);
+        generator.writeFieldName(HWPID);
+        generator.writeNumber(getTwoShortAsInt(frame, 4));
+    }
+
+    private byte[] finish() throws IOException {
+        generator.writeEndObject();
+        generator.flush();
+        return buffer.toByteArray();
+    }
+
+    // generator is left in inconsistent state, new one is created next time
+    private IllegalStateException failed(Exception ex) {
+        generator = null;
+        return new IllegalStateException("Json message cannot be written", ex);
+    }
+}
@@ -18,16 +18,12 @@ package com.microrisc.jlibiqrf.bridge.json.dpa;
 
 import com.microrisc.jlibiqrf.bridge.mqtt.DPAReplyType;
 import com.microrisc.jlibiqrf.bridge.mqtt.PublishableMqttMessage;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
 import com.microrisc.jlibiqrf.bridge.json.JsonConvertor;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import java.io.IOException;
-import java.sql.Timestamp;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Date;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,8 +36,8 @@ import org.slf4j.LoggerFactory;
 public class DPAJsonConvertor implements JsonConvertor {
 
     private static final Logger log = LoggerFactory.getLogger(DPAJsonConvertor.class);
-    private static final ObjectMapper mapper = new ObjectMapper();
     private static final DPAJsonConvertor instance = new DPAJsonConvertor();
+    private final DPAJsonCodec codec = new DPAJsonCodec();
     
     /** Singleton */
     private DPAJsonConvertor(){}
@@ -59,90 +55,60 @@ public class DPAJsonConvertor implements JsonConvertor {
      */
     @Override
     public IQRFData toIQRF(Object json) {
-        log.debug("toIQRF - start: json={}", json);
+        if (log.isDebugEnabled()) {
+            log.debug("toIQRF - start: json={}", json instanceof byte[]
+                    ? new String((byte[]) json, StandardCharsets.UTF_8) : json);
+        }
         ArgumentChecker.checkNull(json);
-        if (json instanceof String) {
-            String jsonString = (String) json;
-            try {
-                DPAIQRFData data = mapper.readValue(jsonString, DPAIQRFData.class);
-                log.debug("toIQRF - end: {}", data);
-                return data;
-            } catch (IOException ex) {
-                log.warn("Invalid Json data: " + ex.getMessage());
-                throw new IllegalArgumentException("Invalid Json data");
+        short[] frame;
+        try {
+            if (json instanceof byte[]) {
+                frame = codec.decode((byte[]) json);
+            } else if (json instanceof String) {
+                frame = codec.decode((String) json);
+            } else {
+                log.warn("Json object must be instance of String or byte[]");
+                throw new IllegalArgumentException("Json object must be instance of String or byte[]");
             }
-        } else {
-            log.warn("Json object must be instance of String");
-            throw new IllegalArgumentException("Json object must be instance of String");
+        } catch (IOException ex) {
+            log.warn("Invalid Json data: " + ex.getMessage());
+            throw new IllegalArgumentException("Invalid Json data");
         }
+        DPAIQRFData data = new DPAIQRFData(frame);
+        log.debug("toIQRF - end: {}", data);
+        return data;
     }
 
     @Override
     public PublishableMqttMessage toJson(short[] iqrfData) {
-        log.debug("toJson - start: iqrfData={}", Arrays.toString(iqrfData));
+        if (log.isDebugEnabled()) {
+            log.debug("toJson - start: iqrfData={}", Arrays.toString(iqrfData));
+        }
         ArgumentChecker.checkNull(iqrfData);
         
-        ObjectNode parsedData = mapper.createObjectNode();
-        parsedData.put("timestamp", new Timestamp(new Date().getTime()).toString());
-        
-        if(iqrfData.length >= 6){
-            parseFoursome(parsedData, iqrfData);
-        }else{
+        long time = System.currentTimeMillis();
+        PublishableMqttMessage msg;
+        if(iqrfData.length < DPAJsonCodec.HEADER_LENGTH){
             log.warn("Unstandard message!");
-            parsedData.put("unparseableData", Arrays.toString(iqrfData));
-            parsedData.put("error", "Doesn't contains packet information!");
-            log.debug("toJson - end:" + parsedData.toString());
-            return new PublishableMqttMessage(DPAReplyType.ERROR, parsedData.toString().getBytes());
-        }
-        
-        if(iqrfData.length > 7 && iqrfData[6] == 0xFF){    
+            msg = new PublishableMqttMessage(DPAReplyType.ERROR, 
+                    codec.encodeError(iqrfData, false, "Doesn't contains packet information!", time));
+        }else if(iqrfData.length > 7 && iqrfData[6] == 0xFF){    
             if (iqrfData.length == 11) {
-                parseConfirmation(parsedData, iqrfData);
-                log.debug("toJson - end:" + parsedData.toString());
-                return new PublishableMqttMessage(DPAReplyType.CONFIRMATION, parsedData.toString().getBytes());
+                msg = new PublishableMqttMessage(DPAReplyType.CONFIRMATION, 
+                        codec.encodeConfirmation(iqrfData, time));
             }else{
                 log.warn("Unstandard message!");
-                parsedData.put("unparseableData", Arrays.toString(iqrfData));
-                parsedData.put("error", "Invalid confirmation!");
-                log.debug("toJson - end:" + parsedData.toString());
-                return new PublishableMqttMessage(DPAReplyType.ERROR, parsedData.toString().getBytes());
+                msg = new PublishableMqttMessage(DPAReplyType.ERROR, 
+                        codec.encodeError(iqrfData, true, "Invalid confirmation!", time));
             }
         }else{
-            parseResponse(parsedData, iqrfData);
-            log.debug("toJson - end:" + parsedData.toString());
-            return new PublishableMqttMessage(DPAReplyType.RESPONSE, parsedData.toString().getBytes());   
-        }                                        
-    }
-    
-    /**
-     * Returns int value of two element from array on specified index. Eg. for
-     * elements 255 and 0 is returned 0xF0.
-     */
-    private int getTwoShortAsInt(short[] array, int index){
-        int value = array[index+1];
-        value <<=8;
-        value += array[index];
-        return value;
-    }
-
-    private void parseFoursome(ObjectNode parsedData, short[] iqrfData) {
-        parsedData.put("nadr", getTwoShortAsInt(iqrfData, 0));
-        parsedData.put("per", iqrfData[2]);
-        parsedData.put("cmd", iqrfData[3]);
-        parsedData.put("hwpid", getTwoShortAsInt(iqrfData, 4));
-    }
-
-    private void parseConfirmation(ObjectNode parsedData, short[] iqrfData) {
-        parsedData.put("dpaValue", iqrfData[7]);
-        parsedData.put("hops", iqrfData[8]);
-        parsedData.put("timeslotLength", iqrfData[9]);
-        parsedData.put("hopsResponse", iqrfData[10]);
-    }
-
-    private void parseResponse(ObjectNode parsedData, short[] iqrfData) {
-        ArrayNode array = parsedData.putArray("data");
-        for (int i = 6; iqrfData != null && i < iqrfData.length; i++) {
-            array.add(iqrfData[i]);
+            msg = new PublishableMqttMessage(DPAReplyType.RESPONSE, 
+                    codec.encodeResponse(iqrfData, time));
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("toJson - end:" + new String(msg.getPayload(), StandardCharsets.UTF_8));
         }
+        return msg;
     }
 }
\ No newline at end of file
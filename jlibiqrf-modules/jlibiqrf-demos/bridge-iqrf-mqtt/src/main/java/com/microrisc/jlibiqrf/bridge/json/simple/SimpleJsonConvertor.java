@@ -16,7 +16,7 @@
 package com.microrisc.jlibiqrf.bridge.json.simple;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
 import com.microrisc.jlibiqrf.bridge.MACRecognizer;
 import com.microrisc.jlibiqrf.bridge.json.JsonConvertor;
@@ -24,9 +24,8 @@ import com.microrisc.jlibiqrf.bridge.mqtt.DPAReplyType;
 import com.microrisc.jlibiqrf.bridge.mqtt.PublishableMqttMessage;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import java.io.IOException;
-import java.sql.Timestamp;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Date;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,16 +39,16 @@ public class SimpleJsonConvertor implements JsonConvertor {
 
     private static final Logger log = LoggerFactory.getLogger(SimpleJsonConvertor.class);
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReader reader = new ObjectMapper().readerFor(SimpleIQRFData.class);
     private static final SimpleJsonConvertor instance = new SimpleJsonConvertor();
     private final DPAStateWatcher dpaWatcher = new DPAStateWatcher();
-    private final String mac;
+    private final SimpleJsonEncoder encoder;
 
     /**
      * Singleton
      */
     private SimpleJsonConvertor() {
-        this.mac = MACRecognizer.getMAC();
+        this.encoder = new SimpleJsonEncoder(MACRecognizer.getMAC());
     }
 
     /**
@@ -66,12 +65,16 @@ public class SimpleJsonConvertor implements JsonConvertor {
      */
     @Override
     public IQRFData toIQRF(Object json) {
-        log.debug("toIQRF - start: json={}", json);
+        if (log.isDebugEnabled()) {
+            log.debug("toIQRF - start: json={}", json instanceof byte[]
+                    ? new String((byte[]) json, StandardCharsets.UTF_8) : json);
+        }
         ArgumentChecker.checkNull(json);
-        if (json instanceof String) {
-            String jsonString = (String) json;
+        if (json instanceof String || json instanceof byte[]) {
             try {
-                SimpleIQRFData data = mapper.readValue(jsonString, SimpleIQRFData.class);
+                SimpleIQRFData data = json instanceof byte[]
+                        ? reader.<SimpleIQRFData>readValue((byte[]) json)
+                        : reader.<SimpleIQRFData>readValue((String) json);
 
                 // analyze it
                 DPAAddon addon = new DPAAddon(false, 0);
@@ -84,35 +87,25 @@ public class SimpleJsonConvertor implements JsonConvertor {
                 throw new IllegalArgumentException("Invalid Json data");
             }
         } else {
-            log.warn("Json object must be instance of String");
-            throw new IllegalArgumentException("Json object must be instance of String");
+            log.warn("Json object must be instance of String or byte[]");
+            throw new IllegalArgumentException("Json object must be instance of String or byte[]");
         }
     }
 
     @Override
     public PublishableMqttMessage toJson(short[] iqrf) {
-        log.debug("toJson - start: iqrf={}", Arrays.toString(iqrf));
+        if (log.isDebugEnabled()) {
+            log.debug("toJson - start: iqrf={}", Arrays.toString(iqrf));
+        }
         ArgumentChecker.checkNull(iqrf);
 
-        ObjectNode parsedData = mapper.createObjectNode();
-
-        StringBuilder payloadBuilder = new StringBuilder();
-        for (int i = 0; i < iqrf.length; i++) {
-            payloadBuilder.append(String.format("%02x", iqrf[i]));
-            if (i < iqrf.length - 1) {
-                payloadBuilder.append(".");
-            }
-        }
-        parsedData.put("payload", payloadBuilder.toString().toUpperCase());
         DPAAddon addon = dpaWatcher.getDPAAddon();
-        parsedData.put("dpa", addon.isDPA());
-        parsedData.put("dpa-pn", addon.getNumber());
-        parsedData.put("size", iqrf.length);
-        parsedData.put("mac", mac);
-        parsedData.put("time", new Timestamp(new Date().getTime()).toString());
-        parsedData.put("timestamp", System.currentTimeMillis());
+        byte[] json = encoder.encode(iqrf, addon.isDPA(), addon.getNumber(),
+                System.currentTimeMillis());
 
-        log.debug("toJson - end:" + parsedData.toString());
-        return new PublishableMqttMessage(DPAReplyType.RESPONSE, parsedData.toString().getBytes());
+        if (log.isDebugEnabled()) {
+            log.debug("toJson - end:" + new String(json, StandardCharsets.UTF_8));
+        }
+        return new PublishableMqttMessage(DPAReplyType.RESPONSE, json);
     }
 }
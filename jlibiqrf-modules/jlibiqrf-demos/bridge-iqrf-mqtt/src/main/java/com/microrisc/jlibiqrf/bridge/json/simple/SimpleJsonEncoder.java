@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.json.simple;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
+import com.microrisc.jlibiqrf.bridge.json.TimestampFormatter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Streaming encoder of messages produced by {@link SimpleJsonConvertor}.
+ * <p>
+ * Message is written by single reused {@link JsonGenerator} into reused
+ * buffer, payload is converted to hex via lookup table and the time string
+ * shares its date part within one second, so the only allocation per message
+ * is the returned array. Output is byte to byte same as tree model based
+ * conversion used before: fields {@code payload, dpa, dpa-pn, size, mac, time,
+ * timestamp} in this order, time in {@link java.sql.Timestamp#toString()}
+ * format.
+ *
+ * @author Martin Strouhal
+ */
+public final class SimpleJsonEncoder {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    static {
+        // messages are written one after another by same generator
+        factory.setRootValueSeparator(null);
+    }
+
+    private static final SerializedString PAYLOAD = new SerializedString("payload");
+    private static final SerializedString DPA = new SerializedString("dpa");
+    private static final SerializedString DPA_PN = new SerializedString("dpa-pn");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString MAC = new SerializedString("mac");
+    private static final SerializedString TIME = new SerializedString("time");
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final SerializedString mac;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private JsonGenerator generator;
+
+    private char[] payloadChars = new char[64 * 3];
+    private final char[] timeChars = new char[TimestampFormatter.MAX_LENGTH];
+    private final TimestampFormatter timeFormatter = new TimestampFormatter();
+
+    /**
+     * Creates encoder with specified MAC address, which is written into each
+     * message.
+     *
+     * @param mac MAC address of bridge
+     */
+    public SimpleJsonEncoder(String mac) {
+        ArgumentChecker.checkNull(mac);
+        this.mac = new SerializedString(mac);
+    }
+
+    /**
+     * Encodes data from IQRF network into json message.
+     *
+     * @param iqrf data from IQRF network
+     * @param dpa true if data are DPA packet
+     * @param dpaPacketNumber number of DPA packet
+     * @param timeMillis time of message in milliseconds since epoch
+     * @return UTF-8 encoded json message
+     */
+    public synchronized byte[] encode(short[] iqrf, boolean dpa,
+            int dpaPacketNumber, long timeMillis) {
+        ArgumentChecker.checkNull(iqrf);
+        int payloadLength = fillPayload(iqrf);
+        int timeLength = timeFormatter.format(timeMillis, timeChars);
+        try {
+            if (generator == null) {
+                generator = factory.createGenerator(buffer);
+            }
+            generator.writeStartObject();
+            generator.writeFieldName(PAYLOAD);
+            generator.writeString(payloadChars, 0, payloadLength);
+            generator.writeFieldName(DPA);
+            generator.writeBoolean(dpa);
+            generator.writeFieldName(DPA_PN);
+            generator.writeNumber(dpaPacketNumber);
+            generator.writeFieldName(SIZE);
+            generator.writeNumber(iqrf.length);
+            generator.writeFieldName(MAC);
+            generator.writeString(mac);
+            generator.writeFieldName(TIME);
+            generator.writeString(timeChars, 0, timeLength);
+            generator.writeFieldName(TIMESTAMP);
+            generator.writeNumber(timeMillis);
+            generator.writeEndObject();
+            generator.flush();
+            return buffer.toByteArray();
+        } catch (IOException | RuntimeException ex) {
+            // generator is left in inconsistent state, new one is created next time
+            generator = null;
+            throw new IllegalStateException("Json message cannot be written", ex);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    // writes payload as upper case hex values separated by dots into payloadChars
+    private int fillPayload(short[] iqrf) {
+        int required = iqrf.length * 3;
+        if (payloadChars.length < required) {
+            payloadChars = new char[Math.max(required, payloadChars.length * 2)];
+        }
+        int length = 0;
+        for (int i = 0; i < iqrf.length; i++) {
+            if (i > 0) {
+                payloadChars[length++] = '.';
+            }
+            int value = iqrf[i];
+            if (value >= 0 && value <= 0xFF) {
+                payloadChars[length++] = HEX[value >> 4];
+                payloadChars[length++] = HEX[value & 0x0F];
+            } else {
+                // out of byte range, kept same as the former format
+                String hex = String.format("%02x", iqrf[i]).toUpperCase();
+                char[] enlarged = new char[length + hex.length() + (iqrf.length - i) * 3];
+                System.arraycopy(payloadChars, 0, enlarged, 0, length);
+                payloadChars = enlarged;
+                hex.getChars(0, hex.length(), payloadChars, length);
+                length += hex.length();
+            }
+        }
+        return length;
+    }
+}
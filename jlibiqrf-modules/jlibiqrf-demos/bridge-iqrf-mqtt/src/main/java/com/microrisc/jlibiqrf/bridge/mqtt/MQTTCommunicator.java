@@ -17,8 +17,10 @@
 package com.microrisc.jlibiqrf.bridge.mqtt;
 
 import com.microrisc.jlibiqrf.bridge.ArgumentChecker;
+import com.microrisc.jlibiqrf.bridge.BackpressureListener;
 import com.microrisc.jlibiqrf.bridge.Bridge;
 import com.microrisc.jlibiqrf.bridge.MACRecognizer;
+import com.microrisc.jlibiqrf.bridge.Statistics;
 import com.microrisc.jlibiqrf.bridge.config.MQTTConfiguration;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
@@ -29,10 +31,7 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.sql.Timestamp;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Semaphore;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 import org.eclipse.paho.client.mqttv3.*;
@@ -46,10 +45,13 @@ import org.slf4j.LoggerFactory;
  * @author Rostislav Spinar
  * @author Martin Strouhal
  */
-public class MQTTCommunicator implements MqttCallback {
+public class MQTTCommunicator implements MqttCallback, BackpressureListener {
+
+    /** Maximal count of in-flight messages supported by MQTT client. */
+    public static final int MAX_INFLIGHT_LIMIT = 10;
 
     // Private instance variables
-    private MqttClient client;
+    private MqttAsyncClient client;
     private final MQTTConfiguration config;
     private MqttConnectOptions conOptions;
     private final Bridge bridge;
@@ -57,9 +59,13 @@ public class MQTTCommunicator implements MqttCallback {
     private final String mid;
     private String mac;
     private String statsTopicName;
+    private String statusTopicName;
     
-    private ScheduledExecutorService service = Executors.newScheduledThreadPool(2);
-    private ScheduledFuture<?> dataPushServiceHandler;
+    // thread publishing data from bridge
+    private Thread publisherThread;
+    // limits count of messages which are published, but not yet delivered
+    private Semaphore inflightPermits;
+    private int maxInflight;
     
     // in ms
     private static final int DEFAULT_RECONNECTION_SLEEP_TIME = 3000;
@@ -74,7 +80,7 @@ public class MQTTCommunicator implements MqttCallback {
                 conOptions.setCleanSession(false);
 
                 try {
-                    client.connect(conOptions);
+                    client.connect(conOptions).waitForCompletion();
                 } catch (MqttException ex) {
                     log("Reconnecting to " + config.getCompleteAddress() + " with client "
                             + "ID " + client.getClientId() + "failed! " + ex.getMessage());
@@ -86,6 +92,9 @@ public class MQTTCommunicator implements MqttCallback {
                 }
             }
             reconnectionThread = null;
+            if(client != null){
+                bridge.setPublishingAvailable(true);
+            }
             log("Connected");        
         }
     };
@@ -111,6 +120,7 @@ public class MQTTCommunicator implements MqttCallback {
         
         this.mac = MACRecognizer.getMAC();
         this.statsTopicName = config.getTopicPrefix() + "gateway/" + mac + "/stats";
+        this.statusTopicName = config.getTopicPrefix() + "gateway/" + mac + "/status";
         
         log.info("Used MAC address " + mac);
         
@@ -148,8 +158,8 @@ public class MQTTCommunicator implements MqttCallback {
                 conOptions.setSocketFactory(sslContext.getSocketFactory());
             }
 
-            // Construct an MQTT blocking mode client
-            client = new MqttClient(config.getCompleteAddress(), 
+            // Construct an MQTT non-blocking mode client
+            client = new MqttAsyncClient(config.getCompleteAddress(), 
                     mqttConfig.getClientId(), dataStore);
 
             // Set this wrapper as the callback handler
@@ -159,8 +169,10 @@ public class MQTTCommunicator implements MqttCallback {
             log("Connecting to " + config.getCompleteAddress() + 
                     " with client ID " + client.getClientId());
             
-            client.connect(conOptions);
+            client.connect(conOptions).waitForCompletion();
             log("Connected");
+            
+            bridge.setBackpressureListener(this);
 
         } catch (MqttException e) {
             e.printStackTrace();
@@ -189,45 +201,99 @@ public class MQTTCommunicator implements MqttCallback {
         }
     }
 
-    /** Runs thread which is checking new messages to publish.
-     * 
-     * @param checkInterval how often is checking (in ms)
+    /** 
+     * Publishes data from bridge to the MQTT broker.
      */
-    public void checkAndPublishDeviceData(int checkInterval) {
-        ArgumentChecker.checkNegative(checkInterval);
-        Runnable checkAndPushDataRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if(bridge.isAvailableIQRFData()){
-                    log.debug("MQTT com thread found available iqrf data. Data will be send to mqtt broker.");
-                    PublishableMqttMessage msg = bridge.getAndRemoveIQRFData();
-                    
-                    
-                    try {
-                        // publish data
-                        /*
-                        OLD system dividing msgs into confirmation and response channel
-                        if(msg.getType() == DPAReplyType.CONFIRMATION){
-                            publish(mid + "/dpa/confirmations", 0, msg.getPayload());
-                        }else if(msg.getType() == DPAReplyType.RESPONSE){
-                            publish(mid + "/dpa/responses", 0, msg.getPayload());
-                        }else{
-                            log.warn("Unsupported DPA reply type! Message will be published to responses.");
-                            publish(mid + "/dpa/responses", 0, msg.getPayload());
-                        }*/
-                        
-                        publish(config.getTopicPrefix() + "gateway/" + mac + "/rx", 0, msg.getPayload());
-                    } catch (MqttException ex) {
-                        log.error(ex.getMessage());
+    private class Publisher extends Thread {
+
+        Publisher() {
+            super("MQTT-publisher");
+        }
+
+        @Override
+        public void run() {
+            String topicName = config.getTopicPrefix() + "gateway/" + mac + "/rx";
+            while (true) {
+                PublishableMqttMessage msg;
+                try {
+                    // message is taken after the permit is got, so waiting 
+                    // messages stay in bridge queue, where they are counted
+                    inflightPermits.acquire();
+                    msg = bridge.takeIQRFData();
+                } catch (InterruptedException ex) {
+                    log.info("Publisher thread interrupted");
+                    return;
+                }
+                
+                log.debug("MQTT publisher took iqrf data. Data will be send to mqtt broker.");
+                try {
+                    publish(topicName, 0, msg.getPayload(), msg, releasingListener);
+                } catch (MqttException ex) {
+                    inflightPermits.release();
+                    log.error(ex.getMessage());
+                    bridge.recordError(Statistics.ErrorType.PUBLISH);
+                    if (!client.isConnected()) {
+                        // data will be published after reconnection before
+                        // all newer data, journaling them now would place 
+                        // them behind data journaled meanwhile
+                        bridge.retryIQRFData(msg);
                     }
-                    
-                    log.debug("Data published");
                 }
             }
-        };
+        }
+    }
+    
+    // releases in-flight permit after delivery of message
+    private final IMqttActionListener releasingListener = new IMqttActionListener() {
+        @Override
+        public void onSuccess(IMqttToken token) {
+            inflightPermits.release();
+            if (token.getUserContext() instanceof PublishableMqttMessage) {
+                bridge.iqrfDataPublished((PublishableMqttMessage) token.getUserContext());
+            }
+            log.debug("Data published");
+        }
 
-        dataPushServiceHandler = service.scheduleAtFixedRate(checkAndPushDataRunnable, checkInterval,
-                checkInterval, TimeUnit.MILLISECONDS);
+        @Override
+        public void onFailure(IMqttToken token, Throwable cause) {
+            inflightPermits.release();
+            bridge.recordError(Statistics.ErrorType.PUBLISH);
+            log.error("Publishing of data failed: " + cause);
+        }
+    };
+
+    /** 
+     * Runs thread which publishes data from bridge as soon as they are 
+     * available. Publishing isn't waiting for delivery of previous messages, 
+     * maximally {@code maxInflight} messages can be published and not yet 
+     * delivered at the same time.
+     * 
+     * @param maxInflight maximal count of in-flight messages, it's limited by
+     * {@link #MAX_INFLIGHT_LIMIT}
+     */
+    public void startPublishing(int maxInflight) {
+        ArgumentChecker.checkInterval(maxInflight, 1, Integer.MAX_VALUE);
+        if (maxInflight > MAX_INFLIGHT_LIMIT) {
+            log.warn("Max in-flight messages " + maxInflight + " is greater than "
+                    + "limit of MQTT client, " + MAX_INFLIGHT_LIMIT + " will be used.");
+            maxInflight = MAX_INFLIGHT_LIMIT;
+        }
+        this.maxInflight = maxInflight;
+        inflightPermits = new Semaphore(maxInflight);
+        publisherThread = new Publisher();
+        publisherThread.start();
+    }
+
+    /**
+     * Returns count of messages, which are published, but not yet delivered.
+     * 
+     * @return count of in-flight messages
+     */
+    public int getInflightCount() {
+        if (inflightPermits == null) {
+            return 0;
+        }
+        return maxInflight - inflightPermits.availablePermits();
     }
     
     /**
@@ -239,6 +305,37 @@ public class MQTTCommunicator implements MqttCallback {
      * @throws MqttException
      */
     public void publish(String topicName, int qos, byte[] payload) throws MqttException {
+        publish(topicName, qos, payload, null);
+    }
+    
+    /**
+     * Publish / send a message to an MQTT server without waiting for its
+     * delivery.
+     *
+     * @param topicName the name of the topic to publish to
+     * @param qos the quality of service to delivery the message at (0,1,2)
+     * @param payload the set of bytes to send to the MQTT server
+     * @param listener notified about delivery of message, can be {@code null}
+     * @throws MqttException
+     */
+    public void publish(String topicName, int qos, byte[] payload, 
+            IMqttActionListener listener) throws MqttException {
+        publish(topicName, qos, payload, null, listener);
+    }
+    
+    /**
+     * Publish / send a message to an MQTT server without waiting for its
+     * delivery.
+     *
+     * @param topicName the name of the topic to publish to
+     * @param qos the quality of service to delivery the message at (0,1,2)
+     * @param payload the set of bytes to send to the MQTT server
+     * @param userContext object passed to listener in token, can be {@code null}
+     * @param listener notified about delivery of message, can be {@code null}
+     * @throws MqttException
+     */
+    public void publish(String topicName, int qos, byte[] payload, 
+            Object userContext, IMqttActionListener listener) throws MqttException {
         ArgumentChecker.checkNull(topicName);
         ArgumentChecker.checkInterval(qos, 0, 2);
         ArgumentChecker.checkNull(payload);
@@ -250,10 +347,10 @@ public class MQTTCommunicator implements MqttCallback {
         MqttMessage message = new MqttMessage(payload);
         message.setQos(qos);
 
-    	// Send the message to the server, control is not returned until
-        // it has been delivered to the server meeting the specified
-        // quality of service.
-        client.publish(topicName, message);
+    	// Send the message to the server, control is returned immediately, 
+        // the listener is notified after the message has been delivered to 
+        // the server meeting the specified quality of service.
+        client.publish(topicName, message, userContext, listener);
     }
     
     /**
@@ -295,7 +392,7 @@ public class MQTTCommunicator implements MqttCallback {
         // be downgraded to 1 when delivering to the client but messages published at 1 and 0
         // will be received at the same level they were published at.
         log("Subscribing to topic \"" + topicName + "\" qos " + qos);
-        client.subscribe(topicName, qos);
+        client.subscribe(topicName, qos).waitForCompletion();
     }
 
     /**
@@ -320,6 +417,7 @@ public class MQTTCommunicator implements MqttCallback {
         // An application may choose to implement reconnection
         // logic at this point. This sample simply exits.
         log("Connection to " + config.getCompleteAddress() + " lost! " + cause);
+        bridge.setPublishingAvailable(false);
         reconnectionThread = new Thread(reconnectionRunnable);
         reconnectionThread.start();
         log.debug("connectionLost - end");               
@@ -396,10 +494,37 @@ public class MQTTCommunicator implements MqttCallback {
         return bais;
     }
 
+    /**
+     * Publishes status of IQRF side when it becomes saturated, so the MQTT 
+     * side can slow down.
+     */
+    @Override
+    public void onSaturated(int queueSize) {
+        publishIQRFStatus(true, queueSize);
+    }
+
+    /**
+     * Publishes status of IQRF side when it isn't saturated anymore.
+     */
+    @Override
+    public void onRelieved(int queueSize) {
+        publishIQRFStatus(false, queueSize);
+    }
+    
+    private void publishIQRFStatus(boolean saturated, int queueSize){
+        String status = "{\"iqrfSaturated\":" + saturated + ",\"iqrfSendQueueDepth\":" 
+                + queueSize + "}";
+        try {
+            publish(statusTopicName, 0, status.getBytes());
+        } catch (MqttException ex) {
+            log.warn("Status sending was unsuccessful: " + ex);
+        }
+    }
+    
     private void sendStatistics(){
-        String stats = bridge.getStatistics().getAsJson();
+        byte[] stats = bridge.getStatistics().getAsJsonBytes();
         try {
-            publish(statsTopicName, 0, stats.getBytes());
+            publish(statsTopicName, 0, stats);
         } catch (MqttException ex) {
             log.warn("Statistics sending was unsuccessful: " + ex);
         }
@@ -407,8 +532,8 @@ public class MQTTCommunicator implements MqttCallback {
     
     /** Free-up resources. */
     public void destroy(){
-        if(!dataPushServiceHandler.isCancelled()) {
-            dataPushServiceHandler.cancel(false);
+        if (publisherThread != null) {
+            publisherThread.interrupt();
         }
         if (!client.isConnected()) {
             try {
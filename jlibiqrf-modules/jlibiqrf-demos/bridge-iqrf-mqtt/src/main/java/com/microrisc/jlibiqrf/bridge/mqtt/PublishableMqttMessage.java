@@ -27,6 +27,8 @@ import org.eclipse.paho.client.mqttv3.MqttMessage;
 public class PublishableMqttMessage extends MqttMessage {
     
      private final DPAReplyType type;
+     // System.nanoTime() of creation, used for latency measurement
+     private final long creationTime = System.nanoTime();
 
      /**
       * Creates a publishable mqtt message with specified data and type
@@ -46,4 +48,13 @@ public class PublishableMqttMessage extends MqttMessage {
     public DPAReplyType getType() {
         return type;
     }
+
+    /**
+     * Returns time of message creation as given by {@link System#nanoTime()}.
+     * Messages restored from journal are created again while reading.
+     * @return creation time in nanoseconds
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
 }
\ No newline at end of file
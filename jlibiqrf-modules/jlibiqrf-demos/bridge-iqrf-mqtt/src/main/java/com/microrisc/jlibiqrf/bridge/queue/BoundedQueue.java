@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue with fixed capacity backed by array used as ring buffer, so its
+ * memory usage doesn't grow under overload. What happens when queue is full
+ * is given by {@link QueueOverflowPolicy}, dropped data are counted.
+ *
+ * @param <E> type of queued data
+ * @author Martin Strouhal
+ */
+public final class BoundedQueue<E> {
+
+    private final Object[] items;
+    private final QueueOverflowPolicy policy;
+    // index of the oldest item
+    private int head = 0;
+    private int count = 0;
+    private long droppedCount = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Creates queue with specified capacity and overflow policy.
+     *
+     * @param capacity maximal count of items in queue
+     * @param policy applied when queue is full
+     */
+    public BoundedQueue(int capacity, QueueOverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy cannot be null");
+        }
+        this.items = new Object[capacity];
+        this.policy = policy;
+    }
+
+    // inserts item, queue must not be full, called with lock held
+    private void enqueue(E item) {
+        items[(head + count) % items.length] = item;
+        count++;
+        notEmpty.signal();
+    }
+
+    // removes the oldest item, queue must not be empty, called with lock held
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        E item = (E) items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+        notFull.signal();
+        return item;
+    }
+
+    /**
+     * Adds item into queue. If queue is full, overflow policy is applied:
+     * <ul>
+     * <li>{@link QueueOverflowPolicy#DROP_OLDEST} - the oldest item is
+     * dropped and counted, item is added</li>
+     * <li>{@link QueueOverflowPolicy#DROP_NEWEST} - item is dropped and
+     * counted</li>
+     * <li>{@link QueueOverflowPolicy#BLOCK} - waits for free space</li>
+     * <li>{@link QueueOverflowPolicy#SPILL_TO_JOURNAL} - item isn't added,
+     * caller is responsible for storing it</li>
+     * </ul>
+     *
+     * @param item to add
+     * @return {@code true} if item has been added
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public boolean add(E item) throws InterruptedException {
+        if (item == null) {
+            throw new IllegalArgumentException("Item cannot be null");
+        }
+        lock.lockInterruptibly();
+        try {
+            if (count == items.length) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        dequeue();
+                        droppedCount++;
+                        break;
+                    case DROP_NEWEST:
+                        droppedCount++;
+                        return false;
+                    case BLOCK:
+                        while (count == items.length) {
+                            notFull.await();
+                        }
+                        break;
+                    case SPILL_TO_JOURNAL:
+                        return false;
+                    default:
+                        throw new IllegalStateException("Unsupported policy: " + policy);
+                }
+            }
+            enqueue(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the oldest item.
+     *
+     * @return item or {@code null} if queue is empty
+     */
+    public E poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the oldest item, waits for it if queue is empty.
+     *
+     * @param timeout how long to wait
+     * @param unit of timeout
+     * @return item or {@code null} if no item was added before timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the oldest item, waits for it if queue is empty.
+     *
+     * @return item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns count of items in queue.
+     *
+     * @return size of queue
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code true} if queue is empty.
+     *
+     * @return if queue is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns count of items, which can be added without overflow.
+     *
+     * @return free space
+     */
+    public int remainingCapacity() {
+        return items.length - size();
+    }
+
+    /**
+     * Returns maximal count of items in queue.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return items.length;
+    }
+
+    /**
+     * Returns policy applied when queue is full.
+     *
+     * @return overflow policy
+     */
+    public QueueOverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns count of items dropped because of full queue.
+     *
+     * @return count of dropped items
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.queue;
+
+/**
+ * Specifies what happens when data are added into full {@link BoundedQueue}.
+ *
+ * @author Martin Strouhal
+ */
+public enum QueueOverflowPolicy {
+
+    /** The oldest data in queue are dropped to make space for new data. */
+    DROP_OLDEST,
+    /** New data are dropped. */
+    DROP_NEWEST,
+    /** Producer waits until there is space in queue. */
+    BLOCK,
+    /** New data are stored into journal on disk, see 
+     * {@link com.microrisc.jlibiqrf.bridge.journal.MessageJournal}. */
+    SPILL_TO_JOURNAL
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.statistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts values in one second slots, so rate over sliding window of last
+ * seconds can be computed. Rate is computed only from completed seconds.
+ *
+ * @author Martin Strouhal
+ */
+public final class WindowedCounter {
+
+    private static final long NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // count of slots, one more than window, so the actual second isn't in window
+    private final int slots;
+    private final AtomicLongArray counts;
+    // second, which is counted in slot
+    private final AtomicLongArray slotSeconds;
+    private final long startSecond;
+
+    /**
+     * Creates counter able to compute rates up to specified window.
+     *
+     * @param windowSeconds maximal window in seconds
+     */
+    public WindowedCounter(int windowSeconds) {
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("Window must be at least one second");
+        }
+        this.slots = windowSeconds + 1;
+        this.counts = new AtomicLongArray(slots);
+        this.slotSeconds = new AtomicLongArray(slots);
+        this.startSecond = currentSecond();
+        for (int i = 0; i < slots; i++) {
+            slotSeconds.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    private static long currentSecond() {
+        return System.nanoTime() / NANOS_IN_SECOND;
+    }
+
+    /**
+     * Adds specified value into actual second.
+     *
+     * @param value to add
+     */
+    public void add(long value) {
+        long second = currentSecond();
+        int slot = (int) (second % slots);
+        if (slotSeconds.get(slot) != second) {
+            synchronized (this) {
+                // slot is cleared before it's marked, so no value gets lost
+                if (slotSeconds.get(slot) != second) {
+                    counts.set(slot, 0);
+                    slotSeconds.set(slot, second);
+                }
+            }
+        }
+        counts.addAndGet(slot, value);
+    }
+
+    /**
+     * Returns average count per second over last completed seconds. If the
+     * counter exists shorter time, only the existing seconds are used.
+     *
+     * @param seconds length of window, at most window given in constructor
+     * @return rate per second
+     */
+    public double getRate(int seconds) {
+        if (seconds < 1 || seconds >= slots) {
+            throw new IllegalArgumentException("Window must be from 1 to " + (slots - 1));
+        }
+        long second = currentSecond();
+        long duration = Math.min(seconds, second - startSecond);
+        if (duration <= 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < slots; i++) {
+            long slotSecond = slotSeconds.get(i);
+            if (slotSecond < second && slotSecond >= second - duration) {
+                sum += counts.get(i);
+            }
+        }
+        return (double) sum / duration;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.bridge.statistics;
+
+import com.microrisc.jlibiqrf.metrics.LatencyHistogram;
+import com.microrisc.jlibiqrf.metrics.LatencySnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies over sliding window. Window is divided into slots, each of them
+ * is {@link LatencyHistogram}, the oldest slot is reset, when the window 
+ * moves. Snapshot of window is merged from snapshots of its slots.
+ *
+ * @author Martin Strouhal
+ */
+public final class WindowedLatency {
+
+    private final long slotNanos;
+    private final LatencyHistogram[] slots;
+    // number of period, which is recorded in slot
+    private final AtomicLongArray slotPeriods;
+
+    /**
+     * Creates latencies over specified window.
+     *
+     * @param windowSeconds length of window in seconds
+     * @param slotCount count of slots in window, oldest one is dropped at once
+     */
+    public WindowedLatency(int windowSeconds, int slotCount) {
+        if (windowSeconds < 1 || slotCount < 1) {
+            throw new IllegalArgumentException("Window and count of slots must be positive");
+        }
+        this.slotNanos = TimeUnit.SECONDS.toNanos(windowSeconds) / slotCount;
+        // one more slot for actually recorded period
+        this.slots = new LatencyHistogram[slotCount + 1];
+        this.slotPeriods = new AtomicLongArray(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new LatencyHistogram();
+            slotPeriods.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Records latency.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long period = System.nanoTime() / slotNanos;
+        int slotIndex = (int) (period % slots.length);
+        if (slotPeriods.get(slotIndex) != period) {
+            synchronized (this) {
+                // slot is reset before it's marked, so no value gets lost
+                if (slotPeriods.get(slotIndex) != period) {
+                    slots[slotIndex].reset();
+                    slotPeriods.set(slotIndex, period);
+                }
+            }
+        }
+        slots[slotIndex].record(nanos);
+    }
+
+    /**
+     * Returns snapshot of latencies recorded in window.
+     *
+     * @return snapshot, values are in nanoseconds
+     */
+    public LatencySnapshot getSnapshot() {
+        long period = System.nanoTime() / slotNanos;
+        List<LatencySnapshot> snapshots = new ArrayList<>(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            long slotPeriod = slotPeriods.get(i);
+            if (slotPeriod > period - slots.length && slotPeriod <= period) {
+                snapshots.add(slots[i].snapshot());
+            }
+        }
+        return LatencySnapshot.merge(snapshots);
+    }
+}
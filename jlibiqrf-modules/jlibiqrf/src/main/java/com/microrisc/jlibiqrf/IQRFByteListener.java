@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides receiving of data from IQRF network as bytes. Unlike
+ * {@link IQRFListener} it gets data without conversion into {@code short[]},
+ * so layers working with bytes (UDP, Serial) don't need to widen received
+ * data, if only such listeners are registered.
+ *
+ * @author Martin Strouhal
+ */
+public interface IQRFByteListener {
+
+    /**
+     * This method is called always on receive data from IQRF network. It's
+     * called directly on thread receiving data, so it should be fast.
+     *
+     * @param data read-only buffer with received data between its position
+     * and limit, it's valid only during this call
+     */
+    public void onGetIQRFData(ByteBuffer data);
+}
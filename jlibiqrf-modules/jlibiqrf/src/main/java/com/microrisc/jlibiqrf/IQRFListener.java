@@ -24,6 +24,8 @@ public interface IQRFListener {
     
     /**
      * This method is called always on receive data from IQRF network.
+     * Listener called directly on thread receiving data shares the array with
+     * other listeners, so it must not modify the data.
      * @param data received form IQRF network
      */
     public void onGetIQRFData(short[] data);
@@ -15,20 +15,48 @@
  */
 package com.microrisc.jlibiqrf;
 
+import com.microrisc.jlibiqrf.async.IQRFCallback;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.capture.CaptureDirection;
+import com.microrisc.jlibiqrf.capture.CaptureWriter;
 import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
 import com.microrisc.jlibiqrf.configuration.IQRFConfiguration;
+import com.microrisc.jlibiqrf.dpa.DPARequestCorrelator;
+import com.microrisc.jlibiqrf.dpa.DPARequestScheduler;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
 import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
 import com.microrisc.jlibiqrf.iqrfLayer.cdc.CDCConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.cdc.CDCIQRFLayerFactory;
+import com.microrisc.jlibiqrf.iqrfLayer.loopback.LoopbackConfiguration;
+import com.microrisc.jlibiqrf.iqrfLayer.loopback.LoopbackIQRFLayerFactory;
+import com.microrisc.jlibiqrf.iqrfLayer.replay.ReplayConfiguration;
+import com.microrisc.jlibiqrf.iqrfLayer.replay.ReplayIQRFLayerFactory;
 import com.microrisc.jlibiqrf.iqrfLayer.serial.SerialConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.serial.SerialIQRFLayerFactory;
 import com.microrisc.jlibiqrf.iqrfLayer.spi.SPIConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.spi.SPIIQRFLayerFactory;
 import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPIQRFLayerFactory;
+import com.microrisc.jlibiqrf.listener.IQRFDataFilter;
+import com.microrisc.jlibiqrf.listener.ListenerRegistration;
+import com.microrisc.jlibiqrf.listener.OverflowPolicy;
+import com.microrisc.jlibiqrf.metrics.IQRFMetrics;
+import com.microrisc.jlibiqrf.metrics.IQRFMetricsJmx;
+import com.microrisc.jlibiqrf.metrics.LayerMetrics;
 import com.microrisc.jlibiqrf.types.BaseIQRFData;
 import com.microrisc.jlibiqrf.types.IQRFData;
+import com.microrisc.jlibiqrf.types.IQRFError;
 import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +71,13 @@ public class JLibIQRF implements JLibIQRFInterface {
     /** Logger. */
     private static final Logger logger = LoggerFactory.getLogger(JLibIQRF.class);
 
+    /** Default timeout [in ms] of waiting for response in
+     * {@link JLibIQRF#sendAsync(short[])}. */
+    public static final long DEFAULT_RESPONSE_TIMEOUT = 10000;
+
+    /** Interval [in ms] of sampling of send and receive rates in metrics. */
+    public static final long METRICS_RATE_INTERVAL = 1000;
+
     /**
      * Returns a new {@link JLibIQRF} with specified config.
      * @param config for creating {@link JLibIQRF}
@@ -63,11 +98,22 @@ public class JLibIQRF implements JLibIQRFInterface {
             logger.error(ex.getMessage());
             return null;
         }
+        JLibIQRF iqrf = new JLibIQRF(layer, config.getIQRFCommunicationType());
+        iqrf.setRequestScheduling(config.isRequestScheduling());
+        if (config.getCaptureFile() != null) {
+            try {
+                iqrf.startCapture(config.getCaptureFile());
+            } catch (IQRFLayerException ex) {
+                logger.error(ex.getMessage());
+                iqrf.destroy();
+                return null;
+            }
+        }
         logger.debug("init - end: " + layer);
-        return new JLibIQRF(layer);
+        return iqrf;
     }
 
-    private static AbstractIQRFLayer identifyAndCreateIQRFLayer(IQRFConfiguration config) throws IQRFLayerException {
+    static AbstractIQRFLayer identifyAndCreateIQRFLayer(IQRFConfiguration config) throws IQRFLayerException {
         logger.debug("identifyAndCreateIQRFLayer - start: config={}", config);
         AbstractIQRFLayer layer;
         if (config.getIQRFCommunicationType() == CDCConfiguration.type) {
@@ -86,6 +132,14 @@ public class JLibIQRF implements JLibIQRFInterface {
             UDPConfiguration udpConfig = (UDPConfiguration)config;
             UDPIQRFLayerFactory udpFactory = new UDPIQRFLayerFactory();
             layer = udpFactory.getIQRFLayer(udpConfig);
+        }else if(config.getIQRFCommunicationType() == ReplayConfiguration.type){
+            ReplayConfiguration replayConfig = (ReplayConfiguration)config;
+            ReplayIQRFLayerFactory replayFactory = new ReplayIQRFLayerFactory();
+            layer = replayFactory.getIQRFLayer(replayConfig);
+        }else if(config.getIQRFCommunicationType() == LoopbackConfiguration.type){
+            LoopbackConfiguration loopbackConfig = (LoopbackConfiguration)config;
+            LoopbackIQRFLayerFactory loopbackFactory = new LoopbackIQRFLayerFactory();
+            layer = loopbackFactory.getIQRFLayer(loopbackConfig);
         }else{
             throw new UnsupportedOperationException("Currently isn't supported "
                     + config.getIQRFCommunicationType());
@@ -96,34 +150,359 @@ public class JLibIQRF implements JLibIQRFInterface {
     
     private final AbstractIQRFLayer iqrfLayer;
 
+    /** Type of communication of used layer. */
+    private final IQRFCommunicationType communicationType;
+
+    /** Timer used for timeouts of asynchronous requests. */
+    private final ScheduledExecutorService timer;
+
+    /** Indicates, that the timer is owned by this instance. */
+    private final boolean ownTimer;
+
+    /** Periodic sampling of rates in metrics. */
+    private final ScheduledFuture<?> ratesUpdate;
+
+    /** Pairs asynchronous requests with their responses. */
+    private final DPARequestCorrelator correlator;
+
+    /** Sends asynchronous requests, when the network is free. */
+    private final DPARequestScheduler scheduler;
+
+    /** Indicates, that asynchronous requests are scheduled. */
+    private volatile boolean requestScheduling = true;
+
+    /** Metrics of used layer. */
+    private final LayerMetrics metrics;
+
+    /** JMX view of metrics, created after registration. */
+    private IQRFMetricsJmx metricsJmx = null;
+
+    /** Writer of captured frames, {@code null} if capturing isn't running. */
+    private volatile CaptureWriter capture = null;
+
+    /** Captures received frames. */
+    private final IQRFByteListener captureListener = new IQRFByteListener() {
+        @Override
+        public void onGetIQRFData(ByteBuffer data) {
+            capture(CaptureDirection.RECEIVED, data);
+        }
+    };
+
+    /** Records timed out asynchronous requests into metrics. */
+    private final IQRFCallback<DPAResult> timeoutRecorder = new IQRFCallback<DPAResult>() {
+        @Override
+        public void onSuccess(DPAResult result) {
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            if (cause instanceof IQRFLayerException
+                    && ((IQRFLayerException) cause).getError() == IQRFError.TIMEOUT_ERROR) {
+                metrics.recordError(IQRFError.TIMEOUT_ERROR);
+            }
+        }
+    };
+
     /** *  Creates instance of {@link JLibIQRF} with specified communication
      * {@link AbstractIQRFLayer layer}
      *
      * @param layer used in {@link JLibIQRF}
+     * @param communicationType type of communication of the layer
+     */
+    private JLibIQRF(AbstractIQRFLayer layer, IQRFCommunicationType communicationType) {
+        this(layer, communicationType, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "JLibIQRF-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * Creates instance of {@link JLibIQRF} with specified started layer and
+     * timer, which can be shared with other instances.
+     *
+     * @param layer used in {@link JLibIQRF}
+     * @param communicationType type of communication of the layer
+     * @param timer timer for timeouts of requests and sampling of metrics
+     * @param ownTimer {@code true} if the timer is shut down on destroying
      */
-    private JLibIQRF(AbstractIQRFLayer layer) {
+    JLibIQRF(AbstractIQRFLayer layer, IQRFCommunicationType communicationType,
+            ScheduledExecutorService timer, boolean ownTimer) {
         iqrfLayer = layer;
+        this.communicationType = communicationType;
+        this.timer = timer;
+        this.ownTimer = ownTimer;
+        correlator = new DPARequestCorrelator(timer);
+        // correlator is registered first, so futures are completed before
+        // user listeners get the data, as byte listener it doesn't force
+        // conversion of received data to short[]
+        iqrfLayer.registerByteListener(correlator);
+        scheduler = new DPARequestScheduler(correlator, timer, new DPARequestScheduler.Sender() {
+            @Override
+            public IQRFFuture<Void> send(short[] request) {
+                return sendNonBlocking(new BaseIQRFData(request));
+            }
+        });
+
+        metrics = iqrfLayer.getMetrics();
+        ratesUpdate = timer.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                metrics.updateRates();
+            }
+        }, METRICS_RATE_INTERVAL, METRICS_RATE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    // sends data via layer and records sending into metrics
+    private void send(IQRFData iqrfData) throws IQRFLayerException {
+        long start = System.nanoTime();
+        try {
+            iqrfLayer.sendData(iqrfData);
+        } catch (IQRFLayerException ex) {
+            metrics.recordError(ex.getError());
+            throw ex;
+        }
+        metrics.recordSent(iqrfData.getData().length, System.nanoTime() - start);
+        capture(CaptureDirection.SENT, iqrfData.getData());
+    }
+
+    // sends bytes via layer and records sending into metrics
+    private void send(ByteBuffer data) throws IQRFLayerException {
+        int length = data.remaining();
+        long start = System.nanoTime();
+        try {
+            iqrfLayer.sendData(data);
+        } catch (IQRFLayerException ex) {
+            metrics.recordError(ex.getError());
+            throw ex;
+        }
+        metrics.recordSent(length, System.nanoTime() - start);
+        capture(CaptureDirection.SENT, data);
+    }
+
+    // sends data via layer without blocking, records sending into metrics
+    // after data has been sent
+    private IQRFFuture<Void> sendNonBlocking(final IQRFData iqrfData) {
+        final long start = System.nanoTime();
+        IQRFFuture<Void> sent = iqrfLayer.sendDataAsync(iqrfData);
+        sent.addCallback(new IQRFCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                metrics.recordSent(iqrfData.getData().length, System.nanoTime() - start);
+                capture(CaptureDirection.SENT, iqrfData.getData());
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                if (cause instanceof IQRFLayerException) {
+                    metrics.recordError(((IQRFLayerException) cause).getError());
+                }
+            }
+        });
+        return sent;
+    }
+
+    @Override
+    public int sendData(ByteBuffer data) {
+        try {
+            send(data);
+        } catch (IQRFLayerException ex) {
+            return ex.getErrorId();
+        }
+        return SUCCESS_OPERATION;
     }
 
     @Override
     public int sendData(short[] data) {
         IQRFData iqrfData = new BaseIQRFData(data);
         try {
-            iqrfLayer.sendData(iqrfData);
+            send(iqrfData);
         } catch (IQRFLayerException ex) {
             return ex.getErrorId();
         }
         return SUCCESS_OPERATION;
     }
 
+    @Override
+    public IQRFFuture<DPAResult> sendAsync(short[] request) {
+        return sendAsync(request, DEFAULT_RESPONSE_TIMEOUT);
+    }
+
+    @Override
+    public IQRFFuture<DPAResult> sendAsync(short[] request, long timeout) {
+        if (requestScheduling) {
+            IQRFFuture<DPAResult> future = scheduler.submit(request, timeout);
+            future.addCallback(timeoutRecorder);
+            return future;
+        }
+        final IQRFFuture<DPAResult> future = correlator.register(request, timeout);
+        future.addCallback(timeoutRecorder);
+        sendNonBlocking(new BaseIQRFData(request)).addCallback(new IQRFCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                future.fail(cause);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void setRequestScheduling(boolean enabled) {
+        requestScheduling = enabled;
+    }
+
+    @Override
+    public boolean isRequestScheduling() {
+        return requestScheduling;
+    }
+
     @Override
     public void addIQRFListener(IQRFListener listener) {
         iqrfLayer.registerListener(listener);
     }
 
+    @Override
+    public ListenerRegistration addIQRFListener(IQRFListener listener,
+            IQRFDataFilter filter, Executor executor, int queueCapacity,
+            OverflowPolicy overflowPolicy
+    ) {
+        return iqrfLayer.registerListener(listener, filter, executor, queueCapacity, overflowPolicy);
+    }
+
+    @Override
+    public void removeIQRFListener(IQRFListener listener) {
+        iqrfLayer.unregisterListener(listener);
+    }
+
+    @Override
+    public void addIQRFByteListener(IQRFByteListener listener) {
+        iqrfLayer.registerByteListener(listener);
+    }
+
+    @Override
+    public void removeIQRFByteListener(IQRFByteListener listener) {
+        iqrfLayer.unregisterByteListener(listener);
+    }
+
+    @Override
+    public IQRFMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public synchronized void registerMetricsMBean(String name) throws IQRFLayerException {
+        if (metricsJmx != null) {
+            throw new IllegalStateException("Metrics MBean is already registered.");
+        }
+        IQRFMetricsJmx jmx = new IQRFMetricsJmx(metrics);
+        try {
+            jmx.register(name);
+        } catch (JMException ex) {
+            throw new IQRFLayerException(ex, IQRFError.GENERAL_ERROR);
+        }
+        metricsJmx = jmx;
+        logger.info("Metrics MBean registered: {}", name);
+    }
+
+    // unregisters metrics MBean, if it was registered
+    private synchronized void unregisterMetricsMBean() {
+        if (metricsJmx == null) {
+            return;
+        }
+        try {
+            metricsJmx.unregister();
+        } catch (JMException ex) {
+            logger.warn("Metrics MBean cannot be unregistered: " + ex.getMessage());
+        }
+        metricsJmx = null;
+    }
+
+    @Override
+    public synchronized void startCapture(String file) throws IQRFLayerException {
+        if (capture != null) {
+            throw new IllegalStateException("Capturing is already running into "
+                    + capture.getFile());
+        }
+        try {
+            capture = new CaptureWriter(new File(file));
+        } catch (IOException ex) {
+            throw new IQRFLayerException(ex, IQRFError.GENERAL_ERROR);
+        }
+        iqrfLayer.registerByteListener(captureListener);
+    }
+
+    @Override
+    public synchronized void stopCapture() {
+        CaptureWriter writer = capture;
+        if (writer == null) {
+            return;
+        }
+        iqrfLayer.unregisterByteListener(captureListener);
+        capture = null;
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            logger.warn("Capture cannot be closed: " + ex.getMessage());
+        }
+    }
+
+    // writes frame into capture, if capturing is running
+    private void capture(CaptureDirection direction, ByteBuffer data) {
+        CaptureWriter writer = capture;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(direction, communicationType, data);
+        } catch (IOException ex) {
+            captureFailed(writer, ex);
+        }
+    }
+
+    // writes frame into capture, if capturing is running
+    private void capture(CaptureDirection direction, short[] data) {
+        CaptureWriter writer = capture;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(direction, communicationType, data);
+        } catch (IOException ex) {
+            captureFailed(writer, ex);
+        }
+    }
+
+    // stops capturing after failed writing, unless it has been already stopped
+    private void captureFailed(CaptureWriter writer, IOException ex) {
+        if (capture != writer) {
+            return;
+        }
+        logger.error("Capturing failed and it's stopped: " + ex.getMessage());
+        stopCapture();
+    }
+
     @Override
     public void destroy() {
+        unregisterMetricsMBean();
         iqrfLayer.destroy();
+        stopCapture();
+        ratesUpdate.cancel(false);
+        if (ownTimer) {
+            timer.shutdownNow();
+        }
+        IQRFLayerException destroyed = new IQRFLayerException("JLibIQRF has been destroyed.",
+                IQRFError.GENERAL_ERROR);
+        // queue is emptied first, so that no request is sent after release of
+        // network by failed request
+        scheduler.failAll(destroyed);
+        correlator.failAll(destroyed);
         logger.info("IQRF layer destroyed.");
     }
 
@@ -15,6 +15,16 @@
  */
 package com.microrisc.jlibiqrf;
 
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
+import com.microrisc.jlibiqrf.listener.IQRFDataFilter;
+import com.microrisc.jlibiqrf.listener.ListenerRegistration;
+import com.microrisc.jlibiqrf.listener.OverflowPolicy;
+import com.microrisc.jlibiqrf.metrics.IQRFMetrics;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
 /**
  * Provides interface of JLibIQRF.
  *
@@ -34,14 +44,152 @@ public interface JLibIQRFInterface {
      */
     public int sendData(short[] data);
 
+    /**
+     * Sends data between position and limit of specified buffer to IQRF
+     * network. Layers working with bytes (UDP) send data without any
+     * conversion. Position of the buffer isn't changed.
+     *
+     * @param data which will be send
+     * @return {@link JLibIQRFInterface#SUCCESS_OPERATION} if was operation
+     * successful
+     */
+    public int sendData(ByteBuffer data);
+
+    /**
+     * Sends DPA request to IQRF network asynchronously. Returned future is
+     * completed after receiving of DPA confirmation and response, which belongs
+     * to the request, or fails after default timeout. Calling thread isn't
+     * blocked while layer waits for device to be ready for sending. If
+     * {@link #setRequestScheduling(boolean) request scheduling} is enabled,
+     * the request is sent after the network has finished previous request.
+     *
+     * @param request DPA request which will be send
+     * @return future completed with {@link DPAResult}
+     */
+    public IQRFFuture<DPAResult> sendAsync(short[] request);
+
+    /**
+     * Sends DPA request to IQRF network asynchronously. Returned future is
+     * completed after receiving of DPA confirmation and response, which belongs
+     * to the request, or fails after specified timeout.
+     *
+     * @param request DPA request which will be send
+     * @param timeout in ms, after which the future fails
+     * @return future completed with {@link DPAResult}
+     */
+    public IQRFFuture<DPAResult> sendAsync(short[] request, long timeout);
+
+    /**
+     * Enables or disables scheduling of requests sent by
+     * {@link #sendAsync(short[], long)}. Scheduled requests are sent one by
+     * one, each after response to previous one or after routing time
+     * estimated from its confirmation, see
+     * {@link com.microrisc.jlibiqrf.dpa.DPARequestScheduler}. Without
+     * scheduling are requests sent immediately. Scheduling is enabled by
+     * default. Data sent by {@link #sendData(short[])} aren't scheduled.
+     *
+     * @param enabled {@code true} to enable scheduling
+     */
+    public void setRequestScheduling(boolean enabled);
+
+    /**
+     * Indicates, whether requests sent by {@link #sendAsync(short[], long)}
+     * are scheduled.
+     *
+     * @return {@code true} if scheduling is enabled
+     */
+    public boolean isRequestScheduling();
+
     /**
      * Register {@link IQRFListener} which callback function will be called
-     * when data from IQRF network will be received.
+     * when data from IQRF network will be received. Listener is called
+     * directly on thread receiving data. Already registered listeners stay
+     * registered.
      *
      * @param listener to register
      */
     public void addIQRFListener(IQRFListener listener);
 
+    /**
+     * Register {@link IQRFListener} which callback function will be called by
+     * specified executor when data accepted by specified filter will be
+     * received. Slow listener registered in this way doesn't block receiving
+     * of data nor other listeners.
+     *
+     * @param listener to register
+     * @param filter which data will be passed to listener, {@code null} means
+     * all data
+     * @param executor executor calling the listener, {@code null} means
+     * calling directly on thread receiving data
+     * @param queueCapacity maximal count of data waiting for the listener
+     * @param overflowPolicy what to do when the queue of listener is full
+     * @return registration of listener
+     */
+    public ListenerRegistration addIQRFListener(IQRFListener listener,
+            IQRFDataFilter filter, Executor executor, int queueCapacity,
+            OverflowPolicy overflowPolicy);
+
+    /**
+     * Unregister specified {@link IQRFListener}.
+     *
+     * @param listener to unregister
+     */
+    public void removeIQRFListener(IQRFListener listener);
+
+    /**
+     * Register {@link IQRFByteListener} which callback function will be
+     * called directly on thread receiving data, when data from IQRF network
+     * will be received. If only byte listeners are registered, layers working
+     * with bytes (UDP, Serial) don't convert received data to {@code short[]}.
+     *
+     * @param listener to register
+     */
+    public void addIQRFByteListener(IQRFByteListener listener);
+
+    /**
+     * Unregister specified {@link IQRFByteListener}.
+     *
+     * @param listener to unregister
+     */
+    public void removeIQRFByteListener(IQRFByteListener listener);
+
+    /**
+     * Returns metrics of communication - counts and rates of sent and received
+     * frames and bytes, errors, queue depth and latencies of sending and
+     * passing of data to listeners.
+     *
+     * @return actual metrics
+     */
+    public IQRFMetrics getMetrics();
+
+    /**
+     * Registers metrics into platform MBean server as
+     * {@code com.microrisc.jlibiqrf:type=IQRFMetrics,name=<name>}. The bean is
+     * unregistered in {@link #destroy()}.
+     *
+     * @param name name distinguishing more instances of JLibIQRF
+     * @throws IQRFLayerException if the bean cannot be registered
+     */
+    public void registerMetricsMBean(String name) throws IQRFLayerException;
+
+    /**
+     * Starts capturing of all sent and received frames into specified file,
+     * which can be replayed later by
+     * {@link com.microrisc.jlibiqrf.iqrfLayer.replay.ReplayIQRFLayer}.
+     * Existing file is overwritten.
+     *
+     * @param file path of capture file
+     * @throws IQRFLayerException if the file cannot be created
+     * @throws IllegalStateException if capturing is already running
+     */
+    public void startCapture(String file) throws IQRFLayerException;
+
+    /**
+     * Stops capturing started by {@link #startCapture(String)} and closes
+     * capture file. Capturing is stopped also in {@link #destroy()}.
+     */
+    public void stopCapture();
+
     /**
      * Destroy all thing on the end of work and terminate all threads.
      */
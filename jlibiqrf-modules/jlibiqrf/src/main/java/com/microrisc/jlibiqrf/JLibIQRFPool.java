@@ -0,0 +1,354 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf;
+
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+import com.microrisc.jlibiqrf.configuration.IQRFConfiguration;
+import com.microrisc.jlibiqrf.dpa.DPAResult;
+import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPConfiguration;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPEventLoop;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPIQRFLayerFactory;
+import com.microrisc.jlibiqrf.metrics.AggregateMetrics;
+import com.microrisc.jlibiqrf.metrics.IQRFMetrics;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages more IQRF networks, each behind its own coordinator, behind one
+ * API. Networks are identified by user defined IDs, requests are routed to
+ * network by its ID.
+ * <p>
+ * All networks share one timer and one executor passing received data to
+ * listeners. UDP networks share also one {@link UDPEventLoop}, so they are
+ * served by fixed count of threads regardless of count of networks. Layers
+ * of other types keep threads of their underlying libraries.
+ * <p>
+ * Metrics are available for each network and summed for whole pool.
+ *
+ * @author Martin Strouhal
+ */
+public final class JLibIQRFPool {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(JLibIQRFPool.class);
+
+    /** Default count of threads passing received data to listeners. */
+    public static final int DEFAULT_DISPATCH_THREADS = 1;
+
+    // creates daemon threads with specified name prefix
+    private static ThreadFactory threadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /** Networks mapped by their IDs. */
+    private final Map<String, JLibIQRF> networks = new ConcurrentHashMap<>();
+
+    /** Metrics of networks mapped by their IDs. */
+    private final Map<String, IQRFMetrics> networkMetrics = new ConcurrentHashMap<>();
+
+    /** Sum of metrics of all networks. */
+    private final AggregateMetrics metrics = new AggregateMetrics(networkMetrics.values());
+
+    /** Timer shared by all networks. */
+    private final ScheduledExecutorService timer;
+
+    /** Executor passing received data to listeners, shared by all networks. */
+    private final ExecutorService dispatchExecutor;
+
+    /** Event loop shared by UDP networks, created with first UDP network. */
+    private UDPEventLoop eventLoop = null;
+
+    /** Indicates, that the pool has been destroyed. */
+    private boolean destroyed = false;
+
+    /**
+     * Creates empty pool with {@link #DEFAULT_DISPATCH_THREADS} threads
+     * passing received data to listeners.
+     */
+    public JLibIQRFPool() {
+        this(DEFAULT_DISPATCH_THREADS);
+    }
+
+    /**
+     * Creates empty pool.
+     *
+     * @param dispatchThreads count of threads passing received data to
+     * listeners of all networks
+     */
+    public JLibIQRFPool(int dispatchThreads) {
+        if (dispatchThreads <= 0) {
+            throw new IllegalArgumentException("Count of dispatch threads must be positive number");
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(threadFactory("JLibIQRFPool-timer-"));
+        dispatchExecutor = Executors.newFixedThreadPool(dispatchThreads,
+                threadFactory("JLibIQRFPool-dispatch-"));
+    }
+
+    private static String checkNetworkId(String networkId) {
+        if (networkId == null) {
+            throw new IllegalArgumentException("Network ID cannot be null");
+        }
+        return networkId;
+    }
+
+    // creates layer, UDP layers use shared event loop and dispatch executor
+    private AbstractIQRFLayer createLayer(IQRFConfiguration config) throws IQRFLayerException {
+        if (config.getIQRFCommunicationType() != IQRFCommunicationType.UDP) {
+            return JLibIQRF.identifyAndCreateIQRFLayer(config);
+        }
+        if (eventLoop == null) {
+            UDPEventLoop loop = new UDPEventLoop("JLibIQRFPool-selector");
+            try {
+                loop.start();
+            } catch (IOException ex) {
+                throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+            }
+            eventLoop = loop;
+        }
+        return new UDPIQRFLayerFactory().getIQRFLayer((UDPConfiguration) config,
+                eventLoop, dispatchExecutor);
+    }
+
+    /**
+     * Creates, starts and adds network with specified configuration.
+     *
+     * @param networkId ID of network
+     * @param config configuration of network
+     * @return added network
+     * @throws IQRFLayerException if the network cannot be created or started
+     * @throws IllegalArgumentException if network with the same ID exists
+     */
+    public synchronized JLibIQRF addNetwork(String networkId, IQRFConfiguration config)
+            throws IQRFLayerException {
+        logger.debug("addNetwork - start: networkId={}, config={}", networkId, config);
+        checkNetworkId(networkId);
+        if (config == null) {
+            throw new IllegalArgumentException("Configuration cannot be null");
+        }
+        if (destroyed) {
+            throw new IllegalStateException("Pool has been destroyed.");
+        }
+        if (networks.containsKey(networkId)) {
+            throw new IllegalArgumentException("Network " + networkId + " already exists");
+        }
+
+        AbstractIQRFLayer layer = createLayer(config);
+        layer.startIQRFLayer();
+        JLibIQRF network = new JLibIQRF(layer, config.getIQRFCommunicationType(), timer, false);
+        network.setRequestScheduling(config.isRequestScheduling());
+        if (config.getCaptureFile() != null) {
+            try {
+                network.startCapture(config.getCaptureFile());
+            } catch (IQRFLayerException ex) {
+                network.destroy();
+                throw ex;
+            }
+        }
+        networks.put(networkId, network);
+        networkMetrics.put(networkId, network.getMetrics());
+
+        logger.info("Network {} added", networkId);
+        logger.debug("addNetwork - end: {}", network);
+        return network;
+    }
+
+    /**
+     * Removes and destroys network with specified ID.
+     *
+     * @param networkId ID of network
+     * @return {@code true} if the network was removed, {@code false} if there
+     * is no such network
+     */
+    public synchronized boolean removeNetwork(String networkId) {
+        checkNetworkId(networkId);
+        networkMetrics.remove(networkId);
+        JLibIQRF network = networks.remove(networkId);
+        if (network == null) {
+            return false;
+        }
+        network.destroy();
+        logger.info("Network {} removed", networkId);
+        return true;
+    }
+
+    /**
+     * Returns network with specified ID.
+     *
+     * @param networkId ID of network
+     * @return network or {@code null} if there is no such network
+     */
+    public JLibIQRFInterface getNetwork(String networkId) {
+        return networks.get(checkNetworkId(networkId));
+    }
+
+    // returns network or throws exception, if there is no such network
+    private JLibIQRF route(String networkId) {
+        JLibIQRF network = networks.get(checkNetworkId(networkId));
+        if (network == null) {
+            throw new IllegalArgumentException("Unknown network: " + networkId);
+        }
+        return network;
+    }
+
+    /**
+     * Returns IDs of all networks.
+     *
+     * @return unmodifiable set of IDs
+     */
+    public Set<String> getNetworkIds() {
+        return Collections.unmodifiableSet(networks.keySet());
+    }
+
+    /**
+     * Sends data to specified network, see
+     * {@link JLibIQRFInterface#sendData(short[])}.
+     *
+     * @param networkId ID of network
+     * @param data to send
+     * @return {@link JLibIQRFInterface#SUCCESS_OPERATION} or error ID
+     * @throws IllegalArgumentException if there is no such network
+     */
+    public int sendData(String networkId, short[] data) {
+        return route(networkId).sendData(data);
+    }
+
+    /**
+     * Sends DPA request to specified network, see
+     * {@link JLibIQRFInterface#sendAsync(short[])}.
+     *
+     * @param networkId ID of network
+     * @param request DPA request
+     * @return future completed by response
+     * @throws IllegalArgumentException if there is no such network
+     */
+    public IQRFFuture<DPAResult> sendAsync(String networkId, short[] request) {
+        return route(networkId).sendAsync(request);
+    }
+
+    /**
+     * Sends DPA request to specified network, see
+     * {@link JLibIQRFInterface#sendAsync(short[], long)}.
+     *
+     * @param networkId ID of network
+     * @param request DPA request
+     * @param timeout timeout [in ms] of waiting for response
+     * @return future completed by response
+     * @throws IllegalArgumentException if there is no such network
+     */
+    public IQRFFuture<DPAResult> sendAsync(String networkId, short[] request, long timeout) {
+        return route(networkId).sendAsync(request, timeout);
+    }
+
+    /**
+     * Adds listener of data received from specified network.
+     *
+     * @param networkId ID of network
+     * @param listener to add
+     * @throws IllegalArgumentException if there is no such network
+     */
+    public void addIQRFListener(String networkId, IQRFListener listener) {
+        route(networkId).addIQRFListener(listener);
+    }
+
+    /**
+     * Removes listener of data received from specified network.
+     *
+     * @param networkId ID of network
+     * @param listener to remove
+     * @throws IllegalArgumentException if there is no such network
+     */
+    public void removeIQRFListener(String networkId, IQRFListener listener) {
+        route(networkId).removeIQRFListener(listener);
+    }
+
+    /**
+     * Returns sum of metrics of all networks. Returned view reflects networks
+     * added and removed later.
+     *
+     * @return aggregate metrics
+     */
+    public IQRFMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns metrics of specified network.
+     *
+     * @param networkId ID of network
+     * @return metrics of network
+     * @throws IllegalArgumentException if there is no such network
+     */
+    public IQRFMetrics getMetrics(String networkId) {
+        return route(networkId).getMetrics();
+    }
+
+    /**
+     * Returns metrics of all networks.
+     *
+     * @return metrics mapped by network IDs
+     */
+    public Map<String, IQRFMetrics> getNetworkMetrics() {
+        return Collections.unmodifiableMap(new HashMap<>(networkMetrics));
+    }
+
+    /**
+     * Destroys all networks and stops shared threads.
+     */
+    public synchronized void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        for (String networkId : networks.keySet()) {
+            removeNetwork(networkId);
+        }
+        if (eventLoop != null) {
+            eventLoop.close();
+        }
+        dispatchExecutor.shutdownNow();
+        timer.shutdownNow();
+        logger.info("Pool destroyed.");
+    }
+
+    @Override
+    public String toString() {
+        return "JLibIQRFPool{" + "networks=" + networks.keySet() + ", eventLoop=" + eventLoop + '}';
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.async;
+
+/**
+ * Callback which is notified when {@link IQRFFuture} is done.
+ *
+ * @param <T> type of result
+ *
+ * @author Martin Strouhal
+ */
+public interface IQRFCallback<T> {
+
+    /**
+     * Called when the operation has been successfully completed.
+     *
+     * @param result of operation
+     */
+    public void onSuccess(T result);
+
+    /**
+     * Called when the operation has failed, timed out or has been cancelled.
+     *
+     * @param cause of failure
+     */
+    public void onFailure(Throwable cause);
+}
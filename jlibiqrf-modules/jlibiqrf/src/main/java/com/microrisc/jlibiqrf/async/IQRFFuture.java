@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.async;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Future} which is completed from outside, typically by thread
+ * receiving data from IQRF network. Besides blocking {@link #get()} it's
+ * possible to register {@link IQRFCallback}, so no thread has to be blocked
+ * while waiting for result.
+ * <p>
+ * Callbacks are called in thread which has completed the future, or directly
+ * in thread adding callback, if the future is already done.
+ *
+ * @param <T> type of result
+ *
+ * @author Martin Strouhal
+ */
+public class IQRFFuture<T> implements Future<T> {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(IQRFFuture.class);
+
+    private static final int PENDING = 0;
+    private static final int COMPLETED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    /** Synchronization of state changes. */
+    private final Object synchro = new Object();
+
+    /** Actual state of future. */
+    private int state = PENDING;
+
+    /** Result in case of successful completion. */
+    private T result;
+
+    /** Cause in case of failure or cancellation. */
+    private Throwable failure;
+
+    /** Callbacks waiting for completion, {@code null} after completion. */
+    private List<IQRFCallback<T>> callbacks = new LinkedList<>();
+
+    /**
+     * Returns a new future which is already completed with specified result.
+     *
+     * @param <T> type of result
+     * @param result of future
+     * @return completed future
+     */
+    public static <T> IQRFFuture<T> completed(T result) {
+        IQRFFuture<T> future = new IQRFFuture<>();
+        future.complete(result);
+        return future;
+    }
+
+    /**
+     * Returns a new future which has already failed with specified cause.
+     *
+     * @param <T> type of result
+     * @param cause of failure
+     * @return failed future
+     */
+    public static <T> IQRFFuture<T> failed(Throwable cause) {
+        IQRFFuture<T> future = new IQRFFuture<>();
+        future.fail(cause);
+        return future;
+    }
+
+    /**
+     * Completes this future with specified result.
+     *
+     * @param value result of operation
+     * @return {@code true} if this call completed the future, {@code false}
+     * if the future has been already done
+     */
+    public boolean complete(T value) {
+        List<IQRFCallback<T>> toNotify;
+        synchronized (synchro) {
+            if (state != PENDING) {
+                return false;
+            }
+            result = value;
+            state = COMPLETED;
+            toNotify = callbacks;
+            callbacks = null;
+            synchro.notifyAll();
+        }
+        for (IQRFCallback<T> callback : toNotify) {
+            notifySuccess(callback, value);
+        }
+        return true;
+    }
+
+    /**
+     * Completes this future exceptionally.
+     *
+     * @param cause of failure
+     * @return {@code true} if this call completed the future, {@code false}
+     * if the future has been already done
+     */
+    public boolean fail(Throwable cause) {
+        return finish(FAILED, cause);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return finish(CANCELLED, new CancellationException("Operation has been cancelled."));
+    }
+
+    private boolean finish(int finalState, Throwable cause) {
+        List<IQRFCallback<T>> toNotify;
+        synchronized (synchro) {
+            if (state != PENDING) {
+                return false;
+            }
+            failure = cause;
+            state = finalState;
+            toNotify = callbacks;
+            callbacks = null;
+            synchro.notifyAll();
+        }
+        for (IQRFCallback<T> callback : toNotify) {
+            notifyFailure(callback, cause);
+        }
+        return true;
+    }
+
+    /**
+     * Adds callback which will be called after the future is done. If the
+     * future is already done, the callback is called immediately.
+     *
+     * @param callback to add
+     */
+    public void addCallback(IQRFCallback<T> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Callback cannot be null");
+        }
+        int actualState;
+        synchronized (synchro) {
+            if (state == PENDING) {
+                callbacks.add(callback);
+                return;
+            }
+            actualState = state;
+        }
+        if (actualState == COMPLETED) {
+            notifySuccess(callback, result);
+        } else {
+            notifyFailure(callback, failure);
+        }
+    }
+
+    private void notifySuccess(IQRFCallback<T> callback, T value) {
+        try {
+            callback.onSuccess(value);
+        } catch (RuntimeException ex) {
+            logger.error("Callback has thrown exception: ", ex);
+        }
+    }
+
+    private void notifyFailure(IQRFCallback<T> callback, Throwable cause) {
+        try {
+            callback.onFailure(cause);
+        } catch (RuntimeException ex) {
+            logger.error("Callback has thrown exception: ", ex);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        synchronized (synchro) {
+            return state == CANCELLED;
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        synchronized (synchro) {
+            return state != PENDING;
+        }
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        synchronized (synchro) {
+            while (state == PENDING) {
+                synchro.wait();
+            }
+            return getResult();
+        }
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (synchro) {
+            while (state == PENDING) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Future hasn't been completed in time.");
+                }
+                TimeUnit.NANOSECONDS.timedWait(synchro, remaining);
+            }
+            return getResult();
+        }
+    }
+
+    // must be called with synchro held and in final state
+    private T getResult() throws ExecutionException {
+        switch (state) {
+            case COMPLETED:
+                return result;
+            case CANCELLED:
+                throw (CancellationException) failure;
+            default:
+                throw new ExecutionException(failure);
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (synchro) {
+            return "IQRFFuture{" + "state=" + state + ", result=" + result + ", failure=" + failure + '}';
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.capture;
+
+/**
+ * Direction of captured frame.
+ *
+ * @author Martin Strouhal
+ */
+public enum CaptureDirection {
+
+    /** Frame sent into IQRF network. */
+    SENT(1),
+    /** Frame received from IQRF network. */
+    RECEIVED(2);
+
+    /** Code of direction in capture file, {@code 0} marks end of data. */
+    private final int code;
+
+    private CaptureDirection(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns code of direction in capture file.
+     *
+     * @return code
+     */
+    int getCode() {
+        return code;
+    }
+
+    /**
+     * Returns direction with specified code.
+     *
+     * @param code code of direction
+     * @return direction or {@code null} if the code is unknown
+     */
+    static CaptureDirection fromCode(int code) {
+        for (CaptureDirection direction : values()) {
+            if (direction.code == code) {
+                return direction;
+            }
+        }
+        return null;
+    }
+}
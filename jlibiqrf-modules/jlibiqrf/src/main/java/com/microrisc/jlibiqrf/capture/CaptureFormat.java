@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.capture;
+
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+
+/**
+ * Constants of capture file format described in {@link CaptureReader}.
+ *
+ * @author Martin Strouhal
+ */
+final class CaptureFormat {
+
+    /** Magic number identifying capture file. */
+    static final int MAGIC = 0x49514350;
+
+    /** Version of format. */
+    static final short VERSION = 1;
+
+    /** Length of file header. */
+    static final int HEADER_LENGTH = 16;
+
+    /** Length of record header. */
+    static final int RECORD_HEADER_LENGTH = 12;
+
+    /** Position of direction in record header. */
+    static final int DIRECTION_POS = 8;
+
+    /** Maximal length of data in one record. */
+    static final int MAX_DATA_LENGTH = 0xFFFF;
+
+    /** Code of unknown layer type. */
+    static final int UNKNOWN_LAYER_TYPE = 0xFF;
+
+    private CaptureFormat() {
+    }
+
+    /** Returns code of specified layer type. */
+    static int layerTypeCode(IQRFCommunicationType type) {
+        return type == null ? UNKNOWN_LAYER_TYPE : type.ordinal();
+    }
+
+    /** Returns layer type with specified code or {@code null}. */
+    static IQRFCommunicationType layerType(int code) {
+        IQRFCommunicationType[] types = IQRFCommunicationType.values();
+        return code < types.length ? types[code] : null;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads frames from capture file written by {@link CaptureWriter}.
+ * <p>
+ * File starts with header: magic {@code "IQCP"} (4 bytes), version (2 bytes),
+ * header length (2 bytes) and start time of capture in milliseconds since
+ * epoch (8 bytes). Records follow one after another: time since start of
+ * capture in nanoseconds (8 bytes), direction (1 byte), layer type (1 byte),
+ * length of data (2 bytes, unsigned) and data. All numbers are big-endian.
+ * Direction {@code 0} marks end of data. Writer sets direction as the last
+ * byte of record, so a partially written record is never read.
+ *
+ * @author Martin Strouhal
+ */
+public final class CaptureReader implements Closeable {
+
+    private final File file;
+    private DataInputStream input;
+    private long startTime;
+    private boolean finished;
+
+    /**
+     * Opens capture file for reading.
+     *
+     * @param file capture file
+     * @throws IOException if the file cannot be opened or it isn't capture
+     * file
+     */
+    public CaptureReader(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        this.file = file;
+        open();
+    }
+
+    // opens the file and reads its header
+    private void open() throws IOException {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        finished = false;
+        try {
+            if (input.readInt() != CaptureFormat.MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            short version = input.readShort();
+            if (version != CaptureFormat.VERSION) {
+                throw new IOException("Unsupported version of capture file: " + version);
+            }
+            int headerLength = input.readUnsignedShort();
+            startTime = input.readLong();
+            input.skipBytes(headerLength - CaptureFormat.HEADER_LENGTH);
+        } catch (IOException ex) {
+            input.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns start time of capture.
+     *
+     * @return time in milliseconds since epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Reads next frame.
+     *
+     * @return next frame or {@code null} at the end of capture
+     * @throws IOException if the file cannot be read or it's corrupted
+     */
+    public CaptureRecord next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        try {
+            long time = input.readLong();
+            int directionCode = input.readUnsignedByte();
+            if (directionCode == 0) {
+                finished = true;
+                return null;
+            }
+            CaptureDirection direction = CaptureDirection.fromCode(directionCode);
+            if (direction == null) {
+                throw new IOException("Corrupted capture file, unknown direction: "
+                        + directionCode);
+            }
+            int layerTypeCode = input.readUnsignedByte();
+            byte[] data = new byte[input.readUnsignedShort()];
+            input.readFully(data);
+            return new CaptureRecord(time, direction,
+                    CaptureFormat.layerType(layerTypeCode), data);
+        } catch (EOFException ex) {
+            // end of file truncated after the last record
+            finished = true;
+            return null;
+        }
+    }
+
+    /**
+     * Starts reading from the first frame again.
+     *
+     * @throws IOException if the file cannot be reopened
+     */
+    public void rewind() throws IOException {
+        input.close();
+        open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureReader{" + "file=" + file + ", startTime=" + startTime + '}';
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.capture;
+
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+import com.microrisc.jlibiqrf.types.DataConvertor;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame read from capture file by {@link CaptureReader}.
+ *
+ * @author Martin Strouhal
+ */
+public final class CaptureRecord {
+
+    private final long time;
+    private final CaptureDirection direction;
+    private final IQRFCommunicationType layerType;
+    private final byte[] data;
+
+    CaptureRecord(long time, CaptureDirection direction,
+            IQRFCommunicationType layerType, byte[] data) {
+        this.time = time;
+        this.direction = direction;
+        this.layerType = layerType;
+        this.data = data;
+    }
+
+    /**
+     * Returns time of frame since start of capture.
+     *
+     * @return time [in ns]
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns direction of frame.
+     *
+     * @return direction
+     */
+    public CaptureDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns type of layer, which the frame went through.
+     *
+     * @return layer type or {@code null} if it's unknown
+     */
+    public IQRFCommunicationType getLayerType() {
+        return layerType;
+    }
+
+    /**
+     * Returns data of frame.
+     *
+     * @return read-only buffer with data
+     */
+    public ByteBuffer getBuffer() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns data of frame.
+     *
+     * @return new array with data
+     */
+    public short[] getData() {
+        return DataConvertor.toShortArray(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Returns length of data of frame.
+     *
+     * @return length [in bytes]
+     */
+    public int getLength() {
+        return data.length;
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureRecord{" + "time=" + TimeUnit.NANOSECONDS.toMicros(time) + "us"
+                + ", direction=" + direction + ", layerType=" + layerType
+                + ", length=" + data.length + '}';
+    }
+}
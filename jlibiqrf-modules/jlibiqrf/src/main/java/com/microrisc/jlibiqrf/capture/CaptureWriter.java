@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.capture;
+
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends captured frames into file in format described by
+ * {@link CaptureReader}.
+ * <p>
+ * Records are written into memory-mapped region of the file, so writing of a
+ * frame is only a copy into memory without system call. When the region is
+ * full, next region is mapped behind it. On {@link #close()} the file is
+ * truncated to the end of the last record. File of writer, which wasn't
+ * closed (e.g. after crash), is still readable, because not written area of
+ * region is filled by zeros marking end of data. The same applies on
+ * platforms, where mapped file cannot be truncated (e.g. Windows), the file
+ * then keeps zeros up to the end of the last region.
+ *
+ * @author Martin Strouhal
+ */
+public final class CaptureWriter implements Closeable {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(CaptureWriter.class);
+
+    /** Default size of mapped region [in bytes]. */
+    public static final int DEFAULT_REGION_SIZE = 4 * 1024 * 1024;
+
+    /** Minimal size of mapped region [in bytes], it must hold largest record. */
+    public static final int MIN_REGION_SIZE = 128 * 1024;
+
+    private final File file;
+    private final int regionSize;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final long startNanos;
+
+    /** Actually mapped region. */
+    private MappedByteBuffer region;
+
+    /** Position of actually mapped region in file. */
+    private long regionStart;
+
+    /** Reusable buffer for conversion of {@code short[]} data. */
+    private byte[] conversionBuffer = new byte[64];
+
+    /** Count of written records. */
+    private long recordCount = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Creates writer of new capture file with region of
+     * {@link #DEFAULT_REGION_SIZE}. Existing file is overwritten.
+     *
+     * @param file capture file
+     * @throws IOException if the file cannot be created
+     */
+    public CaptureWriter(File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Creates writer of new capture file. Existing file is overwritten.
+     *
+     * @param file capture file
+     * @param regionSize size of mapped region [in bytes], at least
+     * {@link #MIN_REGION_SIZE}
+     * @throws IOException if the file cannot be created
+     */
+    public CaptureWriter(File file, int regionSize) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (regionSize < MIN_REGION_SIZE) {
+            throw new IllegalArgumentException("Region size cannot be less then "
+                    + MIN_REGION_SIZE);
+        }
+        this.file = file;
+        this.regionSize = regionSize;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(0);
+            channel = randomAccessFile.getChannel();
+            regionStart = 0;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+        } catch (IOException ex) {
+            randomAccessFile.close();
+            throw ex;
+        }
+        startNanos = System.nanoTime();
+        region.putInt(CaptureFormat.MAGIC);
+        region.putShort(CaptureFormat.VERSION);
+        region.putShort((short) CaptureFormat.HEADER_LENGTH);
+        region.putLong(System.currentTimeMillis());
+        logger.info("Capture started: {}", file);
+    }
+
+    // maps next region, if record of specified length doesn't fit into actual
+    private void ensureCapacity(int recordLength) throws IOException {
+        if (region.remaining() >= recordLength) {
+            return;
+        }
+        regionStart += region.position();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+    }
+
+    // writes record header except direction, which is written at the end
+    private int beginRecord(IQRFCommunicationType layerType, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Capture writer is closed.");
+        }
+        if (length > CaptureFormat.MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("Data length cannot be greater then "
+                    + CaptureFormat.MAX_DATA_LENGTH);
+        }
+        ensureCapacity(CaptureFormat.RECORD_HEADER_LENGTH + length);
+        int start = region.position();
+        region.putLong(System.nanoTime() - startNanos);
+        region.put((byte) 0);
+        region.put((byte) CaptureFormat.layerTypeCode(layerType));
+        region.putShort((short) length);
+        return start;
+    }
+
+    // marks record as complete
+    private void endRecord(int start, CaptureDirection direction) {
+        region.put(start + CaptureFormat.DIRECTION_POS, (byte) direction.getCode());
+        recordCount++;
+    }
+
+    /**
+     * Writes frame with data between position and limit of specified buffer.
+     * Position of the buffer isn't changed.
+     *
+     * @param direction direction of frame
+     * @param layerType type of layer, which the frame went through, or
+     * {@code null} if it's unknown
+     * @param data data of frame
+     * @throws IOException if the frame cannot be written
+     */
+    public synchronized void write(CaptureDirection direction,
+            IQRFCommunicationType layerType, ByteBuffer data) throws IOException {
+        int start = beginRecord(layerType, data.remaining());
+        region.put(data.duplicate());
+        endRecord(start, direction);
+    }
+
+    /**
+     * Writes frame with specified data, only lower byte of each item is used.
+     *
+     * @param direction direction of frame
+     * @param layerType type of layer, which the frame went through, or
+     * {@code null} if it's unknown
+     * @param data data of frame
+     * @throws IOException if the frame cannot be written
+     */
+    public synchronized void write(CaptureDirection direction,
+            IQRFCommunicationType layerType, short[] data) throws IOException {
+        int start = beginRecord(layerType, data.length);
+        if (conversionBuffer.length < data.length) {
+            conversionBuffer = new byte[Math.max(data.length, conversionBuffer.length * 2)];
+        }
+        for (int index = 0; index < data.length; index++) {
+            conversionBuffer[index] = (byte) data[index];
+        }
+        region.put(conversionBuffer, 0, data.length);
+        endRecord(start, direction);
+    }
+
+    /**
+     * Returns count of written records.
+     *
+     * @return count of records
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns capture file.
+     *
+     * @return file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Flushes written records and truncates the file to the end of the last
+     * record. If the file cannot be truncated, it stays padded by zeros.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            region.force();
+            truncate(regionStart + region.position());
+        } finally {
+            region = null;
+            randomAccessFile.close();
+        }
+        logger.info("Capture finished: {}, records={}", file, recordCount);
+    }
+
+    private void truncate(long size) {
+        try {
+            channel.truncate(size);
+        } catch (IOException ex) {
+            // mapped file cannot be truncated on some platforms, zeros behind
+            // the last record mark end of data, so the file is still readable
+            logger.warn("Capture file cannot be truncated, it stays padded by zeros: {}", file, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureWriter{" + "file=" + file + ", regionSize=" + regionSize + ", recordCount=" + recordCount + '}';
+    }
+}
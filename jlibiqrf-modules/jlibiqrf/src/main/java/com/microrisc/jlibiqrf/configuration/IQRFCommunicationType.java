@@ -29,5 +29,9 @@ public enum IQRFCommunicationType {
     /** Type for Serial. */
     SERIAL,
     /** Type for UDP. */
-    UDP;
+    UDP,
+    /** Type for replay of captured traffic. */
+    REPLAY,
+    /** Type for in-memory simulated network. */
+    LOOPBACK;
 }
@@ -31,6 +31,12 @@ public abstract class IQRFConfiguration {
     @XmlElement(name = "communication_type")
     private IQRFCommunicationType type;
     protected String savingLocation;
+    /** Path of file, into which the traffic is captured, {@code null} if
+     * capturing is disabled. */
+    protected String captureFile;
+    /** Requests sent asynchronously are scheduled according to timing of
+     * network, see {@link com.microrisc.jlibiqrf.dpa.DPARequestScheduler}. */
+    protected boolean requestScheduling = true;
 
     /**
      * Creates abstract of IQRF_Configuration for specified
@@ -64,9 +70,47 @@ public abstract class IQRFConfiguration {
         this.savingLocation = savingLocation;
     }
 
+    /**
+     * Returns {@link IQRFConfiguration#captureFile}.
+     *
+     * @return path of capture file or {@code null}
+     */
+    public String getCaptureFile() {
+        return captureFile;
+    }
+
+    /**
+     * Sets {@link IQRFConfiguration#captureFile}. Frames sent and received by
+     * {@link com.microrisc.jlibiqrf.JLibIQRF} are then captured, see
+     * {@link com.microrisc.jlibiqrf.capture.CaptureWriter}.
+     *
+     * @param captureFile path of capture file or {@code null}
+     */
+    public void setCaptureFile(String captureFile) {
+        this.captureFile = captureFile;
+    }
+
+    /**
+     * Returns {@link IQRFConfiguration#requestScheduling}.
+     *
+     * @return {@code true} if requests are scheduled
+     */
+    public boolean isRequestScheduling() {
+        return requestScheduling;
+    }
+
+    /**
+     * Sets {@link IQRFConfiguration#requestScheduling}.
+     *
+     * @param requestScheduling {@code true} to schedule requests
+     */
+    public void setRequestScheduling(boolean requestScheduling) {
+        this.requestScheduling = requestScheduling;
+    }
+
     @Override
     public String toString() {
-        return "IQRFConfiguration{" + "type=" + type + ", savingLocation=" + savingLocation + '}';
+        return "IQRFConfiguration{" + "type=" + type + ", savingLocation=" + savingLocation + ", captureFile=" + captureFile + ", requestScheduling=" + requestScheduling + '}';
     }
 
 }
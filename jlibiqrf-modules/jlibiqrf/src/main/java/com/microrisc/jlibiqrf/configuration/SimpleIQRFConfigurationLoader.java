@@ -16,6 +16,8 @@
 package com.microrisc.jlibiqrf.configuration;
 
 import com.microrisc.jlibiqrf.iqrfLayer.cdc.CDCConfiguration;
+import com.microrisc.jlibiqrf.iqrfLayer.loopback.LoopbackConfiguration;
+import com.microrisc.jlibiqrf.iqrfLayer.replay.ReplayConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.serial.SerialConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.spi.SPIConfiguration;
 import com.microrisc.jlibiqrf.iqrfLayer.udp.UDPConfiguration;
@@ -34,7 +36,8 @@ public class SimpleIQRFConfigurationLoader implements IQRFConfigurationLoader<St
 
     private static final Class[] configurationObjects = new Class[]{
         IQRFConfiguration.class, SPIConfiguration.class, CDCConfiguration.class,
-        SerialConfiguration.class, UDPConfiguration.class};
+        SerialConfiguration.class, UDPConfiguration.class, ReplayConfiguration.class,
+        LoopbackConfiguration.class};
 
     private static SimpleIQRFConfigurationLoader instance = new SimpleIQRFConfigurationLoader();
 
@@ -83,6 +86,12 @@ public class SimpleIQRFConfigurationLoader implements IQRFConfigurationLoader<St
                 case UDP:
                     implementedClass = UDPConfiguration.class;
                     break;
+                case REPLAY:
+                    implementedClass = ReplayConfiguration.class;
+                    break;
+                case LOOPBACK:
+                    implementedClass = LoopbackConfiguration.class;
+                    break;
             }
             JAXBContext jaxbContext = JAXBContext.newInstance(
                     IQRFConfiguration.class, implementedClass);
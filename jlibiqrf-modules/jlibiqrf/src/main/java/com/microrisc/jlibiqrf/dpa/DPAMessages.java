@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.dpa;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides positions and values of fields in DPA messages and helpers for
+ * their reading.
+ *
+ * @author Martin Strouhal
+ */
+public final class DPAMessages {
+
+    /** Position of network address (2 bytes, LSB first). */
+    public static final int NADR_POS = 0;
+    /** Position of peripheral number. */
+    public static final int PNUM_POS = 2;
+    /** Position of peripheral command. */
+    public static final int PCMD_POS = 3;
+    /** Position of HW profile ID (2 bytes, LSB first). */
+    public static final int HWPID_POS = 4;
+    /** Position of error code in confirmation and response. */
+    public static final int ERRN_POS = 6;
+    /** Position of DPA value in confirmation and response. */
+    public static final int DPA_VALUE_POS = 7;
+    /** Position of number of hops in confirmation. */
+    public static final int HOPS_POS = 8;
+    /** Position of timeslot length in confirmation. */
+    public static final int TIMESLOT_POS = 9;
+    /** Position of number of hops of response in confirmation. */
+    public static final int HOPS_RESPONSE_POS = 10;
+
+    /** Length of DPA request header. */
+    public static final int REQUEST_HEADER_LENGTH = 6;
+    /** Length of DPA confirmation. */
+    public static final int CONFIRMATION_LENGTH = 11;
+    /** Length of DPA response header including error code and DPA value. */
+    public static final int RESPONSE_HEADER_LENGTH = 8;
+
+    /** Error code identifying confirmation. */
+    public static final int STATUS_CONFIRMATION = 0xFF;
+    /** Error code of successful response. */
+    public static final int STATUS_NO_ERROR = 0x00;
+    /** Error code of response for request to not bonded node. */
+    public static final int ERROR_NADR = 0x08;
+    /** Bit of PCMD identifying response. */
+    public static final int RESPONSE_FLAG = 0x80;
+
+    /** Address of coordinator. */
+    public static final int COORDINATOR_ADDRESS = 0x00;
+    /** Address of local device. */
+    public static final int LOCAL_ADDRESS = 0xFC;
+    /** Broadcast address. */
+    public static final int BROADCAST_ADDRESS = 0xFF;
+    /** HW profile ID matching every device. */
+    public static final int HWPID_ANY = 0xFFFF;
+
+    private DPAMessages() {
+    }
+
+    /**
+     * Returns network address of specified message.
+     *
+     * @param message DPA message
+     * @return NADR
+     */
+    public static int getNadr(short[] message) {
+        return (message[NADR_POS] & 0xFF) | ((message[NADR_POS + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * Returns peripheral number of specified message.
+     *
+     * @param message DPA message
+     * @return PNUM
+     */
+    public static int getPnum(short[] message) {
+        return message[PNUM_POS] & 0xFF;
+    }
+
+    /**
+     * Returns peripheral command of specified message.
+     *
+     * @param message DPA message
+     * @return PCMD including response flag
+     */
+    public static int getPcmd(short[] message) {
+        return message[PCMD_POS] & 0xFF;
+    }
+
+    /**
+     * Returns HW profile ID of specified message.
+     *
+     * @param message DPA message
+     * @return HWPID
+     */
+    public static int getHwpid(short[] message) {
+        return (message[HWPID_POS] & 0xFF) | ((message[HWPID_POS + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * Returns {@code true} if specified data can be DPA message, e.g. it
+     * contains whole DPA header.
+     *
+     * @param data to check
+     * @return {@code true} if data contains DPA header
+     */
+    public static boolean hasHeader(short[] data) {
+        return data != null && data.length >= REQUEST_HEADER_LENGTH;
+    }
+
+    /**
+     * Returns {@code true} if specified message is DPA confirmation.
+     *
+     * @param message DPA message
+     * @return {@code true} if it's confirmation
+     */
+    public static boolean isConfirmation(short[] message) {
+        return message.length == CONFIRMATION_LENGTH
+                && (message[ERRN_POS] & 0xFF) == STATUS_CONFIRMATION;
+    }
+
+    /**
+     * Returns {@code true} if specified message is DPA response.
+     *
+     * @param message DPA message
+     * @return {@code true} if it's response
+     */
+    public static boolean isResponse(short[] message) {
+        return message.length > ERRN_POS
+                && (getPcmd(message) & RESPONSE_FLAG) == RESPONSE_FLAG
+                && (message[ERRN_POS] & 0xFF) != STATUS_CONFIRMATION;
+    }
+
+    private static int getByte(ByteBuffer message, int position) {
+        return message.get(message.position() + position) & 0xFF;
+    }
+
+    /**
+     * Returns network address of message stored in buffer from its position.
+     *
+     * @param message DPA message
+     * @return NADR
+     */
+    public static int getNadr(ByteBuffer message) {
+        return getByte(message, NADR_POS) | (getByte(message, NADR_POS + 1) << 8);
+    }
+
+    /**
+     * Returns peripheral number of message stored in buffer from its position.
+     *
+     * @param message DPA message
+     * @return PNUM
+     */
+    public static int getPnum(ByteBuffer message) {
+        return getByte(message, PNUM_POS);
+    }
+
+    /**
+     * Returns peripheral command of message stored in buffer from its
+     * position.
+     *
+     * @param message DPA message
+     * @return PCMD including response flag
+     */
+    public static int getPcmd(ByteBuffer message) {
+        return getByte(message, PCMD_POS);
+    }
+
+    /**
+     * Returns HW profile ID of message stored in buffer from its position.
+     *
+     * @param message DPA message
+     * @return HWPID
+     */
+    public static int getHwpid(ByteBuffer message) {
+        return getByte(message, HWPID_POS) | (getByte(message, HWPID_POS + 1) << 8);
+    }
+
+    /**
+     * Returns {@code true} if remaining data of specified buffer can be DPA
+     * message, e.g. they contain whole DPA header.
+     *
+     * @param data to check
+     * @return {@code true} if data contains DPA header
+     */
+    public static boolean hasHeader(ByteBuffer data) {
+        return data != null && data.remaining() >= REQUEST_HEADER_LENGTH;
+    }
+
+    /**
+     * Returns {@code true} if message stored in buffer is DPA confirmation.
+     *
+     * @param message DPA message
+     * @return {@code true} if it's confirmation
+     */
+    public static boolean isConfirmation(ByteBuffer message) {
+        return message.remaining() == CONFIRMATION_LENGTH
+                && getByte(message, ERRN_POS) == STATUS_CONFIRMATION;
+    }
+
+    /**
+     * Returns {@code true} if message stored in buffer is DPA response.
+     *
+     * @param message DPA message
+     * @return {@code true} if it's response
+     */
+    public static boolean isResponse(ByteBuffer message) {
+        return message.remaining() > ERRN_POS
+                && (getPcmd(message) & RESPONSE_FLAG) == RESPONSE_FLAG
+                && getByte(message, ERRN_POS) != STATUS_CONFIRMATION;
+    }
+
+    /**
+     * Returns {@code true} if confirmation is sent for request with specified
+     * address.
+     *
+     * @param nadr address of request
+     * @return {@code true} if confirmation is expected
+     */
+    public static boolean expectsConfirmation(int nadr) {
+        return nadr != COORDINATOR_ADDRESS && nadr != LOCAL_ADDRESS;
+    }
+
+    /**
+     * Returns {@code true} if response is sent for request with specified
+     * address.
+     *
+     * @param nadr address of request
+     * @return {@code true} if response is expected
+     */
+    public static boolean expectsResponse(int nadr) {
+        return nadr != BROADCAST_ADDRESS;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.dpa;
+
+import com.microrisc.jlibiqrf.IQRFByteListener;
+import com.microrisc.jlibiqrf.IQRFListener;
+import com.microrisc.jlibiqrf.async.IQRFCallback;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.types.DataConvertor;
+import com.microrisc.jlibiqrf.types.HexConvertor;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pairs DPA requests with received DPA confirmations and responses.
+ * <p>
+ * Requests are matched by NADR, PNUM, PCMD and HWPID (HWPID {@code 0xFFFF} of
+ * request matches every HWPID). More requests with the same NADR, PNUM and PCMD
+ * can be pending at the same time, they are matched in order of sending. Each
+ * request has its own timeout, after which its future fails with
+ * {@link IQRFError#TIMEOUT_ERROR}. No thread is blocked while request is
+ * pending.
+ * <p>
+ * Correlator can be registered as {@link IQRFListener} or as
+ * {@link IQRFByteListener}. In the latter case only matched confirmations and
+ * responses are converted to {@code short[]}.
+ *
+ * @author Martin Strouhal
+ */
+public final class DPARequestCorrelator implements IQRFListener, IQRFByteListener {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(DPARequestCorrelator.class);
+
+    /** One pending request. */
+    private final class PendingRequest implements Runnable {
+
+        private final int key;
+        private final short[] request;
+        private final int hwpid;
+        private final boolean expectsConfirmation;
+        private final boolean expectsResponse;
+        private final IQRFFuture<DPAResult> future = new IQRFFuture<>();
+        private final IQRFFuture<short[]> confirmed;
+        private short[] confirmation = null;
+        private ScheduledFuture<?> timeoutHandler = null;
+
+        PendingRequest(int key, short[] request, IQRFFuture<short[]> confirmed) {
+            this.key = key;
+            this.request = request;
+            this.confirmed = confirmed;
+            this.hwpid = DPAMessages.getHwpid(request);
+            int nadr = DPAMessages.getNadr(request);
+            this.expectsConfirmation = DPAMessages.expectsConfirmation(nadr);
+            this.expectsResponse = DPAMessages.expectsResponse(nadr);
+        }
+
+        boolean matchesHwpid(int receivedHwpid) {
+            return hwpid == DPAMessages.HWPID_ANY || hwpid == receivedHwpid;
+        }
+
+        // timeout has expired
+        @Override
+        public void run() {
+            if (remove(this)) {
+                future.fail(new IQRFLayerException("Response to request ["
+                        + HexConvertor.getShortArrayAsStringWithHex(request)
+                        + "] hasn't been received in time.", IQRFError.TIMEOUT_ERROR));
+            }
+        }
+    }
+
+    /** Pending requests mapped by NADR, PNUM and PCMD. */
+    private final Map<Integer, LinkedList<PendingRequest>> pending = new HashMap<>();
+
+    /** Count of pending requests. */
+    private int pendingCount = 0;
+
+    /** Used for scheduling of timeouts. */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Creates {@link DPARequestCorrelator}.
+     *
+     * @param timer executor used for scheduling of request timeouts
+     */
+    public DPARequestCorrelator(ScheduledExecutorService timer) {
+        if (timer == null) {
+            throw new IllegalArgumentException("Timer cannot be null");
+        }
+        this.timer = timer;
+    }
+
+    private static int createKey(int nadr, int pnum, int pcmd) {
+        return (nadr << 16) | (pnum << 8) | (pcmd & ~DPAMessages.RESPONSE_FLAG);
+    }
+
+    private static int createKey(short[] message) {
+        return createKey(DPAMessages.getNadr(message), DPAMessages.getPnum(message),
+                DPAMessages.getPcmd(message));
+    }
+
+    private static int createKey(ByteBuffer message) {
+        return createKey(DPAMessages.getNadr(message), DPAMessages.getPnum(message),
+                DPAMessages.getPcmd(message));
+    }
+
+    /**
+     * Registers request, which will be sent. Request must be registered before
+     * its sending, otherwise could be its response missed.
+     *
+     * @param request DPA request
+     * @param timeout in ms, after which will future fail
+     * @return future, which will be completed with confirmation and response
+     */
+    public IQRFFuture<DPAResult> register(short[] request, long timeout) {
+        return register(request, timeout, null);
+    }
+
+    /**
+     * Registers request, which will be sent, see
+     * {@link #register(short[], long)}. Specified future is completed with
+     * confirmation of the request as soon as it's received, before the
+     * response.
+     *
+     * @param request DPA request
+     * @param timeout in ms, after which will future fail
+     * @param confirmed future completed with confirmation, can be {@code null}
+     * @return future, which will be completed with confirmation and response
+     */
+    public IQRFFuture<DPAResult> register(short[] request, long timeout,
+            IQRFFuture<short[]> confirmed) {
+        if (!DPAMessages.hasHeader(request)) {
+            throw new IllegalArgumentException("Request must contain DPA header.");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive number");
+        }
+
+        final PendingRequest pendingRequest = new PendingRequest(createKey(request), request,
+                confirmed);
+        synchronized (pending) {
+            LinkedList<PendingRequest> requests = pending.get(pendingRequest.key);
+            if (requests == null) {
+                requests = new LinkedList<>();
+                pending.put(pendingRequest.key, requests);
+            }
+            requests.add(pendingRequest);
+            pendingCount++;
+        }
+        pendingRequest.timeoutHandler = timer.schedule(pendingRequest, timeout, TimeUnit.MILLISECONDS);
+
+        // cancelled or failed from outside
+        pendingRequest.future.addCallback(new IQRFCallback<DPAResult>() {
+            @Override
+            public void onSuccess(DPAResult result) {
+                pendingRequest.timeoutHandler.cancel(false);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                pendingRequest.timeoutHandler.cancel(false);
+                remove(pendingRequest);
+            }
+        });
+        return pendingRequest.future;
+    }
+
+    // removes specified request, returns false if it wasn't pending
+    private boolean remove(PendingRequest pendingRequest) {
+        synchronized (pending) {
+            LinkedList<PendingRequest> requests = pending.get(pendingRequest.key);
+            if (requests == null || !requests.remove(pendingRequest)) {
+                return false;
+            }
+            if (requests.isEmpty()) {
+                pending.remove(pendingRequest.key);
+            }
+            pendingCount--;
+            return true;
+        }
+    }
+
+    /**
+     * Returns count of actually pending requests.
+     *
+     * @return count of requests
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * Fails all pending requests with specified cause.
+     *
+     * @param cause of failure
+     */
+    public void failAll(Throwable cause) {
+        List<PendingRequest> toFail = new ArrayList<>();
+        synchronized (pending) {
+            for (LinkedList<PendingRequest> requests : pending.values()) {
+                toFail.addAll(requests);
+            }
+            pending.clear();
+            pendingCount = 0;
+        }
+        for (PendingRequest pendingRequest : toFail) {
+            pendingRequest.future.fail(cause);
+        }
+    }
+
+    @Override
+    public void onGetIQRFData(short[] data) {
+        if (!DPAMessages.hasHeader(data)) {
+            return;
+        }
+
+        boolean isConfirmation = DPAMessages.isConfirmation(data);
+        if (!isConfirmation && !DPAMessages.isResponse(data)) {
+            return;
+        }
+        match(createKey(data), DPAMessages.getHwpid(data), isConfirmation, data, null);
+    }
+
+    @Override
+    public void onGetIQRFData(ByteBuffer data) {
+        if (!DPAMessages.hasHeader(data)) {
+            return;
+        }
+
+        boolean isConfirmation = DPAMessages.isConfirmation(data);
+        if (!isConfirmation && !DPAMessages.isResponse(data)) {
+            return;
+        }
+        match(createKey(data), DPAMessages.getHwpid(data), isConfirmation, null, data);
+    }
+
+    // matches received confirmation or response with pending request, message
+    // is passed either as short[] or as bytes, which are converted only if
+    // they are matched
+    private void match(int key, int hwpid, boolean isConfirmation, short[] data,
+            ByteBuffer byteData) {
+        PendingRequest matched = null;
+        DPAResult result = null;
+        IQRFFuture<short[]> confirmed = null;
+        synchronized (pending) {
+            LinkedList<PendingRequest> requests = pending.get(key);
+            if (requests == null) {
+                logger.debug("No pending request for received data.");
+                return;
+            }
+
+            Iterator<PendingRequest> iterator = requests.iterator();
+            while (iterator.hasNext()) {
+                PendingRequest pendingRequest = iterator.next();
+                if (!pendingRequest.matchesHwpid(hwpid)) {
+                    continue;
+                }
+                if (isConfirmation && (!pendingRequest.expectsConfirmation
+                        || pendingRequest.confirmation != null)) {
+                    continue;
+                }
+                if (data == null) {
+                    data = DataConvertor.toShortArray(byteData);
+                }
+                if (isConfirmation) {
+                    pendingRequest.confirmation = data;
+                    confirmed = pendingRequest.confirmed;
+                    if (pendingRequest.expectsResponse) {
+                        break;
+                    }
+                }
+                matched = pendingRequest;
+                result = new DPAResult(pendingRequest.request, pendingRequest.confirmation,
+                        isConfirmation ? null : data);
+                iterator.remove();
+                pendingCount--;
+                break;
+            }
+            if (requests.isEmpty()) {
+                pending.remove(key);
+            }
+        }
+
+        if (confirmed != null) {
+            confirmed.complete(data);
+        }
+        if (matched != null) {
+            matched.future.complete(result);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DPARequestCorrelator{" + "pendingCount=" + getPendingCount() + '}';
+    }
+}
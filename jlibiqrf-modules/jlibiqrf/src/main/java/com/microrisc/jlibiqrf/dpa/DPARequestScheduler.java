@@ -0,0 +1,341 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.dpa;
+
+import com.microrisc.jlibiqrf.async.IQRFCallback;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.types.HexConvertor;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends DPA requests into IQRF network one by one, each at the moment, when
+ * the network has finished the previous request.
+ * <p>
+ * Coordinator accepts next request only after the previous one has been
+ * routed through the network. Request is therefore held in queue, until one
+ * of these happens to the previous request:
+ * <ul>
+ * <li>its response is received,</li>
+ * <li>routing time estimated from its confirmation expires, i.e.
+ * {@code (hops + 1) * timeslot} for delivery of request plus
+ * {@code (hopsResponse + 1) * timeslot} for delivery of response (broadcast
+ * has no response),</li>
+ * <li>it fails or times out.</li>
+ * </ul>
+ * Responses and confirmations are paired with requests by
+ * {@link DPARequestCorrelator}. Timeout of request includes time spent in
+ * queue, expired requests are not sent at all.
+ *
+ * @author Martin Strouhal
+ */
+public final class DPARequestScheduler {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(DPARequestScheduler.class);
+
+    /** Unit of timeslot length in DPA confirmation [in ms]. */
+    public static final long TIMESLOT_UNIT = 10;
+
+    /**
+     * Sends requests chosen by scheduler into network.
+     */
+    public interface Sender {
+
+        /**
+         * Sends request without blocking.
+         *
+         * @param request DPA request
+         * @return future completed after the request has been sent
+         */
+        IQRFFuture<Void> send(short[] request);
+    }
+
+    /** Request waiting in queue or processed by network. */
+    private final class ScheduledRequest implements Runnable {
+
+        private final short[] request;
+        private final long deadline;
+        private final boolean broadcast;
+        private final IQRFFuture<DPAResult> future = new IQRFFuture<>();
+        private ScheduledFuture<?> releaseHandler = null;
+
+        ScheduledRequest(short[] request, long deadline) {
+            this.request = request;
+            this.deadline = deadline;
+            this.broadcast = DPAMessages.getNadr(request) == DPAMessages.BROADCAST_ADDRESS;
+        }
+
+        // estimated routing time has expired
+        @Override
+        public void run() {
+            release(this);
+        }
+    }
+
+    /** Pairs sent requests with their responses. */
+    private final DPARequestCorrelator correlator;
+
+    /** Used for scheduling of estimated ends of routing. */
+    private final ScheduledExecutorService timer;
+
+    /** Sends requests into network. */
+    private final Sender sender;
+
+    /** Requests waiting for network. */
+    private final LinkedList<ScheduledRequest> queue = new LinkedList<>();
+
+    /** Request actually processed by network, {@code null} if network is
+     * free. */
+    private ScheduledRequest inFlight = null;
+
+    /**
+     * Creates {@link DPARequestScheduler}.
+     *
+     * @param correlator pairs requests with their responses, it must receive
+     * data from the network
+     * @param timer executor used for scheduling
+     * @param sender sends requests into network
+     */
+    public DPARequestScheduler(DPARequestCorrelator correlator,
+            ScheduledExecutorService timer, Sender sender) {
+        if (correlator == null) {
+            throw new IllegalArgumentException("Correlator cannot be null");
+        }
+        if (timer == null) {
+            throw new IllegalArgumentException("Timer cannot be null");
+        }
+        if (sender == null) {
+            throw new IllegalArgumentException("Sender cannot be null");
+        }
+        this.correlator = correlator;
+        this.timer = timer;
+        this.sender = sender;
+    }
+
+    /**
+     * Returns time [in ms], which network needs for routing of request and
+     * its response, estimated from DPA confirmation.
+     *
+     * @param confirmation DPA confirmation
+     * @param broadcast {@code true} if the confirmed request is broadcast,
+     * which has no response
+     * @return routing time [in ms]
+     */
+    public static long getRoutingTime(short[] confirmation, boolean broadcast) {
+        int timeslot = confirmation[DPAMessages.TIMESLOT_POS];
+        long time = (confirmation[DPAMessages.HOPS_POS] + 1) * timeslot * TIMESLOT_UNIT;
+        if (!broadcast) {
+            time += (confirmation[DPAMessages.HOPS_RESPONSE_POS] + 1) * timeslot * TIMESLOT_UNIT;
+        }
+        return time;
+    }
+
+    /**
+     * Adds request into queue. Request is sent, as soon as the network is
+     * free.
+     *
+     * @param request DPA request
+     * @param timeout in ms, after which the future fails, including time in
+     * queue
+     * @return future completed with confirmation and response
+     */
+    public IQRFFuture<DPAResult> submit(short[] request, long timeout) {
+        if (!DPAMessages.hasHeader(request)) {
+            throw new IllegalArgumentException("Request must contain DPA header.");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive number");
+        }
+
+        ScheduledRequest scheduled = new ScheduledRequest(request,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+        synchronized (this) {
+            if (inFlight != null) {
+                queue.add(scheduled);
+                return scheduled.future;
+            }
+            inFlight = scheduled;
+        }
+        transmit(scheduled);
+        return scheduled.future;
+    }
+
+    // sends request, network has been already reserved for it
+    private void transmit(final ScheduledRequest scheduled) {
+        long remaining = scheduled.deadline - System.nanoTime();
+        if (remaining <= 0) {
+            failExpired(scheduled);
+            releaseLater(scheduled);
+            return;
+        }
+
+        IQRFFuture<short[]> confirmed = new IQRFFuture<>();
+        final IQRFFuture<DPAResult> result = correlator.register(scheduled.request,
+                Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)), confirmed);
+        confirmed.addCallback(new IQRFCallback<short[]>() {
+            @Override
+            public void onSuccess(short[] confirmation) {
+                scheduleRelease(scheduled, getRoutingTime(confirmation, scheduled.broadcast));
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+            }
+        });
+        result.addCallback(new IQRFCallback<DPAResult>() {
+            @Override
+            public void onSuccess(DPAResult dpaResult) {
+                scheduled.future.complete(dpaResult);
+                // broadcast is completed by confirmation, network is released
+                // after routing
+                if (!scheduled.broadcast) {
+                    release(scheduled);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                scheduled.future.fail(cause);
+                releaseLater(scheduled);
+            }
+        });
+        // cancelled from outside
+        scheduled.future.addCallback(new IQRFCallback<DPAResult>() {
+            @Override
+            public void onSuccess(DPAResult dpaResult) {
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                result.fail(cause);
+            }
+        });
+        sender.send(scheduled.request).addCallback(new IQRFCallback<Void>() {
+            @Override
+            public void onSuccess(Void nothing) {
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                result.fail(cause);
+            }
+        });
+    }
+
+    private static void failExpired(ScheduledRequest scheduled) {
+        scheduled.future.fail(new IQRFLayerException("Request ["
+                + HexConvertor.getShortArrayAsStringWithHex(scheduled.request)
+                + "] hasn't been sent in time.", IQRFError.TIMEOUT_ERROR));
+    }
+
+    // releases network after estimated routing time of the request
+    private void scheduleRelease(ScheduledRequest scheduled, long time) {
+        synchronized (this) {
+            if (inFlight != scheduled || scheduled.releaseHandler != null) {
+                return;
+            }
+            try {
+                scheduled.releaseHandler = timer.schedule(scheduled, time, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                logger.debug("Timer is shut down, network isn't released.");
+            }
+        }
+    }
+
+    // releases network by timer thread, so that failures of sending
+    // following one by one in calling thread don't nest
+    private void releaseLater(final ScheduledRequest scheduled) {
+        try {
+            timer.execute(scheduled);
+        } catch (RejectedExecutionException ex) {
+            logger.debug("Timer is shut down, network isn't released.");
+        }
+    }
+
+    // releases network occupied by specified request and sends next request
+    private void release(ScheduledRequest scheduled) {
+        ScheduledRequest next;
+        List<ScheduledRequest> expired = new ArrayList<>();
+        synchronized (this) {
+            if (inFlight != scheduled) {
+                return;
+            }
+            if (scheduled.releaseHandler != null) {
+                scheduled.releaseHandler.cancel(false);
+            }
+            long now = System.nanoTime();
+            while ((next = queue.poll()) != null) {
+                if (next.future.isDone()) {
+                    continue;
+                }
+                if (next.deadline - now <= 0) {
+                    expired.add(next);
+                    continue;
+                }
+                break;
+            }
+            inFlight = next;
+        }
+
+        for (ScheduledRequest request : expired) {
+            failExpired(request);
+        }
+        if (next != null) {
+            transmit(next);
+        }
+    }
+
+    /**
+     * Returns count of requests waiting in queue.
+     *
+     * @return count of requests
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Fails all waiting requests with specified cause. Request processed by
+     * network is failed by {@link DPARequestCorrelator#failAll(Throwable)}.
+     *
+     * @param cause of failure
+     */
+    public void failAll(Throwable cause) {
+        List<ScheduledRequest> toFail;
+        synchronized (this) {
+            toFail = new ArrayList<>(queue);
+            queue.clear();
+        }
+        for (ScheduledRequest scheduled : toFail) {
+            scheduled.future.fail(cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DPARequestScheduler{" + "queueSize=" + getQueueSize() + '}';
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.dpa;
+
+import com.microrisc.jlibiqrf.JLibIQRFInterface;
+import com.microrisc.jlibiqrf.async.IQRFCallback;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves idempotent DPA read requests from short-lived cache and collapses
+ * concurrent identical reads into one network transaction.
+ * <p>
+ * Read request (see {@link #isReadRequest(short[])}) identical to pending one
+ * isn't sent again, it gets result of the pending request. Successful result
+ * is cached for specified time to live, identical read within this time is
+ * answered from cache. Requests are identical, if they have the same NADR,
+ * PNUM, PCMD, HWPID and data. Count of cached results is bounded, the least
+ * recently used one is evicted.
+ * <p>
+ * Other requests are sent directly and invalidate cached results of the same
+ * NADR and PNUM (of all nodes in case of broadcast), so that values written
+ * into device aren't hidden by older cached reads.
+ *
+ * @author Martin Strouhal
+ */
+public final class DPAResponseCache {
+
+    /** Cached or pending result of one request. */
+    private static final class CachedResult {
+
+        private final int nadr;
+        private final int pnum;
+        private final IQRFFuture<DPAResult> future = new IQRFFuture<>();
+        private DPAResult result = null;
+        private long expiresAt = 0;
+
+        CachedResult(short[] request) {
+            this.nadr = DPAMessages.getNadr(request);
+            this.pnum = DPAMessages.getPnum(request);
+        }
+    }
+
+    /**
+     * Result of {@link #submit(short[])}, tells whether the request has been
+     * answered from cache.
+     */
+    public static final class Submission {
+
+        private final IQRFFuture<DPAResult> future;
+        private final DPAResult cachedResult;
+
+        private Submission(IQRFFuture<DPAResult> future, DPAResult cachedResult) {
+            this.future = future;
+            this.cachedResult = cachedResult;
+        }
+
+        /**
+         * Returns future completed with result of the request.
+         *
+         * @return future, which is already completed if the request has been
+         * answered from cache
+         */
+        public IQRFFuture<DPAResult> getFuture() {
+            return future;
+        }
+
+        /**
+         * Indicates, whether the request has been answered from cache. Such
+         * request isn't sent and no data are received for it from network.
+         *
+         * @return {@code true} if the result comes from cache
+         */
+        public boolean isCached() {
+            return cachedResult != null;
+        }
+
+        /**
+         * Returns result from cache.
+         *
+         * @return cached result or {@code null} if the request hasn't been
+         * answered from cache
+         */
+        public DPAResult getCachedResult() {
+            return cachedResult;
+        }
+    }
+
+    /** Request used as key of cache. */
+    private static final class RequestKey {
+
+        private final short[] request;
+        private final int hash;
+
+        RequestKey(short[] request) {
+            this.request = request;
+            this.hash = Arrays.hashCode(request);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey other = (RequestKey) obj;
+            return hash == other.hash && Arrays.equals(request, other.request);
+        }
+    }
+
+    /** Sends requests into network. */
+    private final JLibIQRFInterface iqrf;
+
+    /** Time [in ns] for which are results cached. */
+    private final long ttl;
+
+    /** Maximal count of cached results. */
+    private final int maxSize;
+
+    /** Timeout [in ms] of sent requests. */
+    private final long timeout;
+
+    /** Cached and pending results in order of their use. */
+    private final LinkedHashMap<RequestKey, CachedResult> entries;
+
+    private long hits = 0;
+    private long coalesced = 0;
+    private long misses = 0;
+
+    private static long checkTtl(long ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Time to live cannot be negative");
+        }
+        return ttl;
+    }
+
+    private static int checkMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximal size must be positive number");
+        }
+        return maxSize;
+    }
+
+    private static long checkTimeout(long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive number");
+        }
+        return timeout;
+    }
+
+    /**
+     * Creates {@link DPAResponseCache}.
+     *
+     * @param iqrf sends requests into network
+     * @param ttl time [in ms] for which are results cached, {@code 0} means
+     * that only concurrent requests are collapsed
+     * @param maxSize maximal count of cached results
+     * @param timeout timeout [in ms] of sent requests
+     */
+    public DPAResponseCache(JLibIQRFInterface iqrf, long ttl, int maxSize, long timeout) {
+        if (iqrf == null) {
+            throw new IllegalArgumentException("JLibIQRF cannot be null");
+        }
+        this.iqrf = iqrf;
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(checkTtl(ttl));
+        this.maxSize = checkMaxSize(maxSize);
+        this.timeout = checkTimeout(timeout);
+        this.entries = new LinkedHashMap<RequestKey, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RequestKey, CachedResult> eldest) {
+                return size() > DPAResponseCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Indicates, whether request only reads state of device, so it can be
+     * answered by result of identical request. These are reads of
+     * coordinator's address info, discovered and bonded devices, node info,
+     * OS info and configuration, EEPROM, EEEPROM, RAM, LEDs, IO and
+     * thermometer.
+     *
+     * @param request DPA request
+     * @return {@code true} if the request is idempotent read
+     */
+    public static boolean isReadRequest(short[] request) {
+        if (!DPAMessages.hasHeader(request)
+                || DPAMessages.getNadr(request) == DPAMessages.BROADCAST_ADDRESS) {
+            return false;
+        }
+        int pcmd = DPAMessages.getPcmd(request);
+        switch (DPAMessages.getPnum(request)) {
+            // coordinator: address info, discovered devices, bonded devices
+            case 0x00:
+                return pcmd <= 0x02;
+            // node: read, EEPROM: read, RAM: read, thermometer: read
+            case 0x01:
+            case 0x03:
+            case 0x05:
+            case 0x0A:
+                return pcmd == 0x00;
+            // OS: read, read configuration
+            case 0x02:
+                return pcmd == 0x00 || pcmd == 0x02;
+            // EEEPROM: extended read, LEDR, LEDG, IO: get
+            case 0x04:
+            case 0x06:
+            case 0x07:
+            case 0x09:
+                return pcmd == 0x02;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Sends request or answers it by result of identical read request.
+     *
+     * @param request DPA request
+     * @return future completed with result
+     */
+    public IQRFFuture<DPAResult> send(short[] request) {
+        return submit(request).getFuture();
+    }
+
+    /**
+     * Sends request or answers it by result of identical read request, see
+     * {@link #send(short[])}. Returned submission tells, whether the request
+     * has been answered from cache, it's decided atomically with the lookup.
+     *
+     * @param request DPA request
+     * @return submission of the request
+     */
+    public Submission submit(short[] request) {
+        if (!isReadRequest(request)) {
+            invalidate(request);
+            return new Submission(iqrf.sendAsync(request, timeout), null);
+        }
+
+        RequestKey key = new RequestKey(request.clone());
+        final IQRFFuture<DPAResult> result = new IQRFFuture<>();
+        CachedResult entry;
+        boolean transmit = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.result != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits++;
+                    return new Submission(IQRFFuture.completed(entry.result), entry.result);
+                }
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry != null) {
+                coalesced++;
+            } else {
+                misses++;
+                entry = new CachedResult(request);
+                entries.put(key, entry);
+                transmit = true;
+            }
+        }
+
+        if (transmit) {
+            transmit(key, entry);
+        }
+        // every caller gets own future, so that it can cancel it
+        entry.future.addCallback(new IQRFCallback<DPAResult>() {
+            @Override
+            public void onSuccess(DPAResult dpaResult) {
+                result.complete(dpaResult);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                result.fail(cause);
+            }
+        });
+        return new Submission(result, null);
+    }
+
+    // sends request and fills entry by its result
+    private void transmit(final RequestKey key, final CachedResult entry) {
+        iqrf.sendAsync(key.request, timeout).addCallback(new IQRFCallback<DPAResult>() {
+            @Override
+            public void onSuccess(DPAResult dpaResult) {
+                synchronized (DPAResponseCache.this) {
+                    // error responses aren't cached, neither are results of
+                    // requests invalidated while pending
+                    if (dpaResult.getResponseCode() != DPAMessages.STATUS_NO_ERROR
+                            || ttl == 0) {
+                        remove(key, entry);
+                    } else if (entries.get(key) == entry) {
+                        entry.expiresAt = System.nanoTime() + ttl;
+                        entry.result = dpaResult;
+                    }
+                }
+                entry.future.complete(dpaResult);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                synchronized (DPAResponseCache.this) {
+                    remove(key, entry);
+                }
+                entry.future.fail(cause);
+            }
+        });
+    }
+
+    // removes entry, if it's still mapped by the key
+    private void remove(RequestKey key, CachedResult entry) {
+        if (entries.get(key) == entry) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Returns cached result of identical read request, which hasn't expired
+     * yet. The request isn't sent.
+     *
+     * @param request DPA request
+     * @return cached result or {@code null} if there is no such result
+     */
+    public synchronized DPAResult lookup(short[] request) {
+        if (!isReadRequest(request)) {
+            return null;
+        }
+        CachedResult entry = entries.get(new RequestKey(request));
+        if (entry == null || entry.result == null
+                || entry.expiresAt - System.nanoTime() <= 0) {
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /**
+     * Removes cached results, which can be changed by specified request, i.e.
+     * results of reads with the same NADR and PNUM, or with the same PNUM if
+     * the request is broadcast. It's called automatically for requests sent
+     * by {@link #send(short[])}.
+     *
+     * @param request DPA request, which will be sent
+     */
+    public synchronized void invalidate(short[] request) {
+        if (!DPAMessages.hasHeader(request)) {
+            return;
+        }
+        int nadr = DPAMessages.getNadr(request);
+        int pnum = DPAMessages.getPnum(request);
+        Iterator<CachedResult> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CachedResult entry = iterator.next();
+            if (entry.pnum == pnum
+                    && (entry.nadr == nadr || nadr == DPAMessages.BROADCAST_ADDRESS)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns count of cached and pending results.
+     *
+     * @return count of results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns count of requests answered from cache.
+     *
+     * @return count of requests
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns count of requests collapsed with identical pending request.
+     *
+     * @return count of requests
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Returns count of read requests sent into network.
+     *
+     * @return count of requests
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DPAResponseCache{" + "size=" + entries.size() + ", hits=" + hits
+                + ", coalesced=" + coalesced + ", misses=" + misses + '}';
+    }
+}
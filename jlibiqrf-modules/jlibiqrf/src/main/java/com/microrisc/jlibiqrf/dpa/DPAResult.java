@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.dpa;
+
+import com.microrisc.jlibiqrf.types.HexConvertor;
+
+/**
+ * Result of DPA request sent via
+ * {@link com.microrisc.jlibiqrf.JLibIQRF#sendAsync(short[])}. Holds DPA
+ * confirmation and DPA response, which belongs to the request.
+ *
+ * @author Martin Strouhal
+ */
+public final class DPAResult {
+
+    private final short[] request;
+    private final short[] confirmation;
+    private final short[] response;
+
+    /**
+     * Creates {@link DPAResult}.
+     *
+     * @param request which was sent
+     * @param confirmation received confirmation or {@code null}
+     * @param response received response or {@code null}
+     */
+    public DPAResult(short[] request, short[] confirmation, short[] response) {
+        this.request = request;
+        this.confirmation = confirmation;
+        this.response = response;
+    }
+
+    /**
+     * Returns sent request.
+     *
+     * @return request data
+     */
+    public short[] getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns DPA confirmation. Confirmation isn't sent for requests addressed
+     * to coordinator or local device.
+     *
+     * @return confirmation data or {@code null} if no confirmation was
+     * received
+     */
+    public short[] getConfirmation() {
+        return confirmation;
+    }
+
+    /**
+     * Returns DPA response. Response isn't sent for broadcast requests.
+     *
+     * @return response data or {@code null} if no response was received
+     */
+    public short[] getResponse() {
+        return response;
+    }
+
+    /**
+     * Returns error code (ErrN) of response.
+     *
+     * @return error code, {@code 0} means success, {@code -1} if there isn't
+     * any response
+     */
+    public int getResponseCode() {
+        if (response == null || response.length <= DPAMessages.ERRN_POS) {
+            return -1;
+        }
+        return response[DPAMessages.ERRN_POS];
+    }
+
+    @Override
+    public String toString() {
+        return "DPAResult{" + "request=[" + HexConvertor.getShortArrayAsStringWithHex(request)
+                + "], confirmation=[" + HexConvertor.getShortArrayAsStringWithHex(confirmation)
+                + "], response=[" + HexConvertor.getShortArrayAsStringWithHex(response) + "]}";
+    }
+}
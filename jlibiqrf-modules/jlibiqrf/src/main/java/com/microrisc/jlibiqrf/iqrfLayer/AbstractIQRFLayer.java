@@ -15,9 +15,21 @@
  */
 package com.microrisc.jlibiqrf.iqrfLayer;
 
+import com.microrisc.jlibiqrf.IQRFByteListener;
 import com.microrisc.jlibiqrf.IQRFListener;
+import com.microrisc.jlibiqrf.async.IQRFFuture;
+import com.microrisc.jlibiqrf.listener.IQRFDataFilter;
+import com.microrisc.jlibiqrf.listener.ListenerRegistration;
+import com.microrisc.jlibiqrf.listener.ListenerRegistry;
+import com.microrisc.jlibiqrf.listener.OverflowPolicy;
+import com.microrisc.jlibiqrf.metrics.Gauge;
+import com.microrisc.jlibiqrf.metrics.LayerMetrics;
+import com.microrisc.jlibiqrf.types.BaseIQRFData;
+import com.microrisc.jlibiqrf.types.DataConvertor;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,8 +44,16 @@ public abstract class AbstractIQRFLayer {
     /** Logger */
     private static final Logger logger = LoggerFactory.getLogger(AbstractIQRFLayer.class);
 
-    /** Registered iqrf listener. */
-    protected IQRFListener iqrfListener = null;
+    /** Registered iqrf listeners. */
+    private final ListenerRegistry listenerRegistry = new ListenerRegistry();
+
+    /** Metrics of communication via this layer. */
+    private final LayerMetrics metrics = new LayerMetrics(new Gauge() {
+        @Override
+        public long getValue() {
+            return getReceiveQueueSize();
+        }
+    });
 
     /**
      * Initialize IQRF layer.
@@ -43,21 +63,129 @@ public abstract class AbstractIQRFLayer {
     public abstract void startIQRFLayer() throws IQRFLayerException;
 
     /**
-     * Register {@link IQRFListener} for IQRF layer.
+     * Register {@link IQRFListener} for IQRF layer. Listener is called directly
+     * on thread receiving data and gets all received data. Already registered
+     * listeners stay registered.
+     *
+     * @param listener to register
+     * @return registration of listener
+     */
+    public ListenerRegistration registerListener(IQRFListener listener) {
+        return listenerRegistry.register(listener);
+    }
+
+    /**
+     * Register {@link IQRFListener} for IQRF layer, which will be called by
+     * specified executor. Data waiting for the listener are stored in bounded
+     * queue, so the listener doesn't block receiving of data.
+     *
+     * @param listener to register
+     * @param filter which data will be passed to listener, {@code null} means
+     * all data
+     * @param executor executor calling the listener, {@code null} means
+     * calling directly on thread receiving data
+     * @param queueCapacity maximal count of data waiting for the listener
+     * @param overflowPolicy what to do when the queue is full
+     * @return registration of listener
+     */
+    public ListenerRegistration registerListener(IQRFListener listener,
+            IQRFDataFilter filter, Executor executor, int queueCapacity,
+            OverflowPolicy overflowPolicy
+    ) {
+        return listenerRegistry.register(listener, filter, executor, queueCapacity, overflowPolicy);
+    }
+
+    /**
+     * Register {@link IQRFByteListener} for IQRF layer. Listener is called
+     * directly on thread receiving data, before all {@link IQRFListener
+     * listeners}, and gets all received data.
      *
      * @param listener to register
      */
-    public void registerListener(IQRFListener listener) {
-        this.iqrfListener = listener;
-        logger.info("Listener registred. Actual listener is {}", iqrfListener);
+    public void registerByteListener(IQRFByteListener listener) {
+        listenerRegistry.register(listener);
     }
 
     /**
-     * Unregister {@link IQRFListener} from IQRF layer.
+     * Unregister specified {@link IQRFByteListener} from IQRF layer.
+     *
+     * @param listener to unregister
+     */
+    public void unregisterByteListener(IQRFByteListener listener) {
+        listenerRegistry.unregister(listener);
+    }
+
+    /**
+     * Unregister specified {@link IQRFListener} from IQRF layer.
+     *
+     * @param listener to unregister
+     */
+    public void unregisterListener(IQRFListener listener) {
+        listenerRegistry.unregister(listener);
+    }
+
+    /**
+     * Unregister all {@link IQRFListener listeners} from IQRF layer.
      */
     public void unregisterListener() {
-        this.iqrfListener = null;
-        logger.info("Listener unregistred.");
+        listenerRegistry.unregisterAll();
+        logger.info("Listeners unregistred.");
+    }
+
+    /**
+     * Returns {@code true} if at least one listener is registered.
+     *
+     * @return {@code true} if some listener is registered
+     */
+    protected boolean hasListeners() {
+        return listenerRegistry.hasListeners();
+    }
+
+    /**
+     * Passes data received from IQRF network to registered listeners.
+     *
+     * @param data received data
+     */
+    protected void dispatchData(short[] data) {
+        long start = System.nanoTime();
+        listenerRegistry.dispatch(data);
+        metrics.recordReceived(data.length, System.nanoTime() - start);
+    }
+
+    /**
+     * Passes data between position and limit of specified buffer to registered
+     * listeners. Layers receiving bytes should use this method, so data are
+     * converted to {@code short[]} only if some {@link IQRFListener} needs
+     * them.
+     *
+     * @param data received data
+     */
+    protected void dispatchData(ByteBuffer data) {
+        long start = System.nanoTime();
+        int length = data.remaining();
+        listenerRegistry.dispatch(data);
+        metrics.recordReceived(length, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns count of received data, which wait for passing to listeners.
+     * Layers without own queue of received data return {@code 0}.
+     *
+     * @return size of queue of received data
+     */
+    protected int getReceiveQueueSize() {
+        return 0;
+    }
+
+    /**
+     * Returns metrics of communication via this layer. Layers record received
+     * data and errors, sending is recorded by the caller of
+     * {@link #sendData(IQRFData)}.
+     *
+     * @return metrics of layer
+     */
+    public LayerMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -75,4 +203,36 @@ public abstract class AbstractIQRFLayer {
      */
     public abstract void sendData(IQRFData data) throws IQRFLayerException;
 
+    /**
+     * Send data between position and limit of specified buffer into IQRF
+     * layer. Position of the buffer isn't changed. Layers working with bytes
+     * override this method to send data without conversion, other layers
+     * convert data to {@code short[]} and use {@link #sendData(IQRFData)}.
+     *
+     * @param data to send
+     * @throws IQRFLayerException if some error has been occurred
+     */
+    public void sendData(ByteBuffer data) throws IQRFLayerException {
+        sendData(new BaseIQRFData(DataConvertor.toShortArray(data)));
+    }
+
+    /**
+     * Send data into IQRF layer without blocking the caller, if the layer
+     * supports it. Layers, which may wait for device before sending, override
+     * this method and send data from their own thread. Default implementation
+     * sends data by {@link #sendData(IQRFData)} in caller's thread.
+     *
+     * @param data to send
+     * @return future completed after data has been sent, or failed with
+     * {@link IQRFLayerException}
+     */
+    public IQRFFuture<Void> sendDataAsync(IQRFData data) {
+        try {
+            sendData(data);
+        } catch (IQRFLayerException ex) {
+            return IQRFFuture.failed(ex);
+        }
+        return IQRFFuture.completed(null);
+    }
+
 }
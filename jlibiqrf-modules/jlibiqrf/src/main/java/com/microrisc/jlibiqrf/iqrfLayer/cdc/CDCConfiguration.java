@@ -37,20 +37,46 @@ public class CDCConfiguration extends IQRFConfiguration {
     @XmlElement
     private final String port;
 
+    /** Reset of USB device while layer is starting. */
+    @XmlElement
+    private final CDCResetMode resetMode;
+
+    /** Maximal time [in ms] to wait for device to be ready after reset. */
+    @XmlElement
+    private final long readyTimeout;
+
     /**
-     * Creates {@link CDCConfiguration} with specified parameters.
+     * Creates {@link CDCConfiguration} with specified parameters. Device will
+     * not be reset while starting.
      *
      * @param port on which is communication processing
      */
     public CDCConfiguration(String port) {
+        this(port, CDCResetMode.NEVER, CDCIQRFLayer.READY_TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * Creates {@link CDCConfiguration} with specified parameters.
+     *
+     * @param port on which is communication processing
+     * @param resetMode reset of device while starting,
+     * {@link CDCConfiguration#resetMode}
+     * @param readyTimeout max time to wait for device after reset,
+     * {@link CDCConfiguration#readyTimeout}
+     */
+    public CDCConfiguration(String port, CDCResetMode resetMode, long readyTimeout) {
         super(type);
         this.port = port;
+        this.resetMode = resetMode;
+        this.readyTimeout = readyTimeout;
     }
 
     /** Only for purpose of JAXB. */
     private CDCConfiguration() {
         super(type);
         port = null;
+        resetMode = CDCResetMode.NEVER;
+        readyTimeout = CDCIQRFLayer.READY_TIMEOUT_DEFAULT;
     }
 
     /**
@@ -62,8 +88,26 @@ public class CDCConfiguration extends IQRFConfiguration {
         return port;
     }
 
+    /**
+     * Returns {@link CDCConfiguration#resetMode}
+     *
+     * @return reset mode of device
+     */
+    public CDCResetMode getResetMode() {
+        return resetMode;
+    }
+
+    /**
+     * Returns {@link CDCConfiguration#readyTimeout}
+     *
+     * @return timeout [in ms]
+     */
+    public long getReadyTimeout() {
+        return readyTimeout;
+    }
+
     @Override
     public String toString() {
-        return "CDCConfiguration{" + "port=" + port + '}';
+        return "CDCConfiguration{" + "port=" + port + ", resetMode=" + resetMode + ", readyTimeout=" + readyTimeout + '}';
     }
 }
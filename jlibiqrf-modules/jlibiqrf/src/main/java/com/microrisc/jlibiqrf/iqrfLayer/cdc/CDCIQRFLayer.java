@@ -23,6 +23,7 @@ import com.microrisc.jlibiqrf.types.HexConvertor;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import com.microrisc.jlibiqrf.types.IQRFError;
 import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,50 +56,174 @@ public final class CDCIQRFLayer extends AbstractIQRFLayer implements J_AsyncMsgL
         return portName;
     }
 
+    private static CDCResetMode checkResetMode(CDCResetMode resetMode) {
+        if (resetMode == null) {
+            throw new IllegalArgumentException("Reset mode cannot be null");
+        }
+        return resetMode;
+    }
+
+    private static long checkReadyTimeout(long readyTimeout) {
+        if (readyTimeout <= 0) {
+            throw new IllegalArgumentException("Ready timeout must be positive number");
+        }
+        return readyTimeout;
+    }
+
+    /** Default maximal time [in ms] to wait for device to be ready after reset. */
+    public static final long READY_TIMEOUT_DEFAULT = 15000;
+
+    /** Interval [in ms] between checks of device readiness. */
+    private static final long READY_POLL_INTERVAL = 100;
+
+    /** COM-port name for communication. */
+    private final String portName;
+
+    /** Reset of USB device while starting. */
+    private final CDCResetMode resetMode;
+
+    /** Maximal time [in ms] to wait for device to be ready after reset. */
+    private final long readyTimeout;
 
     /** Reference to CDC-object for communication. */
     private J_CDCImpl cdcImpl = null;
 
     /**
-     * Creates CDC network layer object.
+     * Creates CDC network layer object. Device will not be reset while
+     * starting.
      *
      * @param portName COM-port name for communication
      * @throws com.microrisc.cdc.J_CDCImplException if some exception has
      * occurred during creating of CDC network layer
      */
     public CDCIQRFLayer(String portName) throws J_CDCImplException, Exception {
-        checkPortName(portName);
+        this(portName, CDCResetMode.NEVER, READY_TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * Creates CDC network layer object.
+     *
+     * @param portName COM-port name for communication
+     * @param resetMode reset of USB device while starting
+     * @param readyTimeout maximal time [in ms] to wait for device to be ready
+     * after reset
+     * @throws com.microrisc.cdc.J_CDCImplException if some exception has
+     * occurred during creating of CDC network layer
+     */
+    public CDCIQRFLayer(String portName, CDCResetMode resetMode, long readyTimeout)
+            throws J_CDCImplException, Exception {
+        this.portName = checkPortName(portName);
+        this.resetMode = checkResetMode(resetMode);
+        this.readyTimeout = checkReadyTimeout(readyTimeout);
         this.cdcImpl = new J_CDCImpl(portName);
-        logger.debug("CDCIQRFLayer created: portName=" + portName);
+        logger.debug("CDCIQRFLayer created: portName=" + portName
+                + ", resetMode=" + resetMode);
+    }
+
+    // returns true, if specified device responds to test command
+    private static boolean isReady(J_CDCImpl impl) {
+        try {
+            return impl.test();
+        } catch (Exception ex) {
+            logger.debug("Device test failed: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    // opens device on port, returns null if device is not present yet
+    private J_CDCImpl open() {
+        try {
+            return new J_CDCImpl(portName);
+        } catch (Exception ex) {
+            logger.debug("Device cannot be opened yet: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    // waits for next check of readiness, fails if deadline has passed
+    private void waitForNextCheck(long deadline) throws IQRFLayerException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new IQRFLayerException("USB device not ready within "
+                    + readyTimeout + " ms", IQRFError.INIT_ERROR);
+        }
+        try {
+            Thread.sleep(Math.min(READY_POLL_INTERVAL,
+                    TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+        }
     }
 
     /**
-     * Starts receiving data from CDC interface. This methods last at least for
-     * 5 seconds due to reseting connected USB device.
+     * Resets USB device and waits until it is enumerated again and responds to
+     * test command.
+     */
+    private void resetDevice() throws IQRFLayerException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readyTimeout);
+
+        try {
+            cdcImpl.resetUSBDevice();
+        } catch (Exception ex) {
+            logger.error("Cannot reset USB device: " + ex.getMessage());
+            throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+        }
+
+        // device is reset some time after receiving of reset command, it still
+        // responds until then
+        while (isReady(cdcImpl)) {
+            waitForNextCheck(deadline);
+        }
+        cdcImpl.destroy();
+        cdcImpl = null;
+        logger.debug("USB device disconnected");
+
+        // waiting for device to be enumerated again
+        while (true) {
+            J_CDCImpl impl = open();
+            if (impl != null) {
+                if (isReady(impl)) {
+                    cdcImpl = impl;
+                    return;
+                }
+                impl.destroy();
+            }
+            waitForNextCheck(deadline);
+        }
+    }
+
+    /**
+     * Starts receiving data from CDC interface. If reset of device is required
+     * by reset mode, this method lasts until the device is enumerated again
+     * and responds to test command, at most for ready timeout.
      *
      * @throws com.microrisc.jlibiqrf.types.IQRFLayerException if some error has
-     * been occurred
+     * been occurred or device isn't ready in time
      */
     @Override
     public void startIQRFLayer() throws IQRFLayerException {
         logger.debug("startIQRFLayer - start");
 
+        long startTime = System.nanoTime();
+        switch (resetMode) {
+            case IF_NOT_READY:
+                if (isReady(cdcImpl)) {
+                    logger.info("USB device is ready, reset skipped");
+                    break;
+                }
+                // falls through to reset
+            case ALWAYS:
+                resetDevice();
+                logger.info("USB device ready after reset in {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                break;
+            default:
+                break;
+        }
+
         cdcImpl.registerAsyncListener(this);
 
-        /*
-        final long RESET_DELAY = 5000;
-        final long MARGIN_DELAY = 5000;
-        
-        try {
-            // reseting GW 
-            // 5 s after receiving of this command USB device is reset - program must deal with this !!!
-            cdcImpl.resetUSBDevice();
-            Thread.sleep(RESET_DELAY + MARGIN_DELAY);
-        } catch (Exception ex) {
-            logger.error("Cannot reset USB device: " + ex.getMessage());
-            throw new NetworkLayerException(ex);
-        }
-         */
         logger.debug("startIQRFLayer - end");
     }
 
@@ -120,11 +245,14 @@ public final class CDCIQRFLayer extends AbstractIQRFLayer implements J_AsyncMsgL
         super.destroy();
         logger.debug("destroy - start: ");
 
-        cdcImpl.unregisterAsyncListener();
-        logger.info("CDC Listener unregistered");
+        // device may be missing after unsuccessful reset
+        if (cdcImpl != null) {
+            cdcImpl.unregisterAsyncListener();
+            logger.info("CDC Listener unregistered");
 
-        cdcImpl.destroy();
-        cdcImpl = null;
+            cdcImpl.destroy();
+            cdcImpl = null;
+        }
 
         logger.info("Destroyed CDCIQRFLayer");
         logger.debug("destroy - end");
@@ -134,15 +262,13 @@ public final class CDCIQRFLayer extends AbstractIQRFLayer implements J_AsyncMsgL
     public void onGetMessage(short[] data) {
         logger.debug("onGetMessage - start: data={}", HexConvertor.getShortArrayAsStringWithHex(data));
 
-        if (iqrfListener != null) {
-            iqrfListener.onGetIQRFData(data);
-        }
+        dispatchData(data);
 
         logger.debug("onGetMessage - end");
     }
 
    @Override
    public String toString() {
-      return "CDCIQRFLayer{" + "cdcImpl=" + cdcImpl + '}';
+      return "CDCIQRFLayer{" + "portName=" + portName + ", resetMode=" + resetMode + ", readyTimeout=" + readyTimeout + ", cdcImpl=" + cdcImpl + '}';
    }
 }
@@ -49,7 +49,8 @@ public class CDCIQRFLayerFactory extends AbstractIQRFLayerFactory<CDCConfigurati
         }
 
         try {
-            CDCIQRFLayer layer = new CDCIQRFLayer(portName);
+            CDCIQRFLayer layer = new CDCIQRFLayer(portName, cdcConfig.getResetMode(),
+                    cdcConfig.getReadyTimeout());
             logger.debug("createCDCNetworkLayer - end: " + layer);
             return layer;
         } catch (Exception ex) {
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.cdc;
+
+/**
+ * Specifies, whether USB device is reset while {@link CDCIQRFLayer} is
+ * starting.
+ *
+ * @author Martin Strouhal
+ */
+public enum CDCResetMode {
+
+    /** Device is never reset, layer starts immediately. */
+    NEVER,
+    /** Device is reset only if it doesn't respond to test command. */
+    IF_NOT_READY,
+    /** Device is always reset. */
+    ALWAYS;
+}
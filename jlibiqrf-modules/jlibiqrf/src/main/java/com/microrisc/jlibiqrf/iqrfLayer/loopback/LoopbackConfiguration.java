@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.loopback;
+
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+import com.microrisc.jlibiqrf.configuration.IQRFConfiguration;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Encapsulates configuration of {@link LoopbackIQRFLayer}.
+ *
+ * @author Martin Strouhal
+ */
+@XmlRootElement(name = "loopbackConfiguration")
+public class LoopbackConfiguration extends IQRFConfiguration {
+
+    /** Type specifying {@link LoopbackConfiguration}. */
+    public static final IQRFCommunicationType type = IQRFCommunicationType.LOOPBACK;
+
+    /** Count of simulated bonded nodes. */
+    @XmlElement
+    private final int nodeCount;
+    /** Maximal count of hops between coordinator and node. */
+    @XmlElement
+    private final int maxHops;
+    /** Length of timeslot [in 10 ms]. */
+    @XmlElement
+    private final int timeslotLength;
+    /** Time [in ms], which coordinator needs to answer. */
+    @XmlElement
+    private final long coordinatorDelay;
+    /** Multiplier of all delays, 1 simulates real timing, 0 answers without
+     * any delay. */
+    @XmlElement
+    private final double timeScale;
+
+    /**
+     * Creates {@link LoopbackConfiguration} with default parameters
+     * simulating real timing.
+     */
+    public LoopbackConfiguration() {
+        this(LoopbackIQRFLayer.NODE_COUNT_DEFAULT, LoopbackIQRFLayer.MAX_HOPS_DEFAULT,
+                LoopbackIQRFLayer.TIMESLOT_LENGTH_DEFAULT,
+                LoopbackIQRFLayer.COORDINATOR_DELAY_DEFAULT,
+                LoopbackIQRFLayer.TIME_SCALE_DEFAULT);
+    }
+
+    /**
+     * Creates {@link LoopbackConfiguration} with specified parameters.
+     *
+     * @param nodeCount count of nodes, {@link LoopbackConfiguration#nodeCount}
+     * @param maxHops maximal count of hops,
+     * {@link LoopbackConfiguration#maxHops}
+     * @param timeslotLength length of timeslot,
+     * {@link LoopbackConfiguration#timeslotLength}
+     * @param coordinatorDelay answer time of coordinator,
+     * {@link LoopbackConfiguration#coordinatorDelay}
+     * @param timeScale multiplier of delays,
+     * {@link LoopbackConfiguration#timeScale}
+     */
+    public LoopbackConfiguration(int nodeCount, int maxHops, int timeslotLength,
+            long coordinatorDelay, double timeScale) {
+        super(type);
+        this.nodeCount = nodeCount;
+        this.maxHops = maxHops;
+        this.timeslotLength = timeslotLength;
+        this.coordinatorDelay = coordinatorDelay;
+        this.timeScale = timeScale;
+    }
+
+    /**
+     * Returns {@link LoopbackConfiguration#nodeCount}.
+     *
+     * @return count of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns {@link LoopbackConfiguration#maxHops}.
+     *
+     * @return maximal count of hops
+     */
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    /**
+     * Returns {@link LoopbackConfiguration#timeslotLength}.
+     *
+     * @return length of timeslot [in 10 ms]
+     */
+    public int getTimeslotLength() {
+        return timeslotLength;
+    }
+
+    /**
+     * Returns {@link LoopbackConfiguration#coordinatorDelay}.
+     *
+     * @return delay [in ms]
+     */
+    public long getCoordinatorDelay() {
+        return coordinatorDelay;
+    }
+
+    /**
+     * Returns {@link LoopbackConfiguration#timeScale}.
+     *
+     * @return multiplier of delays
+     */
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackConfiguration{" + "nodeCount=" + nodeCount + ", maxHops=" + maxHops + ", timeslotLength=" + timeslotLength + ", coordinatorDelay=" + coordinatorDelay + ", timeScale=" + timeScale + '}';
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.loopback;
+
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
+import com.microrisc.jlibiqrf.types.IQRFData;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements network layer simulating coordinator and bonded nodes in
+ * memory, so it needs no hardware.
+ * <p>
+ * Every DPA request sent into the layer is answered like by real network:
+ * request for node gets confirmation and then response, request for
+ * coordinator or local device gets response only, broadcast gets
+ * confirmation only and request for not bonded node gets response with
+ * {@link DPAMessages#ERROR_NADR}. Response echoes data of request.
+ * <p>
+ * Nodes {@code 1..nodeCount} are placed evenly into distances of
+ * {@code 1..maxHops} hops from coordinator. Like in DPA, response of node
+ * comes {@code (hops + 1) * timeslot} after confirmation for delivery of
+ * request plus the same time for delivery of response, coordinator answers
+ * after coordinator delay. Network handles one request at a time, next
+ * request waits until the previous one is finished. All delays are multiplied
+ * by time scale, so {@code 1} simulates real timing and {@code 0} answers
+ * without any delay.
+ *
+ * @author Martin Strouhal
+ */
+public final class LoopbackIQRFLayer extends AbstractIQRFLayer {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackIQRFLayer.class);
+
+    /** Maximal count of bonded nodes in DPA network. */
+    public static final int MAX_NODE_COUNT = 239;
+
+    /** Default count of bonded nodes. */
+    public static final int NODE_COUNT_DEFAULT = 10;
+
+    /** Default maximal count of hops between coordinator and node. */
+    public static final int MAX_HOPS_DEFAULT = 1;
+
+    /** Default length of timeslot [in 10 ms]. */
+    public static final int TIMESLOT_LENGTH_DEFAULT = 4;
+
+    /** Default time [in ms], which coordinator needs to answer. */
+    public static final long COORDINATOR_DELAY_DEFAULT = 5;
+
+    /** Default multiplier of all delays. */
+    public static final double TIME_SCALE_DEFAULT = 1;
+
+    /** Unit of timeslot length [in ms]. */
+    private static final long TIMESLOT_UNIT = 10;
+
+    /** HW profile ID of simulated devices. */
+    private static final int HWPID = 0x0000;
+
+    /** Count of bonded nodes. */
+    private final int nodeCount;
+
+    /** Maximal count of hops between coordinator and node. */
+    private final int maxHops;
+
+    /** Length of timeslot [in 10 ms]. */
+    private final int timeslotLength;
+
+    /** Time [in ms], which coordinator needs to answer. */
+    private final long coordinatorDelay;
+
+    /** Multiplier of all delays. */
+    private final double timeScale;
+
+    /** Thread passing simulated messages to listeners at their time. */
+    private ScheduledThreadPoolExecutor network = null;
+
+    /** Time [in ns], when the network finishes actual request. */
+    private long networkFreeAt = 0;
+
+    /**
+     * Passing of simulated message to listeners.
+     */
+    private class Delivery implements Runnable {
+
+        private final short[] message;
+
+        Delivery(short[] message) {
+            this.message = message;
+        }
+
+        @Override
+        public void run() {
+            dispatchData(message);
+        }
+    }
+
+    private static int checkNodeCount(int nodeCount) {
+        if (nodeCount < 1 || nodeCount > MAX_NODE_COUNT) {
+            throw new IllegalArgumentException("Node count must be in interval <1, "
+                    + MAX_NODE_COUNT + ">");
+        }
+        return nodeCount;
+    }
+
+    private static int checkMaxHops(int maxHops) {
+        if (maxHops < 1 || maxHops > 0xFF) {
+            throw new IllegalArgumentException("Maximal count of hops must be in interval <1, 255>");
+        }
+        return maxHops;
+    }
+
+    private static int checkTimeslotLength(int timeslotLength) {
+        if (timeslotLength < 1 || timeslotLength > 0xFF) {
+            throw new IllegalArgumentException("Timeslot length must be in interval <1, 255>");
+        }
+        return timeslotLength;
+    }
+
+    private static long checkCoordinatorDelay(long coordinatorDelay) {
+        if (coordinatorDelay < 0) {
+            throw new IllegalArgumentException("Coordinator delay cannot be negative");
+        }
+        return coordinatorDelay;
+    }
+
+    private static double checkTimeScale(double timeScale) {
+        if (!(timeScale >= 0) || Double.isInfinite(timeScale)) {
+            throw new IllegalArgumentException("Time scale must be non-negative number");
+        }
+        return timeScale;
+    }
+
+    /**
+     * Creates loopback network layer object.
+     *
+     * @param nodeCount count of bonded nodes, at most {@link #MAX_NODE_COUNT}
+     * @param maxHops maximal count of hops between coordinator and node
+     * @param timeslotLength length of timeslot [in 10 ms]
+     * @param coordinatorDelay time [in ms], which coordinator needs to answer
+     * @param timeScale multiplier of all delays, {@code 0} means no delays
+     */
+    public LoopbackIQRFLayer(int nodeCount, int maxHops, int timeslotLength,
+            long coordinatorDelay, double timeScale) {
+        this.nodeCount = checkNodeCount(nodeCount);
+        this.maxHops = checkMaxHops(maxHops);
+        this.timeslotLength = checkTimeslotLength(timeslotLength);
+        this.coordinatorDelay = checkCoordinatorDelay(coordinatorDelay);
+        this.timeScale = checkTimeScale(timeScale);
+    }
+
+    @Override
+    public void startIQRFLayer() throws IQRFLayerException {
+        logger.debug("startIQRFLayer - start:");
+
+        network = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "LoopbackIQRFLayer-network");
+            }
+        });
+
+        logger.info("Loopback network with {} nodes started", nodeCount);
+        logger.debug("startIQRFLayer - end");
+    }
+
+    /**
+     * Returns count of hops between coordinator and specified node.
+     *
+     * @param nadr address of node
+     * @return count of hops
+     */
+    int getHops(int nadr) {
+        return 1 + (nadr - 1) * maxHops / nodeCount;
+    }
+
+    // returns scaled time [in ns] of specified count of milliseconds
+    private long scale(long millis) {
+        return (long) (TimeUnit.MILLISECONDS.toNanos(millis) * timeScale);
+    }
+
+    // returns time [in ms] of delivery of message over specified count of hops
+    private long deliveryTime(int hops) {
+        return (hops + 1) * timeslotLength * TIMESLOT_UNIT;
+    }
+
+    private static short[] createConfirmation(short[] request, int hops, int timeslot) {
+        short[] confirmation = new short[DPAMessages.CONFIRMATION_LENGTH];
+        System.arraycopy(request, 0, confirmation, 0, DPAMessages.REQUEST_HEADER_LENGTH);
+        confirmation[DPAMessages.ERRN_POS] = DPAMessages.STATUS_CONFIRMATION;
+        confirmation[DPAMessages.DPA_VALUE_POS] = 0;
+        confirmation[DPAMessages.HOPS_POS] = (short) hops;
+        confirmation[DPAMessages.TIMESLOT_POS] = (short) timeslot;
+        confirmation[DPAMessages.HOPS_RESPONSE_POS] = (short) hops;
+        return confirmation;
+    }
+
+    private static short[] createResponse(short[] request, int errorCode) {
+        int dataLength = request.length - DPAMessages.REQUEST_HEADER_LENGTH;
+        short[] response = new short[DPAMessages.RESPONSE_HEADER_LENGTH + dataLength];
+        System.arraycopy(request, 0, response, 0, DPAMessages.REQUEST_HEADER_LENGTH);
+        response[DPAMessages.PCMD_POS] |= DPAMessages.RESPONSE_FLAG;
+        if (DPAMessages.getHwpid(request) == DPAMessages.HWPID_ANY) {
+            response[DPAMessages.HWPID_POS] = HWPID & 0xFF;
+            response[DPAMessages.HWPID_POS + 1] = HWPID >> 8;
+        }
+        response[DPAMessages.ERRN_POS] = (short) errorCode;
+        response[DPAMessages.DPA_VALUE_POS] = 0;
+        System.arraycopy(request, DPAMessages.REQUEST_HEADER_LENGTH, response,
+                DPAMessages.RESPONSE_HEADER_LENGTH, dataLength);
+        return response;
+    }
+
+    // passes message to listeners at specified time
+    private void deliver(short[] message, long time, long now) {
+        network.schedule(new Delivery(message), time - now, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void sendData(IQRFData iqrfData) throws IQRFLayerException {
+        logger.debug("sendData - start: iqrfData={}", iqrfData);
+
+        short[] request = iqrfData.getData();
+        if (!DPAMessages.hasHeader(request)) {
+            logger.debug("sendData - end: not DPA request, discarded");
+            return;
+        }
+        if (network == null) {
+            throw new IQRFLayerException("Loopback layer isn't started.", IQRFError.SEND_ERROR);
+        }
+
+        int nadr = DPAMessages.getNadr(request);
+        long now = System.nanoTime();
+        try {
+            synchronized (this) {
+                long start = Math.max(now, networkFreeAt);
+                long answered = start + scale(coordinatorDelay);
+                if (!DPAMessages.expectsConfirmation(nadr)) {
+                    // coordinator or local device
+                    deliver(createResponse(request, DPAMessages.STATUS_NO_ERROR), answered, now);
+                    networkFreeAt = answered;
+                } else if (nadr == DPAMessages.BROADCAST_ADDRESS) {
+                    deliver(createConfirmation(request, maxHops, timeslotLength), answered, now);
+                    networkFreeAt = answered + scale(deliveryTime(maxHops));
+                } else if (nadr > nodeCount) {
+                    deliver(createResponse(request, DPAMessages.ERROR_NADR), answered, now);
+                    networkFreeAt = answered;
+                } else {
+                    int hops = getHops(nadr);
+                    long responded = answered + scale(2 * deliveryTime(hops));
+                    deliver(createConfirmation(request, hops, timeslotLength), answered, now);
+                    deliver(createResponse(request, DPAMessages.STATUS_NO_ERROR), responded, now);
+                    networkFreeAt = responded;
+                }
+            }
+        } catch (RejectedExecutionException ex) {
+            throw new IQRFLayerException(ex, IQRFError.SEND_ERROR);
+        }
+
+        logger.debug("sendData - end");
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        logger.debug("destroy - start: ");
+
+        if (network != null) {
+            network.shutdownNow();
+            try {
+                network.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                // restoring interrupt status
+                Thread.currentThread().interrupt();
+                logger.warn("Termination - Loopback Network Layer interrupted");
+            }
+        }
+
+        logger.info("Destroyed");
+        logger.debug("destroy - end");
+    }
+
+    @Override
+    protected int getReceiveQueueSize() {
+        ScheduledThreadPoolExecutor executor = network;
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackIQRFLayer{" + "nodeCount=" + nodeCount + ", maxHops=" + maxHops + ", timeslotLength=" + timeslotLength + ", coordinatorDelay=" + coordinatorDelay + ", timeScale=" + timeScale + '}';
+    }
+}
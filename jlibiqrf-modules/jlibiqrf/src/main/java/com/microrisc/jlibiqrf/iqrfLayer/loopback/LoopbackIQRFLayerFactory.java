@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.loopback;
+
+import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayerFactory;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+
+/**
+ * Factory for creation of in-memory loopback iqrf layers.
+ *
+ * @author Martin Strouhal
+ */
+public final class LoopbackIQRFLayerFactory extends AbstractIQRFLayerFactory<LoopbackConfiguration, LoopbackIQRFLayer> {
+
+    @Override
+    public LoopbackIQRFLayer getIQRFLayer(LoopbackConfiguration config)
+            throws IQRFLayerException {
+        return new LoopbackIQRFLayer(config.getNodeCount(), config.getMaxHops(),
+                config.getTimeslotLength(), config.getCoordinatorDelay(),
+                config.getTimeScale());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.replay;
+
+import com.microrisc.jlibiqrf.configuration.IQRFCommunicationType;
+import com.microrisc.jlibiqrf.configuration.IQRFConfiguration;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Encapsulates configuration of {@link ReplayIQRFLayer}.
+ *
+ * @author Martin Strouhal
+ */
+@XmlRootElement(name = "replayConfiguration")
+public class ReplayConfiguration extends IQRFConfiguration {
+
+    /** Type specifying {@link ReplayConfiguration}. */
+    public static final IQRFCommunicationType type = IQRFCommunicationType.REPLAY;
+
+    /** Path of capture file to replay. */
+    @XmlElement
+    private final String file;
+    /** Speed of replay. */
+    @XmlElement
+    private final ReplaySpeed speed;
+    /** Factor dividing delays between frames, used by
+     * {@link ReplaySpeed#SCALED}. */
+    @XmlElement
+    private final double speedFactor;
+    /** Replay of capture is repeated from beginning after its end. */
+    @XmlElement
+    private final boolean repeat;
+    /** Delay [in ms] between start of layer and replay of the first frame,
+     * so that listeners can be registered. */
+    @XmlElement
+    private final long startDelay;
+
+    /**
+     * Creates {@link ReplayConfiguration} replaying capture once at original
+     * speed.
+     *
+     * @param file path of capture file
+     */
+    public ReplayConfiguration(String file) {
+        this(file, ReplaySpeed.ORIGINAL, 1, false, ReplayIQRFLayer.START_DELAY_DEFAULT);
+    }
+
+    /**
+     * Creates {@link ReplayConfiguration} with specified parameters.
+     *
+     * @param file path of capture file
+     * @param speed speed of replay
+     * @param speedFactor factor dividing delays between frames,
+     * {@link ReplayConfiguration#speedFactor}
+     * @param repeat if the replay is repeated,
+     * {@link ReplayConfiguration#repeat}
+     * @param startDelay delay before the first frame,
+     * {@link ReplayConfiguration#startDelay}
+     */
+    public ReplayConfiguration(String file, ReplaySpeed speed, double speedFactor,
+            boolean repeat, long startDelay) {
+        super(type);
+        this.file = file;
+        this.speed = speed;
+        this.speedFactor = speedFactor;
+        this.repeat = repeat;
+        this.startDelay = startDelay;
+    }
+
+    /** Only for purpose of JAXB. */
+    private ReplayConfiguration() {
+        super(type);
+        file = null;
+        speed = ReplaySpeed.ORIGINAL;
+        speedFactor = 1;
+        repeat = false;
+        startDelay = ReplayIQRFLayer.START_DELAY_DEFAULT;
+    }
+
+    /**
+     * Returns {@link ReplayConfiguration#file}.
+     *
+     * @return path of capture file
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Returns {@link ReplayConfiguration#speed}.
+     *
+     * @return speed of replay
+     */
+    public ReplaySpeed getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Returns {@link ReplayConfiguration#speedFactor}.
+     *
+     * @return speed factor
+     */
+    public double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    /**
+     * Returns {@link ReplayConfiguration#repeat}.
+     *
+     * @return {@code true} if the replay is repeated
+     */
+    public boolean isRepeat() {
+        return repeat;
+    }
+
+    /**
+     * Returns {@link ReplayConfiguration#startDelay}.
+     *
+     * @return delay [in ms]
+     */
+    public long getStartDelay() {
+        return startDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayConfiguration{" + "file=" + file + ", speed=" + speed + ", speedFactor=" + speedFactor + ", repeat=" + repeat + ", startDelay=" + startDelay + '}';
+    }
+}
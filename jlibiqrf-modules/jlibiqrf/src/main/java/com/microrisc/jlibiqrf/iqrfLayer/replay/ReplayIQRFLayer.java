@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.replay;
+
+import com.microrisc.jlibiqrf.capture.CaptureDirection;
+import com.microrisc.jlibiqrf.capture.CaptureReader;
+import com.microrisc.jlibiqrf.capture.CaptureRecord;
+import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
+import com.microrisc.jlibiqrf.types.IQRFData;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements network layer replaying traffic captured by
+ * {@link com.microrisc.jlibiqrf.capture.CaptureWriter}.
+ * <p>
+ * Received frames from capture file are passed to listeners with timing
+ * given by {@link ReplaySpeed}, sent frames of the capture are skipped. Data
+ * sent into this layer are only discarded. So the layer can stand in for
+ * real device while reproducing of problems or benchmarking against real
+ * traffic.
+ *
+ * @author Martin Strouhal
+ */
+public final class ReplayIQRFLayer extends AbstractIQRFLayer {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ReplayIQRFLayer.class);
+
+    /** Default delay [in ms] between start of layer and replay of the first
+     * frame, so that listeners can be registered after start. */
+    public static final long START_DELAY_DEFAULT = 1000;
+
+    /** Capture file. */
+    private final File file;
+
+    /** Speed of replay. */
+    private final ReplaySpeed speed;
+
+    /** Factor dividing delays between frames. */
+    private final double speedFactor;
+
+    /** Replay of capture is repeated from beginning after its end. */
+    private final boolean repeat;
+
+    /** Delay [in ms] between start of layer and replay of the first frame. */
+    private final long startDelay;
+
+    /** Reader of capture file. */
+    private CaptureReader reader = null;
+
+    /** Player thread. */
+    private Thread player = null;
+
+    /**
+     * Passing of captured frames to listeners.
+     */
+    private class Player extends Thread {
+
+        Player() {
+            super("ReplayIQRFLayer-player");
+        }
+
+        // waits until time of record relative to start of replay
+        private void waitFor(long startNanos, long recordTime) throws InterruptedException {
+            if (speed == ReplaySpeed.MAXIMUM) {
+                return;
+            }
+            double factor = speed == ReplaySpeed.SCALED ? speedFactor : 1;
+            long deadline = startNanos + (long) (recordTime / factor);
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+        }
+
+        // replays capture once, returns count of replayed frames
+        private long replay() throws IOException, InterruptedException {
+            long count = 0;
+            long startNanos = System.nanoTime();
+            long firstTime = -1;
+            CaptureRecord record;
+            while ((record = reader.next()) != null) {
+                if (record.getDirection() != CaptureDirection.RECEIVED) {
+                    continue;
+                }
+                if (firstTime < 0) {
+                    firstTime = record.getTime();
+                }
+                waitFor(startNanos, record.getTime() - firstTime);
+                dispatchData(record.getBuffer());
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(startDelay);
+                while (true) {
+                    long count = replay();
+                    logger.info("Replay of {} finished, frames: {}", file, count);
+                    // empty capture would be repeated without any waiting
+                    if (!repeat || count == 0) {
+                        return;
+                    }
+                    reader.rewind();
+                }
+            } catch (InterruptedException ex) {
+                logger.info("Player thread interrupted");
+            } catch (IOException ex) {
+                logger.error("Error while reading capture", ex);
+                getMetrics().recordError(IQRFError.RECEIVE_ERROR);
+            }
+        }
+    }
+
+    private static File checkFile(String file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        if (file.equals("")) {
+            throw new IllegalArgumentException("File cannot be empty string");
+        }
+        return new File(file);
+    }
+
+    private static ReplaySpeed checkSpeed(ReplaySpeed speed) {
+        if (speed == null) {
+            throw new IllegalArgumentException("Speed cannot be null");
+        }
+        return speed;
+    }
+
+    private static long checkStartDelay(long startDelay) {
+        if (startDelay < 0) {
+            throw new IllegalArgumentException("Start delay cannot be negative");
+        }
+        return startDelay;
+    }
+
+    private static double checkSpeedFactor(double speedFactor) {
+        if (!(speedFactor > 0) || Double.isInfinite(speedFactor)) {
+            throw new IllegalArgumentException("Speed factor must be positive number");
+        }
+        return speedFactor;
+    }
+
+    /**
+     * Creates replay network layer object.
+     *
+     * @param file path of capture file
+     * @param speed speed of replay
+     * @param speedFactor factor dividing delays between frames, used by
+     * {@link ReplaySpeed#SCALED}
+     * @param repeat if replay of capture is repeated from beginning after its
+     * end
+     * @param startDelay delay [in ms] between start of layer and replay of
+     * the first frame
+     */
+    public ReplayIQRFLayer(String file, ReplaySpeed speed, double speedFactor,
+            boolean repeat, long startDelay) {
+        this.file = checkFile(file);
+        this.speed = checkSpeed(speed);
+        this.speedFactor = checkSpeedFactor(speedFactor);
+        this.repeat = repeat;
+        this.startDelay = checkStartDelay(startDelay);
+    }
+
+    @Override
+    public void startIQRFLayer() throws IQRFLayerException {
+        logger.debug("startIQRFLayer - start:");
+
+        try {
+            reader = new CaptureReader(file);
+        } catch (IOException ex) {
+            throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+        }
+
+        player = new Player();
+        player.start();
+
+        logger.info("Replay of {} started", file);
+        logger.debug("startIQRFLayer - end");
+    }
+
+    @Override
+    public void sendData(IQRFData iqrfData) throws IQRFLayerException {
+        logger.debug("sendData - start: iqrfData={}", iqrfData);
+        // there is no device, data are discarded
+        logger.debug("sendData - end");
+    }
+
+    // terminates player thread
+    private void terminateThreads() {
+        logger.debug("terminateThreads - start:");
+
+        player.interrupt();
+
+        // Waiting for thread to terminate. Cancelling worker thread has higher
+        // priority than main thread interruption.
+        while (player.isAlive()) {
+            try {
+                player.join();
+            } catch (InterruptedException e) {
+                // restoring interrupt status
+                Thread.currentThread().interrupt();
+                logger.warn("Termination - Replay Network Layer interrupted");
+            }
+        }
+
+        logger.info("Replay Network Layer stopped.");
+        logger.debug("terminateThreads - end");
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        logger.debug("destroy - start: ");
+
+        if (player != null) {
+            terminateThreads();
+        }
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ex) {
+                logger.error("Error while closing capture", ex);
+            }
+            reader = null;
+        }
+
+        logger.info("Destroyed");
+        logger.debug("destroy - end");
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayIQRFLayer{" + "file=" + file + ", speed=" + speed + ", speedFactor=" + speedFactor + ", repeat=" + repeat + ", startDelay=" + startDelay + ", player=" + player + '}';
+    }
+}
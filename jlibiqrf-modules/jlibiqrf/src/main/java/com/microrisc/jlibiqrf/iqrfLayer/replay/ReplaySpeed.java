@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.replay;
+
+/**
+ * Speed of replay of captured traffic by {@link ReplayIQRFLayer}.
+ *
+ * @author Martin Strouhal
+ */
+public enum ReplaySpeed {
+
+    /** Frames are passed with original delays between them. */
+    ORIGINAL,
+    /** Original delays are divided by speed factor. */
+    SCALED,
+    /** Frames are passed one after another without any delay. */
+    MAXIMUM;
+}
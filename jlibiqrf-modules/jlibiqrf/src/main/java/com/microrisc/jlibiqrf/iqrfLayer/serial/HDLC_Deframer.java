@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.serial;
+
+/**
+ * Incremental deframer of HDLC-like frames used by IQRF UART interface.
+ * <p>
+ * Frame is delimited by flag byte {@code 0x7E}, bytes {@code 0x7E} and
+ * {@code 0x7D} inside the frame are escaped by {@code 0x7D} followed by the
+ * byte XORed with {@code 0x20}. The last byte of unescaped frame is CRC-8
+ * (Dallas/Maxim, initial value {@code 0xFF}) of preceding data.
+ * <p>
+ * Bytes are processed one by one as they come, so frames can be split across
+ * any number of {@link #feed(byte[], int, int)} calls. Unescaping and CRC
+ * checking are done on the fly into one reusable buffer, so no memory is
+ * allocated while deframing. Instance isn't thread safe, it's intended to be
+ * owned by one receiving thread.
+ *
+ * @author Martin Strouhal
+ */
+public final class HDLC_Deframer {
+
+    /**
+     * Receiver of deframed frames.
+     */
+    public interface FrameListener {
+
+        /**
+         * Called for each received frame with valid CRC. Content of the buffer
+         * is valid only during this call.
+         *
+         * @param buffer buffer containing data of frame from index {@code 0},
+         * without flags and CRC
+         * @param length length of data
+         */
+        public void onFrame(byte[] buffer, int length);
+
+        /**
+         * Called for each discarded frame.
+         *
+         * @param reason reason of discarding
+         */
+        public void onInvalidFrame(String reason);
+    }
+
+    /** Flag delimiting frames. */
+    public static final int FLAG = 0x7E;
+
+    /** Escape byte. */
+    public static final int ESCAPE = 0x7D;
+
+    /** Value XORed with escaped byte. */
+    public static final int ESCAPE_BIT = 0x20;
+
+    /** Initial value of CRC. */
+    public static final int CRC_INITIAL_VALUE = 0xFF;
+
+    /** Default maximal length of unescaped frame including CRC [in bytes]. */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 512;
+
+    /** Reflected polynomial x^8 + x^5 + x^4 + 1. */
+    private static final int CRC_POLYNOMIAL = 0x8C;
+
+    private static final int[] CRC_TABLE = createCRCTable();
+
+    private static final String CRC_MISMATCH = "CRC mismatch";
+    private static final String FRAME_TOO_LONG = "Frame is too long";
+    private static final String FRAME_TOO_SHORT = "Frame is too short";
+    private static final String INVALID_ESCAPE = "Escape byte before flag";
+
+    private static int[] createCRCTable() {
+        int[] table = new int[256];
+        for (int value = 0; value < table.length; value++) {
+            int crc = value;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x01) != 0 ? (crc >>> 1) ^ CRC_POLYNOMIAL : crc >>> 1;
+            }
+            table[value] = crc;
+        }
+        return table;
+    }
+
+    /**
+     * Updates CRC-8 with specified byte.
+     *
+     * @param crc actual value of CRC, {@link #CRC_INITIAL_VALUE} at start
+     * @param value byte to add
+     * @return updated CRC
+     */
+    public static int updateCRC(int crc, int value) {
+        return CRC_TABLE[(crc ^ value) & 0xFF];
+    }
+
+    private final FrameListener listener;
+    private final byte[] buffer;
+
+    // state of deframing
+    private boolean inFrame = false;
+    private boolean escaped = false;
+    private boolean overflowed = false;
+    private int length = 0;
+    private int crc = CRC_INITIAL_VALUE;
+
+    /**
+     * Creates deframer with {@link #DEFAULT_MAX_FRAME_SIZE}.
+     *
+     * @param listener receiver of frames
+     */
+    public HDLC_Deframer(FrameListener listener) {
+        this(listener, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Creates deframer.
+     *
+     * @param listener receiver of frames
+     * @param maxFrameSize maximal length of unescaped frame including CRC,
+     * longer frames are discarded
+     */
+    public HDLC_Deframer(FrameListener listener, int maxFrameSize) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        if (maxFrameSize < 2) {
+            throw new IllegalArgumentException("Maximal frame size must be at least 2");
+        }
+        this.listener = listener;
+        this.buffer = new byte[maxFrameSize];
+    }
+
+    private void startFrame() {
+        inFrame = true;
+        escaped = false;
+        overflowed = false;
+        length = 0;
+        crc = CRC_INITIAL_VALUE;
+    }
+
+    // called on flag byte, which ends frame
+    private void endFrame() {
+        if (overflowed) {
+            listener.onInvalidFrame(FRAME_TOO_LONG);
+        } else if (escaped) {
+            listener.onInvalidFrame(INVALID_ESCAPE);
+        } else if (length < 2) {
+            listener.onInvalidFrame(FRAME_TOO_SHORT);
+        } else if (crc != 0) {
+            // CRC over data followed by their CRC is zero
+            listener.onInvalidFrame(CRC_MISMATCH);
+        } else {
+            listener.onFrame(buffer, length - 1);
+        }
+    }
+
+    /**
+     * Processes one received byte.
+     *
+     * @param value received byte
+     */
+    public void feed(int value) {
+        value &= 0xFF;
+        if (value == FLAG) {
+            // more flags in row are only delimiters without any frame
+            if (inFrame && (length > 0 || escaped || overflowed)) {
+                endFrame();
+            }
+            startFrame();
+            return;
+        }
+
+        // bytes before the first flag are ignored
+        if (!inFrame || overflowed) {
+            return;
+        }
+
+        if (value == ESCAPE && !escaped) {
+            escaped = true;
+            return;
+        }
+        if (escaped) {
+            value ^= ESCAPE_BIT;
+            escaped = false;
+        }
+
+        if (length == buffer.length) {
+            overflowed = true;
+            return;
+        }
+        buffer[length++] = (byte) value;
+        crc = CRC_TABLE[crc ^ value];
+    }
+
+    /**
+     * Processes received bytes.
+     *
+     * @param data array with received bytes
+     * @param offset index of the first byte in array
+     * @param count count of bytes to process
+     */
+    public void feed(byte[] data, int offset, int count) {
+        int end = offset + count;
+        for (int index = offset; index < end; index++) {
+            feed(data[index]);
+        }
+    }
+
+    /**
+     * Discards partially received frame and waits for next flag.
+     */
+    public void reset() {
+        inFrame = false;
+        escaped = false;
+        overflowed = false;
+        length = 0;
+        crc = CRC_INITIAL_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "HDLC_Deframer{" + "maxFrameSize=" + buffer.length + ", inFrame=" + inFrame
+                + ", length=" + length + '}';
+    }
+}
@@ -16,15 +16,13 @@
 package com.microrisc.jlibiqrf.iqrfLayer.serial;
 
 import com.microrisc.hdlcframing.v2.HDLC_DataTransformer;
-import com.microrisc.hdlcframing.v2.HDLC_FormatException;
 import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import com.microrisc.jlibiqrf.types.IQRFError;
 import com.microrisc.jlibiqrf.types.IQRFLayerException;
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import jssc.SerialPort;
@@ -38,8 +36,9 @@ import org.slf4j.LoggerFactory;
  * Implements network layer using {@code SerialPort} object.
  * <p>
  * This is an user of jssc library and uses {@code SerialPort} object to read
- * and write data. All data comming from Serial interface is transformed from
- * HDLC packets and forwarder to user's registered network listener. All data
+ * and write data. All data comming from Serial interface is deframed from
+ * HDLC frames by {@link HDLC_Deframer} and forwarder to user's registered
+ * network listener. All data
  * designated to underlaying network are transformed to HDLC frames and send via
  * {@code SerialPort.writeBytes} method.
  *
@@ -71,43 +70,27 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
     private final Object threadsSynchro = new Object();
 
     /** Reading data from Serial. */
-    private class SerialReader implements SerialPortEventListener {
+    private class SerialReader implements SerialPortEventListener, HDLC_Deframer.FrameListener {
 
-        // chunk delimiter
-        private static final byte CHUNK_SEPAR = 0x7E;
+        // deframes received bytes, frames can be split across more events
+        private final HDLC_Deframer deframer = new HDLC_Deframer(this);
 
-        // remainder of last data read, which does not comprise a complete chunk
-        byte[] dataRemainder = null;
+        // indicates, whether some frame has been completed in actual event
+        private boolean frameReceived = false;
 
-        // reads data chunk from specified position from specified array
-        private byte[] readDataChunk(int startPos, byte[] arr) {
-            logger.debug("readDataChunk - start: startPos={}, arr={}", startPos, arr);
-            if (arr[startPos] != CHUNK_SEPAR) {
-                throw new IllegalStateException(
-                        "Bad format of input data. It must begin with " + CHUNK_SEPAR + " byte."
-                );
-            }
-
-            ByteArrayOutputStream dataChunk = new ByteArrayOutputStream();
-            for (int pos = startPos; pos < arr.length; pos++) {
-                dataChunk.write(arr[pos] & 0xFF);
-                if (arr[pos] == CHUNK_SEPAR) {
-                    if (pos != startPos) {
-                        break;
-                    }
-                }
-            }
-            logger.debug("readDataChunk - end: " + Arrays.toString(dataChunk.toByteArray()));
-            return dataChunk.toByteArray();
+        @Override
+        public void onFrame(byte[] buffer, int length) {
+            dataFromSerial.add(Arrays.copyOf(buffer, length));
+            frameReceived = true;
         }
 
-        // writes specified data chunk into global storage
-        private void writeDataChunkIntoGlobalStorage(byte[] dataChunk) {
-            synchronized (threadsSynchro) {
-                dataFromSerial.add(dataChunk);
-            }
+        @Override
+        public void onInvalidFrame(String reason) {
+            logger.error("Invalid HDLC frame discarded: {}", reason);
+            getMetrics().recordError(IQRFError.RECEIVE_ERROR);
         }
 
+        @Override
         public void serialEvent(SerialPortEvent event) {
 
             // if the event is not reception of bytes, nothing to do
@@ -121,63 +104,27 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
                 return;
             }
 
-            // local data buffer to store data for this call only
             byte buffer[] = null;
             try {
                 buffer = serialPort.readBytes();
             } catch (SerialPortException ex) {
-                System.out.println("Reading data failed: " + ex);
+                logger.error("Reading data failed: " + ex);
+                getMetrics().recordError(IQRFError.RECEIVE_ERROR);
                 return;
             }
-
-            byte[] allDataArr = null;
-
-            // if there is data remainder, it is needed to add it for processing
-            if (dataRemainder != null) {
-                allDataArr = new byte[dataRemainder.length + buffer.length];
-                System.arraycopy(dataRemainder, 0, allDataArr, 0, dataRemainder.length);
-                System.arraycopy(buffer, 0, allDataArr, dataRemainder.length, buffer.length);
-                dataRemainder = null;
-            } else {
-                allDataArr = new byte[buffer.length];
-                System.arraycopy(buffer, 0, allDataArr, 0, buffer.length);
-            }
-
-            // list of data chunks - each chunk is embraced by CHUNK_SEPAR bytes
-            // with the exception of the last one - it can be without the last CHUNK_SEPAR
-            List<byte[]> dataChunks = new LinkedList<>();
-
-            int chunkPos = 0;
-            while (chunkPos < (allDataArr.length - 1)) {
-                byte[] dataChunk = readDataChunk(chunkPos, allDataArr);
-                dataChunks.add(dataChunk);
-                chunkPos += dataChunk.length;
+            if (buffer == null) {
+                return;
             }
 
-            // write all data chunks into the shared storage, with the exception
-            // of the last one, if it is incomplete
-            boolean lastIsComplete = false;
-            for (int chunkId = 0; chunkId < dataChunks.size(); chunkId++) {
-                byte[] dataChunk = dataChunks.get(chunkId);
-
-                if (chunkId != (dataChunks.size() - 1)) {
-                    writeDataChunkIntoGlobalStorage(dataChunk);
-                } else if (dataChunk[dataChunk.length - 1] == CHUNK_SEPAR) {
-                    writeDataChunkIntoGlobalStorage(dataChunk);
-                    lastIsComplete = true;
-                }
-            }
+            deframer.feed(buffer, 0, buffer.length);
 
-            if (lastIsComplete) {
-                logger.info("New data from serial interface: {}", dataFromSerial.toArray());
+            if (frameReceived) {
+                frameReceived = false;
+                logger.debug("New data from serial interface, queued frames: {}", dataFromSerial.size());
 
                 synchronized (threadsSynchro) {
-                    dataChunks.clear();
                     threadsSynchro.notify();
                 }
-            } else {
-                dataRemainder = dataChunks.get(dataChunks.size() - 1);
-                dataChunks.clear();
             }
         }
     }
@@ -188,7 +135,7 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
     private class ListenerCaller extends Thread {
 
         // already consumed data from Serial
-        private Queue<byte[]> consumedData = new LinkedList<byte[]>();
+        private Queue<byte[]> consumedData = new LinkedList<>();
 
         // indicates, wheather new data are from Serial
         private boolean areDataFromSerial() {
@@ -210,19 +157,6 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
             consumedData.clear();
         }
 
-        /**
-         * Converts specified byte array to its short representations. All
-         * negative values in the byte array will be converted to its positive
-         * counterparts.
-         */
-        private short[] toShortArr(byte[] byteArr) {
-            short[] shortArr = new short[byteArr.length];
-            for (int i = 0; i < byteArr.length; i++) {
-                shortArr[i] = (short) (byteArr[i] & 0xff);
-            }
-            return shortArr;
-        }
-
         @Override
         public void run() {
             while (true) {
@@ -247,30 +181,12 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
                     consumeDataFromSerial();
                 }
 
-                // remove data from queue and put send it to listener
+                // remove data from queue and send it to listener
                 while (!consumedData.isEmpty()) {
-                    short[] packetData = toShortArr(consumedData.poll());
-                    logger.info("Converted data from Serial: {}", packetData);
-
-                    short[] userData = null;
-                    try {
-                        userData = HDLC_DataTransformer.getDataFromFrame(packetData);
-                    } catch (HDLC_FormatException e) {
-                        logger.error("Error while reading data from HDLC format: ", e);
-                        continue;
-                    }
-
-                    if (iqrfListener != null) {
-                        if (userData != null && userData.length != 0
-                                && userData[0] == 126 && userData[userData.length - 1] == 126) {
-                            // cutting for serial delimiter (126)
-                            short[] cutted = new short[userData.length-2];
-                            System.arraycopy(userData, 1, cutted, 0, cutted.length);
-                            iqrfListener.onGetIQRFData(cutted);
-                        }else{
-                            iqrfListener.onGetIQRFData(userData);
-                        }
+                    byte[] userData = consumedData.poll();
 
+                    if (hasListeners()) {
+                        dispatchData(ByteBuffer.wrap(userData));
                     }
                 }
             }
@@ -341,6 +257,9 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
     public void startIQRFLayer() throws IQRFLayerException {
         logger.debug("startIQRFLayer - start:");
 
+        // init queue of data comming from Serial before receiving is started
+        dataFromSerial = new ConcurrentLinkedDeque<>();
+
         serialPort = new SerialPort(portName);
 
         try {
@@ -358,10 +277,6 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
             throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
         }
 
-        // init queue of data comming from Serial
-        //dataFromSerial = new LinkedList<byte[]>();
-        dataFromSerial = new ConcurrentLinkedDeque<>();
-
         // creating and starting threads
         createAndStartThreads();
 
@@ -413,6 +328,12 @@ public final class SerialIQRFLayerJssc extends AbstractIQRFLayer {
         logger.debug("destroy - end");
     }
 
+    @Override
+    protected int getReceiveQueueSize() {
+        Queue<byte[]> queue = dataFromSerial;
+        return queue == null ? 0 : queue.size();
+    }
+
    @Override
    public String toString() {
       return "SerialIQRFLayerJssc{" + "listenerCaller=" + listenerCaller + ", serialPort=" + serialPort + ", portName=" + portName + ", serialBaudrate=" + serialBaudrate + ", dataFromSerial=" + dataFromSerial + ", threadsSynchro=" + threadsSynchro + '}';
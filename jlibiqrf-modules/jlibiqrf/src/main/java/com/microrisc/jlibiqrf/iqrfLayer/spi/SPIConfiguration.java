@@ -35,21 +35,46 @@ public class SPIConfiguration extends IQRFConfiguration {
     /** Name of port on which is processing communication. */
     @XmlElement
     private final String port;
+    /** Interval [in ms] of status polling right after traffic. */
+    @XmlElement
+    private final int minPollingInterval;
+    /** Maximal interval [in ms] of status polling, when there is no traffic. */
+    @XmlElement
+    private final int maxPollingInterval;
 
     /**
-     * Creates {@link SPIConfiguration} with specified parameters.
+     * Creates {@link SPIConfiguration} with specified parameters and default
+     * polling intervals.
      *
      * @param port on which is communication processing
      */
     public SPIConfiguration(String port) {
+        this(port, SPIIQRFLayer.MIN_POLLING_INTERVAL_DEFAULT,
+                SPIIQRFLayer.MAX_POLLING_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * Creates {@link SPIConfiguration} with specified parameters.
+     *
+     * @param port on which is communication processing
+     * @param minPollingInterval interval of polling after traffic,
+     * {@link SPIConfiguration#minPollingInterval}
+     * @param maxPollingInterval interval of polling without traffic,
+     * {@link SPIConfiguration#maxPollingInterval}
+     */
+    public SPIConfiguration(String port, int minPollingInterval, int maxPollingInterval) {
         super(type);
         this.port = port;
+        this.minPollingInterval = minPollingInterval;
+        this.maxPollingInterval = maxPollingInterval;
     }
 
     /** Only for purpose of JAXB. */
     private SPIConfiguration() {
         super(type);
         port = null;
+        minPollingInterval = SPIIQRFLayer.MIN_POLLING_INTERVAL_DEFAULT;
+        maxPollingInterval = SPIIQRFLayer.MAX_POLLING_INTERVAL_DEFAULT;
     }
 
     /**
@@ -61,8 +86,26 @@ public class SPIConfiguration extends IQRFConfiguration {
         return port;
     }
 
+    /**
+     * Returns {@link SPIConfiguration#minPollingInterval}.
+     *
+     * @return interval [in ms]
+     */
+    public int getMinPollingInterval() {
+        return minPollingInterval;
+    }
+
+    /**
+     * Returns {@link SPIConfiguration#maxPollingInterval}.
+     *
+     * @return interval [in ms]
+     */
+    public int getMaxPollingInterval() {
+        return maxPollingInterval;
+    }
+
     @Override
     public String toString() {
-        return "SPIConfiguration{" + "port=" + port + '}';
+        return "SPIConfiguration{" + "port=" + port + ", minPollingInterval=" + minPollingInterval + ", maxPollingInterval=" + maxPollingInterval + '}';
     }
 }
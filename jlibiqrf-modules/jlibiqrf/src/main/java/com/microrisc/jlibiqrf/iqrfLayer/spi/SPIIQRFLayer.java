@@ -15,6 +15,7 @@
  */
 package com.microrisc.jlibiqrf.iqrfLayer.spi;
 
+import com.microrisc.jlibiqrf.async.IQRFFuture;
 import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import com.microrisc.jlibiqrf.types.IQRFError;
@@ -23,8 +24,18 @@ import com.microrisc.rpi.spi.SPI_Exception;
 import com.microrisc.rpi.spi.iqrf.SPI_Master;
 import com.microrisc.rpi.spi.iqrf.SPI_Status;
 import com.microrisc.rpi.spi.iqrf.SimpleSPI_Master;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,26 +73,128 @@ public final class SPIIQRFLayer extends AbstractIQRFLayer {
     /** Synchronization between socket reader thread and listener caller thread. */
     private final Object threadsSynchro = new Object();
 
+    /** Synchronization of waiting between polls of SPI status. */
+    private final Object pollingSynchro = new Object();
+
+    /** Indicates, whether reader has been requested to poll immediately. */
+    private boolean pollingRequested = false;
+
+    /** Default interval [in ms] of status polling right after traffic. */
+    public static final int MIN_POLLING_INTERVAL_DEFAULT = 1;
+
+    /** Default maximal interval [in ms] of status polling without traffic. */
+    public static final int MAX_POLLING_INTERVAL_DEFAULT = 20;
+
+    /** Time [in ms] after traffic, during which status is polled with minimal
+     * interval. Covers waiting for confirmation and response of DPA request. */
+    private static final long TIGHT_POLLING_TIME = 500;
+
+    /** Interval [in ms] of status polling right after traffic. */
+    private final int minPollingInterval;
+
+    /** Maximal interval [in ms] of status polling without traffic. */
+    private final int maxPollingInterval;
+
     /** Default maximal size of received packets [in bytes]. */
     public static int MAX_RECEIVED_PACKET_SIZE = 128;
 
     /** Maximal size of received packets [in bytes]. */
     private int maxRecvPacketSize;
 
-    /** Count of attempts if sending is unsuccessful. */
-    private int MAX_SENDING_ATTEMPT_COUNT = 3;
+    /** Maximal time [in ms] to wait for module to be ready for sending of
+     * data. */
+    private static final long SENDING_TIMEOUT = 5000;
+
+    /** Time [in ms] added to {@link #SENDING_TIMEOUT}, which caller of
+     * blocking sending waits for failing of expired data by sender. */
+    private static final long SENDING_TIMEOUT_MARGIN = 1000;
+
+    /** Delay [in us] before first repeated attempt of sending, if module
+     * isn't ready. Delay is doubled with each next attempt. */
+    private static final long RETRY_INITIAL_DELAY = 250;
+
+    /** Maximal delay [in us] between attempts of sending. */
+    private static final long RETRY_MAX_DELAY = 10000;
+
+    /** Thread sending queued data and retrying unsuccessful attempts. */
+    private volatile ScheduledExecutorService sender = null;
+
+    /** Data waiting for sending, in order of sending. */
+    private final Queue<PendingData> sendQueue = new ConcurrentLinkedQueue<>();
+
+    /** Indicates, whether sending task is scheduled or running. */
+    private final AtomicBoolean sendingScheduled = new AtomicBoolean(false);
+
+    /** Actual delay [in us] before next attempt, used only by sender. */
+    private long retryDelay = RETRY_INITIAL_DELAY;
+
+    /** Data waiting for sending together with its future. */
+    private static final class PendingData {
+
+        private final short[] data;
+        private final IQRFFuture<Void> future = new IQRFFuture<>();
+        private final long deadline;
+
+        PendingData(short[] data, long deadline) {
+            this.data = data;
+            this.deadline = deadline;
+        }
+    }
 
-    /** Timeout between attempts of sending data if previous attempt was
-     * unsuccessful. Timeout is in seconds. */
-    private int UNSUCCESSFUL_SENDING_TIMEOUT = 5;
+    /** Sends queued data, runs in sender thread. */
+    private final Runnable sendingTask = new Runnable() {
+        @Override
+        public void run() {
+            sendQueuedData();
+        }
+    };
 
-    /** Reading data from SPI. */
+    /**
+     * Reading data from SPI.
+     * <p>
+     * Status of module is polled with minimal interval after traffic. If there
+     * is no traffic, interval is doubled after each poll up to maximal
+     * interval. Reader can be woken up anytime by
+     * {@link SPIIQRFLayer#notifyDataReady()}.
+     */
     private class SPIReader extends Thread {
 
+        // time of last traffic [in ns]
+        private long lastTrafficTime = System.nanoTime();
+
+        // actual interval between polls [in ms]
+        private long pollingInterval = minPollingInterval;
+
+        // computes interval of next poll
+        private void updatePollingInterval(boolean traffic) {
+            long now = System.nanoTime();
+            if (traffic) {
+                lastTrafficTime = now;
+            }
+            if (now - lastTrafficTime < TimeUnit.MILLISECONDS.toNanos(TIGHT_POLLING_TIME)) {
+                pollingInterval = minPollingInterval;
+            } else {
+                pollingInterval = Math.min(pollingInterval * 2, maxPollingInterval);
+            }
+        }
+
+        // waits until next poll or until wake up, returns true if woken up
+        private boolean waitForNextPoll() throws InterruptedException {
+            synchronized (pollingSynchro) {
+                if (!pollingRequested) {
+                    pollingSynchro.wait(pollingInterval);
+                }
+                boolean requested = pollingRequested;
+                pollingRequested = false;
+                return requested;
+            }
+        }
+
         @Override
         public void run() {
             short[] buffer = new short[maxRecvPacketSize];
             boolean newDataReceived = false;
+            boolean wokenUp = false;
             int dataLen = 0;
 
             while (true) {
@@ -117,12 +230,17 @@ public final class SPIIQRFLayer extends AbstractIQRFLayer {
                             dataFromSPI.add(buffer);
                             threadsSynchro.notify();
                         }
-                        newDataReceived = false;
                     }
-
-                    Thread.sleep(10);
                 } catch (SPI_Exception ex) {
                     logger.error("Error while receiving SPI interface: ", ex);
+                    getMetrics().recordError(IQRFError.RECEIVE_ERROR);
+                }
+
+                updatePollingInterval(newDataReceived || wokenUp);
+                newDataReceived = false;
+
+                try {
+                    wokenUp = waitForNextPoll();
                 } catch (InterruptedException ex) {
                     logger.warn("SPI reader thread interrupted while sleeping.");
                     return;
@@ -182,9 +300,7 @@ public final class SPIIQRFLayer extends AbstractIQRFLayer {
                 while (!consumedData.isEmpty()) {
                     short[] userData = consumedData.poll();
 
-                    if (iqrfListener != null) {
-                        iqrfListener.onGetIQRFData(userData);
-                    }
+                    dispatchData(userData);
                 }
             }
         }
@@ -243,29 +359,103 @@ public final class SPIIQRFLayer extends AbstractIQRFLayer {
         return portName;
     }
 
+    private static SPI_Master checkSPIMaster(SPI_Master spiMaster) {
+        if (spiMaster == null) {
+            throw new IllegalArgumentException("SPI master cannot be null");
+        }
+        return spiMaster;
+    }
+
+    private static void checkPollingIntervals(int minPollingInterval, int maxPollingInterval) {
+        if (minPollingInterval <= 0) {
+            throw new IllegalArgumentException("Minimal polling interval must be positive number");
+        }
+        if (maxPollingInterval < minPollingInterval) {
+            throw new IllegalArgumentException(
+                    "Maximal polling interval cannot be less than minimal polling interval");
+        }
+    }
+
     /**
-     * Creates new SPI iqrf layer object.
+     * Creates new SPI iqrf layer object with default polling intervals.
      *
      * @param portName SPI-port name for communication
      */
     public SPIIQRFLayer(String portName) {
+        this(portName, MIN_POLLING_INTERVAL_DEFAULT, MAX_POLLING_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * Creates new SPI iqrf layer object.
+     *
+     * @param portName SPI-port name for communication
+     * @param minPollingInterval interval [in ms] of status polling right
+     * after traffic
+     * @param maxPollingInterval maximal interval [in ms] of status polling
+     * without traffic
+     */
+    public SPIIQRFLayer(String portName, int minPollingInterval, int maxPollingInterval) {
         this.portName = checkPortName(portName);
+        checkPollingIntervals(minPollingInterval, maxPollingInterval);
+        this.minPollingInterval = minPollingInterval;
+        this.maxPollingInterval = maxPollingInterval;
+    }
+
+    /**
+     * Creates new SPI iqrf layer object, which communicates via specified SPI
+     * master. Layer takes ownership of the master and destroys it on
+     * {@link #destroy()}.
+     *
+     * @param spiMaster SPI master used for communication
+     * @param minPollingInterval interval [in ms] of status polling right
+     * after traffic
+     * @param maxPollingInterval maximal interval [in ms] of status polling
+     * without traffic
+     */
+    public SPIIQRFLayer(SPI_Master spiMaster, int minPollingInterval, int maxPollingInterval) {
+        this.spiMaster = checkSPIMaster(spiMaster);
+        checkPollingIntervals(minPollingInterval, maxPollingInterval);
+        this.minPollingInterval = minPollingInterval;
+        this.maxPollingInterval = maxPollingInterval;
+    }
+
+    /**
+     * Notifies layer, that module has data ready, e.g. from GPIO interrupt
+     * handler of the platform. Status of module is polled immediately and with
+     * minimal interval afterwards.
+     */
+    public void notifyDataReady() {
+        synchronized (pollingSynchro) {
+            pollingRequested = true;
+            pollingSynchro.notify();
+        }
     }
 
     @Override
     public void startIQRFLayer() throws IQRFLayerException {
         logger.debug("startIQRFLayer - start:");
 
-        try {
-            // initialization
-            spiMaster = new SimpleSPI_Master(portName);
-        } catch (SPI_Exception ex) {
-            throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+        if (spiMaster == null) {
+            try {
+                // initialization
+                spiMaster = new SimpleSPI_Master(portName);
+            } catch (SPI_Exception ex) {
+                throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+            }
         }
 
         // init queue of data comming from SPI
         dataFromSPI = new LinkedList<>();
 
+        sender = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SPIIQRFLayer-sender");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
         // creating and starting threads
         createAndStartThreads();
 
@@ -273,50 +463,195 @@ public final class SPIIQRFLayer extends AbstractIQRFLayer {
         logger.debug("startIQRFLayer - end");
     }
 
+    // fails queued data, which haven't been sent until their deadline
+    private void failExpiredData(long now) {
+        for (Iterator<PendingData> it = sendQueue.iterator(); it.hasNext();) {
+            PendingData pending = it.next();
+            if (now - pending.deadline >= 0) {
+                it.remove();
+                pending.future.fail(new IQRFLayerException("Module hasn't been in "
+                        + "READY_COMM_MODE within " + SENDING_TIMEOUT + " ms.",
+                        IQRFError.SEND_ERROR));
+            }
+        }
+    }
+
+    /**
+     * Sends queued data in order while module is ready. If module isn't ready,
+     * next attempt is scheduled with growing delay and sender thread is free
+     * meanwhile.
+     */
+    private void sendQueuedData() {
+        while (true) {
+            PendingData pending = sendQueue.peek();
+            if (pending == null) {
+                retryDelay = RETRY_INITIAL_DELAY;
+                sendingScheduled.set(false);
+                // data could be queued after the check
+                if (sendQueue.isEmpty() || !sendingScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            if (pending.future.isDone()) {
+                // cancelled by user
+                sendQueue.remove(pending);
+                continue;
+            }
+
+            try {
+                if (!sendPendingData(pending)) {
+                    return;
+                }
+            } catch (SPI_Exception | RuntimeException ex) {
+                // data are failed, so the task continues and finally resets
+                // its scheduling, otherwise nothing would be sent anymore
+                if (ex instanceof RuntimeException) {
+                    logger.error("Sending of data to SPI failed: ", ex);
+                }
+                sendQueue.remove(pending);
+                pending.future.fail(new IQRFLayerException(ex, IQRFError.SEND_ERROR));
+            }
+        }
+    }
+
+    /**
+     * Sends specified data, if module is ready, otherwise schedules next
+     * attempt.
+     *
+     * @return {@code true} if data have been sent, {@code false} if next
+     * attempt has been scheduled
+     */
+    private boolean sendPendingData(PendingData pending) throws SPI_Exception {
+        int status;
+        synchronized (spiSynchro) {
+            status = spiMaster.getSlaveStatus().getValue();
+            if (status == SPI_Status.READY_COMM_MODE) {
+                spiMaster.sendData(pending.data);
+            }
+        }
+
+        if (status != SPI_Status.READY_COMM_MODE) {
+            logger.debug("Data not sent to SPI, module is not in READY_COMM_MODE: {}", status);
+            failExpiredData(System.nanoTime());
+            getMetrics().recordSendRetry();
+            sender.schedule(sendingTask, retryDelay, TimeUnit.MICROSECONDS);
+            retryDelay = Math.min(retryDelay * 2, RETRY_MAX_DELAY);
+            return false;
+        }
+
+        logger.info("Data successfully sent to SPI");
+        sendQueue.remove(pending);
+        retryDelay = RETRY_INITIAL_DELAY;
+        // response is expected, module will be polled tightly
+        notifyDataReady();
+        pending.future.complete(null);
+        return true;
+    }
+
+    /**
+     * Queues data for sending and returns immediately. If module isn't in
+     * {@code READY_COMM_MODE}, sending is repeated from sender thread with
+     * delay growing from hundreds of microseconds up to milliseconds. Data are
+     * sent in order of calls. If data couldn't be sent within 5 s, returned
+     * future fails.
+     *
+     * @param iqrfData to send
+     * @return future completed after data has been sent
+     */
+    @Override
+    public IQRFFuture<Void> sendDataAsync(IQRFData iqrfData) {
+        logger.debug("sendDataAsync - start: iqrfData={}", iqrfData);
+
+        ScheduledExecutorService actualSender = sender;
+        if (actualSender == null) {
+            return IQRFFuture.failed(new IQRFLayerException("SPI IQRF layer isn't started.",
+                    IQRFError.SEND_ERROR));
+        }
+
+        PendingData pending = new PendingData(iqrfData.getData(),
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SENDING_TIMEOUT));
+        sendQueue.add(pending);
+        if (sendingScheduled.compareAndSet(false, true)) {
+            try {
+                actualSender.execute(sendingTask);
+            } catch (RejectedExecutionException ex) {
+                sendQueue.remove(pending);
+                pending.future.fail(new IQRFLayerException(ex, IQRFError.SEND_ERROR));
+            }
+        }
+        // layer could be destroyed meanwhile, after its queue has been drained
+        if (sender == null && sendQueue.remove(pending)) {
+            pending.future.fail(new IQRFLayerException("SPI IQRF layer has been destroyed.",
+                    IQRFError.SEND_ERROR));
+        }
+
+        logger.debug("sendDataAsync - end");
+        return pending.future;
+    }
+
+    /**
+     * Sends data and waits until they are sent. Data are sent in the same way
+     * as by {@link #sendDataAsync(IQRFData)}. Waiting is bounded, if data
+     * aren't sent in time, sending is cancelled.
+     *
+     * @param iqrfData to send
+     * @throws IQRFLayerException if data couldn't be sent
+     */
     @Override
     public void sendData(IQRFData iqrfData) throws IQRFLayerException {
         logger.debug("sendData - start: iqrfData={}", iqrfData);
 
+        IQRFFuture<Void> future = sendDataAsync(iqrfData);
         try {
-            logger.info("Data will be sent to SPI...");
-
-            // if attempt count negative, sending was succesful
-            int attemptCount = 0;
-            while (attemptCount < MAX_SENDING_ATTEMPT_COUNT || attemptCount < 0) {
-                synchronized (spiSynchro) {
-                    // getting slave status
-                    SPI_Status spiStatus = spiMaster.getSlaveStatus();
-                    logger.info("Writing thread SPI status: {}", spiStatus.getValue());
-
-                    if (spiStatus.getValue() == SPI_Status.READY_COMM_MODE) {
-                        // sending some data to device
-                        spiMaster.sendData(iqrfData.getData());
-                        logger.info("Data successfully sent to SPI");
-                        break;
-                    } else {
-                        logger.info("Data not sent to SPI, module is not in READY_COMM_MODE.");
-                    }
-                }
-                if (attemptCount < MAX_SENDING_ATTEMPT_COUNT) {
-                    logger.info("Sending will be tried again after {} seconds.", UNSUCCESSFUL_SENDING_TIMEOUT);
-                    try {
-                        Thread.sleep(UNSUCCESSFUL_SENDING_TIMEOUT * 1000);
-                    } catch (InterruptedException ex) {
-                        logger.debug(ex.toString());
-                    }
-                }
+            future.get(SENDING_TIMEOUT + SENDING_TIMEOUT_MARGIN, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(false);
+            throw new IQRFLayerException("Data haven't been sent within "
+                    + SENDING_TIMEOUT + " ms.", IQRFError.SEND_ERROR);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IQRFLayerException) {
+                throw (IQRFLayerException) ex.getCause();
             }
-        } catch (SPI_Exception ex) {
+            throw new IQRFLayerException(ex.getCause(), IQRFError.SEND_ERROR);
+        } catch (InterruptedException ex) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
             throw new IQRFLayerException(ex, IQRFError.SEND_ERROR);
         }
+
         logger.debug("sendData - end");
     }
 
+    // stops sender and fails all data waiting for sending
+    private void terminateSender() {
+        sender.shutdownNow();
+        try {
+            // sending in progress must finish before SPI master is destroyed
+            if (!sender.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Sender thread hasn't terminated in time.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warn("Termination - SPI sender interrupted");
+        }
+        sender = null;
+
+        IQRFLayerException cause = new IQRFLayerException("SPI IQRF layer has been destroyed.",
+                IQRFError.SEND_ERROR);
+        PendingData pending;
+        while ((pending = sendQueue.poll()) != null) {
+            pending.future.fail(cause);
+        }
+    }
+
     @Override
     public void destroy() {
         super.destroy();
         logger.debug("destroy - start: ");
 
+        terminateSender();
         terminateThreads();
         dataFromSPI.clear();
         spiMaster.destroy();
@@ -326,8 +661,15 @@ public final class SPIIQRFLayer extends AbstractIQRFLayer {
         logger.debug("destroy - end");
     }
 
+    @Override
+    protected int getReceiveQueueSize() {
+        synchronized (threadsSynchro) {
+            return dataFromSPI == null ? 0 : dataFromSPI.size();
+        }
+    }
+
    @Override
    public String toString() {
-      return "SPIIQRFLayer{" + "spiReader=" + spiReader + ", listenerCaller=" + listenerCaller + ", spiMaster=" + spiMaster + ", portName=" + portName + ", dataFromSPI=" + dataFromSPI + ", spiSynchro=" + spiSynchro + ", threadsSynchro=" + threadsSynchro + ", maxRecvPacketSize=" + maxRecvPacketSize + ", MAX_SENDING_ATTEMPT_COUNT=" + MAX_SENDING_ATTEMPT_COUNT + ", UNSUCCESSFUL_SENDING_TIMEOUT=" + UNSUCCESSFUL_SENDING_TIMEOUT + '}';
+      return "SPIIQRFLayer{" + "spiReader=" + spiReader + ", listenerCaller=" + listenerCaller + ", spiMaster=" + spiMaster + ", portName=" + portName + ", dataFromSPI=" + dataFromSPI + ", spiSynchro=" + spiSynchro + ", threadsSynchro=" + threadsSynchro + ", maxRecvPacketSize=" + maxRecvPacketSize + ", sendQueue=" + sendQueue.size() + ", minPollingInterval=" + minPollingInterval + ", maxPollingInterval=" + maxPollingInterval + '}';
    }
 }
\ No newline at end of file
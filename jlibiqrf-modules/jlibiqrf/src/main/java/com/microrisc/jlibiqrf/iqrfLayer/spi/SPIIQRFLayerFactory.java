@@ -47,7 +47,9 @@ public class SPIIQRFLayerFactory
             throw new UnsupportedOperationException("Autoconf isn't currently supported.");
         }
 
-        SPIIQRFLayer layer = new SPIIQRFLayer(portName);
+        SPIIQRFLayer layer = new SPIIQRFLayer(portName,
+                spiConfiguration.getMinPollingInterval(),
+                spiConfiguration.getMaxPollingInterval());
         logger.debug("createSPIIQRFLayer - end: " + layer);
         return layer;
     }
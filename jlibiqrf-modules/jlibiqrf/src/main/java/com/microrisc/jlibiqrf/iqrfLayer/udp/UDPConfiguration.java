@@ -50,6 +50,10 @@ public class UDPConfiguration extends IQRFConfiguration {
     /** Reception timeout while receiving, 0 is infinity. */
     @XmlElement
     private final int receptionTimeout;
+    /** Use non-blocking NIO engine ({@link UDPIQRFLayerNio}) instead of
+     * {@link UDPIQRFLayer}. */
+    @XmlElement
+    private final boolean nio;
 
     /**
      * Creates {@link UDPConfiguration} with specified parameters.
@@ -65,6 +69,25 @@ public class UDPConfiguration extends IQRFConfiguration {
      */
     public UDPConfiguration(String localAddress, int localPort, String remoteAddress,
             int remotePort, int maxRecvPacketSize, int receptionTimeout) {
+        this(localAddress, localPort, remoteAddress, remotePort, maxRecvPacketSize,
+                receptionTimeout, false);
+    }
+
+    /**
+     * Creates {@link UDPConfiguration} with specified parameters.
+     *
+     * @param localAddress of device, {@link UDPConfiguration#localAddress}
+     * @param localPort of device, {@link UDPConfiguration#localPort}
+     * @param remoteAddress of IQRF GW, {@link UDPConfiguration#remoteAddress}
+     * @param remotePort of IQRF GW, {@link UDPConfiguration#remotePort}
+     * @param maxRecvPacketSize in one message,
+     * {@link UDPConfiguration#maxRecvPacketSize}
+     * @param receptionTimeout while waiting for receive of data,
+     * {@link UDPConfiguration#receptionTimeout}
+     * @param nio if NIO engine will be used, {@link UDPConfiguration#nio}
+     */
+    public UDPConfiguration(String localAddress, int localPort, String remoteAddress,
+            int remotePort, int maxRecvPacketSize, int receptionTimeout, boolean nio) {
         super(type);
         this.localAddress = localAddress;
         this.localPort = localPort;
@@ -72,6 +95,7 @@ public class UDPConfiguration extends IQRFConfiguration {
         this.remotePort = remotePort;
         this.maxRecvPacketSize = maxRecvPacketSize;
         this.receptionTimeout = receptionTimeout;
+        this.nio = nio;
     }
 
     /**
@@ -92,6 +116,7 @@ public class UDPConfiguration extends IQRFConfiguration {
         this.remotePort = remotePort;
         this.maxRecvPacketSize = UDPIQRFLayer.MAX_RECEIVED_PACKET_SIZE;
         this.receptionTimeout = UDPIQRFLayer.RECEPTION_TIMEOUT_DEFAULT;
+        this.nio = false;
     }
 
     /** Only for purpose of JAXB. */
@@ -99,6 +124,7 @@ public class UDPConfiguration extends IQRFConfiguration {
         super(type);
         localAddress = remoteAddress = null;
         localPort = remotePort = maxRecvPacketSize = receptionTimeout = 0;
+        nio = false;
     }
     
     /**
@@ -149,8 +175,16 @@ public class UDPConfiguration extends IQRFConfiguration {
         return receptionTimeout;
     }
 
+    /**
+     * Returns {@link UDPConfiguration#nio}
+     * @return {@code true} if NIO engine is used
+     */
+    public boolean isNio() {
+        return nio;
+    }
+
    @Override
    public String toString() {
-      return "UDPConfiguration{" + "localAddress=" + localAddress + ", localPort=" + localPort + ", remoteAddress=" + remoteAddress + ", remotePort=" + remotePort + ", maxRecvPacketSize=" + maxRecvPacketSize + ", receptionTimeout=" + receptionTimeout + '}';
+      return "UDPConfiguration{" + "localAddress=" + localAddress + ", localPort=" + localPort + ", remoteAddress=" + remoteAddress + ", remotePort=" + remotePort + ", maxRecvPacketSize=" + maxRecvPacketSize + ", receptionTimeout=" + receptionTimeout + ", nio=" + nio + '}';
    }
 }
\ No newline at end of file
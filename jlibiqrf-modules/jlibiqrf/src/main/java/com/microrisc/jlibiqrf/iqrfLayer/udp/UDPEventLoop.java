@@ -0,0 +1,325 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.udp;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single selector thread serving channels of any number of
+ * {@link UDPIQRFLayerNio} layers.
+ * <p>
+ * Channels are registered, their interest is changed and they are
+ * unregistered only by the selector thread, other threads pass these
+ * operations as tasks via {@link #execute(Runnable)}. So selection is never
+ * blocked by registration and a failure of one channel doesn't affect the
+ * others.
+ *
+ * @author Martin Strouhal
+ */
+public final class UDPEventLoop {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(UDPEventLoop.class);
+
+    /**
+     * Handler of ready operations of registered channel. It's called by
+     * selector thread only.
+     */
+    interface Handler {
+
+        /**
+         * Called, when the channel is readable.
+         *
+         * @throws IOException if reading has failed
+         */
+        void onReadable() throws IOException;
+
+        /**
+         * Called, when the channel is writable.
+         *
+         * @throws IOException if writing has failed
+         */
+        void onWritable() throws IOException;
+    }
+
+    /** Name of selector thread. */
+    private final String name;
+
+    /** Tasks waiting for execution by selector thread. */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** Selector watching all registered channels. */
+    private volatile Selector selector = null;
+
+    /** Selector thread. */
+    private Thread selectorThread = null;
+
+    /** Indicates, that the loop has been closed. */
+    private volatile boolean closed = false;
+
+    // executes all tasks passed by other threads
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                logger.error("Error while executing task", ex);
+            }
+        }
+    }
+
+    /**
+     * Selecting ready operations on registered channels.
+     */
+    private class SelectorThread extends Thread {
+
+        SelectorThread() {
+            super(name);
+        }
+
+        // passes ready operations of the key to its handler
+        private void handle(SelectionKey key) {
+            Handler handler = (Handler) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    handler.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    handler.onWritable();
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.error("Error while communicating via channel of " + handler, ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                if (this.isInterrupted()) {
+                    logger.info("Selector thread interrupted");
+                    return;
+                }
+
+                try {
+                    selector.select();
+                    runTasks();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            handle(key);
+                        }
+                    }
+                } catch (ClosedSelectorException ex) {
+                    logger.info("Selector closed");
+                    return;
+                } catch (IOException ex) {
+                    logger.error("Error while selecting", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates event loop. Selector thread is started by {@link #start()}.
+     *
+     * @param name name of selector thread
+     */
+    public UDPEventLoop(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null");
+        }
+        this.name = name;
+    }
+
+    /**
+     * Opens selector and starts selector thread.
+     *
+     * @throws IOException if selector cannot be opened
+     */
+    public synchronized void start() throws IOException {
+        if (selectorThread != null) {
+            throw new IllegalStateException("Event loop is already started.");
+        }
+        selector = Selector.open();
+        selectorThread = new SelectorThread();
+        selectorThread.start();
+        logger.info("Event loop {} started", name);
+    }
+
+    /**
+     * Indicates, whether the caller is selector thread.
+     *
+     * @return {@code true} if called from selector thread
+     */
+    boolean inEventLoop() {
+        return Thread.currentThread() == selectorThread;
+    }
+
+    /**
+     * Passes task for execution by selector thread and wakes it up.
+     *
+     * @param task to execute
+     */
+    void execute(Runnable task) {
+        Selector actualSelector = selector;
+        if (actualSelector == null) {
+            throw new IllegalStateException("Event loop isn't started.");
+        }
+        tasks.add(task);
+        if (closed) {
+            // selector thread may have already finished, the task mustn't
+            // stay unexecuted
+            runTasks();
+            return;
+        }
+        actualSelector.wakeup();
+    }
+
+    // executes callable by selector thread and waits for its result
+    private <T> T call(Callable<T> callable) throws IOException {
+        if (inEventLoop()) {
+            try {
+                return callable.call();
+            } catch (IOException | RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        FutureTask<T> task = new FutureTask<>(callable);
+        execute(task);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException ex) {
+                    // registration must be finished, so that channel isn't
+                    // served after its layer has been destroyed
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof IOException) {
+                        throw (IOException) ex.getCause();
+                    }
+                    throw new IOException(ex.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Registers channel for reading. Channel must be in non-blocking mode.
+     *
+     * @param channel to register
+     * @param handler handler of ready operations of the channel
+     * @return key of registered channel
+     * @throws IOException if channel cannot be registered
+     */
+    SelectionKey register(final DatagramChannel channel, final Handler handler) throws IOException {
+        return call(new Callable<SelectionKey>() {
+            @Override
+            public SelectionKey call() throws IOException {
+                if (closed) {
+                    throw new IOException("Event loop " + name + " is closed.");
+                }
+                return channel.register(selector, SelectionKey.OP_READ, handler);
+            }
+        });
+    }
+
+    /**
+     * Cancels registration of channel. After return of this method, handler
+     * of the channel isn't called anymore.
+     *
+     * @param key key of registered channel
+     */
+    void unregister(final SelectionKey key) {
+        try {
+            call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    key.cancel();
+                    return null;
+                }
+            });
+        } catch (IOException ex) {
+            logger.error("Error while unregistering channel", ex);
+        }
+    }
+
+    /**
+     * Stops selector thread and closes selector. Channels registered in this
+     * loop aren't served anymore.
+     */
+    public synchronized void close() {
+        logger.debug("close - start:");
+        if (selectorThread == null || closed) {
+            return;
+        }
+
+        closed = true;
+        selectorThread.interrupt();
+        selector.wakeup();
+
+        // Waiting for thread to terminate. Cancelling worker thread has higher
+        // priority than main thread interruption.
+        while (selectorThread.isAlive()) {
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                // restoring interrupt status
+                Thread.currentThread().interrupt();
+                logger.warn("Termination - event loop {} interrupted", name);
+            }
+        }
+
+        // tasks passed after selector thread has finished
+        runTasks();
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            logger.error("Error while closing selector", ex);
+        }
+        logger.info("Event loop {} stopped", name);
+        logger.debug("close - end");
+    }
+
+    @Override
+    public String toString() {
+        return "UDPEventLoop{" + "name=" + name + ", selectorThread=" + selectorThread + '}';
+    }
+}
@@ -17,6 +17,7 @@ package com.microrisc.jlibiqrf.iqrfLayer.udp;
 
 import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
 import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_DataTransformer;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_Frame;
 import com.microrisc.jlibiqrf.types.IQRFData;
 import com.microrisc.jlibiqrf.types.IQRFError;
 import com.microrisc.jlibiqrf.types.IQRFLayerException;
@@ -26,6 +27,7 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Queue;
 import org.slf4j.Logger;
@@ -85,8 +87,8 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
     private int maxRecvPacketSize;
 
 
-    /** Data received from socket. */
-    private Queue<short[]> dataFromSocket = null;
+    /** User data of asynchronous messages received from socket. */
+    private Queue<byte[]> dataFromSocket = null;
 
     /** Synchronization between socket reader thread and listener caller thread. */
     private final Object threadSynchro = new Object();
@@ -97,20 +99,31 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
      */
     private class SocketReader extends Thread {
 
-        // extracts data from specified packet and returns it
-        private short[] extractDataFromSocket(DatagramPacket packet) {
-            byte[] packetData = packet.getData();
-            short[] extractedData = new short[packet.getLength()];
+        // reusable view of received message
+        private final GWETH_Frame frame = new GWETH_Frame();
 
-            for (int item = 0; item < packet.getLength(); item++) {
-                extractedData[item] = (short) (packetData[item] & 0xFF);
+        // validates received message and returns its user data or null, if
+        // the message isn't asynchronous message for user
+        private byte[] extractUserData(ByteBuffer packetBuffer, DatagramPacket packet) {
+            packetBuffer.clear();
+            packetBuffer.limit(packet.getLength());
+            try {
+                frame.wrap(packetBuffer);
+            } catch (IllegalArgumentException e) {
+                logger.error("Error while getting data from message: " + e.getMessage());
+                getMetrics().recordError(IQRFError.RECEIVE_ERROR);
+                return null;
+            }
+            if (!frame.isAsynchronous()) {
+                return null;
             }
-            return extractedData;
+            return frame.getDataBytes();
         }
 
         @Override
         public void run() {
             byte[] buffer = new byte[maxRecvPacketSize];
+            ByteBuffer packetBuffer = ByteBuffer.wrap(buffer);
             DatagramPacket recvPacket = new DatagramPacket(buffer, buffer.length);
             boolean newDataReceived = false;
 
@@ -130,17 +143,20 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
                     logger.trace("Timeout expired");
                 } catch (IOException ex) {
                     logger.error("Error while receiving message from socket", ex);
+                    getMetrics().recordError(IQRFError.RECEIVE_ERROR);
                 }
 
-                // if new data has received, extract it from the packet and 
-                // add it into queue
+                // if new data has received, validate the message and add its 
+                // user data into queue
                 if (newDataReceived) {
-                    short[] extractedData = extractDataFromSocket(recvPacket);
-                    logger.info("New data from socket: {}", extractedData);
+                    byte[] userData = extractUserData(packetBuffer, recvPacket);
+                    logger.debug("New data from socket: {}", frame);
 
-                    synchronized (threadSynchro) {
-                        dataFromSocket.add(extractedData);
-                        threadSynchro.notify();
+                    if (userData != null) {
+                        synchronized (threadSynchro) {
+                            dataFromSocket.add(userData);
+                            threadSynchro.notify();
+                        }
                     }
                 }
 
@@ -163,7 +179,7 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
     private class ListenerCaller extends Thread {
 
         // already consumed data from socket
-        private Queue<short[]> consumedData = new LinkedList<>();
+        private Queue<byte[]> consumedData = new LinkedList<>();
 
         // indicates, wheather new data are in socket
         private boolean areDataInSocket() {
@@ -176,7 +192,7 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
         // consume data from socket and adds them into buffer
         private void consumeDataFromSocket() {
             while (!dataFromSocket.isEmpty()) {
-                short[] packetData = dataFromSocket.poll();
+                byte[] packetData = dataFromSocket.poll();
                 consumedData.add(packetData);
             }
         }
@@ -212,28 +228,8 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
 
                 // remove data from queue and put send it to listener
                 while (!consumedData.isEmpty()) {
-                    short[] packetData = consumedData.poll();
-                    
-                    if (iqrfListener == null) {
-                        continue;
-                    }
-
-                    boolean isAsync = false;
-                    short[] userData = null;
-
-                    try {
-                        isAsync = GWETH_DataTransformer.isAsynchronousMessage(packetData);
-                        if (isAsync) {
-                            userData = GWETH_DataTransformer.getDataFromMessage(packetData);
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error while getting data from message: " + e.getMessage());
-                        continue;
-                    }
-
-                    if (iqrfListener != null && isAsync) {
-                        iqrfListener.onGetIQRFData(userData);
-                    }
+                    byte[] packetData = consumedData.poll();
+                    dispatchData(ByteBuffer.wrap(packetData));
                 }
             }
         }
@@ -388,13 +384,23 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
         logger.debug("sendData - start: IQRFData={}", iqrfData);
 
         // transforms request's data to protocol format defined by GW
-        short[] dataForGW = GWETH_DataTransformer.transformRequestData(iqrfData.getData());
+        send(GWETH_DataTransformer.createRequestMessage(iqrfData.getData()));
 
-        byte[] buf = new byte[dataForGW.length];
-        for (int item = 0; item < dataForGW.length; item++) {
-            buf[item] = (byte) (dataForGW[item] & 0xFF);
-        }
+        logger.debug("sendData - end");
+    }
 
+    @Override
+    public void sendData(ByteBuffer data) throws IQRFLayerException {
+        logger.debug("sendData - start: data={}", data);
+
+        // transforms request's data to protocol format defined by GW
+        send(GWETH_DataTransformer.createRequestMessage(data));
+
+        logger.debug("sendData - end");
+    }
+
+    // sends message for GW to socket
+    private void send(byte[] buf) throws IQRFLayerException {
         try {
             DatagramPacket packet = new DatagramPacket(buf, buf.length, targetAddress, remotePort);
 
@@ -407,8 +413,6 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
             logger.error("Sending data to socket failed: " + ex.getMessage());
             throw new IQRFLayerException(ex, IQRFError.SEND_ERROR);
         }
-
-        logger.debug("sendData - end");
     }
 
     @Override
@@ -424,6 +428,13 @@ public final class UDPIQRFLayer extends AbstractIQRFLayer {
         logger.debug("destroy - end");
     }
 
+    @Override
+    protected int getReceiveQueueSize() {
+        synchronized (threadSynchro) {
+            return dataFromSocket == null ? 0 : dataFromSocket.size();
+        }
+    }
+
    @Override
    public String toString() {
       return "UDPIQRFLayer{" + "localAddress=" + localAddress + ", localPort=" + localPort + ", targetAddress=" + targetAddress + ", remotePort=" + remotePort + ", socket=" + socket + ", socketSynchro=" + socketSynchro + ", receptionTimeout=" + receptionTimeout + ", maxRecvPacketSize=" + maxRecvPacketSize + ", dataFromSocket=" + dataFromSocket + ", threadSynchro=" + threadSynchro + ", socketReader=" + socketReader + ", listenerCaller=" + listenerCaller + '}';
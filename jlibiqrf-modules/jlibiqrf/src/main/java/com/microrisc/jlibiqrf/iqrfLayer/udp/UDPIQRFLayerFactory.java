@@ -15,8 +15,10 @@
  */
 package com.microrisc.jlibiqrf.iqrfLayer.udp;
 
+import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
 import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayerFactory;
 import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.util.concurrent.Executor;
 
 /**
  * Factory for creation of network layers, which are bound to UDP GW-ETH.
@@ -36,14 +38,23 @@ import com.microrisc.jlibiqrf.types.IQRFLayerException;
  * Particular network layer version to create is specified by configuration key:
  * <b>networkLayer.type.udp.version</b>. If no such key is present in
  * configuration properties, version of "01" is assumed.
+ * <p>
+ * If {@link UDPConfiguration#isNio()} is set, non-blocking
+ * {@link UDPIQRFLayerNio} is created instead of {@link UDPIQRFLayer}.
  *
  * @author Michal Konopa
  * @author Martin Strouhal
  */
 // December 2015 - redesigned for JLibIQRF
-public class UDPIQRFLayerFactory extends AbstractIQRFLayerFactory<UDPConfiguration, UDPIQRFLayer> {
+public class UDPIQRFLayerFactory extends AbstractIQRFLayerFactory<UDPConfiguration, AbstractIQRFLayer> {
 
-    private UDPIQRFLayer createClientSingleNetworkLayer(UDPConfiguration config) {
+    private AbstractIQRFLayer createClientSingleNetworkLayer(UDPConfiguration config) {
+        if (config.isNio()) {
+            return new UDPIQRFLayerNio(config.getLocalAddress(), config.getLocalPort(),
+                    config.getRemoteAddress(), config.getRemotePort(),
+                    config.getMaxRecvPacketSize()
+            );
+        }
         return new UDPIQRFLayer(config.getLocalAddress(), config.getLocalPort(),
                 config.getRemoteAddress(), config.getRemotePort(),
                 config.getMaxRecvPacketSize(), config.getReceptionTimeout()
@@ -51,7 +62,33 @@ public class UDPIQRFLayerFactory extends AbstractIQRFLayerFactory<UDPConfigurati
     }
 
     @Override
-    public UDPIQRFLayer getIQRFLayer(UDPConfiguration config) throws IQRFLayerException {
+    public AbstractIQRFLayer getIQRFLayer(UDPConfiguration config) throws IQRFLayerException {
         return createClientSingleNetworkLayer(config);
     }
+
+    /**
+     * Returns non-blocking layer, which shares specified event loop and
+     * dispatch executor with other layers. {@link UDPIQRFLayerNio} is created
+     * regardless of {@link UDPConfiguration#isNio()}, because blocking layer
+     * needs its own threads.
+     *
+     * @param config configuration of layer
+     * @param eventLoop started event loop serving the layer
+     * @param dispatchExecutor executor passing received data to listeners
+     * @return created layer
+     * @throws IQRFLayerException if the layer cannot be created
+     */
+    public AbstractIQRFLayer getIQRFLayer(UDPConfiguration config,
+            UDPEventLoop eventLoop, Executor dispatchExecutor) throws IQRFLayerException {
+        if (eventLoop == null) {
+            throw new IllegalArgumentException("Event loop cannot be null");
+        }
+        if (dispatchExecutor == null) {
+            throw new IllegalArgumentException("Dispatch executor cannot be null");
+        }
+        return new UDPIQRFLayerNio(config.getLocalAddress(), config.getLocalPort(),
+                config.getRemoteAddress(), config.getRemotePort(),
+                config.getMaxRecvPacketSize(), eventLoop, dispatchExecutor
+        );
+    }
 }
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.iqrfLayer.udp;
+
+import com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_DataTransformer;
+import com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_Frame;
+import com.microrisc.jlibiqrf.types.IQRFData;
+import com.microrisc.jlibiqrf.types.IQRFError;
+import com.microrisc.jlibiqrf.types.IQRFLayerException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements network layer built on non-blocking UDP communication via
+ * {@link DatagramChannel} and {@link Selector}. Like {@link UDPIQRFLayer} it
+ * acts as a UDP client specialized to usage with GW-ETH-01 gateway.
+ * <p>
+ * Sending and receiving of data don't share any lock. Data are sent directly
+ * from caller's thread, only if the system buffer is full, they are queued and
+ * sent by selector thread as soon as the channel is writable. Selector thread
+ * is waiting for incoming data without any timeout or fixed sleeping, so
+ * inbound throughput is limited only by listener.
+ * <p>
+ * By default the layer owns its {@link UDPEventLoop} and one listener caller
+ * thread. More layers can share one event loop and one executor for passing
+ * of received data to listeners instead, see
+ * {@link #UDPIQRFLayerNio(String, int, String, int, int, UDPEventLoop, Executor)}.
+ *
+ * @author Martin Strouhal
+ */
+public final class UDPIQRFLayerNio extends AbstractIQRFLayer {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(UDPIQRFLayerNio.class);
+
+    /** Local address to bind. */
+    private final InetSocketAddress localAddress;
+
+    /** Address of GW to which the requests will be sent. */
+    private final InetSocketAddress targetAddress;
+
+    /** Maximal size of received packets [in bytes]. */
+    private final int maxRecvPacketSize;
+
+    /** Channel for communication with GW. */
+    private DatagramChannel channel = null;
+
+    /** Event loop serving the channel. */
+    private final UDPEventLoop eventLoop;
+
+    /** Indicates, that the event loop is owned by this layer. */
+    private final boolean ownEventLoop;
+
+    /** Executor passing received data to listeners, {@code null} if this
+     * layer has its own listener caller thread. */
+    private final Executor dispatchExecutor;
+
+    /** Key of channel registered in selector. */
+    private volatile SelectionKey selectionKey = null;
+
+    /** Data which couldn't be sent immediately. */
+    private final Queue<ByteBuffer> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /** Indicates that selector thread should watch writability of channel. */
+    private final AtomicBoolean writeRequested = new AtomicBoolean(false);
+
+    /** Makes selector thread watch writability of channel. */
+    private final Runnable writeEnabler = new Runnable() {
+        @Override
+        public void run() {
+            writeRequested.set(false);
+            SelectionKey key = selectionKey;
+            if (key != null && key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    };
+
+    /** Synchronization between sending threads only. */
+    private final Object sendSynchro = new Object();
+
+    /** User data of asynchronous messages received from channel. */
+    private final BlockingQueue<byte[]> dataFromSocket = new LinkedBlockingQueue<>();
+
+
+    /** Maximal count of received data passed to listeners by one task of
+     * dispatch executor, so that layers sharing the executor alternate. */
+    private static final int DISPATCH_BATCH_SIZE = 64;
+
+    /** Indicates that dispatch task is submitted to dispatch executor. */
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+
+    /**
+     * Handling ready operations on channel - receives incoming data and sends
+     * queued data. It's called by selector thread of event loop.
+     */
+    private class ChannelHandler implements UDPEventLoop.Handler {
+
+        // reusable buffer for received datagrams
+        private final ByteBuffer recvBuffer = ByteBuffer.allocateDirect(maxRecvPacketSize);
+
+        // reusable view of received message
+        private final GWETH_Frame frame = new GWETH_Frame();
+
+        // validates received message and returns its user data or null, if
+        // the message isn't asynchronous message for user
+        private byte[] extractUserData(ByteBuffer buffer) {
+            try {
+                frame.wrap(buffer);
+            } catch (IllegalArgumentException e) {
+                logger.error("Error while getting data from message: " + e.getMessage());
+                getMetrics().recordError(IQRFError.RECEIVE_ERROR);
+                return null;
+            }
+            if (!frame.isAsynchronous()) {
+                return null;
+            }
+            return frame.getDataBytes();
+        }
+
+        // reads all datagrams which are actually available
+        @Override
+        public void onReadable() throws IOException {
+            boolean received = false;
+            while (true) {
+                recvBuffer.clear();
+                SocketAddress sender = channel.receive(recvBuffer);
+                if (sender == null) {
+                    break;
+                }
+                recvBuffer.flip();
+                byte[] userData = extractUserData(recvBuffer);
+                logger.debug("New data from channel: {}", frame);
+                if (userData != null) {
+                    dataFromSocket.add(userData);
+                    received = true;
+                }
+            }
+            if (received && dispatchExecutor != null) {
+                scheduleDispatch();
+            }
+        }
+
+        // sends queued data until the channel accepts them
+        @Override
+        public void onWritable() throws IOException {
+            synchronized (sendSynchro) {
+                ByteBuffer buffer;
+                while ((buffer = pendingWrites.peek()) != null) {
+                    if (channel.send(buffer, targetAddress) == 0) {
+                        return;
+                    }
+                    pendingWrites.poll();
+                }
+                selectionKey.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return UDPIQRFLayerNio.this.toString();
+        }
+    }
+
+    /**
+     * Passing of received data to listeners in dispatch executor. Only one
+     * task of this layer is running at a time, so order of data is kept.
+     */
+    private final Runnable dispatcher = new Runnable() {
+        @Override
+        public void run() {
+            for (int count = 0; count < DISPATCH_BATCH_SIZE; count++) {
+                byte[] userData = dataFromSocket.poll();
+                if (userData == null) {
+                    break;
+                }
+                dispatchData(ByteBuffer.wrap(userData));
+            }
+            dispatchScheduled.set(false);
+            // data received during dispatching or remaining after the batch
+            if (!dataFromSocket.isEmpty()) {
+                scheduleDispatch();
+            }
+        }
+    };
+
+    // submits dispatch task, if it isn't submitted yet
+    private void scheduleDispatch() {
+        if (!dispatchScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatchExecutor.execute(dispatcher);
+        } catch (RejectedExecutionException ex) {
+            dispatchScheduled.set(false);
+            logger.error("Received data cannot be dispatched: " + ex.getMessage());
+            getMetrics().recordError(IQRFError.RECEIVE_ERROR);
+        }
+    }
+
+    /**
+     * Calling listener callback method - when new data has arrived from
+     * channel.
+     */
+    private class ListenerCaller extends Thread {
+
+        ListenerCaller() {
+            super("UDPIQRFLayerNio-listener");
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                byte[] userData;
+                try {
+                    userData = dataFromSocket.take();
+                } catch (InterruptedException ex) {
+                    logger.info("Listener caller thread interrupted");
+                    return;
+                }
+
+                dispatchData(ByteBuffer.wrap(userData));
+            }
+        }
+    }
+
+
+    // listener caller thread, null if dispatch executor is used
+    private Thread listenerCaller = null;
+
+    // creates and starts threads
+    private void createAndStartThreads() {
+        if (dispatchExecutor == null) {
+            listenerCaller = new ListenerCaller();
+            listenerCaller.start();
+        }
+    }
+
+    // unregisters channel from event loop and terminates own threads
+    private void terminateThreads() {
+        logger.debug("terminateThreads - start:");
+
+        if (selectionKey != null) {
+            eventLoop.unregister(selectionKey);
+        }
+        if (ownEventLoop) {
+            eventLoop.close();
+        }
+        if (listenerCaller == null) {
+            logger.debug("terminateThreads - end: no own listener caller");
+            return;
+        }
+        listenerCaller.interrupt();
+
+        // Waiting for threads to terminate. Cancelling worker threads has higher
+        // priority than main thread interruption.
+        while (listenerCaller.isAlive()) {
+            try {
+                listenerCaller.join();
+            } catch (InterruptedException e) {
+                // restoring interrupt status
+                Thread.currentThread().interrupt();
+                logger.warn("Termination - UDP NIO Network Layer interrupted");
+            }
+        }
+
+        logger.info("UDP NIO Network Layer stopped.");
+        logger.debug("terminateThreads - end");
+    }
+
+    private static int checkMaxRecvPacketSize(int maxRecvPacketSize) {
+        if (maxRecvPacketSize <= 0) {
+            throw new IllegalArgumentException("Maximal size of received packet "
+                    + "cannot be less then or equal to 0");
+        }
+        return maxRecvPacketSize;
+    }
+
+    /**
+     * Creates new non-blocking UDP client network layer object.
+     *
+     * @param localHostName local host name, or {@code null} for the loopback
+     * address
+     * @param localPort local port number
+     * @param remoteHostName remote host name
+     * @param remotePort remote port number
+     * @param maxRecvPacketSize maximal size of received packets [in bytes].
+     */
+    public UDPIQRFLayerNio(
+            String localHostName,
+            int localPort,
+            String remoteHostName,
+            int remotePort,
+            int maxRecvPacketSize
+    ) {
+        this(localHostName, localPort, remoteHostName, remotePort,
+                maxRecvPacketSize, null, null);
+    }
+
+    /**
+     * Creates new non-blocking UDP client network layer object, which shares
+     * event loop and dispatching of received data with other layers.
+     *
+     * @param localHostName local host name, or {@code null} for the loopback
+     * address
+     * @param localPort local port number
+     * @param remoteHostName remote host name
+     * @param remotePort remote port number
+     * @param maxRecvPacketSize maximal size of received packets [in bytes].
+     * @param eventLoop started event loop serving the channel, or {@code null}
+     * for own event loop
+     * @param dispatchExecutor executor passing received data to listeners, or
+     * {@code null} for own listener caller thread
+     */
+    public UDPIQRFLayerNio(
+            String localHostName,
+            int localPort,
+            String remoteHostName,
+            int remotePort,
+            int maxRecvPacketSize,
+            UDPEventLoop eventLoop,
+            Executor dispatchExecutor
+    ) {
+        try {
+            this.localAddress = new InetSocketAddress(InetAddress.getByName(localHostName), localPort);
+        } catch (UnknownHostException ex) {
+            throw new IllegalArgumentException("Hostname not valid: " + ex.getMessage());
+        }
+
+        try {
+            this.targetAddress = new InetSocketAddress(InetAddress.getByName(remoteHostName), remotePort);
+        } catch (UnknownHostException ex) {
+            throw new IllegalArgumentException("Target name not valid: " + ex.getMessage());
+        }
+
+        this.maxRecvPacketSize = checkMaxRecvPacketSize(maxRecvPacketSize);
+        this.ownEventLoop = eventLoop == null;
+        this.eventLoop = ownEventLoop ? new UDPEventLoop("UDPIQRFLayerNio-selector") : eventLoop;
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    /**
+     * Creates new non-blocking UDP client network layer object. Maximal
+     * received packet size is limited to
+     * {@code UDPIQRFLayer.MAX_RECEIVED_PACKET_SIZE}.
+     *
+     * @param localHostName local host name, or {@code null} for the loopback
+     * address
+     * @param localPort local port number
+     * @param remoteHostName remote host name
+     * @param remotePort remote port number
+     */
+    public UDPIQRFLayerNio(
+            String localHostName,
+            int localPort,
+            String remoteHostName,
+            int remotePort
+    ) {
+        this(localHostName, localPort, remoteHostName, remotePort,
+                UDPIQRFLayer.MAX_RECEIVED_PACKET_SIZE);
+    }
+
+    @Override
+    public void startIQRFLayer() throws IQRFLayerException {
+        logger.debug("startIQRFLayer - start:");
+
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().bind(localAddress);
+            if (ownEventLoop) {
+                eventLoop.start();
+            }
+            selectionKey = eventLoop.register(channel, new ChannelHandler());
+        } catch (IOException ex) {
+            throw new IQRFLayerException(ex, IQRFError.INIT_ERROR);
+        }
+
+        // creating and starting threads
+        createAndStartThreads();
+
+        logger.info("IQRF UDP NIO layer started");
+        logger.debug("startIQRFLayer - end");
+    }
+
+    @Override
+    public void sendData(IQRFData iqrfData) throws IQRFLayerException {
+        logger.debug("sendData - start: IQRFData={}", iqrfData);
+
+        // transforms request's data to protocol format defined by GW
+        send(ByteBuffer.wrap(GWETH_DataTransformer.createRequestMessage(iqrfData.getData())));
+    }
+
+    @Override
+    public void sendData(ByteBuffer data) throws IQRFLayerException {
+        logger.debug("sendData - start: data={}", data);
+
+        // transforms request's data to protocol format defined by GW
+        send(ByteBuffer.wrap(GWETH_DataTransformer.createRequestMessage(data)));
+    }
+
+    // sends message for GW to channel or queues it, if the channel is full
+    private void send(ByteBuffer buffer) throws IQRFLayerException {
+        try {
+            synchronized (sendSynchro) {
+                // keeping order - if something is waiting, data must wait too
+                if (pendingWrites.isEmpty() && channel.send(buffer, targetAddress) != 0) {
+                    logger.debug("sendData - end: sent");
+                    return;
+                }
+                pendingWrites.add(buffer);
+            }
+        } catch (IOException ex) {
+            logger.error("Sending data to channel failed: " + ex.getMessage());
+            throw new IQRFLayerException(ex, IQRFError.SEND_ERROR);
+        }
+
+        // channel is full, selector thread will send data later
+        if (!writeRequested.getAndSet(true)) {
+            eventLoop.execute(writeEnabler);
+        }
+        logger.debug("sendData - end: queued");
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        logger.debug("destroy - start: ");
+
+        terminateThreads();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            logger.error("Error while closing channel", ex);
+        }
+        dataFromSocket.clear();
+        pendingWrites.clear();
+
+        logger.info("Destroyed");
+        logger.debug("destroy - end");
+    }
+
+    @Override
+    protected int getReceiveQueueSize() {
+        return dataFromSocket.size();
+    }
+
+    @Override
+    public String toString() {
+        return "UDPIQRFLayerNio{" + "localAddress=" + localAddress + ", targetAddress=" + targetAddress + ", maxRecvPacketSize=" + maxRecvPacketSize + ", channel=" + channel + ", pendingWrites=" + pendingWrites.size() + ", dataFromSocket=" + dataFromSocket.size() + ", eventLoop=" + eventLoop + ", listenerCaller=" + listenerCaller + '}';
+    }
+}
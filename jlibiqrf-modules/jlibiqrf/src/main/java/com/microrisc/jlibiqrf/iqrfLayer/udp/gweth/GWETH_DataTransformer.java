@@ -16,13 +16,13 @@
 
 package com.microrisc.jlibiqrf.iqrfLayer.udp.gweth;
 
+import java.nio.ByteBuffer;
+
 /**
  * Transformation of Simply data to and from GW-ETH-01 protocol. 
  * <p>
- * CRC computation was adopted from 
- * <a href="http://introcs.cs.princeton.edu/java/51data/CRC16CCITT.java.html">
- * http://introcs.cs.princeton.edu/java/51data/CRC16CCITT.java.html</a>
- * site.
+ * CRC is CRC-16-CCITT with initial value 0x0000, computed by table lookup. It
+ * can be computed incrementally via {@code updateCRC} methods.
  * 
  * @author Michal Konopa
  * @author Martin Strouhal
@@ -30,25 +30,25 @@ package com.microrisc.jlibiqrf.iqrfLayer.udp.gweth;
 // December 2015 - redesigned for JLibIQRF
 public class GWETH_DataTransformer {
     /** Size of CRC part. */
-    private static final int CRC_SIZE = 2;
+    static final int CRC_SIZE = 2;
     
     /** Size of header part. */
-    private static final int HEADER_SIZE = 9;
+    static final int HEADER_SIZE = 9;
     
-    private static final int GW_ADR_POS = 0;
-    private static final int GW_ADR_VALUE = 0x22;
+    static final int GW_ADR_POS = 0;
+    static final int GW_ADR_VALUE = 0x22;
     
-    private static final int CMD_POS = 1;
+    static final int CMD_POS = 1;
     private static final int CMD_WRITE_VALUE = 0x03;
-    private static final int CMD_ASYNC_VALUE = 0x04;
-    private static final int CMD_ANSWER_INDICATION = 0x80;
+    static final int CMD_ASYNC_VALUE = 0x04;
+    static final int CMD_ANSWER_INDICATION = 0x80;
     
-    private static final int SUBCMD_POS = 2;
+    static final int SUBCMD_POS = 2;
     private static final int SUBCMD_WRITE_VALUE = 0;
-    private static final int SUBCMD_ASYNC_VALUE = 0;
+    static final int SUBCMD_ASYNC_VALUE = 0;
     
-    private static final int DLEN_H_POS = 7;
-    private static final int DLEN_L_POS = 8;
+    static final int DLEN_H_POS = 7;
+    static final int DLEN_L_POS = 8;
     
     
     /** Maximal length of DATA part. */
@@ -96,10 +96,8 @@ public class GWETH_DataTransformer {
     private static void checkMessageCRC(short[] messageFromGW) {
         int crc = getCRCField(messageFromGW);
 
-        int crcCalculated = calculateCRC_microrisc(messageFromGW, 0, 
+        int crcCompare = calculateCRC(messageFromGW, 0, 
                 HEADER_SIZE + getDataSizeField(messageFromGW));
-        //only short part
-        int crcCompare = crcCalculated & 0xFFFF;
 
         if ( crc != crcCompare ) {
             throw new IllegalArgumentException("CRC mismatch. CRC sent, received: " + crc + ", "
@@ -135,77 +133,88 @@ public class GWETH_DataTransformer {
         }
     }
     
-    /** 
-     * Calculates CRC on specified data.
-     * Taken from other {@link http://introcs.cs.princeton.edu/java/51data/CRC16CCITT.java.html} site.
-     */
-    private static int calculateCRC(short[] data, int firstIndex, int byteCount) {
-        int crc = 0xFFFF;          // initial value
-        int polynomial = 0x1021;   // 0001 0000 0010 0001  (0, 5, 12) 
-
-        for (int index = firstIndex; index < (firstIndex + byteCount); index++) {
-            short b = data[index];
-            for (int i = 0; i < 8; i++) {
-                boolean bit = ((b   >> (7-i) & 1) == 1);
-                boolean c15 = ((crc >> 15    & 1) == 1);
-                crc <<= 1;
-                if (c15 ^ bit) {
-                    crc ^= polynomial;
+    /** CRC-16 polynomial x^16 + x^12 + x^5 + 1. */
+    private static final int CRC_POLYNOMIAL = 0x1021;
+    
+    /** Precomputed CRC of each byte value. */
+    private static final int[] CRC_TABLE = createCRCTable();
+    
+    /** Initial value of CRC used by GW. */
+    public static final int CRC_INITIAL_VALUE = 0x0000;
+    
+    private static int[] createCRCTable() {
+        int[] table = new int[256];
+        for (int value = 0; value < 256; value++) {
+            int crc = value << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                if ((crc & 0x8000) != 0) {
+                    crc = (crc << 1) ^ CRC_POLYNOMIAL;
+                } else {
+                    crc <<= 1;
                 }
-             }
+            }
+            table[value] = crc & 0xFFFF;
+        }
+        return table;
+    }
+    
+    /**
+     * Updates CRC with specified bytes. Initial call has to use
+     * {@link #CRC_INITIAL_VALUE}, result of the last call is the CRC of all
+     * bytes passed in.
+     * @param crc actual value of CRC
+     * @param data data to process, only the lower byte of each item is used
+     * @param offset index of first byte to process
+     * @param length number of bytes to process
+     * @return updated CRC
+     */
+    public static int updateCRC(int crc, short[] data, int offset, int length) {
+        for (int index = offset; index < (offset + length); index++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >> 8) ^ data[index]) & 0xFF]) & 0xFFFF;
         }
-
-        crc &= 0xffff;
         return crc;
     }
     
-    /** 
-     * Calculates CRC on specified data.
-     * Taken from the Microrisc implementation.
+    /**
+     * Updates CRC with specified bytes. Initial call has to use
+     * {@link #CRC_INITIAL_VALUE}, result of the last call is the CRC of all
+     * bytes passed in.
+     * @param crc actual value of CRC
+     * @param data data to process
+     * @param offset index of first byte to process
+     * @param length number of bytes to process
+     * @return updated CRC
      */
-    private static int calculateCRC_microrisc(short[] data, int firstIndex, int byteCount) {
-        int crcDbyte = data[firstIndex];
-        crcDbyte <<= 8;
-        crcDbyte |= data[firstIndex + 1];
-        
-        int currentData = firstIndex + 2;
-        short temp = 0;
-        
-        for (int byteCounter = firstIndex; byteCounter < (firstIndex + byteCount - 2); byteCounter++) {
-            for (int bitCounter = 0; bitCounter < 8; bitCounter++) {
-                if(( crcDbyte & 0x8000 ) == 0x0000) {
-                    crcDbyte <<= 1;
-                    temp = (short)(0x01 << (7 - bitCounter));
-                    if( (data[currentData] & temp) == temp) {
-                        crcDbyte |= 0x0001;
-                    } else { 
-                        crcDbyte &= 0xFFFE;
-                    }
-                    continue;
-                }
-                
-                crcDbyte <<= 1;
-                temp = (short)(0x01 << (7 - bitCounter));
-                if((data[currentData] & temp) == temp) {
-                    crcDbyte |= 0x0001;
-                } else {
-                    crcDbyte &= 0xFFFE;
-                }
-                crcDbyte ^= 0x1021;
-            }
-            currentData++;
+    public static int updateCRC(int crc, byte[] data, int offset, int length) {
+        for (int index = offset; index < (offset + length); index++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >> 8) ^ data[index]) & 0xFF]) & 0xFFFF;
         }
-        
-        for(int bitCounter = 0; bitCounter < 16; bitCounter++) {
-           if((crcDbyte & 0x8000) == 0x0000) {
-              crcDbyte <<= 1;
-              continue;
-           }
-           crcDbyte <<= 1;
-           crcDbyte ^= 0x1021;
+        return crc;
+    }
+    
+    /**
+     * Updates CRC with specified bytes. Position of buffer isn't changed.
+     * Initial call has to use {@link #CRC_INITIAL_VALUE}, result of the last
+     * call is the CRC of all bytes passed in.
+     * @param crc actual value of CRC
+     * @param buffer data to process
+     * @param offset absolute index of first byte to process
+     * @param length number of bytes to process
+     * @return updated CRC
+     */
+    public static int updateCRC(int crc, ByteBuffer buffer, int offset, int length) {
+        for (int index = offset; index < (offset + length); index++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >> 8) ^ buffer.get(index)) & 0xFF]) & 0xFFFF;
         }
-        
-        return crcDbyte;
+        return crc;
+    }
+    
+    /** 
+     * Calculates CRC on specified data.
+     * Gives the same results as the bitwise Microrisc implementation.
+     */
+    private static int calculateCRC(short[] data, int firstIndex, int byteCount) {
+        return updateCRC(CRC_INITIAL_VALUE, data, firstIndex, byteCount);
     }
     
     
@@ -227,7 +236,7 @@ public class GWETH_DataTransformer {
         transformedData[DLEN_H_POS] = (short)((data.length & 0xFF00) >> 8);
         transformedData[DLEN_L_POS] = (short)(data.length & 0xFF);
         
-        int crc = calculateCRC_microrisc(transformedData, 0, HEADER_SIZE + data.length);
+        int crc = calculateCRC(transformedData, 0, HEADER_SIZE + data.length);
         
         transformedData[HEADER_SIZE + data.length] = (short)((crc & 0xFF00) >> 8);
         transformedData[HEADER_SIZE + data.length+1] = (short)(crc & 0xFF);
@@ -235,6 +244,57 @@ public class GWETH_DataTransformer {
         return transformedData;
     }
     
+    /** Creates message for GW with header for data of specified length. */
+    private static byte[] createRequestHeader(int dataLength) {
+        if (dataLength > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("Maximal size of data to transform "
+                    + " cannot be greather then" + MAX_DATA_LENGTH);
+        }
+        byte[] message = new byte[HEADER_SIZE + dataLength + CRC_SIZE];
+        message[GW_ADR_POS] = (byte) GW_ADR_VALUE;
+        message[CMD_POS] = (byte) CMD_WRITE_VALUE;
+        message[SUBCMD_POS] = (byte) SUBCMD_WRITE_VALUE;
+        message[DLEN_H_POS] = (byte) (dataLength >> 8);
+        message[DLEN_L_POS] = (byte) dataLength;
+        return message;
+    }
+
+    /** Fills CRC of specified message for GW. */
+    private static byte[] fillRequestCRC(byte[] message) {
+        int crcPos = message.length - CRC_SIZE;
+        int crc = updateCRC(CRC_INITIAL_VALUE, message, 0, crcPos);
+        message[crcPos] = (byte) (crc >> 8);
+        message[crcPos + 1] = (byte) crc;
+        return message;
+    }
+
+    /**
+     * Transform specified request data into GW message in form, which can be
+     * directly sent.
+     * @param data request data to transform
+     * @return message for GW as bytes
+     */
+    public static byte[] createRequestMessage(short[] data) {
+        byte[] message = createRequestHeader(data.length);
+        for (int item = 0; item < data.length; item++) {
+            message[HEADER_SIZE + item] = (byte) data[item];
+        }
+        return fillRequestCRC(message);
+    }
+
+    /**
+     * Transform request data between position and limit of specified buffer
+     * into GW message in form, which can be directly sent. Position of the
+     * buffer isn't changed.
+     * @param data request data to transform
+     * @return message for GW as bytes
+     */
+    public static byte[] createRequestMessage(ByteBuffer data) {
+        byte[] message = createRequestHeader(data.remaining());
+        data.duplicate().get(message, HEADER_SIZE, data.remaining());
+        return fillRequestCRC(message);
+    }
+
     /**
      * Returns {@code true} if the specified message is asynchrounous message.
      * @param message message to check for asynchronity
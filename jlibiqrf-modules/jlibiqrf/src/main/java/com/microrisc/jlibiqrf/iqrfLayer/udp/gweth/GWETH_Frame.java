@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microrisc.jlibiqrf.iqrfLayer.udp.gweth;
+
+import static com.microrisc.jlibiqrf.iqrfLayer.udp.gweth.GWETH_DataTransformer.*;
+import java.nio.ByteBuffer;
+
+/**
+ * View of GW-ETH-01 message stored in {@link ByteBuffer}.
+ * <p>
+ * Message is validated (length, CRC, GW identification and asynchronity) only
+ * once in {@link #wrap(ByteBuffer)}, after that all fields are read directly
+ * from the underlying buffer without any copying. One instance can be reused
+ * for any number of messages, so it's intended to be owned by one receiving
+ * thread. The view is valid only until content of the underlying buffer is
+ * changed.
+ *
+ * @author Martin Strouhal
+ */
+public final class GWETH_Frame {
+
+    /** Buffer containing the message. */
+    private ByteBuffer buffer = null;
+
+    /** Absolute index of the first byte of the message in buffer. */
+    private int start = 0;
+
+    /** Length of DATA part. */
+    private int dataLength = 0;
+
+
+    private int getByte(int position) {
+        return buffer.get(start + position) & 0xFF;
+    }
+
+    private void checkWrapped() {
+        if (buffer == null) {
+            throw new IllegalStateException("No message has been wrapped.");
+        }
+    }
+
+    /**
+     * Wraps message between position and limit of specified buffer and
+     * validates it. Position and limit of the buffer aren't changed.
+     * @param buffer buffer containing message from GW
+     * @throws IllegalArgumentException if the message isn't valid GW message
+     */
+    public void wrap(ByteBuffer buffer) {
+        this.buffer = null;
+
+        int start = buffer.position();
+        int length = buffer.remaining();
+
+        if (length < (HEADER_SIZE + CRC_SIZE)) {
+            throw new IllegalArgumentException("Size of GW message must be at minimal"
+                    + (HEADER_SIZE + CRC_SIZE) + " bytes long.");
+        }
+
+        if (length > (HEADER_SIZE + MAX_DATA_LENGTH + CRC_SIZE)) {
+            throw new IllegalArgumentException("Size of GW message cannot be greather"
+                    + "then " + (HEADER_SIZE + MAX_DATA_LENGTH + CRC_SIZE) + " bytes long.");
+        }
+
+        int dataSize = (buffer.get(start + DLEN_L_POS) & 0xFF)
+                + ((buffer.get(start + DLEN_H_POS) & 0xFF) << 8);
+        if (dataSize != (length - (HEADER_SIZE + CRC_SIZE))) {
+            throw new IllegalArgumentException("Message size mismatch: " + dataSize + ". "
+                    + " It should be: " + (length - (HEADER_SIZE + CRC_SIZE)));
+        }
+
+        int crcPos = start + HEADER_SIZE + dataSize;
+        int crc = (buffer.get(crcPos + 1) & 0xFF) + ((buffer.get(crcPos) & 0xFF) << 8);
+        int crcCalculated = updateCRC(CRC_INITIAL_VALUE, buffer, start, HEADER_SIZE + dataSize);
+        if (crc != crcCalculated) {
+            throw new IllegalArgumentException("CRC mismatch. CRC sent, received: " + crc + ", "
+                    + "CRC calculated: " + crcCalculated);
+        }
+
+        int gwAddress = buffer.get(start + GW_ADR_POS) & 0xFF;
+        if (gwAddress != GW_ADR_VALUE) {
+            throw new IllegalArgumentException("GW identification mismatch: " + gwAddress);
+        }
+
+        // if the message has indication of asynchronity, check it
+        int subcommand = buffer.get(start + SUBCMD_POS) & 0xFF;
+        if ((buffer.get(start + CMD_POS) & 0xFF) == CMD_ASYNC_VALUE
+                && subcommand != SUBCMD_ASYNC_VALUE) {
+            throw new IllegalArgumentException("GW asynchronity identification mismatch: "
+                    + subcommand);
+        }
+
+        this.buffer = buffer;
+        this.start = start;
+        this.dataLength = dataSize;
+    }
+
+    /**
+     * Returns CMD field of wrapped message.
+     * @return command
+     */
+    public int getCommand() {
+        checkWrapped();
+        return getByte(CMD_POS);
+    }
+
+    /**
+     * Returns SUBCMD field of wrapped message.
+     * @return subcommand
+     */
+    public int getSubcommand() {
+        checkWrapped();
+        return getByte(SUBCMD_POS);
+    }
+
+    /**
+     * Returns {@code true} if the wrapped message is asynchrounous message.
+     * @return {@code true} if the wrapped message is asynchrounous message <br>
+     *         {@code false} otherwise
+     */
+    public boolean isAsynchronous() {
+        return getCommand() == CMD_ASYNC_VALUE;
+    }
+
+    /**
+     * Returns {@code true} if the wrapped message has answer indication, i.e.
+     * bit 7 of CMD is set.
+     * @return {@code true} if the wrapped message has answer indication <br>
+     *         {@code false} otherwise
+     */
+    public boolean hasAnswerIndication() {
+        return (getCommand() & CMD_ANSWER_INDICATION) == CMD_ANSWER_INDICATION;
+    }
+
+    /**
+     * Returns length of DATA part of wrapped message.
+     * @return length of DATA part
+     */
+    public int getDataLength() {
+        checkWrapped();
+        return dataLength;
+    }
+
+    /**
+     * Returns absolute index of DATA part in the underlying buffer.
+     * @return index of first byte of DATA part
+     */
+    public int getDataOffset() {
+        checkWrapped();
+        return start + HEADER_SIZE;
+    }
+
+    /**
+     * Returns buffer containing wrapped message.
+     * @return underlying buffer
+     */
+    public ByteBuffer getBuffer() {
+        checkWrapped();
+        return buffer;
+    }
+
+    /**
+     * Copies DATA part of wrapped message into specified array.
+     * @param dest destination array, must have space for {@link #getDataLength()}
+     *        items from {@code destOffset}
+     * @param destOffset index of destination array, where to start
+     */
+    public void getData(short[] dest, int destOffset) {
+        int offset = getDataOffset();
+        for (int item = 0; item < dataLength; item++) {
+            dest[destOffset + item] = (short) (buffer.get(offset + item) & 0xFF);
+        }
+    }
+
+    /**
+     * Copies DATA part of wrapped message into specified array.
+     * @param dest destination array, must have space for {@link #getDataLength()}
+     *        items from {@code destOffset}
+     * @param destOffset index of destination array, where to start
+     */
+    public void getData(byte[] dest, int destOffset) {
+        int offset = getDataOffset();
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + offset, dest, destOffset,
+                    dataLength);
+            return;
+        }
+        for (int item = 0; item < dataLength; item++) {
+            dest[destOffset + item] = buffer.get(offset + item);
+        }
+    }
+
+    /**
+     * Returns DATA part of wrapped message as a new byte array.
+     * @return DATA part of wrapped message
+     */
+    public byte[] getDataBytes() {
+        byte[] data = new byte[getDataLength()];
+        getData(data, 0);
+        return data;
+    }
+
+    /**
+     * Returns DATA part of wrapped message as a new array.
+     * @return DATA part of wrapped message
+     */
+    public short[] getData() {
+        short[] data = new short[getDataLength()];
+        getData(data, 0);
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        if (buffer == null) {
+            return "GWETH_Frame{}";
+        }
+        return "GWETH_Frame{" + "command=" + getCommand() + ", subcommand=" + getSubcommand()
+                + ", dataLength=" + dataLength + '}';
+    }
+}
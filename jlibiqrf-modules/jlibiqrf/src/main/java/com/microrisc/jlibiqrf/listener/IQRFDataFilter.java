@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.listener;
+
+/**
+ * Decides, which data received from IQRF network will be passed to
+ * registered listener.
+ *
+ * @author Martin Strouhal
+ */
+public interface IQRFDataFilter {
+
+    /**
+     * Returns {@code true} if specified data should be passed to the listener.
+     * Method is called on thread receiving data from IQRF network, so it should
+     * be fast and must not block.
+     *
+     * @param data received from IQRF network
+     * @return {@code true} if data are accepted
+     */
+    public boolean accept(short[] data);
+}
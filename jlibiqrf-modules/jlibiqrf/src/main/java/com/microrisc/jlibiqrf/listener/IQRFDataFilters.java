@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.listener;
+
+import com.microrisc.jlibiqrf.dpa.DPAMessages;
+
+/**
+ * Provides commonly used {@link IQRFDataFilter filters}.
+ *
+ * @author Martin Strouhal
+ */
+public final class IQRFDataFilters {
+
+    /** Filter accepting all data. */
+    private static final IQRFDataFilter ALL = new IQRFDataFilter() {
+        @Override
+        public boolean accept(short[] data) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "IQRFDataFilter{all}";
+        }
+    };
+
+    private IQRFDataFilters() {
+    }
+
+    /**
+     * Returns filter accepting all data.
+     *
+     * @return filter
+     */
+    public static IQRFDataFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Returns filter accepting DPA messages with specified network address.
+     *
+     * @param nadr network address
+     * @return filter
+     */
+    public static IQRFDataFilter byNadr(final int nadr) {
+        return new IQRFDataFilter() {
+            @Override
+            public boolean accept(short[] data) {
+                return DPAMessages.hasHeader(data) && DPAMessages.getNadr(data) == nadr;
+            }
+
+            @Override
+            public String toString() {
+                return "IQRFDataFilter{nadr=" + nadr + '}';
+            }
+        };
+    }
+
+    /**
+     * Returns filter accepting DPA messages with specified peripheral number.
+     *
+     * @param pnum peripheral number
+     * @return filter
+     */
+    public static IQRFDataFilter byPnum(final int pnum) {
+        return new IQRFDataFilter() {
+            @Override
+            public boolean accept(short[] data) {
+                return DPAMessages.hasHeader(data) && DPAMessages.getPnum(data) == pnum;
+            }
+
+            @Override
+            public String toString() {
+                return "IQRFDataFilter{pnum=" + pnum + '}';
+            }
+        };
+    }
+}
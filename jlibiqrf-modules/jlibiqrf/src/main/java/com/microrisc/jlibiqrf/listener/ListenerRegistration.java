@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.listener;
+
+import com.microrisc.jlibiqrf.IQRFListener;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registration of one {@link IQRFListener} in {@link ListenerRegistry}.
+ * <p>
+ * Listener registered without executor is called directly on thread receiving
+ * data from IQRF network. Listener registered with executor has its own
+ * bounded queue, data are delivered from it by tasks running in the executor.
+ * Only one such task runs at the same time, so listener receives data in order
+ * of receiving and is never called concurrently, although the executor can be
+ * shared by more registrations.
+ * <p>
+ * Listener called directly gets the same array as other listeners, so it
+ * mustn't modify it. Listener with executor gets its own copy of data, because
+ * they are processed later, concurrently with receiving thread.
+ *
+ * @author Martin Strouhal
+ */
+public final class ListenerRegistration {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ListenerRegistration.class);
+
+    private final ListenerRegistry registry;
+    private final IQRFListener listener;
+    private final IQRFDataFilter filter;
+    private final Executor executor;
+    private final BlockingQueue<short[]> queue;
+    private final OverflowPolicy overflowPolicy;
+
+    /** Indicates, that delivering task is scheduled or running. */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /** Count of dropped data. */
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    private volatile boolean active = true;
+
+    /** Delivers queued data to listener. */
+    private final Runnable deliveringTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                short[] data;
+                while (active && (data = queue.poll()) != null) {
+                    callListener(data);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // data could be added after the last poll
+            if (active && !queue.isEmpty()) {
+                scheduleDelivering();
+            }
+        }
+    };
+
+    ListenerRegistration(ListenerRegistry registry, IQRFListener listener,
+            IQRFDataFilter filter, Executor executor, int queueCapacity,
+            OverflowPolicy overflowPolicy
+    ) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        if (executor != null) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive number");
+            }
+            if (overflowPolicy == null) {
+                throw new IllegalArgumentException("Overflow policy cannot be null");
+            }
+        }
+        this.registry = registry;
+        this.listener = listener;
+        this.filter = (filter != null) ? filter : IQRFDataFilters.all();
+        this.executor = executor;
+        this.queue = (executor != null) ? new ArrayBlockingQueue<short[]>(queueCapacity) : null;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    private void callListener(short[] data) {
+        try {
+            listener.onGetIQRFData(data);
+        } catch (RuntimeException ex) {
+            logger.error("Listener " + listener + " has thrown exception: ", ex);
+        }
+    }
+
+    private void scheduleDelivering() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(deliveringTask);
+        } catch (RejectedExecutionException ex) {
+            scheduled.set(false);
+            logger.error("Executor of listener " + listener + " rejected delivering: " + ex.getMessage());
+        }
+    }
+
+    private void enqueue(short[] data) {
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                if (!queue.offer(data)) {
+                    droppedCount.incrementAndGet();
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(data)) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            case BLOCK:
+                try {
+                    queue.put(data);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    logger.warn("Interrupted while waiting for space in queue of " + listener);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported overflow policy: " + overflowPolicy);
+        }
+    }
+
+    /**
+     * Passes data to listener, if they are accepted by filter.
+     *
+     * @param data received from IQRF network
+     */
+    void deliver(short[] data) {
+        if (!active || !filter.accept(data)) {
+            return;
+        }
+        if (executor == null) {
+            callListener(data);
+            return;
+        }
+        // queued data outlive dispatching, so they mustn't be shared
+        enqueue(data.clone());
+        scheduleDelivering();
+    }
+
+    /** Deactivates this registration and drops all waiting data. */
+    void deactivate() {
+        active = false;
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Returns registered listener.
+     *
+     * @return listener
+     */
+    public IQRFListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Returns filter of this registration.
+     *
+     * @return filter
+     */
+    public IQRFDataFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns count of data, which have been dropped because of full queue.
+     *
+     * @return count of dropped data
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns count of data waiting for delivery.
+     *
+     * @return size of queue, {@code 0} for listener called directly
+     */
+    public int getQueueSize() {
+        return (queue != null) ? queue.size() : 0;
+    }
+
+    /**
+     * Returns {@code true} if the registration hasn't been cancelled.
+     *
+     * @return {@code true} if listener receives data
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Cancels this registration, listener won't receive any other data.
+     */
+    public void unregister() {
+        registry.unregister(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerRegistration{" + "listener=" + listener + ", filter=" + filter
+                + ", executor=" + executor + ", overflowPolicy=" + overflowPolicy
+                + ", queueSize=" + getQueueSize() + ", droppedCount=" + droppedCount + '}';
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.listener;
+
+import com.microrisc.jlibiqrf.IQRFByteListener;
+import com.microrisc.jlibiqrf.IQRFListener;
+import com.microrisc.jlibiqrf.types.DataConvertor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds registered {@link IQRFListener listeners} and passes them data
+ * received from IQRF network.
+ * <p>
+ * Every listener can have its own {@link IQRFDataFilter filter} and
+ * {@link Executor}. Listeners with executor don't block thread receiving data,
+ * their data are stored in bounded queue with specified
+ * {@link OverflowPolicy}, so slow listener doesn't affect other ones.
+ * Listeners are called in order of their registration.
+ * <p>
+ * {@link IQRFByteListener Byte listeners} are called directly on thread
+ * receiving data before all other listeners. Received data are converted
+ * between bytes and {@code short[]} only if some listener needs the other
+ * representation.
+ *
+ * @author Martin Strouhal
+ */
+public final class ListenerRegistry {
+
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ListenerRegistry.class);
+
+    /** Active registrations. */
+    private final List<ListenerRegistration> registrations = new CopyOnWriteArrayList<>();
+
+    /** Registered byte listeners. */
+    private final List<IQRFByteListener> byteListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers listener, which will be called directly on thread receiving
+     * data from IQRF network with all received data.
+     *
+     * @param listener to register
+     * @return registration of listener
+     */
+    public ListenerRegistration register(IQRFListener listener) {
+        return register(listener, null, null, 0, null);
+    }
+
+    /**
+     * Registers listener.
+     *
+     * @param listener to register
+     * @param filter which data will be passed to listener, {@code null} means
+     * all data
+     * @param executor executor calling the listener, {@code null} means
+     * calling directly on thread receiving data
+     * @param queueCapacity maximal count of data waiting for delivery, used
+     * only with executor
+     * @param overflowPolicy what to do when queue is full, used only with
+     * executor
+     * @return registration of listener
+     */
+    public ListenerRegistration register(IQRFListener listener, IQRFDataFilter filter,
+            Executor executor, int queueCapacity, OverflowPolicy overflowPolicy
+    ) {
+        ListenerRegistration registration = new ListenerRegistration(this, listener,
+                filter, executor, queueCapacity, overflowPolicy);
+        registrations.add(registration);
+        logger.info("Listener registred: {}", registration);
+        return registration;
+    }
+
+    /**
+     * Registers byte listener, which will be called directly on thread
+     * receiving data from IQRF network with all received data.
+     *
+     * @param listener to register
+     */
+    public void register(IQRFByteListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        byteListeners.add(listener);
+        logger.info("Byte listener registred: {}", listener);
+    }
+
+    /**
+     * Cancels registration of specified byte listener.
+     *
+     * @param listener to unregister
+     */
+    public void unregister(IQRFByteListener listener) {
+        if (byteListeners.remove(listener)) {
+            logger.info("Byte listener unregistred: {}", listener);
+        }
+    }
+
+    /**
+     * Cancels specified registration.
+     *
+     * @param registration to cancel
+     */
+    void unregister(ListenerRegistration registration) {
+        if (registrations.remove(registration)) {
+            registration.deactivate();
+            logger.info("Listener unregistred: {}", registration);
+        }
+    }
+
+    /**
+     * Cancels all registrations of specified listener.
+     *
+     * @param listener to unregister
+     */
+    public void unregister(IQRFListener listener) {
+        for (ListenerRegistration registration : registrations) {
+            if (registration.getListener() == listener) {
+                unregister(registration);
+            }
+        }
+    }
+
+    /**
+     * Cancels all registrations.
+     */
+    public void unregisterAll() {
+        for (ListenerRegistration registration : registrations) {
+            unregister(registration);
+        }
+        for (IQRFByteListener listener : byteListeners) {
+            unregister(listener);
+        }
+    }
+
+    /**
+     * Returns {@code true} if at least one listener is registered.
+     *
+     * @return {@code true} if some listener is registered
+     */
+    public boolean hasListeners() {
+        return !registrations.isEmpty() || !byteListeners.isEmpty();
+    }
+
+    /**
+     * Returns actual registrations.
+     *
+     * @return list of registrations
+     */
+    public List<ListenerRegistration> getRegistrations() {
+        return new ArrayList<>(registrations);
+    }
+
+    /**
+     * Passes specified data to all registered listeners.
+     *
+     * @param data received from IQRF network
+     */
+    public void dispatch(short[] data) {
+        if (!byteListeners.isEmpty()) {
+            deliverToByteListeners(DataConvertor.toByteBuffer(data));
+        }
+        for (ListenerRegistration registration : registrations) {
+            registration.deliver(data);
+        }
+    }
+
+    /**
+     * Passes data between position and limit of specified buffer to all
+     * registered listeners. Data are converted to {@code short[]} only if
+     * some {@link IQRFListener} is registered. The buffer isn't modified.
+     *
+     * @param data received from IQRF network
+     */
+    public void dispatch(ByteBuffer data) {
+        if (!byteListeners.isEmpty()) {
+            deliverToByteListeners(data);
+        }
+        if (registrations.isEmpty()) {
+            return;
+        }
+        short[] shortData = DataConvertor.toShortArray(data);
+        for (ListenerRegistration registration : registrations) {
+            registration.deliver(shortData);
+        }
+    }
+
+    // calls all byte listeners with one read-only view of data, which is
+    // restored for each listener
+    private void deliverToByteListeners(ByteBuffer data) {
+        ByteBuffer view = data.asReadOnlyBuffer();
+        int position = view.position();
+        int limit = view.limit();
+        for (IQRFByteListener listener : byteListeners) {
+            view.limit(limit).position(position);
+            try {
+                listener.onGetIQRFData(view);
+            } catch (RuntimeException ex) {
+                logger.error("Listener " + listener + " has thrown exception: ", ex);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerRegistry{" + "registrations=" + registrations
+                + ", byteListeners=" + byteListeners + '}';
+    }
+}
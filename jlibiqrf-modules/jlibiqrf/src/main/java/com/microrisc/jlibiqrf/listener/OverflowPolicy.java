@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.listener;
+
+/**
+ * Behaviour of listener registration, when its queue of data waiting for
+ * delivery is full.
+ *
+ * @author Martin Strouhal
+ */
+public enum OverflowPolicy {
+
+    /** Newly received data are dropped. */
+    DROP_NEWEST,
+    /** The oldest waiting data are dropped to make space for new data. */
+    DROP_OLDEST,
+    /** Thread receiving data from IQRF network waits until space is free. */
+    BLOCK
+}
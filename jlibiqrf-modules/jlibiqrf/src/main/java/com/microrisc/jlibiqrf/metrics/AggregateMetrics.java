@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import com.microrisc.jlibiqrf.types.IQRFError;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live view of sum of more {@link IQRFMetrics}, e.g. of all layers of
+ * {@link com.microrisc.jlibiqrf.JLibIQRFPool}. Counts and rates are sums of
+ * the particular metrics, latencies are merged histograms. Metrics added to or
+ * removed from the viewed collection are reflected immediately.
+ *
+ * @author Martin Strouhal
+ */
+public final class AggregateMetrics implements IQRFMetrics {
+
+    private final Collection<? extends IQRFMetrics> metrics;
+
+    /**
+     * Creates view of specified metrics.
+     *
+     * @param metrics collection of metrics to sum, it must be safe for
+     * iteration concurrent with modifications
+     */
+    public AggregateMetrics(Collection<? extends IQRFMetrics> metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics cannot be null");
+        }
+        this.metrics = metrics;
+    }
+
+    @Override
+    public long getSentFrames() {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getSentFrames();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getSentBytes() {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getSentBytes();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getReceivedFrames() {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getReceivedFrames();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getReceivedBytes();
+        }
+        return sum;
+    }
+
+    @Override
+    public double getSendRate() {
+        double sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getSendRate();
+        }
+        return sum;
+    }
+
+    @Override
+    public double getReceiveRate() {
+        double sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getReceiveRate();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getSendRetries() {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getSendRetries();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getErrorCount(IQRFError error) {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getErrorCount(error);
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<IQRFError, Long> getErrorCounts() {
+        Map<IQRFError, Long> counts = new EnumMap<>(IQRFError.class);
+        for (IQRFError error : IQRFError.values()) {
+            counts.put(error, getErrorCount(error));
+        }
+        return counts;
+    }
+
+    @Override
+    public long getReceiveQueueDepth() {
+        long sum = 0;
+        for (IQRFMetrics item : metrics) {
+            sum += item.getReceiveQueueDepth();
+        }
+        return sum;
+    }
+
+    @Override
+    public LatencySnapshot getSendLatency() {
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        for (IQRFMetrics item : metrics) {
+            snapshots.add(item.getSendLatency());
+        }
+        return LatencySnapshot.merge(snapshots);
+    }
+
+    @Override
+    public LatencySnapshot getDispatchLatency() {
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        for (IQRFMetrics item : metrics) {
+            snapshots.add(item.getDispatchLatency());
+        }
+        return LatencySnapshot.merge(snapshots);
+    }
+
+    /**
+     * Resets all viewed metrics.
+     */
+    @Override
+    public void reset() {
+        for (IQRFMetrics item : metrics) {
+            item.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateMetrics{" + "sentFrames=" + getSentFrames() + ", sentBytes=" + getSentBytes()
+                + ", receivedFrames=" + getReceivedFrames() + ", receivedBytes=" + getReceivedBytes()
+                + ", sendRate=" + getSendRate() + ", receiveRate=" + getReceiveRate()
+                + ", sendRetries=" + getSendRetries() + ", errors=" + getErrorCounts()
+                + ", receiveQueueDepth=" + getReceiveQueueDepth()
+                + ", sendLatency=" + getSendLatency()
+                + ", dispatchLatency=" + getDispatchLatency() + '}';
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+/**
+ * Provides actual value of some quantity, e.g. size of queue. Value is read
+ * only when metrics are pulled, so nothing is recorded on hot paths.
+ *
+ * @author Martin Strouhal
+ */
+public interface Gauge {
+
+    /**
+     * Returns actual value.
+     *
+     * @return value
+     */
+    public long getValue();
+}
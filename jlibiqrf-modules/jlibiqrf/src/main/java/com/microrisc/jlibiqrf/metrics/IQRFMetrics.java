@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import com.microrisc.jlibiqrf.types.IQRFError;
+import java.util.Map;
+
+/**
+ * Metrics of communication via IQRF layer. Counts are cumulative since
+ * creation of layer or since last {@link #reset()}, frames and bytes are
+ * counted for user data (without framing of the layer).
+ *
+ * @author Martin Strouhal
+ */
+public interface IQRFMetrics {
+
+    /**
+     * Returns count of successfully sent frames.
+     *
+     * @return count of frames
+     */
+    public long getSentFrames();
+
+    /**
+     * Returns count of successfully sent bytes.
+     *
+     * @return count of bytes
+     */
+    public long getSentBytes();
+
+    /**
+     * Returns count of received frames passed to listeners.
+     *
+     * @return count of frames
+     */
+    public long getReceivedFrames();
+
+    /**
+     * Returns count of received bytes passed to listeners.
+     *
+     * @return count of bytes
+     */
+    public long getReceivedBytes();
+
+    /**
+     * Returns count of sent frames per second in last sampling interval.
+     *
+     * @return frames per second
+     */
+    public double getSendRate();
+
+    /**
+     * Returns count of received frames per second in last sampling interval.
+     *
+     * @return frames per second
+     */
+    public double getReceiveRate();
+
+    /**
+     * Returns count of repeated sending attempts, e.g. when module wasn't
+     * ready.
+     *
+     * @return count of retries
+     */
+    public long getSendRetries();
+
+    /**
+     * Returns count of errors of specified type.
+     *
+     * @param error type of error
+     * @return count of errors
+     */
+    public long getErrorCount(IQRFError error);
+
+    /**
+     * Returns counts of errors of all types.
+     *
+     * @return counts of errors mapped by their type
+     */
+    public Map<IQRFError, Long> getErrorCounts();
+
+    /**
+     * Returns count of received data, which wait for passing to listeners.
+     *
+     * @return size of queue of received data
+     */
+    public long getReceiveQueueDepth();
+
+    /**
+     * Returns latencies of sending, i.e. time spent in
+     * {@link com.microrisc.jlibiqrf.iqrfLayer.AbstractIQRFLayer#sendData}.
+     *
+     * @return snapshot of latencies
+     */
+    public LatencySnapshot getSendLatency();
+
+    /**
+     * Returns latencies of passing of received data to listeners.
+     *
+     * @return snapshot of latencies
+     */
+    public LatencySnapshot getDispatchLatency();
+
+    /**
+     * Resets all counters and histograms.
+     */
+    public void reset();
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import com.microrisc.jlibiqrf.types.IQRFError;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes {@link IQRFMetrics} via JMX as {@link IQRFMetricsMXBean}.
+ *
+ * @author Martin Strouhal
+ */
+public final class IQRFMetricsJmx implements IQRFMetricsMXBean {
+
+    /** Domain of registered beans. */
+    public static final String DOMAIN = "com.microrisc.jlibiqrf";
+
+    private final IQRFMetrics metrics;
+    private ObjectName objectName = null;
+
+    /**
+     * Creates JMX view of specified metrics.
+     *
+     * @param metrics to expose
+     */
+    public IQRFMetricsJmx(IQRFMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics cannot be null");
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers this bean into platform MBean server under name
+     * {@code com.microrisc.jlibiqrf:type=IQRFMetrics,name=<name>}.
+     *
+     * @param name name distinguishing more instances of JLibIQRF
+     * @throws JMException if the bean cannot be registered
+     */
+    public synchronized void register(String name) throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("Metrics are already registered as " + objectName);
+        }
+        ObjectName newName = new ObjectName(DOMAIN + ":type=IQRFMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+        objectName = newName;
+    }
+
+    /**
+     * Unregisters this bean from platform MBean server, if it's registered.
+     *
+     * @throws JMException if the bean cannot be unregistered
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        objectName = null;
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public long getSentFrames() {
+        return metrics.getSentFrames();
+    }
+
+    @Override
+    public long getSentBytes() {
+        return metrics.getSentBytes();
+    }
+
+    @Override
+    public long getReceivedFrames() {
+        return metrics.getReceivedFrames();
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        return metrics.getReceivedBytes();
+    }
+
+    @Override
+    public double getSendRate() {
+        return metrics.getSendRate();
+    }
+
+    @Override
+    public double getReceiveRate() {
+        return metrics.getReceiveRate();
+    }
+
+    @Override
+    public long getSendRetries() {
+        return metrics.getSendRetries();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<IQRFError, Long> entry : metrics.getErrorCounts().entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getReceiveQueueDepth() {
+        return metrics.getReceiveQueueDepth();
+    }
+
+    @Override
+    public long getSendLatencyP50() {
+        return toMicros(metrics.getSendLatency().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getSendLatencyP99() {
+        return toMicros(metrics.getSendLatency().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getSendLatencyP999() {
+        return toMicros(metrics.getSendLatency().getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getSendLatencyMax() {
+        return toMicros(metrics.getSendLatency().getMax());
+    }
+
+    @Override
+    public long getDispatchLatencyP50() {
+        return toMicros(metrics.getDispatchLatency().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getDispatchLatencyP99() {
+        return toMicros(metrics.getDispatchLatency().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getDispatchLatencyP999() {
+        return toMicros(metrics.getDispatchLatency().getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getDispatchLatencyMax() {
+        return toMicros(metrics.getDispatchLatency().getMax());
+    }
+
+    @Override
+    public void reset() {
+        metrics.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "IQRFMetricsJmx{" + "objectName=" + objectName + ", metrics=" + metrics + '}';
+    }
+}
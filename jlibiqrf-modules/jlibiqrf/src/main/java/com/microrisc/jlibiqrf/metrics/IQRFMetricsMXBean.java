@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link IQRFMetrics}. Latencies are in microseconds.
+ *
+ * @author Martin Strouhal
+ */
+public interface IQRFMetricsMXBean {
+
+    public long getSentFrames();
+
+    public long getSentBytes();
+
+    public long getReceivedFrames();
+
+    public long getReceivedBytes();
+
+    public double getSendRate();
+
+    public double getReceiveRate();
+
+    public long getSendRetries();
+
+    /**
+     * Returns counts of errors mapped by name of {@link com.microrisc.jlibiqrf.types.IQRFError}.
+     *
+     * @return counts of errors
+     */
+    public Map<String, Long> getErrorCounts();
+
+    public long getReceiveQueueDepth();
+
+    public long getSendLatencyP50();
+
+    public long getSendLatencyP99();
+
+    public long getSendLatencyP999();
+
+    public long getSendLatencyMax();
+
+    public long getDispatchLatencyP50();
+
+    public long getDispatchLatencyP99();
+
+    public long getDispatchLatencyP999();
+
+    public long getDispatchLatencyMax();
+
+    /**
+     * Resets all counters and histograms.
+     */
+    public void reset();
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds with fixed relative precision, in the
+ * manner of HDR histogram. Values lower then {@code 64} are recorded exactly,
+ * higher values fall into buckets, where each power of two range is divided
+ * into {@code 32} buckets, so relative error of reported values is at most
+ * about 3 %. Values greater then {@link #MAX_TRACKABLE_VALUE} are recorded as
+ * the maximal trackable value (except of {@link LatencySnapshot#getMax()}).
+ * <p>
+ * Recording is lock-free and doesn't allocate, so it can be used on hot
+ * paths. Reading is done via {@link #snapshot()}.
+ *
+ * @author Martin Strouhal
+ */
+public final class LatencyHistogram {
+
+    /** Count of bits of sub-bucket index. */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /** Count of buckets in each power of two range. */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** Values lower then this are recorded exactly. */
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+    /** Highest power of two of trackable values. */
+    private static final int MAX_MAGNITUDE = 40;
+
+    /** Maximal trackable value [in ns], about 18 minutes. */
+    public static final long MAX_TRACKABLE_VALUE = (1L << MAX_MAGNITUDE) - 1;
+
+    /** Count of buckets. */
+    static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final StripedCounter totalCount = new StripedCounter();
+    private final StripedCounter totalSum = new StripedCounter();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Returns index of bucket for specified value. */
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /** Returns the highest value, which falls into bucket with specified index. */
+    static long highestValueOfBucket(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Records specified value.
+     *
+     * @param nanos latency in nanoseconds, negative values are recorded as
+     * {@code 0}
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(bucketIndex(Math.min(value, MAX_TRACKABLE_VALUE)));
+        totalCount.increment();
+        totalSum.add(value);
+
+        long actualMax = max.get();
+        while (value > actualMax && !max.compareAndSet(actualMax, value)) {
+            actualMax = max.get();
+        }
+    }
+
+    /**
+     * Returns snapshot of actually recorded values.
+     *
+     * @return snapshot
+     */
+    public LatencySnapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            snapshotCounts[index] = counts.get(index);
+            count += snapshotCounts[index];
+        }
+        return new LatencySnapshot(snapshotCounts, count, totalSum.sum(), max.get());
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts.set(index, 0);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Returns count of recorded values.
+     *
+     * @return count of values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" + snapshot() + '}';
+    }
+}
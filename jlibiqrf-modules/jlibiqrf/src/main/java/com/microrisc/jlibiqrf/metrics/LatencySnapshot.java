@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of {@link LatencyHistogram}. All values are in
+ * nanoseconds.
+ *
+ * @author Martin Strouhal
+ */
+public final class LatencySnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    LatencySnapshot(long[] counts, long count, long sum, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * Returns snapshot containing values of all specified snapshots.
+     *
+     * @param snapshots to merge
+     * @return merged snapshot
+     */
+    public static LatencySnapshot merge(Iterable<LatencySnapshot> snapshots) {
+        long[] mergedCounts = new long[LatencyHistogram.BUCKET_COUNT];
+        long mergedCount = 0;
+        long mergedSum = 0;
+        long mergedMax = 0;
+        for (LatencySnapshot snapshot : snapshots) {
+            for (int index = 0; index < mergedCounts.length; index++) {
+                mergedCounts[index] += snapshot.counts[index];
+            }
+            mergedCount += snapshot.count;
+            mergedSum += snapshot.sum;
+            mergedMax = Math.max(mergedMax, snapshot.max);
+        }
+        return new LatencySnapshot(mergedCounts, mergedCount, mergedSum, mergedMax);
+    }
+
+    /**
+     * Returns count of recorded values.
+     *
+     * @return count of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns arithmetic mean of recorded values.
+     *
+     * @return mean value or {@code 0} if no value was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns maximal recorded value.
+     *
+     * @return maximal value or {@code 0} if no value was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns value, under which falls specified percentage of recorded
+     * values.
+     *
+     * @param percentile from {@code 0} to {@code 100}, e.g. {@code 99.9}
+     * @return value at percentile or {@code 0} if no value was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in interval <0, 100>");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long accumulated = 0;
+        for (int index = 0; index < counts.length; index++) {
+            accumulated += counts[index];
+            if (accumulated >= countAtPercentile) {
+                // the last bucket contains also values greater then trackable
+                if (index == counts.length - 1) {
+                    return max;
+                }
+                return Math.min(LatencyHistogram.highestValueOfBucket(index), max);
+            }
+        }
+        return max;
+    }
+
+    private static String toMicros(long nanos) {
+        return Long.toString(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySnapshot{" + "count=" + count
+                + ", p50=" + toMicros(getValueAtPercentile(50)) + "us"
+                + ", p99=" + toMicros(getValueAtPercentile(99)) + "us"
+                + ", p999=" + toMicros(getValueAtPercentile(99.9)) + "us"
+                + ", max=" + toMicros(max) + "us}";
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import com.microrisc.jlibiqrf.types.IQRFError;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorder of {@link IQRFMetrics} owned by IQRF layer. Recording methods are
+ * lock-free and don't allocate.
+ *
+ * @author Martin Strouhal
+ */
+public final class LayerMetrics implements IQRFMetrics {
+
+    private final StripedCounter sentFrames = new StripedCounter();
+    private final StripedCounter sentBytes = new StripedCounter();
+    private final StripedCounter receivedFrames = new StripedCounter();
+    private final StripedCounter receivedBytes = new StripedCounter();
+    private final StripedCounter sendRetries = new StripedCounter();
+    private final StripedCounter[] errors = new StripedCounter[IQRFError.values().length];
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+    private final Gauge receiveQueueDepth;
+
+    // state of rates sampling, guarded by this
+    private long lastSampleTime = System.nanoTime();
+    private long lastSentFrames = 0;
+    private long lastReceivedFrames = 0;
+    private volatile double sendRate = 0;
+    private volatile double receiveRate = 0;
+
+    /**
+     * Creates metrics.
+     *
+     * @param receiveQueueDepth provides size of queue of received data,
+     * {@code null} if the layer hasn't any queue
+     */
+    public LayerMetrics(Gauge receiveQueueDepth) {
+        this.receiveQueueDepth = receiveQueueDepth;
+        for (int index = 0; index < errors.length; index++) {
+            errors[index] = new StripedCounter();
+        }
+    }
+
+    /**
+     * Records successfully sent frame.
+     *
+     * @param bytes count of sent bytes
+     * @param nanos duration of sending
+     */
+    public void recordSent(int bytes, long nanos) {
+        sentFrames.increment();
+        sentBytes.add(bytes);
+        sendLatency.record(nanos);
+    }
+
+    /**
+     * Records received frame passed to listeners.
+     *
+     * @param bytes count of received bytes
+     * @param dispatchNanos duration of passing to listeners
+     */
+    public void recordReceived(int bytes, long dispatchNanos) {
+        receivedFrames.increment();
+        receivedBytes.add(bytes);
+        dispatchLatency.record(dispatchNanos);
+    }
+
+    /**
+     * Records repeated sending attempt.
+     */
+    public void recordSendRetry() {
+        sendRetries.increment();
+    }
+
+    /**
+     * Records error of specified type.
+     *
+     * @param error type of error
+     */
+    public void recordError(IQRFError error) {
+        errors[error.ordinal()].increment();
+    }
+
+    /**
+     * Computes send and receive rates from counts since previous call. It's
+     * intended to be called periodically.
+     */
+    public synchronized void updateRates() {
+        long now = System.nanoTime();
+        long sent = sentFrames.sum();
+        long received = receivedFrames.sum();
+        double seconds = (double) (now - lastSampleTime) / TimeUnit.SECONDS.toNanos(1);
+        if (seconds > 0) {
+            sendRate = Math.max(0, sent - lastSentFrames) / seconds;
+            receiveRate = Math.max(0, received - lastReceivedFrames) / seconds;
+        }
+        lastSampleTime = now;
+        lastSentFrames = sent;
+        lastReceivedFrames = received;
+    }
+
+    @Override
+    public long getSentFrames() {
+        return sentFrames.sum();
+    }
+
+    @Override
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    @Override
+    public long getReceivedFrames() {
+        return receivedFrames.sum();
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    @Override
+    public double getSendRate() {
+        return sendRate;
+    }
+
+    @Override
+    public double getReceiveRate() {
+        return receiveRate;
+    }
+
+    @Override
+    public long getSendRetries() {
+        return sendRetries.sum();
+    }
+
+    @Override
+    public long getErrorCount(IQRFError error) {
+        return errors[error.ordinal()].sum();
+    }
+
+    @Override
+    public Map<IQRFError, Long> getErrorCounts() {
+        Map<IQRFError, Long> counts = new EnumMap<>(IQRFError.class);
+        for (IQRFError error : IQRFError.values()) {
+            counts.put(error, getErrorCount(error));
+        }
+        return counts;
+    }
+
+    @Override
+    public long getReceiveQueueDepth() {
+        return receiveQueueDepth == null ? 0 : receiveQueueDepth.getValue();
+    }
+
+    @Override
+    public LatencySnapshot getSendLatency() {
+        return sendLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getDispatchLatency() {
+        return dispatchLatency.snapshot();
+    }
+
+    @Override
+    public synchronized void reset() {
+        sentFrames.reset();
+        sentBytes.reset();
+        receivedFrames.reset();
+        receivedBytes.reset();
+        sendRetries.reset();
+        for (StripedCounter counter : errors) {
+            counter.reset();
+        }
+        sendLatency.reset();
+        dispatchLatency.reset();
+        lastSentFrames = 0;
+        lastReceivedFrames = 0;
+    }
+
+    private String errorsToString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (IQRFError error : IQRFError.values()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(error.name()).append('=').append(getErrorCount(error));
+        }
+        return builder.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "LayerMetrics{" + "sentFrames=" + sentFrames + ", sentBytes=" + sentBytes
+                + ", receivedFrames=" + receivedFrames + ", receivedBytes=" + receivedBytes
+                + ", sendRate=" + sendRate + ", receiveRate=" + receiveRate
+                + ", sendRetries=" + sendRetries + ", errors=" + errorsToString()
+                + ", receiveQueueDepth=" + getReceiveQueueDepth()
+                + ", sendLatency=" + getSendLatency()
+                + ", dispatchLatency=" + getDispatchLatency() + '}';
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter with low contention of concurrently recording threads. Value is
+ * spread over more cells, each on its own cache line, and thread selects the
+ * cell by its ID. Reading of the value sums all cells, so it's more expensive
+ * than recording.
+ *
+ * @author Martin Strouhal
+ */
+public final class StripedCounter {
+
+    /** Count of longs in one cache line, only first of them is used. */
+    private static final int PADDING = 8;
+
+    /** Maximal count of cells. */
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /**
+     * Creates counter with count of cells derived from count of processors.
+     */
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates counter with specified count of cells. Count is rounded up to
+     * power of two.
+     *
+     * @param stripes count of cells
+     */
+    public StripedCounter(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Count of stripes must be positive number");
+        }
+        int size = 1;
+        while (size < stripes && size < MAX_STRIPES) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * PADDING);
+    }
+
+    private int cellIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & mask) * PADDING;
+    }
+
+    /**
+     * Adds specified value.
+     *
+     * @param value to add
+     */
+    public void add(long value) {
+        cells.getAndAdd(cellIndex(), value);
+    }
+
+    /**
+     * Adds one.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Returns actual value. It isn't atomic snapshot, values added
+     * concurrently with summing may or may not be included.
+     *
+     * @return sum of all cells
+     */
+    public long sum() {
+        long sum = 0;
+        for (int index = 0; index <= mask; index++) {
+            sum += cells.get(index * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Sets value to zero. Values added concurrently with resetting may be
+     * lost.
+     */
+    public void reset() {
+        for (int index = 0; index <= mask; index++) {
+            cells.set(index * PADDING, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 MICRORISC s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microrisc.jlibiqrf.types;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts data between {@code short[]} and byte representation. Each byte of
+ * data is stored in one item of {@code short[]}.
+ *
+ * @author Martin Strouhal
+ */
+public final class DataConvertor {
+
+    private DataConvertor() {
+    }
+
+    /**
+     * Returns bytes between position and limit of specified buffer as
+     * {@code short[]}. Position of the buffer isn't changed.
+     *
+     * @param data buffer to convert
+     * @return new array with data
+     */
+    public static short[] toShortArray(ByteBuffer data) {
+        int position = data.position();
+        short[] result = new short[data.remaining()];
+        for (int item = 0; item < result.length; item++) {
+            result[item] = (short) (data.get(position + item) & 0xFF);
+        }
+        return result;
+    }
+
+    /**
+     * Returns specified data as bytes in a new buffer, only lower byte of each
+     * item is used.
+     *
+     * @param data to convert
+     * @return new buffer with position {@code 0} and limit at the end of data
+     */
+    public static ByteBuffer toByteBuffer(short[] data) {
+        byte[] result = new byte[data.length];
+        for (int item = 0; item < data.length; item++) {
+            result[item] = (byte) data[item];
+        }
+        return ByteBuffer.wrap(result);
+    }
+}
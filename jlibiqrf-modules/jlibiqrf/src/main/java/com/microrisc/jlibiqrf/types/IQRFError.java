@@ -29,7 +29,11 @@ public enum IQRFError {
     /** Identify error occurred while sending data. */
     SEND_ERROR(2, "Error while data was sending."),
     /** Identify error occurred while initialization. */
-    INIT_ERROR(3, "Error while initialization.");
+    INIT_ERROR(3, "Error while initialization."),
+    /** Identify that response hasn't been received in time. */
+    TIMEOUT_ERROR(4, "Response hasn't been received in time."),
+    /** Identify error occurred while receiving data, e.g. corrupted frame. */
+    RECEIVE_ERROR(5, "Error while data was receiving.");
     
     private static final Map<Integer, IQRFError> map = new HashMap<Integer,IQRFError>();
     
@@ -54,4 +54,13 @@ public class IQRFLayerException extends Exception {
     public int getErrorId() {
         return error.getErrorId();
     }
+
+    /**
+     * Returns error which has been occurred in library.
+     *
+     * @return error
+     */
+    public IQRFError getError() {
+        return error;
+    }
 }